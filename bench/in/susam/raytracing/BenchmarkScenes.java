@@ -0,0 +1,80 @@
+/*
+ * Scenes for benchmarks.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Random;
+
+/**
+ * Creates the scenes used by the benchmarks.
+ *
+ * @author Susam Pal
+ */
+final class BenchmarkScenes
+{
+    /**
+     * This class only contains static methods.
+     */
+    private BenchmarkScenes()
+    {
+    }
+
+    /**
+     * Creates a scene. The name <code>default</code> refers to the scene
+     * defined in {@link Scene}. Any other name must be a number that
+     * specifies the number of randomly placed spheres in a synthetic
+     * scene.
+     *
+     * @param name Name of the scene.
+     * @return Scene.
+     */
+    static Scene create(String name)
+    {
+        Scene scene = new Scene();
+        if (name.equals("default")) {
+            return scene;
+        }
+
+        int count = Integer.parseInt(name);
+
+        // Keep the materials and lights of the default scene and replace
+        // its spheres with spheres of the same materials placed at
+        // random within the view. The seed is fixed so that every run
+        // of a benchmark traces the same scene.
+        Scene.Sphere[] templates =
+                scene.spheres.toArray(new Scene.Sphere[0]);
+        scene.spheres.clear();
+
+        Random random = new Random(42);
+
+        // Shrink the spheres as their number grows so that the
+        // fraction of the view covered by them stays roughly constant.
+        double maxRadius = 200.0 / Math.sqrt(count);
+        for (int i = 0; i < count; i++) {
+            Point center = new Point(random.nextDouble() * scene.width,
+                                     random.nextDouble() * scene.height,
+                                     random.nextDouble() * 1000 - 600);
+            double radius = maxRadius * (0.25 + 0.75 * random.nextDouble());
+            Scene.Material material =
+                    templates[random.nextInt(templates.length)].material;
+            scene.spheres.add(scene.new Sphere(center, radius, material));
+        }
+        scene.spheresChanged();
+        return scene;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Benchmark for rendering complete images.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken by {@link RayTracer#draw} to render and save
+ * a complete image.
+ *
+ * @author Susam Pal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DrawBenchmark
+{
+    /**
+     * Scene to trace. See {@link BenchmarkScenes#create}.
+     */
+    @Param({"default", "10", "1000", "100000"})
+    public String scene;
+
+    /**
+     * Resolution of the image as <code>WIDTHxHEIGHT</code>.
+     */
+    @Param({"200x150", "800x600", "1600x1200"})
+    public String resolution;
+
+    /**
+     * Number of threads. 0 means one thread per available processor.
+     */
+    @Param({"1", "0"})
+    public int threads;
+
+    /**
+     * Scene created for the benchmark.
+     */
+    private Scene s;
+
+    /**
+     * Render settings.
+     */
+    private RenderSettings settings;
+
+    /**
+     * Temporary file in which the image is saved.
+     */
+    private File output;
+
+    /**
+     * Creates the scene and builds its bounding volume hierarchy.
+     *
+     * @throws IOException If the temporary file cannot be created.
+     */
+    @Setup
+    public void setup() throws IOException
+    {
+        s = BenchmarkScenes.create(scene);
+        String[] size = resolution.split("x");
+        s.width = Integer.parseInt(size[0]);
+        s.height = Integer.parseInt(size[1]);
+        s.getHierarchy();
+
+        settings = new RenderSettings(threads > 0 ? threads :
+                Runtime.getRuntime().availableProcessors());
+        output = File.createTempFile("bench", ".bmp");
+    }
+
+    /**
+     * Deletes the temporary file.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        output.delete();
+    }
+
+    /**
+     * Renders the image.
+     *
+     * @throws IOException If the image cannot be saved.
+     */
+    @Benchmark
+    public void draw() throws IOException
+    {
+        RayTracer.draw(output.getPath(), s, settings);
+    }
+}
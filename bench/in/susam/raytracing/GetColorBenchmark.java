@@ -0,0 +1,125 @@
+/*
+ * Benchmark for tracing single rays.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken to compute the color of a single ray with
+ * {@link RayTracer#getColor} and with the allocation free kernel behind
+ * it.
+ *
+ * @author Susam Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetColorBenchmark
+{
+    /**
+     * Scene to trace. See {@link BenchmarkScenes#create}.
+     */
+    @Param({"default", "10", "1000", "100000"})
+    public String scene;
+
+    /**
+     * Scene created for the benchmark.
+     */
+    private Scene s;
+
+    /**
+     * Tracing state.
+     */
+    private TraceContext context;
+
+    /**
+     * Point on the camera from where the primary ray is cast. In the
+     * default scene, this ray hits the red sphere.
+     */
+    double primaryX = 300.0, primaryY = 200.0;
+
+    /**
+     * Point on the camera from where the reflective ray is cast. In the
+     * default scene, this ray hits the white sphere whose reflection
+     * coefficient is 1.0, so the ray bounces until the bounce limit.
+     */
+    double reflectiveX = 250.0, reflectiveY = 300.0;
+
+    /**
+     * Creates the scene and builds its bounding volume hierarchy.
+     */
+    @Setup
+    public void setup()
+    {
+        s = BenchmarkScenes.create(scene);
+        context = new TraceContext(s);
+    }
+
+    /**
+     * Traces a primary ray with {@link RayTracer#getColor}.
+     *
+     * @return Color of the ray.
+     */
+    @Benchmark
+    public Color getColorPrimary()
+    {
+        return RayTracer.getColor(new Ray(new Point(primaryX, primaryY,
+                                                    -1000),
+                                          new Vector(0, 0, 1)), s);
+    }
+
+    /**
+     * Traces a primary ray with the allocation free kernel.
+     *
+     * @return Red component of the color of the ray.
+     */
+    @Benchmark
+    public double tracePrimary()
+    {
+        RayTracer.trace(primaryX, primaryY, -1000, 0, 0, 1, context);
+        return context.red;
+    }
+
+    /**
+     * Traces a ray that bounces between reflective spheres with the
+     * allocation free kernel.
+     *
+     * @return Red component of the color of the ray.
+     */
+    @Benchmark
+    public double traceReflective()
+    {
+        RayTracer.trace(reflectiveX, reflectiveY, -1000, 0, 0, 1, context);
+        return context.red;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Benchmark for updating the bounding volume hierarchy.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken to bring the bounding volume hierarchy up to
+ * date after some spheres move, by building it again and by updating
+ * it with {@link BoundingVolumeHierarchy#update}.
+ *
+ * @author Susam Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyUpdateBenchmark
+{
+    /**
+     * Scene whose spheres move. See {@link BenchmarkScenes#create}.
+     */
+    @Param({"1000", "100000"})
+    public String scene;
+
+    /**
+     * Number of spheres that move before each update.
+     */
+    @Param({"10", "1000"})
+    public int moved;
+
+    /**
+     * Sphere store of the scene.
+     */
+    private SphereStore store;
+
+    /**
+     * Hierarchy that is updated.
+     */
+    private BoundingVolumeHierarchy hierarchy;
+
+    /**
+     * Positions of the spheres that move.
+     */
+    private int[] spheres;
+
+    /**
+     * Direction of the next move. The spheres move back and forth so
+     * that the scene does not drift away from its initial state.
+     */
+    private double step = 1.0;
+
+    /**
+     * Creates the scene, builds its hierarchy and chooses the spheres
+     * that move.
+     */
+    @Setup
+    public void setup()
+    {
+        store = BenchmarkScenes.create(scene).getSphereStore();
+        hierarchy = new BoundingVolumeHierarchy(store);
+        Random random = new Random(42);
+        spheres = new int[Math.min(moved, store.size())];
+        for (int i = 0; i < spheres.length; i++) {
+            spheres[i] = random.nextInt(store.size());
+        }
+    }
+
+    /**
+     * Moves the spheres by a small step.
+     */
+    private void move()
+    {
+        for (int s : spheres) {
+            store.move(s, store.x(s) + step, store.y(s), store.z(s),
+                       store.radius(s));
+        }
+        step = -step;
+    }
+
+    /**
+     * Moves the spheres and builds the hierarchy again.
+     *
+     * @return Hierarchy.
+     */
+    @Benchmark
+    public BoundingVolumeHierarchy rebuild()
+    {
+        move();
+        return new BoundingVolumeHierarchy(store);
+    }
+
+    /**
+     * Moves the spheres and updates the hierarchy.
+     *
+     * @return Hierarchy.
+     */
+    @Benchmark
+    public BoundingVolumeHierarchy update()
+    {
+        move();
+        hierarchy = hierarchy.update(spheres);
+        return hierarchy;
+    }
+}
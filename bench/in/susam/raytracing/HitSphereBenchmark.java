@@ -0,0 +1,90 @@
+/*
+ * Benchmark for ray and sphere intersection.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken by {@link RayTracer#hitSphere} for a ray that
+ * hits the sphere and for a ray that misses it.
+ *
+ * @author Susam Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitSphereBenchmark
+{
+    /**
+     * Origin of the ray. The fields are not final so that the JIT
+     * compiler cannot fold the computation into a constant.
+     */
+    double ox = 300.0, oy = 200.0, oz = -1000.0;
+
+    /**
+     * Direction of the ray.
+     */
+    double dx = 0.0, dy = 0.0, dz = 1.0;
+
+    /**
+     * Center and radius of the sphere.
+     */
+    double cx = 300.0, cy = 200.0, cz = -350.0, radius = 100.0;
+
+    /**
+     * Center of a sphere that the ray misses.
+     */
+    double missX = 600.0, missY = 240.0;
+
+    /**
+     * Intersects a ray with a sphere that it hits.
+     *
+     * @return Distance of the intersection point.
+     */
+    @Benchmark
+    public double hit()
+    {
+        return RayTracer.hitSphere(ox, oy, oz, dx, dy, dz,
+                                   cx, cy, cz, radius, 2000.0);
+    }
+
+    /**
+     * Intersects a ray with a sphere that it misses.
+     *
+     * @return Distance of the intersection point.
+     */
+    @Benchmark
+    public double miss()
+    {
+        return RayTracer.hitSphere(ox, oy, oz, dx, dy, dz,
+                                   missX, missY, cz, radius, 2000.0);
+    }
+}
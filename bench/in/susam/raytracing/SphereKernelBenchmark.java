@@ -0,0 +1,112 @@
+/*
+ * Benchmark for sphere intersection kernels.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken by the scalar and the vector
+ * {@link SphereKernel} to test a ray against a run of spheres.
+ *
+ * @author Susam Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules",
+                                  "jdk.incubator.vector"})
+public class SphereKernelBenchmark
+{
+    /**
+     * Kernel to measure.
+     */
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    /**
+     * Number of spheres tested.
+     */
+    @Param({"8", "1024"})
+    public int count;
+
+    /**
+     * Kernel created for the benchmark.
+     */
+    private SphereKernel k;
+
+    /**
+     * Centers and radii of the spheres.
+     */
+    private double[] cx, cy, cz, r;
+
+    /**
+     * Distances computed by the kernel.
+     */
+    private double[] out;
+
+    /**
+     * Creates the kernel and places the spheres at random.
+     */
+    @Setup
+    public void setup()
+    {
+        k = SphereKernel.create(kernel);
+        int n = count + k.lanes();
+        cx = new double[n];
+        cy = new double[n];
+        cz = new double[n];
+        r = new double[n];
+        out = new double[n];
+
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            cx[i] = random.nextDouble() * 800;
+            cy[i] = random.nextDouble() * 600;
+            cz[i] = random.nextDouble() * 1000 - 600;
+            r[i] = 20 + random.nextDouble() * 80;
+        }
+    }
+
+    /**
+     * Computes the distances of the intersection points.
+     *
+     * @return Distances of the intersection points.
+     */
+    @Benchmark
+    public double[] intersect()
+    {
+        k.intersect(cx, cy, cz, r, 0, count, 400, 300, -1000, 0, 0, 1,
+                    2000, out);
+        return out;
+    }
+}
@@ -0,0 +1,4 @@
+package in.susam.raytracing.jmh_generated;
+public class GetColorBenchmark_jmhType extends GetColorBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package in.susam.raytracing.jmh_generated;
+public class HierarchyUpdateBenchmark_jmhType extends HierarchyUpdateBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package in.susam.raytracing.jmh_generated;
+public class HitSphereBenchmark_jmhType extends HitSphereBenchmark_jmhType_B3 {
+}
+
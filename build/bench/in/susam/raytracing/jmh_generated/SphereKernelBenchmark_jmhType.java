@@ -0,0 +1,4 @@
+package in.susam.raytracing.jmh_generated;
+public class SphereKernelBenchmark_jmhType extends SphereKernelBenchmark_jmhType_B3 {
+}
+
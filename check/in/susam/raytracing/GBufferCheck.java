@@ -0,0 +1,105 @@
+/*
+ * Check of the reuse of G-buffers by the render server.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Checks that the render server reuses the G-buffer of a scene that is
+ * submitted again with other settings. The default scene is traced
+ * twice by a server with <code>gbuffer</code> set, first with a higher
+ * exposure and then with the default settings, so that the second
+ * render is not answered from the image cache. The check fails unless
+ * the second render took its primary hits from the G-buffer of the
+ * first and its image is the same as the committed output.bmp.
+ *
+ * @author Susam Pal
+ */
+public class GBufferCheck
+{
+    /**
+     * Runs the check.
+     *
+     * @param args Scene file and the expected image.
+     * @throws IOException If a file cannot be read or a request fails.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: GBufferCheck " +
+                                               "SCENE EXPECTED");
+        }
+        byte[] scene = Files.readAllBytes(Paths.get(args[0]));
+        byte[] expected = Files.readAllBytes(Paths.get(args[1]));
+
+        try (RenderServer server = new RenderServer(0, 2, 1 << 20)) {
+            server.start();
+            String url = "http://localhost:" + server.getPort() +
+                         "/render?gbuffer";
+            post(url + "&exposure=2", scene);
+            if (server.gBufferHits() != 0) {
+                throw new IllegalStateException("First render reused a " +
+                                                "G-buffer");
+            }
+            byte[] image = post(url, scene);
+            if (server.gBufferHits() != 1) {
+                throw new IllegalStateException("Second render traced " +
+                                                "the primary rays again");
+            }
+            if (!Arrays.equals(image, expected)) {
+                throw new IllegalStateException("Image rendered with the " +
+                                                "reused G-buffer differs " +
+                                                "from " + args[1]);
+            }
+        }
+    }
+
+    /**
+     * Sends a scene to the render server.
+     *
+     * @param url   URL of the render.
+     * @param scene Bytes of the scene file.
+     * @return Bytes of the image.
+     * @throws IOException If the request fails.
+     */
+    private static byte[] post(String url, byte[] scene) throws IOException
+    {
+        HttpURLConnection c =
+                (HttpURLConnection) new URL(url).openConnection();
+        c.setRequestMethod("POST");
+        c.setDoOutput(true);
+        try (OutputStream out = c.getOutputStream()) {
+            out.write(scene);
+        }
+        if (c.getResponseCode() != 200) {
+            throw new IOException(url + " returned " +
+                                  c.getResponseCode());
+        }
+        try (InputStream in = c.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
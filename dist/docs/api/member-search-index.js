@@ -0,0 +1 @@
+memberSearchIndex = [{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"acc"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"accept(ServerSocket, byte[], PixelWriter)","u":"accept(java.net.ServerSocket,byte[],in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"adaptive"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"AdaptiveSampler(TraceContext, RenderSettings)","u":"%3Cinit%3E(in.susam.raytracing.TraceContext,in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"Color","l":"add(Color)","u":"add(in.susam.raytracing.Color)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"add(double, double, double, double, int)","u":"add(double,double,double,double,int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"add(double[], int)","u":"add(double[],int)"},{"p":"in.susam.raytracing","c":"RayBounds","l":"add(double[], int, double, double, double, double, double, double)","u":"add(double[],int,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"Vector","l":"add(Point, Vector)","u":"add(in.susam.raytracing.Point,in.susam.raytracing.Vector)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"add(TraceContext)","u":"add(in.susam.raytracing.TraceContext)"},{"p":"in.susam.raytracing","c":"Vector","l":"add(Vector, Vector)","u":"add(in.susam.raytracing.Vector,in.susam.raytracing.Vector)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"addCounts(long[])"},{"p":"in.susam.raytracing","c":"SphereStore","l":"addMaterial(Scene.Material)","u":"addMaterial(in.susam.raytracing.Scene.Material)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"addSamples(long)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"allocate(int)"},{"p":"in.susam.raytracing","c":"Color","l":"alterAsPerExposure(double)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"animate(String, String, Scene, RenderSettings)","u":"animate(java.lang.String,java.lang.String,in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"Animation","l":"Animation(Scene, RenderSettings)","u":"%3Cinit%3E(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"area(double[])"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"area(double[], int)","u":"area(double[],int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"area(float[], int)","u":"area(float[],int)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"asList(Scene)","u":"asList(in.susam.raytracing.Scene)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"assign(TileCoordinator.Connection)","u":"assign(in.susam.raytracing.TileCoordinator.Connection)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"assigned"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"averageBounceDepth"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"await()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"axis"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"axis"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"axis"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"Band(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"bandHeight"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"bandHeight"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"bandHeight()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Hit","l":"batch"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"batch(BoundingVolumeHierarchy.Hit)","u":"batch(in.susam.raytracing.BoundingVolumeHierarchy.Hit)"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"Batch(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"BIN_COUNT"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"bin(double, double, double)","u":"bin(double,double,double)"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"bin(double, int)","u":"bin(double,int)"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"binAt(double, double)","u":"binAt(double,double)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"binBox"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"binCentroids"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"binCount"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"bins()"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"binSize"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"binSize(SphereStore, double, double, int, int)","u":"binSize(in.susam.raytracing.SphereStore,double,double,int,int)"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"binStart"},{"p":"in.susam.raytracing","c":"DeadlineRenderer.Level","l":"block"},{"p":"in.susam.raytracing","c":"RenderStatistics.TileEvent","l":"block"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"block"},{"p":"in.susam.raytracing","c":"Color","l":"blue"},{"p":"in.susam.raytracing","c":"TraceContext","l":"blue"},{"p":"in.susam.raytracing","c":"BMPBuffer","l":"BMPBuffer(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"BMPWriter(String, int, int)","u":"%3Cinit%3E(java.lang.String,int,int)"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"BMPWriter(String, int, int, boolean)","u":"%3Cinit%3E(java.lang.String,int,int,boolean)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"bounces"},{"p":"in.susam.raytracing","c":"TraceContext","l":"bounces"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"BoundingVolumeHierarchy(BoundingVolumeHierarchy.Primitives, SphereKernel, BoundingVolumeHierarchy.BuildNode)","u":"%3Cinit%3E(in.susam.raytracing.BoundingVolumeHierarchy.Primitives,in.susam.raytracing.SphereKernel,in.susam.raytracing.BoundingVolumeHierarchy.BuildNode)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"BoundingVolumeHierarchy(Collection<Scene.Sphere>)","u":"%3Cinit%3E(java.util.Collection)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"BoundingVolumeHierarchy(SphereStore)","u":"%3Cinit%3E(in.susam.raytracing.SphereStore)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"BoundingVolumeHierarchy(SphereStore, SphereKernel)","u":"%3Cinit%3E(in.susam.raytracing.SphereStore,in.susam.raytracing.SphereKernel)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"bounds"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"bounds"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"bounds(int, int, double[], int)","u":"bounds(int,int,double[],int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"box"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"boxes"},{"p":"in.susam.raytracing","c":"RayBounds","l":"boxes"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"build(BoundingVolumeHierarchy.NodeArrays, int, int, int, double[], int)","u":"build(in.susam.raytracing.BoundingVolumeHierarchy.NodeArrays,int,int,int,double[],int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"build(BoundingVolumeHierarchy.Primitives, int, int, int)","u":"build(in.susam.raytracing.BoundingVolumeHierarchy.Primitives,int,int,int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"BuildNode()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"BuildNode(float[], float, int, BoundingVolumeHierarchy.BuildNode, BoundingVolumeHierarchy.BuildNode)","u":"%3Cinit%3E(float[],float,int,in.susam.raytracing.BoundingVolumeHierarchy.BuildNode,in.susam.raytracing.BoundingVolumeHierarchy.BuildNode)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"BuildTask(BoundingVolumeHierarchy.Primitives, int, int, int, double[], boolean)","u":"%3Cinit%3E(in.susam.raytracing.BoundingVolumeHierarchy.Primitives,int,int,int,double[],boolean)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"builtArea"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"builtArea"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"builtArea"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"busyTime"},{"p":"in.susam.raytracing","c":"BMPBuffer","l":"bytes"},{"p":"in.susam.raytracing","c":"BMPBuffer","l":"bytes()"},{"p":"in.susam.raytracing","c":"RenderServer","l":"cache"},{"p":"in.susam.raytracing","c":"RayTracer","l":"CAMERA_POSITION"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"cameraPosition"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"cancel()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"cancel()"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"cancel()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"cancelled"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"cancelled"},{"p":"in.susam.raytracing","c":"RenderCache","l":"capacity"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"capacity"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"capacity()"},{"p":"in.susam.raytracing","c":"GBuffer","l":"cell(double, double)","u":"cell(double,double)"},{"p":"in.susam.raytracing","c":"Scene.Sphere","l":"center"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"centroid(int, int)","u":"centroid(int,int)"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"channel"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"channel"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"checkCancelled()"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"checkpoint"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"Checkpoint(String, String, Scene, RenderSettings)","u":"%3Cinit%3E(java.lang.String,java.lang.String,in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"checkpointDirectory"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"checkpointInterval"},{"p":"in.susam.raytracing","c":"SceneReader","l":"checkSize(int, int)","u":"checkSize(int,int)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"CHUNK_BITS"},{"p":"in.susam.raytracing","c":"SphereStore","l":"CHUNK_MASK"},{"p":"in.susam.raytracing","c":"SphereStore","l":"CHUNK_SIZE"},{"p":"in.susam.raytracing","c":"SphereStore","l":"chunks"},{"p":"in.susam.raytracing","c":"Animation","l":"close()"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"close()"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"close()"},{"p":"in.susam.raytracing","c":"RenderScheduler","l":"close()"},{"p":"in.susam.raytracing","c":"RenderServer","l":"close()"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"close()"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"close()"},{"p":"in.susam.raytracing","c":"RenderScheduler","l":"closed"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"closestHit(double, double, double, double, BoundingVolumeHierarchy.Hit)","u":"closestHit(double,double,double,double,in.susam.raytracing.BoundingVolumeHierarchy.Hit)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"closestHit(double, double, double, double, double, double, double, BoundingVolumeHierarchy.Hit)","u":"closestHit(double,double,double,double,double,double,double,in.susam.raytracing.BoundingVolumeHierarchy.Hit)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"closestHit(double, double, double, double, double, double, double, BoundingVolumeHierarchy.Hit, int[])","u":"closestHit(double,double,double,double,double,double,double,in.susam.raytracing.BoundingVolumeHierarchy.Hit,int[])"},{"p":"in.susam.raytracing","c":"GBuffer","l":"closestHit(int, BoundingVolumeHierarchy.Hit)","u":"closestHit(int,in.susam.raytracing.BoundingVolumeHierarchy.Hit)"},{"p":"in.susam.raytracing","c":"Color","l":"Color(double, double, double)","u":"%3Cinit%3E(double,double,double)"},{"p":"in.susam.raytracing","c":"GBuffer","l":"columns"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"columns"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"complete(TileCoordinator.Connection, Tile, byte[], PixelWriter)","u":"complete(in.susam.raytracing.TileCoordinator.Connection,in.susam.raytracing.Tile,byte[],in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"compute()"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"compute()"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"Connection(Socket)","u":"%3Cinit%3E(java.net.Socket)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"connections"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"context"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"contexts"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"contrast(int, int)","u":"contrast(int,int)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"contrastThreshold"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"convert(double)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"copies"},{"p":"in.susam.raytracing","c":"SphereStore","l":"copy()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"copy(int, BoundingVolumeHierarchy.Primitives, int, BoundingVolumeHierarchy.NodeArrays)","u":"copy(int,in.susam.raytracing.BoundingVolumeHierarchy.Primitives,int,in.susam.raytracing.BoundingVolumeHierarchy.NodeArrays)"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"corners"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"count"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"count"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"counts()"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"covers(double, double)","u":"covers(double,double)"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"create(String)","u":"create(java.lang.String)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"deadline"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"deadline"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"DeadlineRenderer(Scene, RenderSettings, RenderStatistics, RenderMonitor)","u":"%3Cinit%3E(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings,in.susam.raytracing.RenderStatistics,in.susam.raytracing.RenderMonitor)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"DEFAULT_CACHE_SIZE"},{"p":"in.susam.raytracing","c":"RenderServer","l":"DEFAULT_PORT"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"depth"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"depth"},{"p":"in.susam.raytracing","c":"DeadlineRenderer.Level","l":"depth"},{"p":"in.susam.raytracing","c":"RenderServer","l":"describe(RenderSettings)","u":"describe(in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"Scene.Material","l":"diffusion"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"digest(Scene)","u":"digest(in.susam.raytracing.Scene)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"dimRays"},{"p":"in.susam.raytracing","c":"TraceContext","l":"dimRays"},{"p":"in.susam.raytracing","c":"Ray","l":"direction"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Hit","l":"distance"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Hit","l":"distances"},{"p":"in.susam.raytracing","c":"GBuffer","l":"distances"},{"p":"in.susam.raytracing","c":"VectorSphereKernel","l":"distances(double[], double[], double[], double[], int, double, double, double, double, double, double, double)","u":"distances(double[],double[],double[],double[],int,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"done"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"done"},{"p":"in.susam.raytracing","c":"Vector","l":"dotProduct(Vector, Vector)","u":"dotProduct(in.susam.raytracing.Vector,in.susam.raytracing.Vector)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"draw(String, Scene)","u":"draw(java.lang.String,in.susam.raytracing.Scene)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"draw(String, Scene, RenderSettings)","u":"draw(java.lang.String,in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"draw(String, Scene, RenderSettings, RenderListener)","u":"draw(java.lang.String,in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings,in.susam.raytracing.RenderListener)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"empty()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"emptyBox(double[], int)","u":"emptyBox(double[],int)"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"encode(double)"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"encoded"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"encoded(double)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"end"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"END"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"ended"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"entries()"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"error"},{"p":"in.susam.raytracing","c":"SceneReader","l":"expect(String[], int)","u":"expect(java.lang.String[],int)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"exposure"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"exposure"},{"p":"in.susam.raytracing","c":"TraceContext","l":"exposure"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"extent(double, double, double, double)","u":"extent(double,double,double,double)"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"file"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"file"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"file"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"finish()"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"finish()"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"finished"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"finished"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"first"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"flatten(BoundingVolumeHierarchy.BuildNode, int)","u":"flatten(in.susam.raytracing.BoundingVolumeHierarchy.BuildNode,int)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"flush()"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"force()"},{"p":"in.susam.raytracing","c":"Animation","l":"frame"},{"p":"in.susam.raytracing","c":"Animation.Frame","l":"Frame(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"Framebuffer(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"in.susam.raytracing","c":"Animation","l":"frameFile(String, int)","u":"frameFile(java.lang.String,int)"},{"p":"in.susam.raytracing","c":"Animation","l":"frames"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"from"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"gather(int, int)","u":"gather(int,int)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"gather(int[], int, int, double[], double[], double[], double[])","u":"gather(int[],int,int,double[],double[],double[],double[])"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"gBuffer"},{"p":"in.susam.raytracing","c":"Scene","l":"gBuffer"},{"p":"in.susam.raytracing","c":"TraceContext","l":"gBuffer"},{"p":"in.susam.raytracing","c":"GBuffer","l":"GBuffer(Scene, RenderSettings, double, double)","u":"%3Cinit%3E(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings,double,double)"},{"p":"in.susam.raytracing","c":"SphereStore.SphereList","l":"get(int)"},{"p":"in.susam.raytracing","c":"RenderCache","l":"get(String)","u":"get(java.lang.String)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getAverageBounceDepth()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getAverageTileTime()"},{"p":"in.susam.raytracing","c":"Color","l":"getBlue()"},{"p":"in.susam.raytracing","c":"RayTracer","l":"getColor(Ray, Scene)","u":"getColor(in.susam.raytracing.Ray,in.susam.raytracing.Scene)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getDimRays()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getElapsedSeconds()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getElapsedSeconds()"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"getExposure()"},{"p":"in.susam.raytracing","c":"Animation","l":"getFrames()"},{"p":"in.susam.raytracing","c":"Scene","l":"getGBuffer(RenderSettings, double, double)","u":"getGBuffer(in.susam.raytracing.RenderSettings,double,double)"},{"p":"in.susam.raytracing","c":"Color","l":"getGreen()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getHeapMax()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getHeapMax()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getHeapUsed()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getHeapUsed()"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"getHeight()"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"getHeight()"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"getHeight()"},{"p":"in.susam.raytracing","c":"Scene","l":"getHierarchy()"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"getInstance()"},{"p":"in.susam.raytracing","c":"SphereStore","l":"getMaterials()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getMaxTileTime()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getOutputFile()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getOutputFile()"},{"p":"in.susam.raytracing","c":"RenderServer","l":"getPort()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getPrimaryRays()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getProgress()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getProgress()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getRays()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getRays()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getRays()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getRaysPerSecond()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getRaysPerSecond()"},{"p":"in.susam.raytracing","c":"Color","l":"getRed()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getReflectionRays()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getRemainingSeconds()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getRemainingSeconds()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getRouletteRays()"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"getRow(int, byte[], int, int)","u":"getRow(int,byte[],int,int)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getSamples()"},{"p":"in.susam.raytracing","c":"Scene","l":"getScreenBins(double, double)","u":"getScreenBins(double,double)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getShadowRays()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getSkippedBounces()"},{"p":"in.susam.raytracing","c":"Scene","l":"getSphereStore()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getSphereTests()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getThreads()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getThreads()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getThreadUtilization()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getThreadUtilization()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getTiles()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getTilesCompleted()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getTilesCompleted()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"getTilesTotal()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"getTilesTotal()"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"getTruncatedRays()"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"getWidth()"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"getWidth()"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"getWidth()"},{"p":"in.susam.raytracing","c":"Color","l":"green"},{"p":"in.susam.raytracing","c":"TraceContext","l":"green"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"grid"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"growBox(double[], int, double, double, double, double)","u":"growBox(double[],int,double,double,double,double)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"handleImage(HttpExchange)","u":"handleImage(com.sun.net.httpserver.HttpExchange)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"handleRender(HttpExchange)","u":"handleRender(com.sun.net.httpserver.HttpExchange)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"hasDeadline"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"HEADER_SIZE"},{"p":"in.susam.raytracing","c":"SceneReader","l":"HEADER_SIZE"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"header(int, int, long, long)","u":"header(int,int,long,long)"},{"p":"in.susam.raytracing","c":"Animation.Frame","l":"height"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"height"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"height"},{"p":"in.susam.raytracing","c":"GBuffer","l":"height"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"height"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"height"},{"p":"in.susam.raytracing","c":"RenderStatistics.TileEvent","l":"height"},{"p":"in.susam.raytracing","c":"Scene","l":"height"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"height"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"height"},{"p":"in.susam.raytracing","c":"Tile","l":"height"},{"p":"in.susam.raytracing","c":"Scene","l":"hierarchy"},{"p":"in.susam.raytracing","c":"TraceContext","l":"hierarchy"},{"p":"in.susam.raytracing","c":"TraceContext","l":"hit"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Hit","l":"Hit()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"hitBox(int, double, double, double, double, double, double, double, double, double, double)","u":"hitBox(int,double,double,double,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"RenderCache","l":"hits"},{"p":"in.susam.raytracing","c":"RayTracer","l":"hitSphere(double, double, double, double, double, double, double, double, double, double, double)","u":"hitSphere(double,double,double,double,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"host"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"image"},{"p":"in.susam.raytracing","c":"RenderCache","l":"images"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Hit","l":"index"},{"p":"in.susam.raytracing","c":"Tile","l":"index"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"INSTANCE"},{"p":"in.susam.raytracing","c":"Scene.Light","l":"intensity"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"intersect(double[], double[], double[], double[], int, int, double, double, double, double, double, double, double, double[])","u":"intersect(double[],double[],double[],double[],int,int,double,double,double,double,double,double,double,double[])"},{"p":"in.susam.raytracing","c":"SphereKernel.Scalar","l":"intersect(double[], double[], double[], double[], int, int, double, double, double, double, double, double, double, double[])","u":"intersect(double[],double[],double[],double[],int,int,double,double,double,double,double,double,double,double[])"},{"p":"in.susam.raytracing","c":"VectorSphereKernel","l":"intersect(double[], double[], double[], double[], int, int, double, double, double, double, double, double, double, double[])","u":"intersect(double[],double[],double[],double[],int,int,double,double,double,double,double,double,double,double[])"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"intersect(SphereStore, int[], int, int, double, double, double, double, double, double, double, double[], SphereKernel.Batch)","u":"intersect(in.susam.raytracing.SphereStore,int[],int,int,double,double,double,double,double,double,double,double[],in.susam.raytracing.SphereKernel.Batch)"},{"p":"in.susam.raytracing","c":"SphereKernel.Scalar","l":"intersect(SphereStore, int[], int, int, double, double, double, double, double, double, double, double[], SphereKernel.Batch)","u":"intersect(in.susam.raytracing.SphereStore,int[],int,int,double,double,double,double,double,double,double,double[],in.susam.raytracing.SphereKernel.Batch)"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"interval"},{"p":"in.susam.raytracing","c":"SceneReader","l":"isBinary(String)","u":"isBinary(java.lang.String)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"isCancelled()"},{"p":"in.susam.raytracing","c":"RenderMonitorMBean","l":"isCancelled()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"isDegraded(int)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"isDim(double, int, double, double, double, TraceContext)","u":"isDim(double,int,double,double,double,in.susam.raytracing.TraceContext)"},{"p":"in.susam.raytracing","c":"Animation","l":"isDirty(int, double[])","u":"isDirty(int,double[])"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"isDone(int)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"isLate()"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"isResumed()"},{"p":"in.susam.raytracing","c":"RayBounds","l":"isTraced(int)"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"isVisible(double, double, double, double, double, double)","u":"isVisible(double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"isWritable()"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"Job(String, TileRenderer, List<Tile>, PixelWriter, int, double)","u":"%3Cinit%3E(java.lang.String,in.susam.raytracing.TileRenderer,java.util.List,in.susam.raytracing.PixelWriter,int,double)"},{"p":"in.susam.raytracing","c":"RenderScheduler","l":"jobs"},{"p":"in.susam.raytracing","c":"RenderServer","l":"jobs"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"kernel"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"kernel"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"key"},{"p":"in.susam.raytracing","c":"RenderCache","l":"key(byte[], String)","u":"key(byte[],java.lang.String)"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"key(Scene, RenderSettings)","u":"key(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"lanes"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"lanes()"},{"p":"in.susam.raytracing","c":"SphereKernel.Scalar","l":"lanes()"},{"p":"in.susam.raytracing","c":"VectorSphereKernel","l":"lanes()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"LARGE_LEAF_SIZE"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"LARGE_SCENE_SIZE"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lastOccluder"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"leafSize"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"leafSize"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"left"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"level"},{"p":"in.susam.raytracing","c":"DeadlineRenderer.Level","l":"Level(int, int, double)","u":"%3Cinit%3E(int,int,double)"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"levels"},{"p":"in.susam.raytracing","c":"SceneReader","l":"LIGHT_SIZE"},{"p":"in.susam.raytracing","c":"Scene.Loader","l":"light(double, double, double, double, double, double)","u":"light(double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SceneHandler","l":"light(double, double, double, double, double, double)","u":"light(double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"light(double, double, double, double, double, double)","u":"light(double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"Scene.Light","l":"Light(Point, Color)","u":"%3Cinit%3E(in.susam.raytracing.Point,in.susam.raytracing.Color)"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lightBlue"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lightCount"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lightGreen"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lightRed"},{"p":"in.susam.raytracing","c":"Scene","l":"lights"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"lights"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lightX"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lightY"},{"p":"in.susam.raytracing","c":"TraceContext","l":"lightZ"},{"p":"in.susam.raytracing","c":"TraceContext","l":"linear"},{"p":"in.susam.raytracing","c":"Scene","l":"load(byte[])"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"load(SphereStore, int[], int, int)","u":"load(in.susam.raytracing.SphereStore,int[],int,int)"},{"p":"in.susam.raytracing","c":"Scene","l":"load(String)","u":"load(java.lang.String)"},{"p":"in.susam.raytracing","c":"Scene.Loader","l":"Loader()","u":"%3Cinit%3E()"},{"p":"in.susam.util","c":"Logger","l":"log(String)","u":"log(java.lang.String)"},{"p":"in.susam.raytracing","c":"Animation","l":"logger"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"logger"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"logger"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"logger"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"logger"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"logger"},{"p":"in.susam.raytracing","c":"PreviewWriter","l":"logger"},{"p":"in.susam.raytracing","c":"RayTracer","l":"logger"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"logger"},{"p":"in.susam.raytracing","c":"RenderServer","l":"logger"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"logger"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"logger"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"logger"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"logger"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"logger"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"logger"},{"p":"in.susam.util","c":"Logger","l":"Logger()","u":"%3Cinit%3E()"},{"p":"in.susam.util","c":"Logger","l":"Logger(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"in.susam.util","c":"Logger","l":"logPartial(String, boolean)","u":"logPartial(java.lang.String,boolean)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"logStatistics(RenderStatistics, Scene)","u":"logStatistics(in.susam.raytracing.RenderStatistics,in.susam.raytracing.Scene)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"luminanceThreshold"},{"p":"in.susam.raytracing","c":"TraceContext","l":"luminanceThreshold"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"MAGIC"},{"p":"in.susam.raytracing","c":"SceneReader","l":"MAGIC"},{"p":"in.susam.raytracing","c":"RayTracer","l":"main(String[])","u":"main(java.lang.String[])"},{"p":"in.susam.raytracing","c":"RenderServer","l":"main(String[])","u":"main(java.lang.String[])"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"main(String[])","u":"main(java.lang.String[])"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"main(String[])","u":"main(java.lang.String[])"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"main(String[])","u":"main(java.lang.String[])"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"manifest"},{"p":"in.susam.raytracing","c":"SceneReader","l":"map(FileChannel, long, long)","u":"map(java.nio.channels.FileChannel,long,long)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"map(FileChannel, long, long, List<Scene.Material>)","u":"map(java.nio.channels.FileChannel,long,long,java.util.List)"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"map(Framebuffer, PixelWriter, int)","u":"map(in.susam.raytracing.Framebuffer,in.susam.raytracing.PixelWriter,int)"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"mapRow(float[], int, int, PixelWriter)","u":"mapRow(float[],int,int,in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"MARGIN"},{"p":"in.susam.raytracing","c":"Scene.Sphere","l":"material"},{"p":"in.susam.raytracing","c":"SceneReader","l":"MATERIAL_SIZE"},{"p":"in.susam.raytracing","c":"Scene.Material","l":"Material(Color, double, Color, double)","u":"%3Cinit%3E(in.susam.raytracing.Color,double,in.susam.raytracing.Color,double)"},{"p":"in.susam.raytracing","c":"Scene.Loader","l":"material(double, double, double, double, double, double, double, double)","u":"material(double,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SceneHandler","l":"material(double, double, double, double, double, double, double, double)","u":"material(double,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"material(double, double, double, double, double, double, double, double)","u":"material(double,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"material(int)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"materials"},{"p":"in.susam.raytracing","c":"SphereStore","l":"materials"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"MAX_BIN_ENTRIES"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"MAX_BIN_SIZE"},{"p":"in.susam.raytracing","c":"RayTracer","l":"MAX_DISTANCE"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"MAX_HEURISTIC_DEPTH"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"MAX_LEAF_SIZE"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"MAX_REGION_SIZE"},{"p":"in.susam.raytracing","c":"RenderServer","l":"MAX_SCENE_SIZE"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"MAX_TASK_DEPTH"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"maxBands"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"maxDepth"},{"p":"in.susam.raytracing","c":"TraceContext","l":"maxDepth"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"maxSamples"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"maxTileTime"},{"p":"in.susam.raytracing","c":"RayBounds","l":"meets(int, double, double, double, double)","u":"meets(int,double,double,double,double)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"mergeBox(double[], double[], int)","u":"mergeBox(double[],double[],int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"mergeBox(double[], int, double[], int)","u":"mergeBox(double[],int,double[],int)"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"MIN_BIN_SIZE"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"MIN_LARGE_LEAF_SIZE"},{"p":"in.susam.raytracing","c":"DeadlineRenderer.Level","l":"minCoefficient"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"minCoefficient"},{"p":"in.susam.raytracing","c":"TraceContext","l":"minCoefficient"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"minLeafSize"},{"p":"in.susam.raytracing","c":"RenderCache","l":"misses"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"monitor"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"monitor"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"monitor"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"monitor"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"move(int)"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"move(int, double, double, double, double)","u":"move(int,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"move(int, double, double, double, double)","u":"move(int,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"moves"},{"p":"in.susam.raytracing","c":"Color","l":"multiply(Color, Color)","u":"multiply(in.susam.raytracing.Color,in.susam.raytracing.Color)"},{"p":"in.susam.raytracing","c":"Color","l":"multiply(double, Color)","u":"multiply(double,in.susam.raytracing.Color)"},{"p":"in.susam.raytracing","c":"Vector","l":"multiply(double, Vector)","u":"multiply(double,in.susam.raytracing.Vector)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"name"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"name"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"name"},{"p":"in.susam.util","c":"Logger","l":"name"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"near(double, double)","u":"near(double,double)"},{"p":"in.susam.raytracing","c":"RenderScheduler","l":"next()"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"nextSave"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"NodeArrays(float[], float[], int[], int[], byte[])","u":"%3Cinit%3E(float[],float[],int[],int[],byte[])"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"NodeArrays(int)","u":"%3Cinit%3E(int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"nodeCount"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"nodeCount"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"nodes"},{"p":"in.susam.raytracing","c":"Vector","l":"norm()"},{"p":"in.susam.raytracing","c":"Vector","l":"normalize()"},{"p":"in.susam.raytracing","c":"SceneReader","l":"number(String)","u":"number(java.lang.String)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"occluded(double, double, double, double, double, double, double)","u":"occluded(double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"occluder(double, double, double, double, double, double, double, BoundingVolumeHierarchy.Hit, int[])","u":"occluder(double,double,double,double,double,double,double,in.susam.raytracing.BoundingVolumeHierarchy.Hit,int[])"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"occluder(double[], double[], double[], double[], int, int, double, double, double, double, double, double, double)","u":"occluder(double[],double[],double[],double[],int,int,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SphereKernel.Scalar","l":"occluder(double[], double[], double[], double[], int, int, double, double, double, double, double, double, double)","u":"occluder(double[],double[],double[],double[],int,int,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"VectorSphereKernel","l":"occluder(double[], double[], double[], double[], int, int, double, double, double, double, double, double, double)","u":"occluder(double[],double[],double[],double[],int,int,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"occluder(SphereStore, int[], int, int, double, double, double, double, double, double, double, SphereKernel.Batch)","u":"occluder(in.susam.raytracing.SphereStore,int[],int,int,double,double,double,double,double,double,double,in.susam.raytracing.SphereKernel.Batch)"},{"p":"in.susam.raytracing","c":"SphereKernel.Scalar","l":"occluder(SphereStore, int[], int, int, double, double, double, double, double, double, double, SphereKernel.Batch)","u":"occluder(in.susam.raytracing.SphereStore,int[],int,int,double,double,double,double,double,double,double,in.susam.raytracing.SphereKernel.Batch)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"occludes(double, double, double, double, double, double, double, double, double, double, double)","u":"occludes(double,double,double,double,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"occludes(int, double, double, double, double, double, double, double)","u":"occludes(int,double,double,double,double,double,double,double)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"offset"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"offset"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"order"},{"p":"in.susam.raytracing","c":"Ray","l":"origin"},{"p":"in.susam.raytracing","c":"Scene.Light","l":"origin"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"out"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"outputFile"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"outputFile"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"outstanding"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"overfull"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"overfullBins()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"p"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"parallel"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"PARALLEL_SCENE_SIZE"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"PARALLEL_SUBTREE_SIZE"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"pass"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"pass()"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"passComplete(int)"},{"p":"in.susam.raytracing","c":"PreviewWriter","l":"passComplete(int, int, BMPWriter)","u":"passComplete(int,int,in.susam.raytracing.BMPWriter)"},{"p":"in.susam.raytracing","c":"RenderListener","l":"passComplete(int, int, BMPWriter)","u":"passComplete(int,int,in.susam.raytracing.BMPWriter)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"pending"},{"p":"in.susam.raytracing","c":"Animation.Frame","l":"pixels"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"pixels"},{"p":"in.susam.raytracing","c":"RenderWorker.TileBuffer","l":"pixels"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"pixels"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"pixels()"},{"p":"in.susam.raytracing","c":"Point","l":"Point(double, double, double)","u":"%3Cinit%3E(double,double,double)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"POLL_INTERVAL"},{"p":"in.susam.raytracing","c":"Animation","l":"pool"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"port"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"position"},{"p":"in.susam.raytracing","c":"Scene.Material","l":"power"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"PPMWriter(String, int, int)","u":"%3Cinit%3E(java.lang.String,int,int)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"previewBlockSize"},{"p":"in.susam.raytracing","c":"PreviewWriter","l":"previewFile"},{"p":"in.susam.raytracing","c":"PreviewWriter","l":"PreviewWriter(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"previous"},{"p":"in.susam.raytracing","c":"RayBounds","l":"PRIMARY"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"primaryRays"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"primaryRays"},{"p":"in.susam.raytracing","c":"TraceContext","l":"primaryRays"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"Primitives(SphereStore, int, int[])","u":"%3Cinit%3E(in.susam.raytracing.SphereStore,int,int[])"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"priority"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"priority"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"progressive"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"put(ByteBuffer, Color)","u":"put(java.nio.ByteBuffer,in.susam.raytracing.Color)"},{"p":"in.susam.raytracing","c":"RenderCache","l":"put(String, byte[])","u":"put(java.lang.String,byte[])"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"queue"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"queue"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"queueWait()"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"r"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"radianceFile"},{"p":"in.susam.raytracing","c":"Scene.Sphere","l":"radius"},{"p":"in.susam.raytracing","c":"SphereStore","l":"radius(int)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"random(double, double, int)","u":"random(double,double,int)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"rate"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"rateRays"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"rateTime"},{"p":"in.susam.raytracing","c":"Ray","l":"Ray(Point, Vector)","u":"%3Cinit%3E(in.susam.raytracing.Point,in.susam.raytracing.Vector)"},{"p":"in.susam.raytracing","c":"Animation","l":"rayBounds"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"rayBounds"},{"p":"in.susam.raytracing","c":"TraceContext","l":"rayBounds"},{"p":"in.susam.raytracing","c":"RayBounds","l":"RayBounds(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"RayTracer()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"read(FileChannel, ByteBuffer)","u":"read(java.nio.channels.FileChannel,java.nio.ByteBuffer)"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"read(String)","u":"read(java.lang.String)"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"read(String)","u":"read(java.lang.String)"},{"p":"in.susam.raytracing","c":"SceneReader","l":"read(String, SceneHandler)","u":"read(java.lang.String,in.susam.raytracing.SceneHandler)"},{"p":"in.susam.raytracing","c":"SceneReader","l":"readBinary(String, SceneHandler)","u":"readBinary(java.lang.String,in.susam.raytracing.SceneHandler)"},{"p":"in.susam.raytracing","c":"SceneReader","l":"readElement(String[], Map<String, Integer>, SceneHandler)","u":"readElement(java.lang.String[],java.util.Map,in.susam.raytracing.SceneHandler)"},{"p":"in.susam.raytracing","c":"SceneReader","l":"readText(String, SceneHandler)","u":"readText(java.lang.String,in.susam.raytracing.SceneHandler)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"REBUILD_AREA_RATIO"},{"p":"in.susam.raytracing","c":"SphereStore","l":"RECORD_SIZE"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"recordRays(RayBounds)","u":"recordRays(in.susam.raytracing.RayBounds)"},{"p":"in.susam.raytracing","c":"Color","l":"red"},{"p":"in.susam.raytracing","c":"TraceContext","l":"red"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"refine(int, int, double, double, double)","u":"refine(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"Scene.Material","l":"reflection"},{"p":"in.susam.raytracing","c":"RayBounds","l":"REFLECTION"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"reflectionRays"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"reflectionRays"},{"p":"in.susam.raytracing","c":"TraceContext","l":"reflectionRays"},{"p":"in.susam.raytracing","c":"TraceContext","l":"reflectionTail"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"regions"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"register()"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"release(TileCoordinator.Connection)","u":"release(in.susam.raytracing.TileCoordinator.Connection)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"remaining"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"render(BMPWriter, RenderListener)","u":"render(in.susam.raytracing.BMPWriter,in.susam.raytracing.RenderListener)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"render(PixelWriter)","u":"render(in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"render(PixelWriter)","u":"render(in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"render(PixelWriter, long)","u":"render(in.susam.raytracing.PixelWriter,long)"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"render(PPMWriter)","u":"render(in.susam.raytracing.PPMWriter)"},{"p":"in.susam.raytracing","c":"Animation","l":"render(String)","u":"render(java.lang.String)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"render(String, byte[], RenderSettings)","u":"render(java.lang.String,byte[],in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"Animation","l":"render(String, SceneDelta)","u":"render(java.lang.String,in.susam.raytracing.SceneDelta)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"renderBlocks(List<Tile>, PixelWriter, int, ForkJoinPool)","u":"renderBlocks(java.util.List,in.susam.raytracing.PixelWriter,int,java.util.concurrent.ForkJoinPool)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"renderBlocks(Tile, PixelWriter, int, int)","u":"renderBlocks(in.susam.raytracing.Tile,in.susam.raytracing.PixelWriter,int,int)"},{"p":"in.susam.raytracing","c":"RenderCache","l":"RenderCache(long)","u":"%3Cinit%3E(long)"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"renderer"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"renderer"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"RenderEvent()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"RenderMonitor(String, RenderStatistics, int)","u":"%3Cinit%3E(java.lang.String,in.susam.raytracing.RenderStatistics,int)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"renderPass(List<Tile>, PixelWriter, int, int, ForkJoinPool)","u":"renderPass(java.util.List,in.susam.raytracing.PixelWriter,int,int,java.util.concurrent.ForkJoinPool)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"renders"},{"p":"in.susam.raytracing","c":"RenderScheduler","l":"RenderScheduler(int)","u":"%3Cinit%3E(int)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"RenderServer(int, int, long)","u":"%3Cinit%3E(int,int,long)"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"RenderSettings()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"RenderSettings(int)","u":"%3Cinit%3E(int)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"RenderStatistics()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"renderTile(Tile, PixelWriter)","u":"renderTile(in.susam.raytracing.Tile,in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"renderTile(Tile, PixelWriter)","u":"renderTile(in.susam.raytracing.Tile,in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"renderTile(Tile, PixelWriter, int, int)","u":"renderTile(in.susam.raytracing.Tile,in.susam.raytracing.PixelWriter,int,int)"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"renderTiles(List<Tile>, PixelWriter, ForkJoinPool)","u":"renderTiles(java.util.List,in.susam.raytracing.PixelWriter,java.util.concurrent.ForkJoinPool)"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"RenderWorker(String, int, int)","u":"%3Cinit%3E(java.lang.String,int,int)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"requestExecutor()"},{"p":"in.susam.raytracing","c":"RenderServer","l":"requests"},{"p":"in.susam.raytracing","c":"RayBounds","l":"reset(int, float[])","u":"reset(int,float[])"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"resumed"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"resumedTiles"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"resumedTiles()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"right"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"rightArea"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"rightCount"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"roulette"},{"p":"in.susam.raytracing","c":"TraceContext","l":"roulette"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"rouletteDepth"},{"p":"in.susam.raytracing","c":"TraceContext","l":"rouletteDepth"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"rouletteRays"},{"p":"in.susam.raytracing","c":"TraceContext","l":"rouletteRays"},{"p":"in.susam.raytracing","c":"GBuffer","l":"rows"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"rows"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"rows"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"rows"},{"p":"in.susam.raytracing","c":"BMPBuffer","l":"rowSize"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"rowSize"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"rowsPerRegion"},{"p":"in.susam.raytracing","c":"RenderScheduler","l":"run()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildNode","l":"run(BoundingVolumeHierarchy.NodeArrays, int, int, int)","u":"run(in.susam.raytracing.BoundingVolumeHierarchy.NodeArrays,int,int,int)"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"running"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"SAFETY_FACTOR"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"samplers"},{"p":"in.susam.raytracing","c":"DeadlineRenderer.Level","l":"samples"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"samples"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"samples"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"save()"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"saving"},{"p":"in.susam.raytracing","c":"SphereKernel.Scalar","l":"Scalar()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"scale"},{"p":"in.susam.raytracing","c":"Animation","l":"scene"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"scene"},{"p":"in.susam.raytracing","c":"SphereStore.SphereList","l":"scene"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"scene"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"scene"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"scene"},{"p":"in.susam.raytracing","c":"TraceContext","l":"scene"},{"p":"in.susam.raytracing","c":"Scene","l":"Scene()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"Scene","l":"Scene(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"in.susam.raytracing","c":"Scene","l":"sceneDefinition()"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"SceneDelta()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"sceneIndex"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"sceneIndex"},{"p":"in.susam.raytracing","c":"SceneReader","l":"SceneReader()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"SceneWriter(String)","u":"%3Cinit%3E(java.lang.String)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"scheduler"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"screenBins"},{"p":"in.susam.raytracing","c":"Scene","l":"screenBins"},{"p":"in.susam.raytracing","c":"TraceContext","l":"screenBins"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"ScreenBins(Scene, double, double, SphereKernel)","u":"%3Cinit%3E(in.susam.raytracing.Scene,double,double,in.susam.raytracing.SphereKernel)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"send(HttpExchange, int, String)","u":"send(com.sun.net.httpserver.HttpExchange,int,java.lang.String)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"send(HttpExchange, int, String, byte[])","u":"send(com.sun.net.httpserver.HttpExchange,int,java.lang.String,byte[])"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"send(List<Tile>)","u":"send(java.util.List)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"serialVersionUID"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"serialVersionUID"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"serve(byte[], PixelWriter)","u":"serve(byte[],in.susam.raytracing.PixelWriter)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"server"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"set(RenderStatistics)","u":"set(in.susam.raytracing.RenderStatistics)"},{"p":"in.susam.raytracing","c":"Animation.Frame","l":"setPixel(int, int, double, double, double)","u":"setPixel(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"BMPBuffer","l":"setPixel(int, int, double, double, double)","u":"setPixel(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"setPixel(int, int, double, double, double)","u":"setPixel(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"setPixel(int, int, double, double, double)","u":"setPixel(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"PixelWriter","l":"setPixel(int, int, double, double, double)","u":"setPixel(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"RenderWorker.TileBuffer","l":"setPixel(int, int, double, double, double)","u":"setPixel(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"setPixel(int, int, double, double, double)","u":"setPixel(int,int,double,double,double)"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"setRow(int, byte[], int, int)","u":"setRow(int,byte[],int,int)"},{"p":"in.susam.raytracing","c":"Animation","l":"settings"},{"p":"in.susam.raytracing","c":"DeadlineRenderer.Level","l":"settings"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"settings"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"settings"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"settings"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"settings"},{"p":"in.susam.raytracing","c":"RenderServer","l":"settings(String)","u":"settings(java.lang.String)"},{"p":"in.susam.raytracing","c":"RayBounds","l":"SHADOW"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"shadowRays"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"shadowRays"},{"p":"in.susam.raytracing","c":"TraceContext","l":"shadowRays"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.NodeArrays","l":"size"},{"p":"in.susam.raytracing","c":"RenderCache","l":"size"},{"p":"in.susam.raytracing","c":"SphereStore","l":"size"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"size()"},{"p":"in.susam.raytracing","c":"SphereStore","l":"size()"},{"p":"in.susam.raytracing","c":"SphereStore.SphereList","l":"size()"},{"p":"in.susam.raytracing","c":"Scene.Loader","l":"size(int, int)","u":"size(int,int)"},{"p":"in.susam.raytracing","c":"SceneHandler","l":"size(int, int)","u":"size(int,int)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"size(int, int)","u":"size(int,int)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"skippedBounces"},{"p":"in.susam.raytracing","c":"TraceContext","l":"skippedBounces"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"slices"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"SLICES"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"SLOW_TILE_FACTOR"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"slowTile(TileCoordinator.Connection, long)","u":"slowTile(in.susam.raytracing.TileCoordinator.Connection,long)"},{"p":"in.susam.raytracing","c":"TileCoordinator.Connection","l":"socket"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"sortable(float)"},{"p":"in.susam.raytracing","c":"VectorSphereKernel","l":"SPECIES"},{"p":"in.susam.raytracing","c":"Scene.Material","l":"specularity"},{"p":"in.susam.raytracing","c":"SceneReader","l":"SPHERE_SIZE"},{"p":"in.susam.raytracing","c":"Scene.Loader","l":"sphere(double, double, double, double, int)","u":"sphere(double,double,double,double,int)"},{"p":"in.susam.raytracing","c":"SceneHandler","l":"sphere(double, double, double, double, int)","u":"sphere(double,double,double,double,int)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"sphere(double, double, double, double, int)","u":"sphere(double,double,double,double,int)"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"sphere(int)"},{"p":"in.susam.raytracing","c":"Scene.Sphere","l":"Sphere(Point, double, Scene.Material)","u":"%3Cinit%3E(in.susam.raytracing.Point,double,in.susam.raytracing.Scene.Material)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"sphereCount"},{"p":"in.susam.raytracing","c":"SphereKernel","l":"SphereKernel()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"SphereStore.SphereList","l":"SphereList(Scene)","u":"%3Cinit%3E(in.susam.raytracing.Scene)"},{"p":"in.susam.raytracing","c":"Scene.Loader","l":"sphereRecords(FileChannel, long, long)","u":"sphereRecords(java.nio.channels.FileChannel,long,long)"},{"p":"in.susam.raytracing","c":"SceneHandler","l":"sphereRecords(FileChannel, long, long)","u":"sphereRecords(java.nio.channels.FileChannel,long,long)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"spheres"},{"p":"in.susam.raytracing","c":"GBuffer","l":"spheres"},{"p":"in.susam.raytracing","c":"Scene","l":"spheres"},{"p":"in.susam.raytracing","c":"SceneDelta","l":"spheres"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"spheres"},{"p":"in.susam.raytracing","c":"SceneReader","l":"SPHERES_PER_REGION"},{"p":"in.susam.raytracing","c":"Scene","l":"spheresChanged()"},{"p":"in.susam.raytracing","c":"Scene","l":"spheresMoved(int...)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"SphereStore()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"SphereStore","l":"SphereStore(ByteBuffer[], int, List<Scene.Material>)","u":"%3Cinit%3E(java.nio.ByteBuffer[],int,java.util.List)"},{"p":"in.susam.raytracing","c":"SphereStore","l":"SphereStore(Collection<Scene.Sphere>)","u":"%3Cinit%3E(java.util.Collection)"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"sphereTests"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"sphereTests"},{"p":"in.susam.raytracing","c":"Tile","l":"split(int, int, int)","u":"split(int,int,int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"split(int, int, int, double[], int, double[], int)","u":"split(int,int,int,double[],int,double[],int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"splitAxis"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"splitBinned(int, int, double[], int, double[], int)","u":"splitBinned(int,int,double[],int,double[],int)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"splitMedian(int, int, int, int)","u":"splitMedian(int,int,int,int)"},{"p":"in.susam.raytracing","c":"Color","l":"srgbEncode()"},{"p":"in.susam.raytracing","c":"Color","l":"srgbEncode(double)"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"stack"},{"p":"in.susam.raytracing","c":"TraceContext","l":"stack"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.BuildTask","l":"start"},{"p":"in.susam.raytracing","c":"RenderServer","l":"start()"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"start(int, int)","u":"start(int,int)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"start(long)"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"started"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"startPass(int, int, BMPWriter)","u":"startPass(int,int,in.susam.raytracing.BMPWriter)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"startTime"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"statistics"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"statistics"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"statistics"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"statistics"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"stopAt(long)"},{"p":"in.susam.raytracing","c":"Animation","l":"store"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"store"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"store"},{"p":"in.susam.raytracing","c":"Scene.Loader","l":"store"},{"p":"in.susam.raytracing","c":"Scene","l":"store"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"store"},{"p":"in.susam.raytracing","c":"TraceContext","l":"store"},{"p":"in.susam.raytracing","c":"SphereStore.SphereList","l":"store()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"storeBox(double[], int, float[], int)","u":"storeBox(double[],int,float[],int)"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"StripeRenderer(Scene, RenderSettings, RenderStatistics, RenderMonitor)","u":"%3Cinit%3E(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings,in.susam.raytracing.RenderStatistics,in.susam.raytracing.RenderMonitor)"},{"p":"in.susam.raytracing","c":"RenderScheduler","l":"submit(String, TileRenderer, List<Tile>, PixelWriter, int, double)","u":"submit(java.lang.String,in.susam.raytracing.TileRenderer,java.util.List,in.susam.raytracing.PixelWriter,int,double)"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"submitted"},{"p":"in.susam.raytracing","c":"Vector","l":"subtract(Vector, Vector)","u":"subtract(in.susam.raytracing.Vector,in.susam.raytracing.Vector)"},{"p":"in.susam.raytracing","c":"TraceContext","l":"surfaceBlue"},{"p":"in.susam.raytracing","c":"TraceContext","l":"surfaceGreen"},{"p":"in.susam.raytracing","c":"TraceContext","l":"surfaceRed"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Primitives","l":"swap(int, int)","u":"swap(int,int)"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"TARGET_ENTRIES"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"task"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy.Hit","l":"tests"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"threads"},{"p":"in.susam.raytracing","c":"RenderServer","l":"threads"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"threads"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"threads"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"threads"},{"p":"in.susam.raytracing","c":"AdaptiveSampler","l":"threshold"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"thresholds"},{"p":"in.susam.raytracing","c":"RenderWorker.TileBuffer","l":"tile"},{"p":"in.susam.raytracing","c":"Tile","l":"Tile(int, int, int, int, int)","u":"%3Cinit%3E(int,int,int,int,int)"},{"p":"in.susam.raytracing","c":"RenderWorker.TileBuffer","l":"TileBuffer(Tile)","u":"%3Cinit%3E(in.susam.raytracing.Tile)"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"tileComplete(int)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"tileComplete(long)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"tileComplete(long)"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"TileCoordinator(Scene, RenderSettings, RenderStatistics, RenderMonitor)","u":"%3Cinit%3E(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings,in.susam.raytracing.RenderStatistics,in.susam.raytracing.RenderMonitor)"},{"p":"in.susam.raytracing","c":"RenderStatistics.TileEvent","l":"TileEvent()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"TileRenderer","l":"TileRenderer(Scene, RenderSettings, RenderStatistics, RenderMonitor, Checkpoint)","u":"%3Cinit%3E(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings,in.susam.raytracing.RenderStatistics,in.susam.raytracing.RenderMonitor,in.susam.raytracing.Checkpoint)"},{"p":"in.susam.raytracing","c":"Animation","l":"tiles"},{"p":"in.susam.raytracing","c":"DeadlineRenderer","l":"tiles"},{"p":"in.susam.raytracing","c":"RayBounds","l":"tiles"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"tiles"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"tiles"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"tiles"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"TILES_PER_THREAD"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"tiles(int)"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"tilesCompleted"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"tileSize"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"tilesTotal"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"TileTask(List<Tile>, PixelWriter, int, int, int, int)","u":"%3Cinit%3E(java.util.List,in.susam.raytracing.PixelWriter,int,int,int,int)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"tileTime"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"tileTime"},{"p":"in.susam.raytracing","c":"TileCoordinator","l":"timedTiles"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"to"},{"p":"in.susam.raytracing","c":"Color","l":"toByte(double)"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"toByte(double)"},{"p":"in.susam.raytracing","c":"Color","l":"toBytesForBMP()"},{"p":"in.susam.raytracing","c":"ToneMapper","l":"ToneMapper(double)","u":"%3Cinit%3E(double)"},{"p":"in.susam.raytracing","c":"DeadlineRenderer.Level","l":"toString()"},{"p":"in.susam.raytracing","c":"RenderCache","l":"toString()"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"toString()"},{"p":"in.susam.raytracing","c":"RayTracer","l":"trace(double, double, double, double, double, double, TraceContext)","u":"trace(double,double,double,double,double,double,in.susam.raytracing.TraceContext)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"trace(double, double, double, double, double, double, TraceContext, boolean)","u":"trace(double,double,double,double,double,double,in.susam.raytracing.TraceContext,boolean)"},{"p":"in.susam.raytracing","c":"RenderServer","l":"trace(String, byte[], RenderSettings)","u":"trace(java.lang.String,byte[],in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"trace(Tile, TileRenderer, RenderStatistics, long[], DataOutputStream, Socket)","u":"trace(in.susam.raytracing.Tile,in.susam.raytracing.TileRenderer,in.susam.raytracing.RenderStatistics,long[],java.io.DataOutputStream,java.net.Socket)"},{"p":"in.susam.raytracing","c":"TraceContext","l":"TraceContext(Scene)","u":"%3Cinit%3E(in.susam.raytracing.Scene)"},{"p":"in.susam.raytracing","c":"TraceContext","l":"TraceContext(Scene, RenderSettings)","u":"%3Cinit%3E(in.susam.raytracing.Scene,in.susam.raytracing.RenderSettings)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"tracePixel(int, int, TraceContext)","u":"tracePixel(int,int,in.susam.raytracing.TraceContext)"},{"p":"in.susam.raytracing","c":"GBuffer","l":"traceRow(int, BoundingVolumeHierarchy, ScreenBins, double, double)","u":"traceRow(int,in.susam.raytracing.BoundingVolumeHierarchy,in.susam.raytracing.ScreenBins,double,double)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"traceSample(double, double, TraceContext)","u":"traceSample(double,double,in.susam.raytracing.TraceContext)"},{"p":"in.susam.raytracing","c":"RenderStatistics","l":"truncated"},{"p":"in.susam.raytracing","c":"TraceContext","l":"truncated"},{"p":"in.susam.raytracing","c":"RenderMonitor","l":"unregister()"},{"p":"in.susam.raytracing","c":"BoundingVolumeHierarchy","l":"update(int...)"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"update(MessageDigest, ByteBuffer, int)","u":"update(java.security.MessageDigest,java.nio.ByteBuffer,int)"},{"p":"in.susam.raytracing","c":"RayTracer","l":"USAGE"},{"p":"in.susam.raytracing","c":"Vector","l":"Vector(double, double, double)","u":"%3Cinit%3E(double,double,double)"},{"p":"in.susam.raytracing","c":"Vector","l":"Vector(Point, Point)","u":"%3Cinit%3E(in.susam.raytracing.Point,in.susam.raytracing.Point)"},{"p":"in.susam.raytracing","c":"VectorSphereKernel","l":"VectorSphereKernel()","u":"%3Cinit%3E()"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"VERSION"},{"p":"in.susam.raytracing","c":"SceneReader","l":"VERSION"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"virtualTime"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"weight"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"weight"},{"p":"in.susam.raytracing","c":"Animation.Frame","l":"width"},{"p":"in.susam.raytracing","c":"BMPWriter","l":"width"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"width"},{"p":"in.susam.raytracing","c":"GBuffer","l":"width"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"width"},{"p":"in.susam.raytracing","c":"RenderStatistics.RenderEvent","l":"width"},{"p":"in.susam.raytracing","c":"RenderStatistics.TileEvent","l":"width"},{"p":"in.susam.raytracing","c":"Scene","l":"width"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"width"},{"p":"in.susam.raytracing","c":"ScreenBins","l":"width"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"width"},{"p":"in.susam.raytracing","c":"Tile","l":"width"},{"p":"in.susam.raytracing","c":"RenderWorker","l":"work()"},{"p":"in.susam.raytracing","c":"RenderSettings","l":"workerPort"},{"p":"in.susam.raytracing","c":"SphereStore","l":"writable"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"write(ByteBuffer)","u":"write(java.nio.ByteBuffer)"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"write(FileChannel, ByteBuffer)","u":"write(java.nio.channels.FileChannel,java.nio.ByteBuffer)"},{"p":"in.susam.raytracing","c":"Checkpoint","l":"write(int, BitSet)","u":"write(int,java.util.BitSet)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"write(Scene, String)","u":"write(in.susam.raytracing.Scene,java.lang.String)"},{"p":"in.susam.raytracing","c":"Animation.Frame","l":"write(String)","u":"write(java.lang.String)"},{"p":"in.susam.raytracing","c":"Framebuffer","l":"write(String)","u":"write(java.lang.String)"},{"p":"in.susam.raytracing","c":"StripeRenderer","l":"write(StripeRenderer.Band, PPMWriter)","u":"write(in.susam.raytracing.StripeRenderer.Band,in.susam.raytracing.PPMWriter)"},{"p":"in.susam.raytracing","c":"SceneWriter","l":"writeFully(ByteBuffer, long)","u":"writeFully(java.nio.ByteBuffer,long)"},{"p":"in.susam.raytracing","c":"RenderScheduler.Job","l":"writer"},{"p":"in.susam.raytracing","c":"TileRenderer.TileTask","l":"writer"},{"p":"in.susam.raytracing","c":"PPMWriter","l":"writeRows(byte[], int, int)","u":"writeRows(byte[],int,int)"},{"p":"in.susam.raytracing","c":"Point","l":"x"},{"p":"in.susam.raytracing","c":"RenderStatistics.TileEvent","l":"x"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"x"},{"p":"in.susam.raytracing","c":"Tile","l":"x"},{"p":"in.susam.raytracing","c":"Vector","l":"x"},{"p":"in.susam.raytracing","c":"SphereStore","l":"x(int)"},{"p":"in.susam.raytracing","c":"Point","l":"y"},{"p":"in.susam.raytracing","c":"RenderStatistics.TileEvent","l":"y"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"y"},{"p":"in.susam.raytracing","c":"StripeRenderer.Band","l":"y"},{"p":"in.susam.raytracing","c":"Tile","l":"y"},{"p":"in.susam.raytracing","c":"Vector","l":"y"},{"p":"in.susam.raytracing","c":"SphereStore","l":"y(int)"},{"p":"in.susam.raytracing","c":"Point","l":"z"},{"p":"in.susam.raytracing","c":"SphereKernel.Batch","l":"z"},{"p":"in.susam.raytracing","c":"Vector","l":"z"},{"p":"in.susam.raytracing","c":"SphereStore","l":"z(int)"}];updateSearchResults();
\ No newline at end of file
@@ -0,0 +1 @@
+packageSearchIndex = [{"l":"All Packages","u":"allpackages-index.html"},{"l":"in.susam.raytracing"},{"l":"in.susam.util"}];updateSearchResults();
\ No newline at end of file
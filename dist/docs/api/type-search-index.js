@@ -0,0 +1 @@
+typeSearchIndex = [{"p":"in.susam.raytracing","l":"AdaptiveSampler"},{"l":"All Classes and Interfaces","u":"allclasses-index.html"},{"p":"in.susam.raytracing","l":"Animation"},{"p":"in.susam.raytracing","l":"StripeRenderer.Band"},{"p":"in.susam.raytracing","l":"SphereKernel.Batch"},{"p":"in.susam.raytracing","l":"BMPBuffer"},{"p":"in.susam.raytracing","l":"BMPWriter"},{"p":"in.susam.raytracing","l":"BoundingVolumeHierarchy"},{"p":"in.susam.raytracing","l":"BoundingVolumeHierarchy.BuildNode"},{"p":"in.susam.raytracing","l":"BoundingVolumeHierarchy.BuildTask"},{"p":"in.susam.raytracing","l":"Checkpoint"},{"p":"in.susam.raytracing","l":"Color"},{"p":"in.susam.raytracing","l":"TileCoordinator.Connection"},{"p":"in.susam.raytracing","l":"DeadlineRenderer"},{"p":"in.susam.raytracing","l":"Animation.Frame"},{"p":"in.susam.raytracing","l":"Framebuffer"},{"p":"in.susam.raytracing","l":"GBuffer"},{"p":"in.susam.raytracing","l":"BoundingVolumeHierarchy.Hit"},{"p":"in.susam.raytracing","l":"RenderScheduler.Job"},{"p":"in.susam.raytracing","l":"DeadlineRenderer.Level"},{"p":"in.susam.raytracing","l":"Scene.Light"},{"p":"in.susam.raytracing","l":"Scene.Loader"},{"p":"in.susam.util","l":"Logger"},{"p":"in.susam.raytracing","l":"Scene.Material"},{"p":"in.susam.raytracing","l":"BoundingVolumeHierarchy.NodeArrays"},{"p":"in.susam.raytracing","l":"PixelWriter"},{"p":"in.susam.raytracing","l":"Point"},{"p":"in.susam.raytracing","l":"PPMWriter"},{"p":"in.susam.raytracing","l":"PreviewWriter"},{"p":"in.susam.raytracing","l":"BoundingVolumeHierarchy.Primitives"},{"p":"in.susam.raytracing","l":"Ray"},{"p":"in.susam.raytracing","l":"RayBounds"},{"p":"in.susam.raytracing","l":"RayTracer"},{"p":"in.susam.raytracing","l":"RenderCache"},{"p":"in.susam.raytracing","l":"RenderStatistics.RenderEvent"},{"p":"in.susam.raytracing","l":"RenderListener"},{"p":"in.susam.raytracing","l":"RenderMonitor"},{"p":"in.susam.raytracing","l":"RenderMonitorMBean"},{"p":"in.susam.raytracing","l":"RenderScheduler"},{"p":"in.susam.raytracing","l":"RenderServer"},{"p":"in.susam.raytracing","l":"RenderSettings"},{"p":"in.susam.raytracing","l":"RenderStatistics"},{"p":"in.susam.raytracing","l":"RenderWorker"},{"p":"in.susam.raytracing","l":"SphereKernel.Scalar"},{"p":"in.susam.raytracing","l":"Scene"},{"p":"in.susam.raytracing","l":"SceneDelta"},{"p":"in.susam.raytracing","l":"SceneHandler"},{"p":"in.susam.raytracing","l":"SceneReader"},{"p":"in.susam.raytracing","l":"SceneWriter"},{"p":"in.susam.raytracing","l":"ScreenBins"},{"p":"in.susam.raytracing","l":"Scene.Sphere"},{"p":"in.susam.raytracing","l":"SphereKernel"},{"p":"in.susam.raytracing","l":"SphereStore.SphereList"},{"p":"in.susam.raytracing","l":"SphereStore"},{"p":"in.susam.raytracing","l":"StripeRenderer"},{"p":"in.susam.raytracing","l":"Tile"},{"p":"in.susam.raytracing","l":"RenderWorker.TileBuffer"},{"p":"in.susam.raytracing","l":"TileCoordinator"},{"p":"in.susam.raytracing","l":"RenderStatistics.TileEvent"},{"p":"in.susam.raytracing","l":"TileRenderer"},{"p":"in.susam.raytracing","l":"TileRenderer.TileTask"},{"p":"in.susam.raytracing","l":"ToneMapper"},{"p":"in.susam.raytracing","l":"TraceContext"},{"p":"in.susam.raytracing","l":"Vector"},{"p":"in.susam.raytracing","l":"VectorSphereKernel"}];updateSearchResults();
\ No newline at end of file
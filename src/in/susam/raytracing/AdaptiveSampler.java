@@ -0,0 +1,235 @@
+/*
+ * Adaptive supersampling.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+/**
+ * Traces tiles with adaptive supersampling. One sample is taken at
+ * each corner of every pixel of a tile. The corners are shared by the
+ * neighbouring pixels, so a tile of <code>w</code> by <code>h</code>
+ * pixels needs only <code>(w + 1) * (h + 1)</code> samples. A pixel
+ * whose four corners have nearly the same color lies on a flat region
+ * of the image and gets the color of its top left corner. Only the
+ * pixels whose corners differ by more than the contrast threshold, i.e.
+ * the pixels on the edges of objects, shadows and highlights, are
+ * sampled again on a finer grid.
+ *
+ * <p>The finer grid has <code>n</code> by <code>n</code> samples where
+ * <code>n * n</code> is the largest square not larger than
+ * {@link RenderSettings#maxSamples}. Its first sample is the top left
+ * corner of the pixel. With a grid of 2 by 2 samples, a refined pixel
+ * has the same color as with the fixed 4x supersampling of
+ * {@link RayTracer#tracePixel}.</p>
+ *
+ * <p>An instance of this class holds the scratch state of one thread
+ * and must be used by that thread only.</p>
+ *
+ * @author Susam Pal
+ */
+final class AdaptiveSampler
+{
+    /**
+     * Tracing state of the thread.
+     */
+    private final TraceContext context;
+
+    /**
+     * Maximum difference between any color component of two corners of
+     * a pixel below which the pixel is not refined.
+     */
+    private final double threshold;
+
+    /**
+     * Number of samples along each side of the grid of a refined pixel.
+     */
+    private final int grid;
+
+    /**
+     * Exposure altered colors, or linear radiance, of the corner
+     * samples of the current tile. The red, green and blue components
+     * of each corner are stored one after another.
+     */
+    private double[] corners = new double[0];
+
+    /**
+     * Gamma corrected colors of the corner samples of the current tile.
+     * The colors are compared in this form so that the threshold is
+     * uniform over dark and bright regions of the image.
+     */
+    private double[] encoded = new double[0];
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param context  Tracing state of the current thread.
+     * @param settings Render settings.
+     */
+    AdaptiveSampler(TraceContext context, RenderSettings settings)
+    {
+        if (settings.maxSamples < 1) {
+            throw new IllegalArgumentException("Maximum samples per " +
+                                               "pixel must be positive: " +
+                                               settings.maxSamples);
+        }
+        this.context = context;
+        this.threshold = settings.contrastThreshold;
+        this.grid = (int) Math.sqrt(settings.maxSamples);
+    }
+
+    /**
+     * Traces a tile and writes its pixels into the <code>writer</code>.
+     *
+     * @param tile   Tile to be traced.
+     * @param writer Writer for the output image.
+     * @return Number of samples traced.
+     */
+    long renderTile(Tile tile, PixelWriter writer)
+    {
+        int columns = tile.width + 1;
+        int rows = tile.height + 1;
+        if (corners.length < 3 * columns * rows) {
+            corners = new double[3 * columns * rows];
+            encoded = new double[3 * columns * rows];
+        }
+
+        // One sample at each corner of every pixel.
+        for (int j = 0; j < rows; j++) {
+            for (int i = 0; i < columns; i++) {
+                int c = 3 * (j * columns + i);
+                RayTracer.traceSample(tile.x + i, tile.y + j, context);
+                corners[c] = context.red;
+                corners[c + 1] = context.green;
+                corners[c + 2] = context.blue;
+                encoded[c] = encode(context.red);
+                encoded[c + 1] = encode(context.green);
+                encoded[c + 2] = encode(context.blue);
+            }
+        }
+        long samples = (long) columns * rows;
+
+        for (int j = 0; j < tile.height; j++) {
+            for (int i = 0; i < tile.width; i++) {
+                int c = 3 * (j * columns + i);
+                double red = corners[c];
+                double green = corners[c + 1];
+                double blue = corners[c + 2];
+                if (grid > 1 && contrast(c, columns) > threshold) {
+                    samples += refine(tile.x + i, tile.y + j, red, green,
+                                      blue);
+                    red = context.red;
+                    green = context.green;
+                    blue = context.blue;
+                }
+                if (context.linear) {
+                    writer.setPixel(tile.x + i, tile.y + j, red, green,
+                                    blue);
+                } else {
+                    writer.setPixel(tile.x + i, tile.y + j,
+                                    Color.srgbEncode(red),
+                                    Color.srgbEncode(green),
+                                    Color.srgbEncode(blue));
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Gamma corrects a color component of a sample. If the context
+     * traces linear radiance, the component is first altered as per
+     * exposure so that the threshold applies to the colors of the
+     * tone mapped image.
+     *
+     * @param c Value of a color component.
+     * @return Gamma corrected value.
+     */
+    private double encode(double c)
+    {
+        if (context.linear) {
+            c = 1.0 - Math.exp(-c * context.exposure);
+        }
+        return Color.srgbEncode(c);
+    }
+
+    /**
+     * Computes the largest difference between any color component of
+     * the four corners of a pixel.
+     *
+     * @param c       Index of the top left corner of the pixel in
+     *                {@link #encoded}.
+     * @param columns Number of corners in a row of the tile.
+     * @return Largest difference between the corners.
+     */
+    private double contrast(int c, int columns)
+    {
+        int below = c + 3 * columns;
+        double max = 0;
+        for (int k = 0; k < 3; k++) {
+            double low = Math.min(Math.min(encoded[c + k],
+                                           encoded[c + 3 + k]),
+                                  Math.min(encoded[below + k],
+                                           encoded[below + 3 + k]));
+            double high = Math.max(Math.max(encoded[c + k],
+                                            encoded[c + 3 + k]),
+                                   Math.max(encoded[below + k],
+                                            encoded[below + 3 + k]));
+            max = Math.max(max, high - low);
+        }
+        return max;
+    }
+
+    /**
+     * Samples a pixel on the finer grid. The average color of the
+     * samples is stored in the <code>red</code>, <code>green</code> and
+     * <code>blue</code> fields of the context.
+     *
+     * @param x     X coordinate of the pixel.
+     * @param y     Y coordinate of the pixel.
+     * @param red   Red component of the top left corner.
+     * @param green Green component of the top left corner.
+     * @param blue  Blue component of the top left corner.
+     * @return Number of samples traced.
+     */
+    private int refine(int x, int y, double red, double green, double blue)
+    {
+        double sampleRatio = 1.0 / (grid * grid);
+        double sumRed = 0;
+        double sumGreen = 0;
+        double sumBlue = 0;
+        for (int i = 0; i < grid; i++) {
+            for (int j = 0; j < grid; j++) {
+                if (i == 0 && j == 0) {
+                    // The top left corner has been traced already.
+                    context.red = red;
+                    context.green = green;
+                    context.blue = blue;
+                } else {
+                    RayTracer.traceSample(x + (double) i / grid,
+                                          y + (double) j / grid, context);
+                }
+                sumRed += sampleRatio * context.red;
+                sumGreen += sampleRatio * context.green;
+                sumBlue += sampleRatio * context.blue;
+            }
+        }
+        context.red = sumRed;
+        context.green = sumGreen;
+        context.blue = sumBlue;
+        return grid * grid - 1;
+    }
+}
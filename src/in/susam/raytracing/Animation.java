@@ -0,0 +1,349 @@
+/*
+ * Animation renderer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import in.susam.util.Logger;
+
+/**
+ * Traces the frames of an animation in which spheres move from one
+ * frame to the next. The first frame is traced completely. The rays of
+ * every tile are recorded in {@link RayBounds}, and each following
+ * frame traces again only the tiles whose rays may meet a sphere that
+ * moved, at its old or its new position. The pixels of the other tiles
+ * are kept from the previous frame. Every frame is the same as a
+ * complete render of the scene as it is in that frame.
+ *
+ * <p>The spheres are moved in the sphere store of the scene. If the
+ * store is read-only, e.g. because it is mapped from a binary scene
+ * file, the spheres are copied into a writable store first. The
+ * spheres of the scene then become a view of that store. The bounding
+ * volume hierarchy is refitted to the moved spheres for each frame
+ * instead of being built again, see {@link Scene#spheresMoved}.</p>
+ *
+ * @author Susam Pal
+ */
+public class Animation implements Closeable
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Scene to be traced.
+     */
+    private final Scene scene;
+
+    /**
+     * Settings for the render.
+     */
+    private final RenderSettings settings;
+
+    /**
+     * Store in which the spheres are moved.
+     */
+    private final SphereStore store;
+
+    /**
+     * Tiles of the image.
+     */
+    private final List<Tile> tiles;
+
+    /**
+     * Bounds of the rays of the tiles of the previous frame.
+     */
+    private final RayBounds rayBounds;
+
+    /**
+     * Pixels of the previous frame.
+     */
+    private final Frame frame;
+
+    /**
+     * Pool on which the tiles are traced, or <code>null</code> if they
+     * are traced on the calling thread.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of frames traced so far.
+     */
+    private int frames;
+
+    /**
+     * Creates an animation of the specified <code>scene</code>.
+     *
+     * @param scene    Scene in its state at the first frame.
+     * @param settings Settings for the render.
+     * @throws IllegalArgumentException If progressive mode, a
+     *                                  checkpoint or a radiance file
+     *                                  is requested.
+     */
+    public Animation(Scene scene, RenderSettings settings)
+    {
+        if (settings.progressive || settings.checkpointDirectory != null ||
+            settings.radianceFile != null) {
+            throw new IllegalArgumentException("An animation cannot be " +
+                                               "traced progressively, " +
+                                               "resumed or saved as " +
+                                               "radiance");
+        }
+        this.scene = scene;
+        this.settings = settings;
+
+        SphereStore s = scene.getSphereStore();
+        if (!s.isWritable()) {
+            s = s.copy();
+        }
+        store = s;
+        scene.spheres = s.asList(scene);
+        scene.spheresChanged();
+
+        tiles = Tile.split(scene.width, scene.height, settings.tileSize);
+        rayBounds = new RayBounds(tiles.size(), scene.lights.size());
+        frame = new Frame(scene.width, scene.height);
+        pool = settings.threads > 1 ?
+                new ForkJoinPool(settings.threads) : null;
+    }
+
+    /**
+     * Traces the next frame without moving any sphere and saves it in
+     * the output file. For the first frame, every tile is traced.
+     *
+     * @param outputFile Name of the output BMP or PPM image file.
+     * @return Statistics of the frame.
+     * @throws IOException If the frame cannot be saved.
+     */
+    public RenderStatistics render(String outputFile) throws IOException
+    {
+        return render(outputFile, new SceneDelta());
+    }
+
+    /**
+     * Moves the spheres as described by the <code>delta</code>, traces
+     * the tiles of the next frame that may have changed and saves the
+     * frame in the output file.
+     *
+     * @param outputFile Name of the output BMP or PPM image file.
+     * @param delta      Changes of the spheres since the previous frame.
+     * @return Statistics of the frame.
+     * @throws IOException If the frame cannot be saved.
+     */
+    public RenderStatistics render(String outputFile, SceneDelta delta)
+            throws IOException
+    {
+        long start = System.nanoTime();
+
+        // Old and new centers and radii of the spheres that move.
+        double[] moved = new double[8 * delta.size()];
+        int[] spheres = new int[delta.size()];
+        for (int i = 0; i < delta.size(); i++) {
+            int s = delta.sphere(i);
+            spheres[i] = s;
+            double[] m = delta.move(i);
+            moved[8 * i] = store.x(s);
+            moved[8 * i + 1] = store.y(s);
+            moved[8 * i + 2] = store.z(s);
+            moved[8 * i + 3] = store.radius(s);
+            System.arraycopy(m, 0, moved, 8 * i + 4, 4);
+            store.move(s, m[0], m[1], m[2], m[3]);
+        }
+        if (delta.size() > 0) {
+            scene.spheresMoved(spheres);
+        }
+
+        List<Tile> dirty = new ArrayList<Tile>();
+        for (Tile tile : tiles) {
+            if (isDirty(tile.index, moved)) {
+                dirty.add(tile);
+            }
+        }
+
+        RenderStatistics statistics = new RenderStatistics();
+        RenderMonitor monitor = new RenderMonitor(outputFile, statistics,
+                                                  settings.threads);
+        monitor.start(dirty.size());
+        TileRenderer renderer = new TileRenderer(scene, settings,
+                                                 statistics, monitor, null);
+        renderer.recordRays(rayBounds);
+        renderer.renderTiles(dirty, frame, pool);
+        frame.write(outputFile);
+
+        frames++;
+        logger.log("Frame " + frames + ": traced " + dirty.size() +
+                   " of " + tiles.size() + " tiles in " +
+                   (System.nanoTime() - start) / 1000000 + " ms.");
+        return statistics;
+    }
+
+    /**
+     * Returns the number of frames traced so far.
+     *
+     * @return Number of frames.
+     */
+    public int getFrames()
+    {
+        return frames;
+    }
+
+    /**
+     * Stops the threads that trace the tiles.
+     */
+    @Override
+    public void close()
+    {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns whether a tile must be traced again.
+     *
+     * @param tile  Index of the tile.
+     * @param moved Old and new centers and radii of the spheres that
+     *              moved.
+     * @return <code>true</code> if the rays of the tile may meet a
+     *         sphere that moved or the tile has not been traced;
+     *         <code>false</code> otherwise.
+     */
+    private boolean isDirty(int tile, double[] moved)
+    {
+        if (!rayBounds.isTraced(tile)) {
+            return true;
+        }
+        for (int i = 0; i < moved.length; i += 4) {
+            if (rayBounds.meets(tile, moved[i], moved[i + 1],
+                                moved[i + 2], moved[i + 3])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of the file of a frame. If the
+     * <code>pattern</code> contains a <code>%</code> character, it is
+     * used as a format string for the number of the frame. Otherwise,
+     * the number is inserted before the extension of the name.
+     *
+     * @param pattern Name of the output file.
+     * @param number  Number of the frame.
+     * @return Name of the file of the frame.
+     */
+    public static String frameFile(String pattern, int number)
+    {
+        if (pattern.indexOf('%') >= 0) {
+            return String.format(pattern, number);
+        }
+        int dot = pattern.lastIndexOf('.');
+        if (dot < 0) {
+            dot = pattern.length();
+        }
+        return pattern.substring(0, dot) + String.format("%04d", number) +
+               pattern.substring(dot);
+    }
+
+    /**
+     * Pixels of a frame held in memory. The red, green and blue bytes of
+     * each pixel are stored one after another, row by row from the
+     * bottom of the image.
+     */
+    private static final class Frame implements PixelWriter
+    {
+        /**
+         * Width of the image.
+         */
+        private final int width;
+
+        /**
+         * Height of the image.
+         */
+        private final int height;
+
+        /**
+         * Red, green and blue bytes of the pixels.
+         */
+        private final byte[] pixels;
+
+        /**
+         * Creates a black frame.
+         *
+         * @param width  Width of the image.
+         * @param height Height of the image.
+         */
+        Frame(int width, int height)
+        {
+            this.width = width;
+            this.height = height;
+            pixels = new byte[3 * width * height];
+        }
+
+        @Override
+        public void setPixel(int x, int y, double red, double green,
+                             double blue)
+        {
+            int offset = 3 * (y * width + x);
+            pixels[offset] = Color.toByte(red);
+            pixels[offset + 1] = Color.toByte(green);
+            pixels[offset + 2] = Color.toByte(blue);
+        }
+
+        /**
+         * Saves the frame in a BMP file, or in a PPM file if the name of
+         * the file ends with <code>.ppm</code>.
+         *
+         * @param outputFile Name of the output file.
+         * @throws IOException If the file cannot be written.
+         */
+        void write(String outputFile) throws IOException
+        {
+            if (outputFile.toLowerCase().endsWith(".ppm")) {
+                try (PPMWriter writer = new PPMWriter(outputFile, width,
+                                                      height)) {
+                    for (int y = height - 1; y >= 0; y--) {
+                        writer.writeRows(pixels, 3 * y * width, 1);
+                    }
+                }
+                return;
+            }
+
+            try (BMPWriter writer = new BMPWriter(outputFile, width,
+                                                  height)) {
+                for (int y = 0, i = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++, i += 3) {
+                        // The middle of the interval of each byte
+                        // survives the truncation in Color.toByte.
+                        writer.setPixel(x, y,
+                                        ((pixels[i] & 0xff) + 0.5) / 255,
+                                        ((pixels[i + 1] & 0xff) + 0.5) /
+                                        255,
+                                        ((pixels[i + 2] & 0xff) + 0.5) /
+                                        255);
+                    }
+                }
+            }
+        }
+    }
+}
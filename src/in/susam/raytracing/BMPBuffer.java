@@ -0,0 +1,86 @@
+/*
+ * In-memory BMP image.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+/**
+ * Holds the bytes of a BMP file in memory. The pixels are written into
+ * the array in exactly the same way as {@link BMPWriter} writes them
+ * into a file, so the array can be sent elsewhere, e.g. as the response
+ * to a request, without creating a file.
+ *
+ * @author Susam Pal
+ */
+final class BMPBuffer implements PixelWriter
+{
+    /**
+     * Number of bytes in a row of pixels including the padding at the
+     * end of the row.
+     */
+    private final int rowSize;
+
+    /**
+     * Bytes of the BMP file.
+     */
+    private final byte[] bytes;
+
+    /**
+     * Creates a black image of the specified size.
+     *
+     * @param width  Width of the image.
+     * @param height Height of the image.
+     * @throws IllegalArgumentException If the image is too large to be
+     *                                  held in an array.
+     */
+    BMPBuffer(int width, int height)
+    {
+        rowSize = width * 3 + (4 - width * 3 % 4) % 4;
+        long rawBMPSize = (long) rowSize * height;
+        long size = BMPWriter.HEADER_SIZE + rawBMPSize;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Image of " + width + "x" +
+                                               height + " pixels is too " +
+                                               "large to be held in " +
+                                               "memory");
+        }
+        bytes = new byte[(int) size];
+        BMPWriter.header(width, height, size, rawBMPSize).get(bytes, 0,
+                BMPWriter.HEADER_SIZE);
+    }
+
+    @Override
+    public void setPixel(int x, int y, double red, double green,
+                         double blue)
+    {
+        int offset = BMPWriter.HEADER_SIZE + y * rowSize + 3 * x;
+        bytes[offset] = Color.toByte(blue);
+        bytes[offset + 1] = Color.toByte(green);
+        bytes[offset + 2] = Color.toByte(red);
+    }
+
+    /**
+     * Returns the bytes of the BMP file. The array is not copied, so it
+     * must not be modified.
+     *
+     * @return Bytes of the file.
+     */
+    byte[] bytes()
+    {
+        return bytes;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Memory mapped BMP writer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import in.susam.util.Logger;
+
+/**
+ * Writes an image into a 24-bit BMP file. The file is created with its
+ * final size, the BMP header is written into it and the pixel data is
+ * memory mapped. Pixels are written directly into the mapped file, so
+ * no copy of the image is held in memory and nothing needs to be
+ * written when the file is closed.
+ *
+ * <p>Each pixel and each row occupies its own range of bytes in the
+ * file. Therefore, several threads may write pixels into the same
+ * writer at the same time as long as no two threads write the same
+ * pixel.</p>
+ *
+ * @author Susam Pal
+ */
+public class BMPWriter implements PixelWriter, Closeable
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Number of bytes in the BMP headers.
+     */
+    static final int HEADER_SIZE = 54;
+
+    /**
+     * Maximum number of bytes of pixel data in one mapped region.
+     */
+    private static final int MAX_REGION_SIZE = 1 << 30;
+
+    /**
+     * Width of the image.
+     */
+    private final int width;
+
+    /**
+     * Height of the image.
+     */
+    private final int height;
+
+    /**
+     * Number of bytes in a row of pixels including the padding at the
+     * end of the row.
+     */
+    private final int rowSize;
+
+    /**
+     * Number of rows in each mapped region.
+     */
+    private final int rowsPerRegion;
+
+    /**
+     * The file being written.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * Mapped regions of pixel data. Each region holds a whole number of
+     * rows so that no row is split across two regions.
+     */
+    private final MappedByteBuffer[] regions;
+
+    /**
+     * Creates the BMP file <code>outputFile</code> for an image of the
+     * specified size and maps its pixel data.
+     *
+     * @param outputFile Name of the output BMP image file.
+     * @param width      Width of the image.
+     * @param height     Height of the image.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public BMPWriter(String outputFile, int width, int height)
+            throws IOException
+    {
+        this(outputFile, width, height, false);
+    }
+
+    /**
+     * Opens the BMP file <code>outputFile</code> for an image of the
+     * specified size and maps its pixel data. If <code>keep</code> is
+     * <code>true</code> and the file already has the size of such an
+     * image, the pixels in the file are kept so that an interrupted
+     * render can be resumed. Otherwise, the file is created afresh.
+     *
+     * @param outputFile Name of the output BMP image file.
+     * @param width      Width of the image.
+     * @param height     Height of the image.
+     * @param keep       Whether the pixels of an existing file are kept.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public BMPWriter(String outputFile, int width, int height,
+                     boolean keep) throws IOException
+    {
+        this.width = width;
+        this.height = height;
+
+        // Padding required if the number of bytes to draw pixels of one
+        // row is not a multiple of 4. This padding is required by the
+        // BMP format specification.
+        int padding = (4 - width * 3 % 4) % 4;
+        rowSize = width * 3 + padding;
+
+        logger.log(width * 3 + " bytes required for pixels in a row.");
+        logger.log("Padding of " + padding + " byte" +
+                   (padding == 1 ? "" : "s") + " will be used at the end " +
+                   "each row of pixels.");
+
+        // Number of bytes in the raw BMP data.
+        long rawBMPSize = (long) rowSize * height;
+
+        logger.log("Size of raw BMP data: " + rawBMPSize + " byte" +
+                   (rawBMPSize == 1 ? "" : "s"));
+
+        // BMP headers occupy 54 bytes. So, the total size of the file
+        // is 54 + rawBMPSize.
+        long size = HEADER_SIZE + rawBMPSize;
+
+        // The BMP header stores sizes as unsigned 32-bit integers.
+        if (size > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Image of " + width + "x" +
+                                               height + " pixels is too " +
+                                               "large for a BMP file. Use " +
+                                               "a PPM file instead.");
+        }
+
+        logger.log("Total size of BMP image file: " + size + " byte" +
+                   (size == 1 ? "" : "s"));
+
+        file = new RandomAccessFile(outputFile, "rw");
+        try {
+            // Discard any old content of the file so that the padding
+            // bytes are zero.
+            if (keep && file.length() == size) {
+                logger.log("Opened " + outputFile + " to resume BMP " +
+                           "output.");
+            } else {
+                file.setLength(0);
+                file.setLength(size);
+                logger.log("Opened " + outputFile + " to write BMP " +
+                           "output.");
+            }
+
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = header(width, height, size, rawBMPSize);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            logger.log("Written 54 bytes of BMP header.");
+
+            rowsPerRegion = Math.max(1, MAX_REGION_SIZE /
+                                        Math.max(1, rowSize));
+            int regionCount = (height + rowsPerRegion - 1) / rowsPerRegion;
+            regions = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                int rows = Math.min(rowsPerRegion,
+                                    height - i * rowsPerRegion);
+                regions[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                         HEADER_SIZE + (long) i *
+                                         rowsPerRegion * rowSize,
+                                         (long) rows * rowSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return Width of the image.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return Height of the image.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    public void setPixel(int x, int y, double red, double green,
+                         double blue)
+    {
+        MappedByteBuffer region = regions[y / rowsPerRegion];
+        int offset = (y % rowsPerRegion) * rowSize + 3 * x;
+        region.put(offset, Color.toByte(blue));
+        region.put(offset + 1, Color.toByte(green));
+        region.put(offset + 2, Color.toByte(red));
+    }
+
+    /**
+     * Writes the bytes of a row of pixels. The array holds the blue,
+     * green and red bytes of each pixel, in that order, starting at the
+     * left edge of the image.
+     *
+     * @param y      Y coordinate of the row.
+     * @param pixels Bytes of the pixels.
+     * @param offset Index of the first byte in <code>pixels</code>.
+     * @param count  Number of pixels to write.
+     */
+    public void setRow(int y, byte[] pixels, int offset, int count)
+    {
+        // A duplicate has its own position, so that threads writing
+        // other rows of the region do not disturb each other.
+        ByteBuffer region = regions[y / rowsPerRegion].duplicate();
+        region.position((y % rowsPerRegion) * rowSize);
+        region.put(pixels, offset, 3 * count);
+    }
+
+    /**
+     * Reads the bytes of a row of pixels in the same form as
+     * {@link #setRow}.
+     *
+     * @param y      Y coordinate of the row.
+     * @param pixels Array into which the bytes are read.
+     * @param offset Index in <code>pixels</code> of the first byte.
+     * @param count  Number of pixels to read.
+     */
+    public void getRow(int y, byte[] pixels, int offset, int count)
+    {
+        ByteBuffer region = regions[y / rowsPerRegion].duplicate();
+        region.position((y % rowsPerRegion) * rowSize);
+        region.get(pixels, offset, 3 * count);
+    }
+
+    /**
+     * Writes the pixels back to the file on the storage device. When
+     * this method returns, every pixel written before it was called
+     * survives a crash of the JVM or of the operating system.
+     */
+    public void force()
+    {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    /**
+     * Closes the file. The pixel data is written back to the file by
+     * the operating system.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        file.close();
+    }
+
+    /**
+     * Creates the BMP headers.
+     *
+     * @param width      Width of the image.
+     * @param height     Height of the image.
+     * @param size       Size of the file.
+     * @param rawBMPSize Size of the pixel data.
+     * @return Buffer that holds the headers.
+     */
+    static ByteBuffer header(int width, int height, long size,
+                             long rawBMPSize)
+    {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+
+        // BMP magic number \x42\x4D, file size, unused bytes and the
+        // offset of BMP data pixels.
+        b.put((byte) 'B').put((byte) 'M');
+        b.putInt((int) size);
+        b.putInt(0);
+        b.putInt(HEADER_SIZE);
+
+        // Size of the header that follows, width and height of the
+        // image (in pixels).
+        b.putInt(0x28);
+        b.putInt(width);
+        b.putInt(height);
+
+        // Color plane, color depth and compression related information.
+        b.putShort((short) 1);    // 1 color plane
+        b.putShort((short) 24);   // 24 bits per pixel
+        b.putInt(0);              // No compression
+
+        // Size of the raw BMP data and resolution information.
+        b.putInt((int) rawBMPSize);
+        b.putInt(0x0B13);         // Horizontal resolution
+        b.putInt(0x0B13);         // Vertical resolution
+
+        // Color palette information.
+        b.putInt(0);              // Number of colors in the palette
+        b.putInt(0);              // All colors are important
+
+        b.flip();
+        return b;
+    }
+}
@@ -0,0 +1,1791 @@
+/*
+ * Bounding volume hierarchy.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A bounding volume hierarchy over the spheres of a scene. The
+ * hierarchy is a binary tree of axis aligned bounding boxes built with
+ * the surface area heuristic evaluated over a fixed number of bins.
+ * Intersection queries visit only those boxes that the ray passes
+ * through, so the cost of a query grows roughly with the logarithm of
+ * the number of spheres instead of linearly.
+ *
+ * <p>The tree is stored in flat arrays in depth-first order. The left
+ * child of an interior node immediately follows the node, so only the
+ * index of the right child is stored. The hierarchy is built over a
+ * {@link SphereStore} and reads the spheres from it while it is
+ * queried. Only the nodes and the permutation of the spheres in the
+ * order in which the leaves refer to them are held on the heap. A node
+ * takes 37 bytes. Scenes with fewer than 2<sup>18</sup> spheres have
+ * leaves of one or two spheres and about two nodes per sphere, which
+ * takes about 75 bytes per sphere. Larger scenes have leaves of about
+ * three spheres, and a scene with a million spheres takes about 28
+ * bytes per sphere. While the tree is built, the centers of the
+ * spheres are gathered into a temporary array of 32 bytes per sphere.
+ * The spheres of a leaf are tested with a {@link SphereKernel}, which
+ * reads them from the store by their indices and may test several
+ * spheres at a time. The boxes of the nodes are computed from the
+ * store, so the hierarchy must be updated with {@link #update} or
+ * rebuilt if the spheres of the store are modified.</p>
+ *
+ * <p>When spheres move, {@link #update} refits the boxes of the nodes
+ * above them in place, which takes time linear in the number of nodes
+ * at most. Refitting keeps the tree correct but not its quality: the
+ * boxes of spheres that drift apart grow and overlap. The area of the
+ * box of every node when it was built is kept, and a subtree is built
+ * again when the box of a child of its root grows beyond
+ * {@link #REBUILD_AREA_RATIO} times that area.</p>
+ *
+ * @author Susam Pal
+ */
+public class BoundingVolumeHierarchy
+{
+    /**
+     * Maximum number of spheres in a leaf node when the spheres are
+     * tested one at a time. With a vector kernel, a leaf may hold as
+     * many spheres as the kernel tests at a time.
+     */
+    static final int MAX_LEAF_SIZE = 4;
+
+    /**
+     * Scenes with at least these many spheres are built with larger
+     * leaves. A tree whose leaves hold one or two spheres has about two
+     * nodes per sphere, which dominates the memory of a large scene, so
+     * the leaves of a large scene trade a few more sphere tests per ray
+     * for about a third of the nodes.
+     */
+    private static final int LARGE_SCENE_SIZE = 1 << 18;
+
+    /**
+     * Maximum number of spheres in a leaf node of a large scene.
+     */
+    private static final int LARGE_LEAF_SIZE = 8;
+
+    /**
+     * Number of spheres at or below which a range of a large scene is
+     * not split any further.
+     */
+    private static final int MIN_LARGE_LEAF_SIZE = 4;
+
+    /**
+     * Number of bins in which the centers of the spheres are grouped
+     * while evaluating the surface area heuristic.
+     */
+    private static final int BIN_COUNT = 16;
+
+    /**
+     * Scenes with at least these many spheres are built in parallel.
+     */
+    private static final int PARALLEL_SCENE_SIZE = 1 << 16;
+
+    /**
+     * Subtrees with at least these many spheres are built as separate
+     * tasks in a parallel build.
+     */
+    private static final int PARALLEL_SUBTREE_SIZE = 1 << 12;
+
+    /**
+     * Depth beyond which nodes are split at the median of their spheres
+     * instead of using the surface area heuristic. This bounds the
+     * depth of the tree for pathological distributions of spheres.
+     */
+    private static final int MAX_HEURISTIC_DEPTH = 48;
+
+    /**
+     * Ratio of the surface area of the box of a node to its area when
+     * it was built beyond which the subtree of its parent is built
+     * again by {@link #update}.
+     */
+    static final double REBUILD_AREA_RATIO = 2.0;
+
+    /**
+     * Kernel that tests the spheres of a leaf.
+     */
+    final SphereKernel kernel;
+
+    /**
+     * Maximum number of spheres in a leaf node.
+     */
+    final int leafSize;
+
+    /**
+     * Store of the spheres over which the hierarchy is built.
+     */
+    final SphereStore store;
+
+    /**
+     * Position of each sphere in the sphere store, in leaf order.
+     */
+    final int[] sceneIndex;
+
+    /**
+     * Bounding boxes of the nodes. Six values are stored for each
+     * node: the minimum X, Y and Z coordinates followed by the maximum
+     * X, Y and Z coordinates. The boxes are stored in single precision
+     * and rounded outwards, so they contain the spheres of the nodes.
+     */
+    final float[] bounds;
+
+    /**
+     * Surface area of the bounding box of each node when the node was
+     * built.
+     */
+    private final float[] builtArea;
+
+    /**
+     * Position of each sphere of the sphere store in leaf order. It is
+     * computed by the first call to {@link #update}.
+     */
+    private int[] position;
+
+    /**
+     * For a leaf node, the index of its first sphere. For an interior
+     * node, the index of its right child.
+     */
+    final int[] offset;
+
+    /**
+     * For a leaf node, the number of spheres in it. For an interior
+     * node, 0.
+     */
+    final int[] count;
+
+    /**
+     * For an interior node, the axis (0 for X, 1 for Y, 2 for Z) along
+     * which its children were split.
+     */
+    final byte[] axis;
+
+    /**
+     * Number of nodes in the tree.
+     */
+    final int nodeCount;
+
+    /**
+     * Depth of the tree. A tree with only the root node has depth 1.
+     */
+    final int depth;
+
+    /**
+     * Result of a closest hit query.
+     */
+    public static class Hit
+    {
+        /**
+         * Distance between the origin of the ray and the point of
+         * intersection.
+         */
+        public double distance;
+
+        /**
+         * Position of the sphere hit by the ray in the sphere store, and
+         * so in the collection of spheres of the scene, or -1 if the ray
+         * did not hit any sphere.
+         */
+        public int index;
+
+        /**
+         * Number of ray and sphere intersection tests performed by the
+         * queries that used this object. The queries add to it and
+         * never reset it.
+         */
+        public long tests;
+
+        /**
+         * Distances computed by the kernel for the spheres of a leaf.
+         */
+        double[] distances;
+
+        /**
+         * Arrays into which the kernel reads the spheres of a leaf.
+         */
+        SphereKernel.Batch batch;
+    }
+
+    /**
+     * Builds a hierarchy over the specified <code>spheres</code>.
+     *
+     * @param spheres Spheres of a scene.
+     */
+    public BoundingVolumeHierarchy(Collection<Scene.Sphere> spheres)
+    {
+        this(new SphereStore(spheres), SphereKernel.getInstance());
+    }
+
+    /**
+     * Builds a hierarchy over the spheres of the specified
+     * <code>store</code>.
+     *
+     * @param store Sphere store.
+     */
+    public BoundingVolumeHierarchy(SphereStore store)
+    {
+        this(store, SphereKernel.getInstance());
+    }
+
+    /**
+     * Builds a hierarchy over the spheres of the specified
+     * <code>store</code> whose leaves are tested with the specified
+     * <code>kernel</code>.
+     *
+     * @param store  Sphere store.
+     * @param kernel Kernel that tests the spheres of a leaf.
+     */
+    BoundingVolumeHierarchy(SphereStore store, SphereKernel kernel)
+    {
+        // The centers of the spheres are gathered from the store into
+        // an array that is dropped once the tree is built, so only the
+        // nodes and the permutation of the spheres are held on the heap
+        // afterwards.
+        this(new Primitives(store, kernel.lanes(), null), kernel, null);
+    }
+
+    /**
+     * Creates a hierarchy from a tree built over the specified
+     * <code>primitives</code>.
+     *
+     * @param p      Spheres organized into the hierarchy.
+     * @param kernel Kernel that tests the spheres of a leaf.
+     * @param root   Parts of the tree, or <code>null</code> to build the
+     *               tree over all the spheres.
+     */
+    private BoundingVolumeHierarchy(Primitives p, SphereKernel kernel,
+                                    BuildNode root)
+    {
+        this.store = p.store;
+        this.kernel = kernel;
+        leafSize = p.leafSize;
+
+        int n = store.size();
+        if (root == null) {
+            root = n == 0 ? BuildNode.empty() : build(p, 0, n, 0);
+        }
+
+        nodeCount = root.nodeCount;
+        depth = root.depth;
+        bounds = new float[6 * nodeCount];
+        builtArea = new float[nodeCount];
+        offset = new int[nodeCount];
+        count = new int[nodeCount];
+        axis = new byte[nodeCount];
+        flatten(root, 0);
+
+        sceneIndex = p.order;
+    }
+
+    /**
+     * Updates the hierarchy after the spheres at the specified positions
+     * of the sphere store have been moved or resized. The centers and
+     * radii of the spheres are read from the store again and the boxes
+     * of the nodes above them are refitted in place. If the box of a
+     * node has grown beyond {@link #REBUILD_AREA_RATIO} times its area
+     * when it was built, the subtree of its parent is built again and a
+     * new hierarchy is returned that shares nothing with this one. The
+     * rest of the tree is copied into the new hierarchy as it is.
+     *
+     * <p>This hierarchy is modified, so it must not be queried while
+     * this method runs. It remains correct afterwards, even if a new
+     * hierarchy is returned.</p>
+     *
+     * @param spheres Positions of the spheres that changed in the
+     *                sphere store.
+     * @return This hierarchy, or a new hierarchy if a subtree had to be
+     *         built again.
+     * @throws IndexOutOfBoundsException If a position does not refer to
+     *                                   a sphere of the store.
+     */
+    public BoundingVolumeHierarchy update(int... spheres)
+    {
+        int n = sceneIndex.length;
+        if (position == null) {
+            int[] pos = new int[n];
+            for (int i = 0; i < n; i++) {
+                pos[sceneIndex[i]] = i;
+            }
+            position = pos;
+        }
+
+        boolean[] moved = new boolean[n];
+        for (int s : spheres) {
+            if (s < 0 || s >= n) {
+                throw new IndexOutOfBoundsException("No sphere " + s);
+            }
+            moved[position[s]] = true;
+        }
+
+        // The children of a node follow it, so visiting the nodes in
+        // reverse refits the children before their parent.
+        boolean[] refitted = new boolean[nodeCount];
+        boolean degraded = false;
+        double[] box = new double[6];
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            int b = 6 * node;
+            if (count[node] > 0) {
+                int first = offset[node];
+                int end = first + count[node];
+                for (int i = first; i < end && !refitted[node]; i++) {
+                    refitted[node] = moved[i];
+                }
+                if (!refitted[node]) {
+                    continue;
+                }
+                emptyBox(box, 0);
+                for (int i = first; i < end; i++) {
+                    int s = sceneIndex[i];
+                    double x = store.x(s);
+                    double y = store.y(s);
+                    double z = store.z(s);
+                    growBox(box, 0, x, y, z, extent(x, y, z, store.radius(s)));
+                }
+                storeBox(box, 0, bounds, node);
+                continue;
+            }
+
+            int left = node + 1;
+            int right = offset[node];
+            if (!refitted[left] && !refitted[right]) {
+                continue;
+            }
+            refitted[node] = true;
+            degraded |= isDegraded(node);
+            int l = 6 * left;
+            int r = 6 * right;
+            for (int a = 0; a < 3; a++) {
+                bounds[b + a] = Math.min(bounds[l + a], bounds[r + a]);
+                bounds[b + a + 3] = Math.max(bounds[l + a + 3],
+                                             bounds[r + a + 3]);
+            }
+        }
+
+        if (!degraded) {
+            return this;
+        }
+        Primitives p = new Primitives(store, kernel.lanes(),
+                                      sceneIndex.clone());
+        NodeArrays nodes = new NodeArrays(bounds, builtArea, offset, count,
+                                          axis);
+        return new BoundingVolumeHierarchy(p, kernel,
+                                           copy(0, p, 0, nodes));
+    }
+
+    /**
+     * Finds whether the box of a child of an interior node has grown
+     * beyond {@link #REBUILD_AREA_RATIO} times its area when it was
+     * built.
+     *
+     * @param node Index of an interior node.
+     * @return <code>true</code> if the subtree of the node should be
+     *         built again; <code>false</code> otherwise.
+     */
+    private boolean isDegraded(int node)
+    {
+        int left = node + 1;
+        int right = offset[node];
+        return area(bounds, left) > REBUILD_AREA_RATIO * builtArea[left] ||
+               area(bounds, right) > REBUILD_AREA_RATIO * builtArea[right];
+    }
+
+    /**
+     * Copies a subtree of this hierarchy for a new hierarchy, and builds
+     * again the subtrees of the degraded nodes in it. The subtrees that
+     * are not built again are copied from the arrays of this hierarchy
+     * as runs of nodes.
+     *
+     * @param node  Root of the subtree.
+     * @param p     Spheres in the leaf order of this hierarchy.
+     * @param level Depth of the root of the subtree.
+     * @param nodes Nodes of this hierarchy.
+     * @return Root of the copied subtree.
+     */
+    private BuildNode copy(int node, Primitives p, int level,
+                           NodeArrays nodes)
+    {
+        if (count[node] > 0) {
+            return BuildNode.run(nodes, node, 1, 1);
+        }
+
+        if (isDegraded(node)) {
+            int first = node;
+            while (count[first] == 0) {
+                first++;
+            }
+            int last = node;
+            while (count[last] == 0) {
+                last = offset[last];
+            }
+            return build(p, offset[first], offset[last] + count[last],
+                         level);
+        }
+
+        BuildNode left = copy(node + 1, p, level + 1, nodes);
+        BuildNode right = copy(offset[node], p, level + 1, nodes);
+        if (left.nodes == nodes && right.nodes == nodes) {
+            // Both subtrees are copied as they are and follow the node
+            // in this hierarchy, so the whole subtree is one run.
+            return BuildNode.run(nodes, node,
+                                 1 + left.nodeCount + right.nodeCount,
+                                 1 + Math.max(left.depth, right.depth));
+        }
+        return new BuildNode(Arrays.copyOfRange(bounds, 6 * node,
+                                                6 * node + 6),
+                             builtArea[node], axis[node], left, right);
+    }
+
+    /**
+     * Builds the subtree for a range of spheres, in parallel if the
+     * range is large.
+     *
+     * @param p     Spheres being organized into the hierarchy.
+     * @param start Index of the first sphere of the range.
+     * @param end   Index after the last sphere of the range.
+     * @param level Depth of the root of the subtree.
+     * @return Root of the subtree.
+     */
+    private static BuildNode build(Primitives p, int start, int end,
+                                   int level)
+    {
+        double[] boxes = new double[12];
+        p.gather(start, end);
+        p.bounds(start, end, boxes, 0);
+        if (end - start >= PARALLEL_SCENE_SIZE) {
+            return ForkJoinPool.commonPool().invoke(
+                    new BuildTask(p, start, end, level, boxes, true));
+        }
+        return new BuildTask(p, start, end, level, boxes, false).compute();
+    }
+
+    /**
+     * Finds the sphere that the ray hits first such that the distance
+     * between the intersection point and the origin of the ray is more
+     * than 0.1 and less than <code>distance</code>. This is equivalent
+     * to testing the ray against every sphere of the scene.
+     *
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @param hit      Object in which the result is stored.
+     * @return <code>true</code> if the ray hits a sphere;
+     *         <code>false</code> otherwise.
+     */
+    public boolean closestHit(double ox, double oy, double oz,
+                              double dx, double dy, double dz,
+                              double distance, Hit hit)
+    {
+        return closestHit(ox, oy, oz, dx, dy, dz, distance, hit,
+                          new int[depth + 1]);
+    }
+
+    /**
+     * Finds the sphere that the ray hits first using the specified
+     * <code>stack</code> to traverse the tree.
+     *
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @param hit      Object in which the result is stored.
+     * @param stack    Array of at least <code>depth + 1</code> elements.
+     * @return <code>true</code> if the ray hits a sphere;
+     *         <code>false</code> otherwise.
+     * @see #closestHit(double, double, double, double, double, double,
+     *                  double, Hit)
+     */
+    boolean closestHit(double ox, double oy, double oz,
+                       double dx, double dy, double dz,
+                       double distance, Hit hit, int[] stack)
+    {
+        hit.distance = distance;
+        hit.index = -1;
+        if (sceneIndex.length == 0) {
+            return false;
+        }
+
+        int best = -1;
+        double bestDistance = distance;
+
+        double[] distances = hit.distances;
+        if (distances == null || distances.length < leafSize) {
+            distances = new double[leafSize];
+            hit.distances = distances;
+        }
+        SphereKernel.Batch batch = batch(hit);
+
+        double ix = 1.0 / dx;
+        double iy = 1.0 / dy;
+        double iz = 1.0 / dz;
+
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+            if (!hitBox(node, ox, oy, oz, dx, dy, dz, ix, iy, iz,
+                        bestDistance)) {
+                continue;
+            }
+
+            if (count[node] > 0) {
+                int first = offset[node];
+                hit.tests += count[node];
+                kernel.intersect(store, sceneIndex, first, count[node],
+                                 ox, oy, oz, dx, dy, dz, bestDistance,
+                                 distances, batch);
+                for (int k = 0; k < count[node]; k++) {
+                    int i = first + k;
+                    double t = distances[k];
+                    if (t < bestDistance ||
+                        (t == bestDistance && best >= 0 &&
+                         sceneIndex[i] < sceneIndex[best])) {
+                        bestDistance = t;
+                        best = i;
+                    }
+                }
+                continue;
+            }
+
+            // Visit the nearer child first so that the farther child
+            // can be culled by the distance found in the nearer one.
+            int left = node + 1;
+            int right = offset[node];
+            double d = axis[node] == 0 ? dx : axis[node] == 1 ? dy : dz;
+            if (d < 0) {
+                stack[top++] = left;
+                stack[top++] = right;
+            } else {
+                stack[top++] = right;
+                stack[top++] = left;
+            }
+        }
+
+        if (best < 0) {
+            return false;
+        }
+
+        hit.distance = bestDistance;
+        hit.index = sceneIndex[best];
+        return true;
+    }
+
+    /**
+     * Finds whether the ray is blocked by any sphere, i.e. whether it
+     * hits any sphere such that the distance between the intersection
+     * point and the origin of the ray is more than 0.1 and less than
+     * <code>distance</code>. Unlike {@link #closestHit}, the query stops
+     * at the first such sphere and does not find the nearest
+     * intersection point of any sphere.
+     *
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @return <code>true</code> if the ray is blocked;
+     *         <code>false</code> otherwise.
+     */
+    public boolean occluded(double ox, double oy, double oz,
+                            double dx, double dy, double dz,
+                            double distance)
+    {
+        return occluder(ox, oy, oz, dx, dy, dz, distance, new Hit(),
+                        new int[depth + 1]) >= 0;
+    }
+
+    /**
+     * Finds a sphere that blocks the ray using the specified
+     * <code>stack</code> to traverse the tree.
+     *
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @param hit      Object that counts the intersection tests.
+     * @param stack    Array of at least <code>depth + 1</code> elements.
+     * @return Index of the blocking sphere in leaf order, or -1 if the
+     *         ray is not blocked.
+     * @see #occluded(double, double, double, double, double, double,
+     *                double)
+     */
+    int occluder(double ox, double oy, double oz,
+                 double dx, double dy, double dz,
+                 double distance, Hit hit, int[] stack)
+    {
+        if (sceneIndex.length == 0) {
+            return -1;
+        }
+        SphereKernel.Batch batch = batch(hit);
+
+        double ix = 1.0 / dx;
+        double iy = 1.0 / dy;
+        double iz = 1.0 / dz;
+
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+            if (!hitBox(node, ox, oy, oz, dx, dy, dz, ix, iy, iz,
+                        distance)) {
+                continue;
+            }
+
+            if (count[node] > 0) {
+                hit.tests += count[node];
+                int i = kernel.occluder(store, sceneIndex, offset[node],
+                                        count[node], ox, oy, oz, dx, dy, dz,
+                                        distance, batch);
+                if (i >= 0) {
+                    return i;
+                }
+                continue;
+            }
+
+            stack[top++] = offset[node];
+            stack[top++] = node + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds whether a sphere blocks the ray.
+     *
+     * @param i        Index of the sphere in leaf order.
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @return <code>true</code> if the sphere blocks the ray;
+     *         <code>false</code> otherwise.
+     */
+    boolean occludes(int i, double ox, double oy, double oz,
+                     double dx, double dy, double dz, double distance)
+    {
+        int s = sceneIndex[i];
+        return RayTracer.occludes(ox, oy, oz, dx, dy, dz, store.x(s),
+                                  store.y(s), store.z(s), store.radius(s),
+                                  distance);
+    }
+
+    /**
+     * Returns the arrays into which the kernel reads the spheres of a
+     * leaf for queries that use the specified object, creating them if
+     * they are missing or too small.
+     *
+     * @param hit Object used by the queries of one thread.
+     * @return Arrays with room for the spheres of a leaf.
+     */
+    private SphereKernel.Batch batch(Hit hit)
+    {
+        SphereKernel.Batch batch = hit.batch;
+        if (batch == null || batch.capacity() < leafSize) {
+            batch = new SphereKernel.Batch(leafSize, kernel.lanes());
+            hit.batch = batch;
+        }
+        return batch;
+    }
+
+    /**
+     * Finds whether the ray passes through the bounding box of a node
+     * between its origin and the specified <code>distance</code>.
+     *
+     * @param node     Index of the node.
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param ix       Reciprocal of <code>dx</code>.
+     * @param iy       Reciprocal of <code>dy</code>.
+     * @param iz       Reciprocal of <code>dz</code>.
+     * @param distance Maximum distance along the ray.
+     * @return <code>true</code> if the ray passes through the box;
+     *         <code>false</code> otherwise.
+     */
+    boolean hitBox(int node, double ox, double oy, double oz,
+                   double dx, double dy, double dz,
+                   double ix, double iy, double iz, double distance)
+    {
+        int b = 6 * node;
+        double near = 0.0;
+        double far = distance;
+
+        // A ray parallel to a pair of planes of the box passes through
+        // the box only if its origin lies between the planes.
+        if (dx == 0.0) {
+            if (ox < bounds[b] || ox > bounds[b + 3]) {
+                return false;
+            }
+        } else {
+            double t0 = (bounds[b] - ox) * ix;
+            double t1 = (bounds[b + 3] - ox) * ix;
+            near = Math.max(near, Math.min(t0, t1));
+            far = Math.min(far, Math.max(t0, t1));
+        }
+
+        if (dy == 0.0) {
+            if (oy < bounds[b + 1] || oy > bounds[b + 4]) {
+                return false;
+            }
+        } else {
+            double t0 = (bounds[b + 1] - oy) * iy;
+            double t1 = (bounds[b + 4] - oy) * iy;
+            near = Math.max(near, Math.min(t0, t1));
+            far = Math.min(far, Math.max(t0, t1));
+        }
+
+        if (dz == 0.0) {
+            if (oz < bounds[b + 2] || oz > bounds[b + 5]) {
+                return false;
+            }
+        } else {
+            double t0 = (bounds[b + 2] - oz) * iz;
+            double t1 = (bounds[b + 5] - oz) * iz;
+            near = Math.max(near, Math.min(t0, t1));
+            far = Math.min(far, Math.max(t0, t1));
+        }
+
+        return near <= far;
+    }
+
+    /**
+     * Copies the parts of a tree built by {@link BuildTask} or
+     * {@link #copy} into the flat arrays of this hierarchy.
+     *
+     * @param node  Root of the tree.
+     * @param index Index at which the root of the tree is stored.
+     * @return Index after the last node of the tree.
+     */
+    private int flatten(BuildNode node, int index)
+    {
+        NodeArrays nodes = node.nodes;
+        if (nodes != null) {
+            int first = node.first;
+            int n = node.nodeCount;
+            System.arraycopy(nodes.bounds, 6 * first, bounds, 6 * index,
+                             6 * n);
+            System.arraycopy(nodes.builtArea, first, builtArea, index, n);
+            System.arraycopy(nodes.count, first, count, index, n);
+            System.arraycopy(nodes.axis, first, axis, index, n);
+            // The offsets of the interior nodes refer to nodes of the
+            // run, which move with it. Those of the leaves refer to
+            // spheres, which do not.
+            int shift = index - first;
+            for (int i = 0; i < n; i++) {
+                int o = nodes.offset[first + i];
+                offset[index + i] = nodes.count[first + i] > 0 ? o
+                                                               : o + shift;
+            }
+            return index + n;
+        }
+
+        System.arraycopy(node.box, 0, bounds, 6 * index, 6);
+        builtArea[index] = node.builtArea;
+        axis[index] = (byte) node.axis;
+        int right = flatten(node.left, index + 1);
+        offset[index] = right;
+        return flatten(node.right, right);
+    }
+
+    /**
+     * Spheres while the hierarchy is being built. The center and the
+     * extent of the bounding box of each sphere being built are gathered
+     * from the sphere store once and kept in the order of the
+     * permutation, so that the passes over a range of spheres read
+     * consecutive memory instead of the records of the store in a
+     * random order.
+     */
+    private static class Primitives
+    {
+        /**
+         * Store of the spheres.
+         */
+        final SphereStore store;
+
+        /**
+         * Permutation of the spheres. The spheres of each node occupy
+         * a contiguous range of this array.
+         */
+        final int[] order;
+
+        /**
+         * Maximum number of spheres in a leaf node.
+         */
+        final int leafSize;
+
+        /**
+         * Number of spheres at or below which a range is not split.
+         */
+        final int minLeafSize;
+
+        /**
+         * Coordinates of the center of the sphere at each position of
+         * the permutation followed by the half of the side of its
+         * bounding box, four values per sphere.
+         */
+        final double[] spheres;
+
+        /**
+         * Creates an instance of this class. The size of the leaves
+         * depends on the number of spheres in the store.
+         *
+         * @param store Store of the spheres.
+         * @param lanes Number of spheres tested at a time by the kernel.
+         * @param order Initial permutation of the spheres, or
+         *              <code>null</code> for the order of the store.
+         */
+        Primitives(SphereStore store, int lanes, int[] order)
+        {
+            this.store = store;
+            boolean large = store.size() >= LARGE_SCENE_SIZE;
+            leafSize = Math.max(large ? LARGE_LEAF_SIZE : MAX_LEAF_SIZE,
+                                lanes);
+            minLeafSize = large ? MIN_LARGE_LEAF_SIZE : 1;
+            if (order == null) {
+                order = new int[store.size()];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+            }
+            this.order = order;
+            spheres = new double[4 * order.length];
+        }
+
+        /**
+         * Gathers the centers and extents of the spheres in a range from
+         * the sphere store.
+         *
+         * @param start Index of the first sphere in the permutation.
+         * @param end   Index after the last sphere in the permutation.
+         */
+        void gather(int start, int end)
+        {
+            for (int i = start; i < end; i++) {
+                int s = order[i];
+                double x = store.x(s);
+                double y = store.y(s);
+                double z = store.z(s);
+                spheres[4 * i] = x;
+                spheres[4 * i + 1] = y;
+                spheres[4 * i + 2] = z;
+                spheres[4 * i + 3] = extent(x, y, z, store.radius(s));
+            }
+        }
+
+        /**
+         * Returns a coordinate of the center of a sphere.
+         *
+         * @param i Index of the sphere in the permutation.
+         * @param a Axis.
+         * @return Coordinate of the center along the axis.
+         */
+        double centroid(int i, int a)
+        {
+            return spheres[4 * i + a];
+        }
+
+        /**
+         * Swaps two spheres in the permutation.
+         *
+         * @param i Index of a sphere in the permutation.
+         * @param j Index of another sphere in the permutation.
+         */
+        void swap(int i, int j)
+        {
+            int s = order[i];
+            order[i] = order[j];
+            order[j] = s;
+            for (int k = 0; k < 4; k++) {
+                double t = spheres[4 * i + k];
+                spheres[4 * i + k] = spheres[4 * j + k];
+                spheres[4 * j + k] = t;
+            }
+        }
+
+        /**
+         * Computes the bounding box of the spheres in a range and the
+         * bounding box of their centers.
+         *
+         * @param start Index of the first sphere in the permutation.
+         * @param end   Index after the last sphere in the permutation.
+         * @param boxes Array of boxes that receives the bounding box of
+         *              the spheres at index <code>b</code> and that of
+         *              their centers at index <code>b + 1</code>.
+         * @param b     Index of the first box.
+         */
+        void bounds(int start, int end, double[] boxes, int b)
+        {
+            emptyBox(boxes, b);
+            emptyBox(boxes, b + 1);
+            for (int i = start; i < end; i++) {
+                double x = spheres[4 * i];
+                double y = spheres[4 * i + 1];
+                double z = spheres[4 * i + 2];
+                growBox(boxes, b, x, y, z, spheres[4 * i + 3]);
+                growBox(boxes, b + 1, x, y, z, 0.0);
+            }
+        }
+    }
+
+    /**
+     * Nodes of a part of the tree in the flat layout of the hierarchy.
+     * The arrays of a part that is being built grow as nodes are added
+     * to it.
+     */
+    private static class NodeArrays
+    {
+        /**
+         * Bounding boxes of the nodes.
+         */
+        float[] bounds;
+
+        /**
+         * Surface area of the bounding box of each node when the node
+         * was built.
+         */
+        float[] builtArea;
+
+        /**
+         * For a leaf node, the index of its first sphere. For an
+         * interior node, the index of its right child.
+         */
+        int[] offset;
+
+        /**
+         * For a leaf node, the number of spheres in it. For an interior
+         * node, 0.
+         */
+        int[] count;
+
+        /**
+         * For an interior node, the axis along which its children were
+         * split.
+         */
+        byte[] axis;
+
+        /**
+         * Number of nodes.
+         */
+        int size;
+
+        /**
+         * Creates empty arrays with room for the specified number of
+         * nodes.
+         *
+         * @param capacity Number of nodes for which room is made.
+         */
+        NodeArrays(int capacity)
+        {
+            bounds = new float[6 * capacity];
+            builtArea = new float[capacity];
+            offset = new int[capacity];
+            count = new int[capacity];
+            axis = new byte[capacity];
+        }
+
+        /**
+         * Creates an instance of this class over the nodes of a
+         * hierarchy.
+         *
+         * @param bounds    Bounding boxes of the nodes.
+         * @param builtArea Surface area of the box of each node when it
+         *                  was built.
+         * @param offset    Index of the first sphere of each leaf and of
+         *                  the right child of each interior node.
+         * @param count     Number of spheres of each leaf.
+         * @param axis      Axis along which each interior node is split.
+         */
+        NodeArrays(float[] bounds, float[] builtArea, int[] offset,
+                   int[] count, byte[] axis)
+        {
+            this.bounds = bounds;
+            this.builtArea = builtArea;
+            this.offset = offset;
+            this.count = count;
+            this.axis = axis;
+            size = offset.length;
+        }
+
+        /**
+         * Adds a node with the specified bounding box.
+         *
+         * @param boxes Array of boxes.
+         * @param b     Index of the bounding box of the node.
+         * @return Index of the node.
+         */
+        int add(double[] boxes, int b)
+        {
+            if (size == offset.length) {
+                int capacity = Math.max(16, 2 * size);
+                bounds = Arrays.copyOf(bounds, 6 * capacity);
+                builtArea = Arrays.copyOf(builtArea, capacity);
+                offset = Arrays.copyOf(offset, capacity);
+                count = Arrays.copyOf(count, capacity);
+                axis = Arrays.copyOf(axis, capacity);
+            }
+            int node = size++;
+            storeBox(boxes, b, bounds, node);
+            builtArea[node] = (float) area(boxes, b);
+            return node;
+        }
+    }
+
+    /**
+     * A part of the tree while the hierarchy is being built. A part is
+     * either a run of nodes in the flat layout of the hierarchy, or a
+     * node whose two subtrees were built separately, e.g. by different
+     * tasks of a parallel build.
+     */
+    private static class BuildNode
+    {
+        /**
+         * Arrays that hold a run of nodes, or <code>null</code> for a
+         * node whose subtrees were built separately.
+         */
+        NodeArrays nodes;
+
+        /**
+         * Index of the first node of a run in its arrays.
+         */
+        int first;
+
+        /**
+         * Bounding box of a node whose subtrees were built separately.
+         */
+        float[] box;
+
+        /**
+         * Surface area of the box of the node when it was built.
+         */
+        float builtArea;
+
+        /**
+         * Axis along which the node is split.
+         */
+        int axis;
+
+        /**
+         * Subtrees of a node whose subtrees were built separately.
+         */
+        BuildNode left, right;
+
+        /**
+         * Number of nodes in the part.
+         */
+        int nodeCount;
+
+        /**
+         * Depth of the part.
+         */
+        int depth;
+
+        /**
+         * Creates a part for a node whose subtrees were built
+         * separately.
+         *
+         * @param box       Bounding box of the node.
+         * @param builtArea Surface area of the box of the node when it
+         *                  was built.
+         * @param axis      Axis along which the node is split.
+         * @param left      Left subtree.
+         * @param right     Right subtree.
+         */
+        BuildNode(float[] box, float builtArea, int axis,
+                  BuildNode left, BuildNode right)
+        {
+            this.box = box;
+            this.builtArea = builtArea;
+            this.axis = axis;
+            this.left = left;
+            this.right = right;
+            nodeCount = 1 + left.nodeCount + right.nodeCount;
+            depth = 1 + Math.max(left.depth, right.depth);
+        }
+
+        /**
+         * Creates an empty part.
+         */
+        private BuildNode()
+        {
+        }
+
+        /**
+         * Creates a part for a run of nodes.
+         *
+         * @param nodes     Arrays that hold the run.
+         * @param first     Index of the first node of the run.
+         * @param nodeCount Number of nodes in the run.
+         * @param depth     Depth of the subtree formed by the run.
+         * @return Part for the run.
+         */
+        static BuildNode run(NodeArrays nodes, int first, int nodeCount,
+                             int depth)
+        {
+            BuildNode node = new BuildNode();
+            node.nodes = nodes;
+            node.first = first;
+            node.nodeCount = nodeCount;
+            node.depth = depth;
+            return node;
+        }
+
+        /**
+         * Creates the tree of a hierarchy without spheres, which is a
+         * single empty leaf.
+         *
+         * @return Part for the tree.
+         */
+        static BuildNode empty()
+        {
+            NodeArrays nodes = new NodeArrays(1);
+            nodes.add(new double[6], 0);
+            return run(nodes, 0, 1, 1);
+        }
+    }
+
+    /**
+     * Task that builds the subtree for a range of spheres. Large
+     * subtrees fork their children as separate tasks in a parallel
+     * build. Smaller subtrees are built directly into the flat layout
+     * of the hierarchy as one run of nodes, so that no object is created
+     * for a node.
+     */
+    private static class BuildTask extends RecursiveTask<BuildNode>
+    {
+        /**
+         * Serial version UID of this class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Largest depth of a node below the root of a task. A node is
+         * split at the median of its spheres below
+         * {@link #MAX_HEURISTIC_DEPTH}, so the depth grows by at most 32
+         * beyond it for 2<sup>31</sup> spheres.
+         */
+        private static final int MAX_TASK_DEPTH = MAX_HEURISTIC_DEPTH + 33;
+
+        /**
+         * Spheres being organized into the hierarchy.
+         */
+        private final Primitives p;
+
+        /**
+         * Index of the first sphere of the range in the permutation.
+         */
+        private final int start;
+
+        /**
+         * Index after the last sphere of the range in the permutation.
+         */
+        private final int end;
+
+        /**
+         * Depth of the node being built.
+         */
+        private final int level;
+
+        /**
+         * Bounding box of the spheres of the range followed by the
+         * bounding box of their centers.
+         */
+        private final double[] boxes;
+
+        /**
+         * Whether large subtrees are built in parallel.
+         */
+        private final boolean parallel;
+
+        /**
+         * Number of spheres in each bin along each axis.
+         */
+        private int[] binCount;
+
+        /**
+         * Bounding box of the spheres in each bin along each axis.
+         */
+        private double[] binBox;
+
+        /**
+         * Bounding box of the centers of the spheres in each bin along
+         * each axis.
+         */
+        private double[] binCentroids;
+
+        /**
+         * Number of bins per unit length along each axis.
+         */
+        private double[] scale;
+
+        /**
+         * Area of the box of the spheres to the right of each bin
+         * boundary.
+         */
+        private double[] rightArea;
+
+        /**
+         * Number of spheres to the right of each bin boundary.
+         */
+        private int[] rightCount;
+
+        /**
+         * Bounding boxes of the children of the nodes being built, four
+         * for each depth below the root of the task: the box of the
+         * spheres and of the centers of the left child followed by those
+         * of the right child.
+         */
+        private double[] stack;
+
+        /**
+         * Box into which the boxes of bins are merged.
+         */
+        private double[] acc;
+
+        /**
+         * Axis along which the last node was split.
+         */
+        private int splitAxis;
+
+        /**
+         * Creates an instance of this class.
+         *
+         * @param p        Spheres being organized into the hierarchy.
+         * @param start    Index of the first sphere of the range.
+         * @param end      Index after the last sphere of the range.
+         * @param level    Depth of the node being built.
+         * @param boxes    Bounding box of the spheres of the range
+         *                 followed by the bounding box of their centers.
+         * @param parallel Whether large subtrees are built in parallel.
+         */
+        BuildTask(Primitives p, int start, int end, int level,
+                  double[] boxes, boolean parallel)
+        {
+            this.p = p;
+            this.start = start;
+            this.end = end;
+            this.level = level;
+            this.boxes = boxes;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected BuildNode compute()
+        {
+            binCount = new int[3 * BIN_COUNT];
+            binBox = new double[6 * 3 * BIN_COUNT];
+            binCentroids = new double[6 * 3 * BIN_COUNT];
+            scale = new double[3];
+            rightArea = new double[BIN_COUNT];
+            rightCount = new int[BIN_COUNT];
+            acc = new double[6];
+
+            if (parallel && end - start >= PARALLEL_SUBTREE_SIZE) {
+                double[] children = new double[24];
+                int middle = split(start, end, level, boxes, 0, children, 0);
+                if (middle >= 0) {
+                    BuildTask leftTask = new BuildTask(
+                            p, start, middle, level + 1,
+                            Arrays.copyOfRange(children, 0, 12), true);
+                    BuildTask rightTask = new BuildTask(
+                            p, middle, end, level + 1,
+                            Arrays.copyOfRange(children, 12, 24), true);
+                    int axis = splitAxis;
+                    leftTask.fork();
+                    BuildNode right = rightTask.compute();
+                    BuildNode left = leftTask.join();
+                    float[] box = new float[6];
+                    storeBox(boxes, 0, box, 0);
+                    return new BuildNode(box, (float) area(boxes, 0), axis,
+                                         left, right);
+                }
+            }
+
+            stack = new double[24 * MAX_TASK_DEPTH];
+            NodeArrays nodes = new NodeArrays(Math.max(16, end - start));
+            int depth = build(nodes, start, end, level, boxes, 0);
+            return BuildNode.run(nodes, 0, nodes.size, depth);
+        }
+
+        /**
+         * Builds the subtree for a range of spheres into a run of nodes.
+         *
+         * @param nodes Arrays to which the nodes are added.
+         * @param start Index of the first sphere of the range.
+         * @param end   Index after the last sphere of the range.
+         * @param level Depth of the root of the subtree.
+         * @param boxes Array of boxes that holds the bounding box of the
+         *              spheres at index <code>b</code> and that of their
+         *              centers at index <code>b + 1</code>.
+         * @param b     Index of the first box.
+         * @return Depth of the subtree.
+         */
+        private int build(NodeArrays nodes, int start, int end, int level,
+                          double[] boxes, int b)
+        {
+            int node = nodes.add(boxes, b);
+            int c = 4 * (level - this.level);
+            int middle = split(start, end, level, boxes, b, stack, c);
+            if (middle < 0) {
+                nodes.offset[node] = start;
+                nodes.count[node] = end - start;
+                return 1;
+            }
+
+            // The arrays may grow while the children are built, so they
+            // are accessed through the fields of nodes every time.
+            nodes.axis[node] = (byte) splitAxis;
+            int left = build(nodes, start, middle, level + 1, stack, c);
+            nodes.offset[node] = nodes.size;
+            int right = build(nodes, middle, end, level + 1, stack, c + 2);
+            return 1 + Math.max(left, right);
+        }
+
+        /**
+         * Splits a range of spheres into the ranges of two children, or
+         * decides that the range forms a leaf. The axis of the split is
+         * stored in {@link #splitAxis}.
+         *
+         * @param start    Index of the first sphere of the range.
+         * @param end      Index after the last sphere of the range.
+         * @param level    Depth of the node.
+         * @param boxes    Array of boxes that holds the bounding box of
+         *                 the spheres at index <code>b</code> and that of
+         *                 their centers at index <code>b + 1</code>.
+         * @param b        Index of the first box.
+         * @param children Array of boxes that receives the boxes of the
+         *                 left child at index <code>c</code> and
+         *                 <code>c + 1</code> and those of the right child
+         *                 at index <code>c + 2</code> and
+         *                 <code>c + 3</code>.
+         * @param c        Index of the first box of the children.
+         * @return Index of the first sphere of the right child, or -1 if
+         *         the range forms a leaf.
+         */
+        private int split(int start, int end, int level, double[] boxes,
+                          int b, double[] children, int c)
+        {
+            int n = end - start;
+            if (n <= p.minLeafSize) {
+                return -1;
+            }
+            int cbox = 6 * (b + 1);
+            int longest = 0;
+            for (int a = 1; a < 3; a++) {
+                if (boxes[cbox + a + 3] - boxes[cbox + a] >
+                    boxes[cbox + longest + 3] - boxes[cbox + longest]) {
+                    longest = a;
+                }
+            }
+
+            int middle = -1;
+            if (n > 1 && level < MAX_HEURISTIC_DEPTH &&
+                boxes[cbox + longest + 3] > boxes[cbox + longest]) {
+                middle = splitBinned(start, end, boxes, b, children, c);
+            }
+
+            if (middle < 0) {
+                if (n <= p.leafSize) {
+                    return -1;
+                }
+                middle = (start + end) >>> 1;
+                splitMedian(longest, start, end, middle);
+                splitAxis = longest;
+                p.bounds(start, middle, children, c);
+                p.bounds(middle, end, children, c + 2);
+            }
+            return middle;
+        }
+
+        /**
+         * Chooses a split plane by evaluating the surface area heuristic
+         * over bins of sphere centers along each axis and partitions
+         * the range of spheres about the chosen plane. The spheres are
+         * read once for all three axes, and the boxes of the children
+         * are merged from the boxes of the bins.
+         *
+         * @param start    Index of the first sphere of the range.
+         * @param end      Index after the last sphere of the range.
+         * @param boxes    Array of boxes that holds the bounding box of
+         *                 the spheres at index <code>b</code> and that of
+         *                 their centers at index <code>b + 1</code>.
+         * @param b        Index of the first box.
+         * @param children Array of boxes that receives the boxes of the
+         *                 children, see {@link #split}.
+         * @param c        Index of the first box of the children.
+         * @return Index of the first sphere on the right side of the
+         *         plane, or -1 if a leaf is cheaper than any split.
+         */
+        private int splitBinned(int start, int end, double[] boxes, int b,
+                                double[] children, int c)
+        {
+            int n = end - start;
+            int cbox = 6 * (b + 1);
+            for (int a = 0; a < 3; a++) {
+                double extent = boxes[cbox + a + 3] - boxes[cbox + a];
+                scale[a] = extent > 0.0 ? BIN_COUNT * (1 - 1e-9) / extent
+                                        : 0.0;
+            }
+
+            // Most nodes have fewer spheres than bins, so the boxes of a
+            // bin are only emptied when its first sphere is added, and
+            // the empty bins are skipped below.
+            Arrays.fill(binCount, 0);
+            for (int i = start; i < end; i++) {
+                double x = p.spheres[4 * i];
+                double y = p.spheres[4 * i + 1];
+                double z = p.spheres[4 * i + 2];
+                double e = p.spheres[4 * i + 3];
+                for (int a = 0; a < 3; a++) {
+                    if (!(scale[a] > 0.0)) {
+                        continue;
+                    }
+                    double centroid = a == 0 ? x : a == 1 ? y : z;
+                    int j = a * BIN_COUNT +
+                            bin(centroid, boxes[cbox + a], scale[a]);
+                    if (binCount[j]++ == 0) {
+                        emptyBox(binBox, j);
+                        emptyBox(binCentroids, j);
+                    }
+                    growBox(binBox, j, x, y, z, e);
+                    growBox(binCentroids, j, x, y, z, 0.0);
+                }
+            }
+
+            double bestCost = Double.POSITIVE_INFINITY;
+            int bestAxis = -1;
+            int bestBin = -1;
+            for (int a = 0; a < 3; a++) {
+                if (!(scale[a] > 0.0)) {
+                    continue;
+                }
+                int o = a * BIN_COUNT;
+
+                // Sweep from the right to compute the area and count of
+                // the spheres to the right of each bin boundary.
+                emptyBox(acc, 0);
+                int accCount = 0;
+                double accArea = 0.0;
+                for (int j = BIN_COUNT - 1; j > 0; j--) {
+                    if (binCount[o + j] > 0) {
+                        accCount += binCount[o + j];
+                        mergeBox(acc, binBox, o + j);
+                        accArea = area(acc);
+                    }
+                    rightCount[j] = accCount;
+                    rightArea[j] = accArea;
+                }
+
+                emptyBox(acc, 0);
+                accCount = 0;
+                accArea = 0.0;
+                for (int j = 0; j < BIN_COUNT - 1; j++) {
+                    if (binCount[o + j] == 0) {
+                        continue;
+                    }
+                    accCount += binCount[o + j];
+                    mergeBox(acc, binBox, o + j);
+                    accArea = area(acc);
+                    if (rightCount[j + 1] == 0) {
+                        break;
+                    }
+                    double cost = accArea * accCount +
+                                  rightArea[j + 1] * rightCount[j + 1];
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = a;
+                        bestBin = j;
+                    }
+                }
+            }
+
+            if (bestAxis < 0) {
+                return -1;
+            }
+
+            // The cost of a leaf is the cost of testing every sphere in
+            // it. The cost of a split is the cost of traversing the node
+            // plus the costs of the children weighted by the
+            // probability of a ray passing through them. Spheres are
+            // counted one by one even when the kernel tests several at
+            // a time, as in the costs of the children, since a leaf that
+            // fills a vector is not cheaper to test than a box.
+            double leafCost = n;
+            double splitCost = 1.0 + bestCost / area(boxes, b);
+            if (n <= p.leafSize && splitCost >= leafCost) {
+                return -1;
+            }
+
+            int o = bestAxis * BIN_COUNT;
+            for (int k = c; k < c + 4; k++) {
+                emptyBox(children, k);
+            }
+            for (int j = 0; j < BIN_COUNT; j++) {
+                if (binCount[o + j] == 0) {
+                    continue;
+                }
+                int child = j <= bestBin ? c : c + 2;
+                mergeBox(children, child, binBox, o + j);
+                mergeBox(children, child + 1, binCentroids, o + j);
+            }
+
+            double min = boxes[cbox + bestAxis];
+            double k = scale[bestAxis];
+            int i = start;
+            int j = end - 1;
+            while (i <= j) {
+                if (bin(p.centroid(i, bestAxis), min, k) <= bestBin) {
+                    i++;
+                } else {
+                    p.swap(i, j--);
+                }
+            }
+
+            splitAxis = bestAxis;
+            return i;
+        }
+
+        /**
+         * Partitions a range of spheres such that the sphere at index
+         * <code>middle</code> has the median center along the axis.
+         *
+         * @param a      Axis.
+         * @param start  Index of the first sphere of the range.
+         * @param end    Index after the last sphere of the range.
+         * @param middle Index of the median.
+         */
+        private void splitMedian(int a, int start, int end, int middle)
+        {
+            int lo = start;
+            int hi = end - 1;
+            while (lo < hi) {
+                double pivot = p.centroid((lo + hi) >>> 1, a);
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (p.centroid(i, a) < pivot) {
+                        i++;
+                    }
+                    while (p.centroid(j, a) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        p.swap(i++, j--);
+                    }
+                }
+                if (middle <= j) {
+                    hi = j;
+                } else if (middle >= i) {
+                    lo = i;
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the distance from the center of a sphere to the faces of
+     * its bounding box. The boxes are padded slightly so that a ray that
+     * grazes a sphere is not culled by the rounding error of the box
+     * test.
+     *
+     * @param x X coordinate of the center of the sphere.
+     * @param y Y coordinate of the center of the sphere.
+     * @param z Z coordinate of the center of the sphere.
+     * @param r Radius of the sphere.
+     * @return Half of the side of the bounding box.
+     */
+    private static double extent(double x, double y, double z, double r)
+    {
+        r = Math.abs(r);
+        double pad = 1e-9 * (Math.abs(x) + Math.abs(y) + Math.abs(z) +
+                             r + 1.0);
+        return r + pad;
+    }
+
+    /**
+     * Computes the bin of a sphere center along an axis.
+     *
+     * @param c   Coordinate of the center along the axis.
+     * @param min Minimum coordinate of the centers along the axis.
+     * @param k   Number of bins per unit length.
+     * @return Bin index.
+     */
+    private static int bin(double c, double min, double k)
+    {
+        int b = (int) ((c - min) * k);
+        return Math.max(0, Math.min(BIN_COUNT - 1, b));
+    }
+
+    /**
+     * Stores a box in an array of boxes of single precision. The
+     * minimum coordinates are rounded down and the maximum coordinates
+     * are rounded up, so the stored box contains the box.
+     *
+     * @param boxes Array of boxes.
+     * @param b     Index of the box.
+     * @param to    Array of boxes of single precision.
+     * @param t     Index at which the box is stored.
+     */
+    private static void storeBox(double[] boxes, int b, float[] to, int t)
+    {
+        for (int a = 0; a < 3; a++) {
+            double min = boxes[6 * b + a];
+            double max = boxes[6 * b + a + 3];
+            float fmin = (float) min;
+            float fmax = (float) max;
+            to[6 * t + a] = fmin > min ? Math.nextDown(fmin) : fmin;
+            to[6 * t + a + 3] = fmax < max ? Math.nextUp(fmax) : fmax;
+        }
+    }
+
+    /**
+     * Sets a box to an empty box that any box can grow.
+     *
+     * @param boxes Array of boxes.
+     * @param b     Index of the box.
+     */
+    private static void emptyBox(double[] boxes, int b)
+    {
+        for (int a = 0; a < 3; a++) {
+            boxes[6 * b + a] = Double.POSITIVE_INFINITY;
+            boxes[6 * b + a + 3] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Grows a box to include a cube centered at a point.
+     *
+     * @param boxes  Array of boxes.
+     * @param b      Index of the box.
+     * @param x      X coordinate of the center of the cube.
+     * @param y      Y coordinate of the center of the cube.
+     * @param z      Z coordinate of the center of the cube.
+     * @param extent Half of the side of the cube.
+     */
+    private static void growBox(double[] boxes, int b, double x, double y,
+                                double z, double extent)
+    {
+        int i = 6 * b;
+        boxes[i] = Math.min(boxes[i], x - extent);
+        boxes[i + 1] = Math.min(boxes[i + 1], y - extent);
+        boxes[i + 2] = Math.min(boxes[i + 2], z - extent);
+        boxes[i + 3] = Math.max(boxes[i + 3], x + extent);
+        boxes[i + 4] = Math.max(boxes[i + 4], y + extent);
+        boxes[i + 5] = Math.max(boxes[i + 5], z + extent);
+    }
+
+    /**
+     * Grows the box stored at the start of <code>box</code> to include
+     * another box.
+     *
+     * @param box   Box to grow.
+     * @param boxes Array of boxes.
+     * @param b     Index of the box to include.
+     */
+    private static void mergeBox(double[] box, double[] boxes, int b)
+    {
+        mergeBox(box, 0, boxes, b);
+    }
+
+    /**
+     * Grows a box to include another box.
+     *
+     * @param box   Array of boxes that contains the box to grow.
+     * @param i     Index of the box to grow.
+     * @param boxes Array of boxes.
+     * @param b     Index of the box to include.
+     */
+    private static void mergeBox(double[] box, int i, double[] boxes,
+                                 int b)
+    {
+        for (int a = 0; a < 3; a++) {
+            box[6 * i + a] = Math.min(box[6 * i + a], boxes[6 * b + a]);
+            box[6 * i + a + 3] = Math.max(box[6 * i + a + 3],
+                                          boxes[6 * b + a + 3]);
+        }
+    }
+
+    /**
+     * Computes the surface area of a box.
+     *
+     * @param box Box.
+     * @return Surface area, or 0 for an empty box.
+     */
+    private static double area(double[] box)
+    {
+        return area(box, 0);
+    }
+
+    /**
+     * Computes the surface area of a box in an array of boxes.
+     *
+     * @param boxes Array of boxes.
+     * @param b     Index of the box.
+     * @return Surface area, or 0 for an empty box.
+     */
+    private static double area(double[] boxes, int b)
+    {
+        double x = boxes[6 * b + 3] - boxes[6 * b];
+        double y = boxes[6 * b + 4] - boxes[6 * b + 1];
+        double z = boxes[6 * b + 5] - boxes[6 * b + 2];
+        if (!(x >= 0 && y >= 0 && z >= 0)) {
+            return 0.0;
+        }
+        return 2.0 * (x * y + y * z + z * x);
+    }
+
+    /**
+     * Computes the surface area of a box in an array of boxes of single
+     * precision.
+     *
+     * @param boxes Array of boxes.
+     * @param b     Index of the box.
+     * @return Surface area, or 0 for an empty box.
+     */
+    private static double area(float[] boxes, int b)
+    {
+        double x = boxes[6 * b + 3] - boxes[6 * b];
+        double y = boxes[6 * b + 4] - boxes[6 * b + 1];
+        double z = boxes[6 * b + 5] - boxes[6 * b + 2];
+        if (!(x >= 0 && y >= 0 && z >= 0)) {
+            return 0.0;
+        }
+        return 2.0 * (x * y + y * z + z * x);
+    }
+}
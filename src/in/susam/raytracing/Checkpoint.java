@@ -0,0 +1,467 @@
+/*
+ * Render checkpoint.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import in.susam.util.Logger;
+
+/**
+ * Records the progress of a tiled render so that an interrupted render
+ * can be resumed. The tiles are written directly into the memory mapped
+ * output file, so the output file itself holds the completed tiles. At
+ * intervals, the mapped pixels are written back to the storage device
+ * and a small manifest that lists the completed tiles is saved in the
+ * checkpoint directory. A render started again with the same output
+ * file, scene and settings finds the manifest and skips the tiles
+ * listed in it.
+ *
+ * <p>The manifest is a properties file named after the output file. It
+ * holds a key that identifies the scene and the settings, the pass in
+ * progress and the completed tiles of that pass as a bit set. A new
+ * manifest is written into a temporary file that then replaces the old
+ * one, so a crash while saving leaves the previous manifest intact. The
+ * manifest is deleted when the render is complete.</p>
+ *
+ * @author Susam Pal
+ */
+final class Checkpoint
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Version of the manifest format.
+     */
+    private static final String VERSION = "1";
+
+    /**
+     * Name of the output file.
+     */
+    private final String outputFile;
+
+    /**
+     * Manifest file.
+     */
+    private final File manifest;
+
+    /**
+     * Key that describes the scene and the settings of the render.
+     */
+    private final String key;
+
+    /**
+     * Minimum interval between two saves in nanoseconds.
+     */
+    private final long interval;
+
+    /**
+     * Whether a manifest of an earlier render of the same scene with
+     * the same settings was found.
+     */
+    private final boolean resumed;
+
+    /**
+     * Index of the pass in progress.
+     */
+    private volatile int pass;
+
+    /**
+     * Completed tiles of the pass in progress as a bit set.
+     */
+    private volatile AtomicLongArray done;
+
+    /**
+     * Image into which the tiles of the pass in progress are written.
+     */
+    private volatile BMPWriter image;
+
+    /**
+     * Number of completed tiles found in the manifest for the pass in
+     * progress.
+     */
+    private int resumedTiles;
+
+    /**
+     * Time after which the next save is due, as given by
+     * <code>System.nanoTime()</code>.
+     */
+    private volatile long nextSave;
+
+    /**
+     * Whether a thread is saving a checkpoint.
+     */
+    private final AtomicBoolean saving = new AtomicBoolean();
+
+    /**
+     * Opens the checkpoint of a render. If the checkpoint directory
+     * holds a manifest of an earlier render of the same scene with the
+     * same settings into the same output file, the render resumes from
+     * it.
+     *
+     * @param directory  Checkpoint directory.
+     * @param outputFile Name of the output file.
+     * @param scene      Scene to be traced.
+     * @param settings   Settings for the render.
+     * @throws IOException If the checkpoint directory cannot be created
+     *                     or the manifest cannot be read.
+     */
+    Checkpoint(String directory, String outputFile, Scene scene,
+               RenderSettings settings) throws IOException
+    {
+        this.outputFile = outputFile;
+        File dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create checkpoint directory " +
+                                  directory);
+        }
+        manifest = new File(dir, new File(outputFile).getName() +
+                                 ".checkpoint");
+        key = key(scene, settings);
+        interval = (long) (settings.checkpointInterval * 1e9);
+        nextSave = System.nanoTime() + interval;
+        done = new AtomicLongArray(0);
+
+        boolean found = false;
+        if (manifest.isFile() && new File(outputFile).isFile()) {
+            Properties p = new Properties();
+            try (InputStream in = new FileInputStream(manifest)) {
+                p.load(in);
+            }
+            if (VERSION.equals(p.getProperty("version")) &&
+                key.equals(p.getProperty("key"))) {
+                pass = Integer.parseInt(p.getProperty("pass"));
+                BitSet tiles = BitSet.valueOf(Base64.getDecoder()
+                        .decode(p.getProperty("tiles")));
+                done = new AtomicLongArray(tiles.toLongArray());
+                resumedTiles = tiles.cardinality();
+                found = true;
+                logger.log("Resuming pass " + (pass + 1) + " with " +
+                           resumedTiles + " tiles complete from " +
+                           manifest + ".");
+            } else {
+                logger.log("Ignoring " + manifest + " of a render with " +
+                           "another scene or other settings.");
+            }
+        }
+        resumed = found;
+    }
+
+    /**
+     * Returns whether the render resumes from an earlier render.
+     *
+     * @return <code>true</code> if the render resumes;
+     *         <code>false</code> otherwise.
+     */
+    boolean isResumed()
+    {
+        return resumed;
+    }
+
+    /**
+     * Returns the index of the pass from which the render resumes.
+     *
+     * @return Index of the pass, or 0 for a new render.
+     */
+    int pass()
+    {
+        return pass;
+    }
+
+    /**
+     * Returns the number of completed tiles of the pass from which the
+     * render resumes.
+     *
+     * @return Number of tiles.
+     */
+    int resumedTiles()
+    {
+        return resumedTiles;
+    }
+
+    /**
+     * Starts a pass. The completed tiles are kept if the render resumes
+     * in this pass and cleared otherwise.
+     *
+     * @param index Index of the pass.
+     * @param tiles Number of tiles in the pass.
+     * @param image Image into which the tiles are written.
+     */
+    void startPass(int index, int tiles, BMPWriter image)
+    {
+        this.image = image;
+        int words = (tiles + 63) >>> 6;
+        if (index != pass || done.length() != words) {
+            AtomicLongArray a = new AtomicLongArray(words);
+            if (index == pass) {
+                for (int i = 0; i < Math.min(words, done.length()); i++) {
+                    a.set(i, done.get(i));
+                }
+            }
+            done = a;
+        }
+        pass = index;
+    }
+
+    /**
+     * Returns whether a tile of the pass in progress is complete.
+     *
+     * @param tile Index of the tile.
+     * @return <code>true</code> if the tile is complete;
+     *         <code>false</code> otherwise.
+     */
+    boolean isDone(int tile)
+    {
+        return (done.get(tile >>> 6) & (1L << tile)) != 0;
+    }
+
+    /**
+     * Records that a tile of the pass in progress is complete and saves
+     * the checkpoint if a save is due. The tile must have been written
+     * into the image of the pass.
+     *
+     * @param tile Index of the tile.
+     */
+    void tileComplete(int tile)
+    {
+        AtomicLongArray a = done;
+        int w = tile >>> 6;
+        long bit = 1L << tile;
+        long old;
+        do {
+            old = a.get(w);
+        } while (!a.compareAndSet(w, old, old | bit));
+
+        if (System.nanoTime() >= nextSave) {
+            save();
+        }
+    }
+
+    /**
+     * Saves the checkpoint. The completed tiles are listed in the
+     * manifest only after their pixels have been written back to the
+     * storage device. If another thread is saving the checkpoint, this
+     * method returns at once. A failure to save is logged and the
+     * render continues.
+     */
+    void save()
+    {
+        if (!saving.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int p = pass;
+            AtomicLongArray a = done;
+            long[] words = new long[a.length()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = a.get(i);
+            }
+            if (image != null) {
+                image.force();
+            }
+            write(p, BitSet.valueOf(words));
+        } catch (IOException e) {
+            logger.log("Cannot save checkpoint " + manifest + ": " + e);
+        } finally {
+            nextSave = System.nanoTime() + interval;
+            saving.set(false);
+        }
+    }
+
+    /**
+     * Saves the checkpoint at the end of a pass so that a resumed
+     * render starts with the next pass.
+     *
+     * @param index Index of the pass that is complete.
+     */
+    void passComplete(int index)
+    {
+        startPass(index + 1, 0, image);
+        save();
+    }
+
+    /**
+     * Deletes the manifest of a complete render.
+     */
+    void finish()
+    {
+        if (manifest.exists() && !manifest.delete()) {
+            logger.log("Cannot delete checkpoint " + manifest + ".");
+        }
+    }
+
+    /**
+     * Writes the manifest.
+     *
+     * @param p     Index of the pass in progress.
+     * @param tiles Completed tiles of the pass.
+     * @throws IOException If the manifest cannot be written.
+     */
+    private void write(int p, BitSet tiles) throws IOException
+    {
+        Properties props = new Properties();
+        props.setProperty("version", VERSION);
+        props.setProperty("output", outputFile);
+        props.setProperty("key", key);
+        props.setProperty("pass", Integer.toString(p));
+        props.setProperty("tiles", Base64.getEncoder()
+                .encodeToString(tiles.toByteArray()));
+
+        File temporary = new File(manifest.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temporary)) {
+            props.store(out, "Ray tracer checkpoint");
+        }
+        Files.move(temporary.toPath(), manifest.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Describes the scene and the settings that determine the pixels
+     * of the image. The number of threads is left out because it does
+     * not change the image. Every setting that changes the pixels must
+     * be part of the key, so that a render with other settings does not
+     * resume from the tiles of this one. The scene is identified by a
+     * hash of its contents, see {@link #digest}.
+     *
+     * @param scene    Scene to be traced.
+     * @param settings Settings for the render.
+     * @return Key.
+     */
+    private static String key(Scene scene, RenderSettings settings)
+    {
+        StringBuilder b = new StringBuilder();
+        b.append(scene.width).append('x').append(scene.height);
+        b.append(" tile=").append(settings.tileSize);
+        b.append(" adaptive=").append(settings.adaptive);
+        if (settings.adaptive) {
+            b.append(" contrast=").append(settings.contrastThreshold);
+            b.append(" samples=").append(settings.maxSamples);
+        }
+        b.append(" progressive=").append(settings.progressive);
+        if (settings.progressive) {
+            b.append(" block=").append(settings.previewBlockSize);
+        }
+        b.append(" exposure=").append(settings.exposure);
+        b.append(" depth=").append(settings.maxDepth);
+        b.append(" cutoff=").append(settings.minCoefficient);
+        b.append(" luminance=").append(settings.luminanceThreshold);
+        b.append(" roulette=").append(settings.roulette);
+        if (settings.roulette > 0) {
+            b.append(" rouletteDepth=").append(settings.rouletteDepth);
+        }
+        b.append(" gbuffer=").append(settings.gBuffer);
+        b.append(" bins=").append(settings.screenBins);
+        b.append(" scene=");
+        b.append(Base64.getEncoder().encodeToString(digest(scene)));
+        return b.toString();
+    }
+
+    /**
+     * Computes the SHA-256 hash of the contents of a scene, i.e. of the
+     * center, radius and material of every sphere, of every material
+     * and of every light source. Any change of the scene that changes
+     * its image therefore changes the hash.
+     *
+     * @param scene Scene to be traced.
+     * @return Hash of the scene.
+     */
+    private static byte[] digest(Scene scene)
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+
+        // The values are collected in a buffer on the heap that is
+        // hashed whenever it is full, so that the spheres are read
+        // from the store without creating an object for each.
+        ByteBuffer b = ByteBuffer.allocate(64 * 1024);
+        SphereStore store = scene.getSphereStore();
+        for (int i = 0; i < store.size(); i++) {
+            update(digest, b, 36);
+            b.putDouble(store.x(i)).putDouble(store.y(i));
+            b.putDouble(store.z(i)).putDouble(store.radius(i));
+            b.putInt(store.material(i));
+        }
+        for (Scene.Material m : store.getMaterials()) {
+            update(digest, b, 64);
+            put(b, m.diffusion);
+            b.putDouble(m.reflection);
+            put(b, m.specularity);
+            b.putDouble(m.power);
+        }
+        for (Scene.Light l : scene.lights) {
+            update(digest, b, 48);
+            b.putDouble(l.origin.x).putDouble(l.origin.y);
+            b.putDouble(l.origin.z);
+            put(b, l.intensity);
+        }
+        update(digest, b, b.capacity());
+        return digest.digest();
+    }
+
+    /**
+     * Hashes the values in a buffer and clears it if fewer than the
+     * specified number of bytes are free in it.
+     *
+     * @param digest Digest that hashes the values.
+     * @param b      Buffer that holds the values.
+     * @param bytes  Number of bytes about to be put into the buffer.
+     */
+    private static void update(MessageDigest digest, ByteBuffer b,
+                               int bytes)
+    {
+        if (b.remaining() < bytes) {
+            digest.update(b.array(), 0, b.position());
+            b.clear();
+        }
+    }
+
+    /**
+     * Puts the components of a color into a buffer.
+     *
+     * @param b     Buffer.
+     * @param color Color.
+     */
+    private static void put(ByteBuffer b, Color color)
+    {
+        b.putDouble(color.getRed()).putDouble(color.getGreen());
+        b.putDouble(color.getBlue());
+    }
+}
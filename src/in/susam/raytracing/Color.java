@@ -58,6 +58,36 @@ public class Color
         this.blue = blue;
     }
 
+    /**
+     * Returns the red component of the color.
+     *
+     * @return Red color.
+     */
+    public double getRed()
+    {
+        return red;
+    }
+
+    /**
+     * Returns the green component of the color.
+     *
+     * @return Green color.
+     */
+    public double getGreen()
+    {
+        return green;
+    }
+
+    /**
+     * Returns the blue component of the color.
+     *
+     * @return Blue color.
+     */
+    public double getBlue()
+    {
+        return blue;
+    }
+
     /**
      * Adds the specified <color>color</color> to the colors stored in
      * this instance.
@@ -100,15 +130,27 @@ public class Color
      */
     public byte[] toBytesForBMP() {
         return new byte[] {
-            // Naive clamping is used here to ensure that the value of a
-            // color in the BMP representation does  not exceed 255 even
-            // if the double value stored in this object exceeds 1.0.
-            (byte) Math.min(blue * 255, 255),
-            (byte) Math.min(green * 255, 255),
-            (byte) Math.min(red * 255, 255)
+            toByte(blue),
+            toByte(green),
+            toByte(red)
         };
     }
 
+    /**
+     * Converts a color component to the byte that represents it in a
+     * BMP or PPM image file.
+     *
+     * @param c Value of a color component.
+     * @return Byte for the color component.
+     */
+    static byte toByte(double c)
+    {
+        // Naive clamping is used here to ensure that the value of a
+        // color in the BMP representation does  not exceed 255 even if
+        // the double value exceeds 1.0.
+        return (byte) Math.min(c * 255, 255);
+    }
+
 
     /**
      * Multiplies the red, green and blue components of the color with
@@ -146,7 +188,7 @@ public class Color
      *          blue.
      * @return sRGB encoded value.
      */
-    private static double srgbEncode(double c)
+    static double srgbEncode(double c)
     {
         if (c <= 0.0031308) {
             return 12.92 * c;
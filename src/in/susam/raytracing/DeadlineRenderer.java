@@ -0,0 +1,356 @@
+/*
+ * Renderer with a deadline.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import in.susam.util.Logger;
+
+/**
+ * Traces an image that must be complete by a deadline rather than at a
+ * fixed quality. The image is traced in passes at increasing levels of
+ * quality. Each level sets the number of samples per pixel, the maximum
+ * depth of reflection and the minimum reflection coefficient of the
+ * rays. The lowest level takes one sample per block of 8x8 pixels and
+ * follows no reflections. The highest level is the quality of a render
+ * without a deadline as per the settings.
+ *
+ * <p>The deadline is counted from the start of the first pass. The
+ * time taken to load the scene, to open the output file, to register
+ * the monitor and to build the G-buffer, the hierarchy and the screen
+ * bins before it depends on the scene and the machine but not on the
+ * levels of quality chosen, so it is not taken from the time in which
+ * the passes are planned.</p>
+ *
+ * <p>The first pass is traced at the lowest level and always completes,
+ * so that every pixel has a color. After each pass, the time spent per
+ * sample and the number of surfaces hit per sample are measured, and
+ * the next pass is traced at the highest level whose estimated time
+ * fits in the time left. Since the rays cut short in a pass may hit at
+ * most one more surface for each level of depth added, the estimate
+ * does not fall short of the actual time unless the speed of the
+ * render changes. If no higher level fits, the next level is traced
+ * for as long as the time allows, so that part of the image is still
+ * improved. At the deadline, the tiles being traced stop after their
+ * current row and the pixels not traced again keep the colors of the
+ * previous pass.</p>
+ *
+ * @author Susam Pal
+ */
+final class DeadlineRenderer
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Factor by which the estimated time of a pass is multiplied before
+     * it is compared with the time left. The estimates made after the
+     * first passes are mostly too long, since the code that traces the
+     * rays is still being compiled, but the estimate of a pass at the
+     * full depth of reflection made after a pass at a lower depth has
+     * been seen to fall about a fifth short.
+     */
+    static final double SAFETY_FACTOR = 1.25;
+
+    /**
+     * Fraction of the time to the deadline that is kept free for the
+     * tiles being traced to stop after their current row and for the
+     * image to be closed. The pixels are written into the mapped file as
+     * they are traced, so the render has been seen to end within a few
+     * milliseconds of the time it stops the tiles.
+     */
+    static final double MARGIN = 0.02;
+
+    /**
+     * Number of slices of tiles in which each pass is traced. Only the
+     * last slice of a pass is measured, since the code that traces the
+     * rays is still being compiled while the first passes are traced.
+     */
+    static final int SLICES = 4;
+
+    /**
+     * Scene to be traced.
+     */
+    private final Scene scene;
+
+    /**
+     * Settings for the render.
+     */
+    private final RenderSettings settings;
+
+    /**
+     * Statistics of the render.
+     */
+    private final RenderStatistics statistics;
+
+    /**
+     * Monitor that follows the progress of the render.
+     */
+    private final RenderMonitor monitor;
+
+    /**
+     * Tiles of the image.
+     */
+    private final List<Tile> tiles;
+
+    /**
+     * Slices of the tiles. Each slice takes every {@link #SLICES}th
+     * tile, so that the slices cover the image evenly.
+     */
+    private final List<List<Tile>> slices = new ArrayList<List<Tile>>();
+
+    /**
+     * Levels of quality from the lowest to the highest.
+     */
+    private final List<Level> levels = new ArrayList<Level>();
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param scene      Scene to be traced.
+     * @param settings   Settings for the render. The highest level of
+     *                   quality traces the image as per these settings.
+     * @param statistics Statistics to which the work done by the render
+     *                   is added.
+     * @param monitor    Monitor that follows the progress of the render.
+     */
+    DeadlineRenderer(Scene scene, RenderSettings settings,
+                     RenderStatistics statistics, RenderMonitor monitor)
+    {
+        this.scene = scene;
+        this.settings = settings;
+        this.statistics = statistics;
+        this.monitor = monitor;
+        tiles = Tile.split(scene.width, scene.height, settings.tileSize);
+        for (int i = 0; i < SLICES; i++) {
+            slices.add(new ArrayList<Tile>());
+        }
+        for (Tile tile : tiles) {
+            slices.get(tile.index % SLICES).add(tile);
+        }
+
+        levels.add(new Level(8, 1, 0));
+        levels.add(new Level(4, 2, 0.25));
+        levels.add(new Level(2, 4, 0.1));
+        levels.add(new Level(1, 6, 0.02));
+        levels.add(new Level(0, settings.maxDepth, settings.minCoefficient));
+    }
+
+    /**
+     * Traces the image and writes each pixel into the
+     * <code>writer</code>. The deadline is counted from the start of the
+     * first pass, after the hierarchy and the screen bins of the scene
+     * are built. This method returns before the deadline unless the
+     * first pass takes longer.
+     *
+     * @param writer Writer for the output image.
+     * @throws java.util.concurrent.CancellationException If the render
+     *                                                    is cancelled.
+     */
+    void render(PixelWriter writer)
+    {
+        // The hierarchy and the screen bins are built before the first
+        // pass so that their time is not mistaken for tracing time.
+        long setup = System.nanoTime();
+        new TraceContext(scene, settings);
+        long start = System.nanoTime();
+        logger.log("Hierarchy and screen bins built in " +
+                   (start - setup) / 1000000 + " ms before the deadline " +
+                   "is counted.");
+
+        long budget = (long) (settings.deadline * 1e9);
+        long deadline = start + budget - (long) (MARGIN * budget);
+
+        ForkJoinPool pool = settings.threads > 1 ?
+                new ForkJoinPool(settings.threads) : null;
+        int top = levels.size() - 1;
+        int quality = -1;
+        try {
+            int level = 0;
+            for (int pass = 1; level >= 0; pass++) {
+                Level l = levels.get(level);
+                TileRenderer renderer = new TileRenderer(scene, l.settings,
+                                                         statistics,
+                                                         monitor, null);
+                if (pass > 1) {
+                    renderer.stopAt(deadline);
+                }
+
+                monitor.start((long) tiles.size() * pass);
+                long passStart = System.nanoTime();
+                long[] first = statistics.counts();
+                long[] before = first;
+                long sliceStart = passStart;
+                for (List<Tile> slice : slices) {
+                    before = statistics.counts();
+                    sliceStart = System.nanoTime();
+                    if (l.block > 0) {
+                        renderer.renderBlocks(slice, writer, l.block, pool);
+                    } else {
+                        renderer.renderTiles(slice, writer, pool);
+                    }
+                    monitor.checkCancelled();
+                }
+                long end = System.nanoTime();
+                long[] after = statistics.counts();
+
+                long millis = (end - passStart) / 1000000;
+                if (after[0] - first[0] < l.samples) {
+                    logger.log("Pass " + pass + " with " + l + " cut " +
+                               "short at the deadline after " + millis +
+                               " ms.");
+                    break;
+                }
+                logger.log("Pass " + pass + " with " + l + " complete " +
+                           "in " + millis + " ms.");
+                quality = level;
+                if (level == top) {
+                    break;
+                }
+
+                // Surfaces hit per sample and the fraction of samples
+                // whose reflections were cut short in the last slice.
+                double samples = Math.max(1, after[0] - before[0]);
+                double primary = Math.max(1, after[1] - before[1]);
+                double surfaces = 1 + (after[3] - before[3]) / primary;
+                double cut = (after[6] - before[6]) / primary;
+                double nanosPerSurface = (end - sliceStart) /
+                                         (samples * surfaces);
+
+                long left = deadline - System.nanoTime();
+                int next = left > 0 ? level + 1 : -1;
+                for (int i = top; i > level + 1; i--) {
+                    Level n = levels.get(i);
+                    double depth = Math.max(0, n.depth - l.depth);
+                    double estimate = SAFETY_FACTOR * n.samples *
+                                      (surfaces + cut * depth) *
+                                      nanosPerSurface;
+                    if (estimate <= left) {
+                        next = i;
+                        break;
+                    }
+                }
+                level = next;
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (elapsed > budget) {
+            logger.log("Deadline of " + budget / 1000000 + " ms missed " +
+                       "by " + (elapsed - budget) / 1000000 + " ms " +
+                       "since the first pass must complete.");
+        }
+        logger.log("Image complete at quality " + (quality + 1) + " of " +
+                   levels.size() + " after " + elapsed / 1000000 +
+                   " ms of " + budget / 1000000 + " ms.");
+    }
+
+    /**
+     * Level of quality of a pass.
+     */
+    private final class Level
+    {
+        /**
+         * Width and height of the blocks of pixels that take one sample
+         * each, or 0 for 4 samples per pixel.
+         */
+        final int block;
+
+        /**
+         * Maximum number of surfaces hit by a ray cast from the camera.
+         */
+        final int depth;
+
+        /**
+         * Reflection coefficient at or below which reflections are not
+         * followed.
+         */
+        final double minCoefficient;
+
+        /**
+         * Number of samples of a pass over the whole image.
+         */
+        final long samples;
+
+        /**
+         * Settings for the pass.
+         */
+        final RenderSettings settings;
+
+        /**
+         * Creates a level that is no better than the quality of the
+         * render as per its settings.
+         *
+         * @param block          Width and height of the blocks of pixels
+         *                       that take one sample each, or 0.
+         * @param depth          Maximum depth of reflection.
+         * @param minCoefficient Minimum reflection coefficient.
+         */
+        Level(int block, int depth, double minCoefficient)
+        {
+            RenderSettings s = DeadlineRenderer.this.settings;
+            this.block = block;
+            this.depth = Math.min(depth, s.maxDepth);
+            this.minCoefficient = Math.max(minCoefficient,
+                                           s.minCoefficient);
+
+            long n = 0;
+            for (Tile tile : tiles) {
+                n += block == 0 ? 4L * tile.width * tile.height :
+                        (long) ((tile.width + block - 1) / block) *
+                        ((tile.height + block - 1) / block);
+            }
+            samples = n;
+
+            settings = new RenderSettings(s.threads);
+            settings.tileSize = s.tileSize;
+            settings.screenBins = s.screenBins;
+            settings.gBuffer = s.gBuffer;
+            settings.exposure = s.exposure;
+            settings.maxDepth = this.depth;
+            settings.minCoefficient = this.minCoefficient;
+            settings.luminanceThreshold = s.luminanceThreshold;
+            settings.roulette = s.roulette;
+            settings.rouletteDepth = s.rouletteDepth;
+        }
+
+        /**
+         * Describes the level.
+         *
+         * @return Samples per pixel, maximum depth and minimum
+         *         reflection coefficient.
+         */
+        @Override
+        public String toString()
+        {
+            return (block == 0 ? "4 samples per pixel" :
+                    block == 1 ? "1 sample per pixel" :
+                    "1 sample per " + block + "x" + block + " pixels") +
+                   ", at most " + depth + " surface(s) per ray and " +
+                   "a minimum reflection coefficient of " + minCoefficient;
+        }
+    }
+}
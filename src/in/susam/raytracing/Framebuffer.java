@@ -0,0 +1,272 @@
+/*
+ * Floating point framebuffer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import in.susam.util.Logger;
+
+/**
+ * Holds the linear radiance of every pixel of an image as packed
+ * floating point numbers. The red, green and blue components of each
+ * pixel are stored one after another, row by row from the bottom of
+ * the image. The radiance is neither altered as per exposure nor gamma
+ * corrected, so the image can be tone mapped again with another
+ * exposure by a {@link ToneMapper} without tracing the scene again.
+ *
+ * <p>A framebuffer can be saved in and loaded from a PFM file, i.e. a
+ * short text header followed by the pixels as 32-bit floating point
+ * numbers in the same order as in memory.</p>
+ *
+ * @author Susam Pal
+ */
+public class Framebuffer implements PixelWriter
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Width of the image.
+     */
+    private final int width;
+
+    /**
+     * Height of the image.
+     */
+    private final int height;
+
+    /**
+     * Red, green and blue radiance of the pixels.
+     */
+    private final float[] pixels;
+
+    /**
+     * Creates a black framebuffer of the specified size.
+     *
+     * @param width  Width of the image.
+     * @param height Height of the image.
+     */
+    public Framebuffer(int width, int height)
+    {
+        if ((long) width * height * 3 > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Image of " + width + "x" +
+                                               height + " pixels is too " +
+                                               "large for a framebuffer");
+        }
+        this.width = width;
+        this.height = height;
+        pixels = new float[3 * width * height];
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return Width of the image.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return Height of the image.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Returns the packed radiance of the pixels. The components of the
+     * pixel at (<code>x</code>, <code>y</code>) start at index
+     * <code>3 * (y * width + x)</code>.
+     *
+     * @return Radiance of the pixels.
+     */
+    float[] pixels()
+    {
+        return pixels;
+    }
+
+    /**
+     * Stores the radiance of a pixel. Unlike the writers of image
+     * files, a framebuffer receives linear radiance rather than sRGB
+     * encoded values.
+     *
+     * @param x     X coordinate of the pixel.
+     * @param y     Y coordinate of the pixel.
+     * @param red   Red radiance.
+     * @param green Green radiance.
+     * @param blue  Blue radiance.
+     */
+    @Override
+    public void setPixel(int x, int y, double red, double green,
+                         double blue)
+    {
+        int offset = 3 * (y * width + x);
+        pixels[offset] = (float) red;
+        pixels[offset + 1] = (float) green;
+        pixels[offset + 2] = (float) blue;
+    }
+
+    /**
+     * Saves the framebuffer in a PFM file.
+     *
+     * @param outputFile Name of the output PFM file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(String outputFile) throws IOException
+    {
+        // A negative scale marks little endian data.
+        String header = "PF\n" + width + " " + height + "\n-1.0\n";
+        try (FileOutputStream out = new FileOutputStream(outputFile)) {
+            FileChannel channel = out.getChannel();
+            write(channel, ByteBuffer.wrap(header.getBytes(
+                    StandardCharsets.US_ASCII)));
+
+            ByteBuffer b = ByteBuffer.allocate(1 << 16)
+                                     .order(ByteOrder.LITTLE_ENDIAN);
+            for (float f : pixels) {
+                if (!b.hasRemaining()) {
+                    b.flip();
+                    write(channel, b);
+                    b.clear();
+                }
+                b.putFloat(f);
+            }
+            b.flip();
+            write(channel, b);
+        }
+        logger.log("Saved radiance of " + width + "x" + height +
+                   " pixels in " + outputFile + ".");
+    }
+
+    /**
+     * Loads a framebuffer from a color PFM file.
+     *
+     * @param inputFile Name of the input PFM file.
+     * @return Framebuffer.
+     * @throws IOException If the file cannot be read or is not a color
+     *                     PFM file.
+     */
+    public static Framebuffer read(String inputFile) throws IOException
+    {
+        try (FileInputStream in = new FileInputStream(inputFile)) {
+            FileChannel channel = in.getChannel();
+            String[] header = new String[4];
+            ByteBuffer b = ByteBuffer.allocate(1 << 16);
+            read(channel, b);
+            b.flip();
+            StringBuilder token = new StringBuilder();
+            for (int i = 0; i < header.length; i++) {
+                token.setLength(0);
+                while (b.hasRemaining()) {
+                    char c = (char) b.get();
+                    if (Character.isWhitespace(c)) {
+                        if (token.length() > 0) {
+                            break;
+                        }
+                    } else {
+                        token.append(c);
+                    }
+                }
+                header[i] = token.toString();
+            }
+            if (!header[0].equals("PF")) {
+                throw new IOException(inputFile + " is not a color PFM " +
+                                      "file");
+            }
+
+            Framebuffer f;
+            float scale;
+            try {
+                f = new Framebuffer(Integer.parseInt(header[1]),
+                                    Integer.parseInt(header[2]));
+                scale = Float.parseFloat(header[3]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid PFM header in " + inputFile,
+                                      e);
+            }
+            b.order(scale < 0 ? ByteOrder.LITTLE_ENDIAN :
+                                ByteOrder.BIG_ENDIAN);
+
+            float[] pixels = f.pixels;
+            for (int i = 0; i < pixels.length; i++) {
+                if (b.remaining() < 4) {
+                    b.compact();
+                    if (read(channel, b) < 0 && b.position() < 4) {
+                        throw new IOException(inputFile + " is " +
+                                              "truncated");
+                    }
+                    b.flip();
+                }
+                pixels[i] = b.getFloat();
+            }
+            return f;
+        }
+    }
+
+    /**
+     * Writes the contents of a buffer into a channel.
+     *
+     * @param channel Channel of the file.
+     * @param b       Buffer to be written.
+     * @throws IOException If the buffer cannot be written.
+     */
+    private static void write(FileChannel channel, ByteBuffer b)
+            throws IOException
+    {
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+    }
+
+    /**
+     * Reads from a channel until the buffer is full or the end of the
+     * file is reached.
+     *
+     * @param channel Channel of the file.
+     * @param b       Buffer to be filled.
+     * @return Number of bytes read, or -1 if the end of the file was
+     *         reached before any byte was read.
+     * @throws IOException If the file cannot be read.
+     */
+    private static int read(FileChannel channel, ByteBuffer b)
+            throws IOException
+    {
+        int total = 0;
+        while (b.hasRemaining()) {
+            int n = channel.read(b);
+            if (n < 0) {
+                return total == 0 ? -1 : total;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Primary hit buffer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Caches the first sphere hit by each primary ray of an image. The
+ * camera is fixed, so the primary rays and the spheres they hit depend
+ * only on the spheres of the scene and the size of the image. They do
+ * not change when the materials or the light sources of the scene are
+ * edited. A render with the buffer reads the hit of each primary ray
+ * from it and only shades the point of intersection, i.e. casts the
+ * shadow and reflection rays with the current materials and lights.
+ *
+ * <p>Primary rays start at the corners and the centers of the edges of
+ * the pixels, i.e. on a grid of half pixels, when the image is sampled
+ * 4 times per pixel, in the corners of the adaptive sampler and in the
+ * coarse passes. The buffer holds the index of the sphere hit and the
+ * distance of the point of intersection for every point of this grid.
+ * Rays that start elsewhere, such as those of pixels refined on a finer
+ * grid, are traced as usual. The surface normal is computed from the
+ * center of the sphere, so the buffer takes 12 bytes per point, or
+ * about 48 bytes per pixel. The buffer must be rebuilt if the spheres
+ * of the scene or the size of the image change. Scenes with the same
+ * {@link #key} may share a buffer.</p>
+ *
+ * @author Susam Pal
+ */
+final class GBuffer
+{
+    /**
+     * Width of the image for which the buffer was built.
+     */
+    final int width;
+
+    /**
+     * Height of the image for which the buffer was built.
+     */
+    final int height;
+
+    /**
+     * Number of points in a row of the grid.
+     */
+    private final int columns;
+
+    /**
+     * Number of rows of the grid.
+     */
+    private final int rows;
+
+    /**
+     * Index of the sphere hit by the ray from each point of the grid in
+     * the sphere store, or -1 if the ray hits no sphere.
+     */
+    private final int[] spheres;
+
+    /**
+     * Distance between each point of the grid and the point where its
+     * ray hits a sphere.
+     */
+    private final double[] distances;
+
+    /**
+     * Traces the primary ray from every point of the grid of an image
+     * of the scene.
+     *
+     * @param scene          Scene to be traced.
+     * @param settings       Render settings.
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance at which a primary ray may
+     *                       hit a sphere.
+     */
+    GBuffer(Scene scene, RenderSettings settings, double cameraPosition,
+            double distance)
+    {
+        width = scene.width;
+        height = scene.height;
+        columns = 2 * width + 1;
+        rows = 2 * height + 1;
+        if ((long) columns * rows > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Image of " + width + "x" +
+                                               height + " pixels is too " +
+                                               "large for a G-buffer");
+        }
+        spheres = new int[columns * rows];
+        distances = new double[columns * rows];
+
+        BoundingVolumeHierarchy hierarchy = scene.getHierarchy();
+        ScreenBins screenBins = settings.screenBins ?
+                scene.getScreenBins(cameraPosition, distance) : null;
+        IntStream r = IntStream.range(0, rows);
+        if (settings.threads <= 1) {
+            r.forEach(j -> traceRow(j, hierarchy, screenBins,
+                                    cameraPosition, distance));
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(settings.threads);
+        try {
+            pool.submit(() -> r.parallel().forEach(j ->
+                    traceRow(j, hierarchy, screenBins, cameraPosition,
+                             distance))).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Computes the key of the buffer of a scene. The key covers the
+     * size of the image, the camera and the positions and the radii of
+     * the spheres in the order of the sphere store, i.e. everything the
+     * buffer depends on, but not the materials and the light sources.
+     * A buffer built for one scene may be used by another scene with
+     * the same key.
+     *
+     * @param scene          Scene.
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance at which a primary ray may
+     *                       hit a sphere.
+     * @return Hexadecimal SHA-256 hash of the geometry of the scene.
+     */
+    static String key(Scene scene, double cameraPosition, double distance)
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+
+        // The values are collected in a buffer on the heap that is
+        // hashed whenever it is full, so that the spheres are read
+        // from the store without creating an object for each.
+        ByteBuffer b = ByteBuffer.allocate(64 * 1024);
+        b.putInt(scene.width).putInt(scene.height);
+        b.putDouble(cameraPosition).putDouble(distance);
+        SphereStore store = scene.getSphereStore();
+        for (int i = 0; i < store.size(); i++) {
+            if (b.remaining() < 32) {
+                digest.update(b.array(), 0, b.position());
+                b.clear();
+            }
+            b.putDouble(store.x(i)).putDouble(store.y(i));
+            b.putDouble(store.z(i)).putDouble(store.radius(i));
+        }
+        digest.update(b.array(), 0, b.position());
+        StringBuilder key = new StringBuilder();
+        for (byte d : digest.digest()) {
+            key.append(Character.forDigit((d >> 4) & 0xf, 16));
+            key.append(Character.forDigit(d & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the number of bytes taken by the grid of this buffer.
+     *
+     * @return Size of the buffer in bytes.
+     */
+    long size()
+    {
+        return 12L * spheres.length;
+    }
+
+    /**
+     * Traces the primary rays from a row of the grid in the same way as
+     * {@link RayTracer#trace} does.
+     *
+     * @param j              Index of the row.
+     * @param hierarchy      Bounding volume hierarchy of the scene.
+     * @param screenBins     Screen space bins of the scene, or
+     *                       <code>null</code>.
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance at which a primary ray may
+     *                       hit a sphere.
+     */
+    private void traceRow(int j, BoundingVolumeHierarchy hierarchy,
+                          ScreenBins screenBins, double cameraPosition,
+                          double distance)
+    {
+        BoundingVolumeHierarchy.Hit hit = new BoundingVolumeHierarchy.Hit();
+        hit.distances = new double[hierarchy.leafSize];
+        int[] stack = new int[hierarchy.depth + 1];
+        double fy = j / 2.0;
+        for (int i = 0, c = j * columns; i < columns; i++, c++) {
+            double fx = i / 2.0;
+            boolean found = screenBins != null &&
+                            screenBins.covers(fx, fy) ?
+                    screenBins.closestHit(fx, fy, cameraPosition, distance,
+                                          hit) :
+                    hierarchy.closestHit(fx, fy, cameraPosition, 0, 0, 1,
+                                         distance, hit, stack);
+            spheres[c] = found ? hit.index : -1;
+            distances[c] = hit.distance;
+        }
+    }
+
+    /**
+     * Returns the point of the grid at which a primary ray starts.
+     *
+     * @param fx X coordinate of the origin of the ray.
+     * @param fy Y coordinate of the origin of the ray.
+     * @return Index of the point, or -1 if the ray does not start on
+     *         the grid.
+     */
+    int cell(double fx, double fy)
+    {
+        double i = 2 * fx;
+        double j = 2 * fy;
+        if (i < 0 || j < 0 || i >= columns || j >= rows ||
+            i != (int) i || j != (int) j) {
+            return -1;
+        }
+        return (int) j * columns + (int) i;
+    }
+
+    /**
+     * Finds the first sphere hit by the primary ray from a point of the
+     * grid. The sphere and the distance are stored in the
+     * <code>hit</code> just like by a search of the hierarchy.
+     *
+     * @param cell Index of the point.
+     * @param hit  Result of the query.
+     * @return <code>true</code> if the ray hits a sphere;
+     *         <code>false</code> otherwise.
+     */
+    boolean closestHit(int cell, BoundingVolumeHierarchy.Hit hit)
+    {
+        int sphere = spheres[cell];
+        if (sphere < 0) {
+            return false;
+        }
+        hit.index = sphere;
+        hit.distance = distances[cell];
+        return true;
+    }
+}
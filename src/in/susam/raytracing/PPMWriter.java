@@ -0,0 +1,164 @@
+/*
+ * PPM image writer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import in.susam.util.Logger;
+
+/**
+ * Writes an image into a binary PPM file. A PPM file consists of a short
+ * text header followed by the red, green and blue bytes of each pixel,
+ * row by row from the top of the image. Unlike a BMP file, it has no
+ * limit on its size, so it can hold images of any size. The rows are
+ * written one after another as they are traced and no part of the image
+ * is kept in memory.
+ *
+ * @author Susam Pal
+ */
+public class PPMWriter implements Closeable
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Width of the image.
+     */
+    private final int width;
+
+    /**
+     * Height of the image.
+     */
+    private final int height;
+
+    /**
+     * The file being written.
+     */
+    private final FileOutputStream file;
+
+    /**
+     * Channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Number of rows written so far.
+     */
+    private int rows;
+
+    /**
+     * Creates the PPM file <code>outputFile</code> for an image of the
+     * specified size and writes its header.
+     *
+     * @param outputFile Name of the output PPM image file.
+     * @param width      Width of the image.
+     * @param height     Height of the image.
+     * @throws IOException If the file cannot be created.
+     */
+    public PPMWriter(String outputFile, int width, int height)
+            throws IOException
+    {
+        this.width = width;
+        this.height = height;
+
+        file = new FileOutputStream(outputFile);
+        channel = file.getChannel();
+        try {
+            String header = "P6\n" + width + " " + height + "\n255\n";
+            write(ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII)));
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+
+        logger.log("Opened " + outputFile + " to write " +
+                   (long) width * height * 3 + " bytes of PPM output.");
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return Width of the image.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return Height of the image.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Writes the next rows of the image. The array holds the red, green
+     * and blue bytes of each pixel of each row, in that order, starting
+     * at the left edge of the top row.
+     *
+     * @param pixels Bytes of the rows.
+     * @param offset Index of the first byte in <code>pixels</code>.
+     * @param count  Number of rows to write.
+     * @throws IOException If the rows cannot be written.
+     */
+    public void writeRows(byte[] pixels, int offset, int count)
+            throws IOException
+    {
+        if (count > height - rows) {
+            throw new IllegalArgumentException("Image has only " + height +
+                                               " rows");
+        }
+        write(ByteBuffer.wrap(pixels, offset, 3 * width * count));
+        rows += count;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        file.close();
+    }
+
+    /**
+     * Writes the contents of a buffer at the end of the file.
+     *
+     * @param b Buffer to be written.
+     * @throws IOException If the buffer cannot be written.
+     */
+    private void write(ByteBuffer b) throws IOException
+    {
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+    }
+}
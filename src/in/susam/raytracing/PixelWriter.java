@@ -0,0 +1,42 @@
+/*
+ * Pixel writer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+/**
+ * Receives the colors of the pixels of an image as they are traced.
+ * Several threads may write pixels at the same time as long as no two
+ * threads write the same pixel.
+ *
+ * @author Susam Pal
+ */
+public interface PixelWriter
+{
+    /**
+     * Writes the color of a pixel. The color components are sRGB
+     * encoded values that are converted to bytes with
+     * {@link Color#toByte}.
+     *
+     * @param x     X coordinate of the pixel.
+     * @param y     Y coordinate of the pixel.
+     * @param red   Red component of the color.
+     * @param green Green component of the color.
+     * @param blue  Blue component of the color.
+     */
+    void setPixel(int x, int y, double red, double green, double blue);
+}
@@ -0,0 +1,84 @@
+/*
+ * Preview image writer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package in.susam.raytracing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import in.susam.util.Logger;
+
+/**
+ * Saves every frame of a progressive render into a preview BMP file.
+ * Each frame is written into a temporary file that then replaces the
+ * preview file, so a program that reads the preview file never sees a
+ * partly written frame.
+ *
+ * @author Susam Pal
+ */
+public class PreviewWriter implements RenderListener
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Name of the preview file.
+     */
+    private final String previewFile;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param previewFile Name of the preview BMP image file.
+     */
+    public PreviewWriter(String previewFile)
+    {
+        this.previewFile = previewFile;
+    }
+
+    @Override
+    public void passComplete(int pass, int passes, BMPWriter image)
+            throws IOException
+    {
+        File preview = new File(previewFile);
+        File temporary = new File(previewFile + ".tmp");
+
+        BMPWriter writer = new BMPWriter(temporary.getPath(),
+                                         image.getWidth(),
+                                         image.getHeight());
+        try {
+            byte[] row = new byte[3 * image.getWidth()];
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRow(y, row, 0, image.getWidth());
+                writer.setRow(y, row, 0, image.getWidth());
+            }
+        } finally {
+            writer.close();
+        }
+
+        Files.move(temporary.toPath(), preview.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        logger.log("Saved pass " + pass + " of " + passes + " in " +
+                   previewFile + ".");
+    }
+}
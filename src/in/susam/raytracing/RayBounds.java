@@ -0,0 +1,230 @@
+/*
+ * Bounds of the rays of tiles.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Arrays;
+
+/**
+ * Records the space through which the rays of each tile of an image
+ * travel. The color of a pixel depends only on the spheres that its
+ * rays hit, and a sphere that no ray of a tile passes through cannot
+ * change the tile. If a sphere is moved and neither its old nor its
+ * new bounding box meets any ray of a tile, then every ray of the tile
+ * hits the same spheres as before, so the tile is the same as before
+ * and need not be traced again.
+ *
+ * <p>The rays of a tile are bounded by a few axis aligned boxes: one
+ * for the primary rays, one for the reflected rays and one for the
+ * shadow rays towards each light source. Each segment of a ray, from
+ * its origin to the point where it hits a sphere or to the maximum
+ * distance, is added to its box. The shadow rays towards a light
+ * source all end at the light source, so their box stays small for the
+ * tiles whose points lie close together. The test is conservative: a
+ * sphere that meets a box may still miss every ray in it.</p>
+ *
+ * @author Susam Pal
+ */
+final class RayBounds
+{
+    /**
+     * Box of the primary rays.
+     */
+    static final int PRIMARY = 0;
+
+    /**
+     * Box of the reflected rays.
+     */
+    static final int REFLECTION = 1;
+
+    /**
+     * Box of the shadow rays towards the first light source. The boxes
+     * of the other light sources follow it.
+     */
+    static final int SHADOW = 2;
+
+    /**
+     * Number of boxes per tile, including the box of the scene.
+     */
+    private final int boxes;
+
+    /**
+     * Boxes of each tile, or <code>null</code> for a tile that has not
+     * been traced. Six values are stored for each box: the minimum X,
+     * Y and Z coordinates followed by the maximum X, Y and Z
+     * coordinates. The last box of a tile is the bounding box of the
+     * spheres of the scene when the tile was traced, padded by a quarter
+     * of its largest side.
+     */
+    private final double[][] tiles;
+
+    /**
+     * Creates an instance of this class for an image in which no tile
+     * has been traced.
+     *
+     * @param tiles  Number of tiles of the image.
+     * @param lights Number of light sources of the scene.
+     */
+    RayBounds(int tiles, int lights)
+    {
+        this.boxes = SHADOW + lights + 1;
+        this.tiles = new double[tiles][];
+    }
+
+    /**
+     * Empties the boxes of a tile that is about to be traced.
+     *
+     * @param tile  Index of the tile.
+     * @param scene Bounding box of the spheres of the scene.
+     * @return Boxes of the tile to which the rays of the tile are to be
+     *         added with {@link #add}.
+     */
+    double[] reset(int tile, float[] scene)
+    {
+        double[] b = tiles[tile];
+        if (b == null) {
+            b = new double[6 * boxes];
+            tiles[tile] = b;
+        }
+        int last = b.length - 6;
+        for (int i = 0; i < last; i += 6) {
+            Arrays.fill(b, i, i + 3, Double.POSITIVE_INFINITY);
+            Arrays.fill(b, i + 3, i + 6, Double.NEGATIVE_INFINITY);
+        }
+        // Pad the box of the scene so that spheres moving a little near
+        // its faces stay inside it.
+        double pad = 0;
+        for (int k = 0; k < 3; k++) {
+            pad = Math.max(pad, scene[k + 3] - scene[k]);
+        }
+        pad = pad / 4 + 1;
+        for (int k = 0; k < 3; k++) {
+            b[last + k] = scene[k] - pad;
+            b[last + 3 + k] = scene[k + 3] + pad;
+        }
+        return b;
+    }
+
+    /**
+     * Adds a segment of a ray to a box of a tile. Only the part of the
+     * segment within the box of the scene is added, since no sphere
+     * inside that box can meet the rest.
+     *
+     * @param b   Boxes of the tile.
+     * @param box Index of the box.
+     * @param x0  X coordinate of the start of the segment.
+     * @param y0  Y coordinate of the start of the segment.
+     * @param z0  Z coordinate of the start of the segment.
+     * @param x1  X coordinate of the end of the segment.
+     * @param y1  Y coordinate of the end of the segment.
+     * @param z1  Z coordinate of the end of the segment.
+     */
+    static void add(double[] b, int box, double x0, double y0, double z0,
+                    double x1, double y1, double z1)
+    {
+        // Clip the segment to the box of the scene.
+        int s = b.length - 6;
+        double t0 = 0;
+        double t1 = 1;
+        double[] p = {x0, y0, z0};
+        double[] d = {x1 - x0, y1 - y0, z1 - z0};
+        for (int k = 0; k < 3; k++) {
+            if (d[k] == 0) {
+                if (p[k] < b[s + k] || p[k] > b[s + 3 + k]) {
+                    return;
+                }
+                continue;
+            }
+            double near = (b[s + k] - p[k]) / d[k];
+            double far = (b[s + 3 + k] - p[k]) / d[k];
+            t0 = Math.max(t0, Math.min(near, far));
+            t1 = Math.min(t1, Math.max(near, far));
+        }
+        if (t0 > t1) {
+            return;
+        }
+        x1 = x0 + t1 * d[0];
+        y1 = y0 + t1 * d[1];
+        z1 = z0 + t1 * d[2];
+        x0 += t0 * d[0];
+        y0 += t0 * d[1];
+        z0 += t0 * d[2];
+
+        int i = 6 * box;
+        b[i] = Math.min(b[i], Math.min(x0, x1));
+        b[i + 1] = Math.min(b[i + 1], Math.min(y0, y1));
+        b[i + 2] = Math.min(b[i + 2], Math.min(z0, z1));
+        b[i + 3] = Math.max(b[i + 3], Math.max(x0, x1));
+        b[i + 4] = Math.max(b[i + 4], Math.max(y0, y1));
+        b[i + 5] = Math.max(b[i + 5], Math.max(z0, z1));
+    }
+
+    /**
+     * Returns whether the rays of a tile have been recorded.
+     *
+     * @param tile Index of the tile.
+     * @return <code>true</code> if the tile has been traced;
+     *         <code>false</code> otherwise.
+     */
+    boolean isTraced(int tile)
+    {
+        return tiles[tile] != null;
+    }
+
+    /**
+     * Returns whether a sphere may meet a ray of a tile.
+     *
+     * @param tile   Index of the tile.
+     * @param x      X coordinate of the center of the sphere.
+     * @param y      Y coordinate of the center of the sphere.
+     * @param z      Z coordinate of the center of the sphere.
+     * @param radius Radius of the sphere.
+     * @return <code>true</code> if the sphere meets a box of the tile,
+     *         lies partly outside the box of the scene or the tile has
+     *         not been traced; <code>false</code> otherwise.
+     */
+    boolean meets(int tile, double x, double y, double z, double radius)
+    {
+        double[] b = tiles[tile];
+        if (b == null) {
+            return true;
+        }
+
+        // A small margin covers the rounding errors of the intersection
+        // tests.
+        radius += 1e-6 * (1 + radius + Math.abs(x) + Math.abs(y) +
+                          Math.abs(z));
+
+        // The rays were clipped to the box of the scene, so a sphere
+        // outside it may meet them anywhere.
+        int s = b.length - 6;
+        if (x - radius < b[s] || x + radius > b[s + 3] ||
+            y - radius < b[s + 1] || y + radius > b[s + 4] ||
+            z - radius < b[s + 2] || z + radius > b[s + 5]) {
+            return true;
+        }
+        for (int i = 0; i < s; i += 6) {
+            if (x + radius >= b[i] && x - radius <= b[i + 3] &&
+                y + radius >= b[i + 1] && y - radius <= b[i + 4] &&
+                z + radius >= b[i + 2] && z - radius <= b[i + 5]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
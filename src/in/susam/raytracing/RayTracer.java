@@ -18,15 +18,16 @@
 
 package in.susam.raytracing;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import in.susam.util.Logger;
 
 /**
  * This class performs the ray tracing for a scene configuration defined
- * in {@link Scene#sceneDefinition}. The ray tracing is done from an
- * orthographic perspective.
+ * in {@link Scene#sceneDefinition} or loaded from a scene file. The ray
+ * tracing is done from an orthographic perspective.
  *
  * @author Susam Pal
  */
@@ -41,21 +42,206 @@ public class RayTracer
      * Position of the camera is given by the coordinate
      * (0, 0, CAMERA_POSITION).
      */
-    private static final int CAMERA_POSITION = -1000;
+    static final int CAMERA_POSITION = -1000;
+
+    /**
+     * Maximum distance between the origin of a ray and the point where
+     * it hits an object.
+     */
+    static final double MAX_DISTANCE = 2000.0f;
+
+    /**
+     * Usage message of {@link #main}.
+     */
+    static final String USAGE =
+            "Usage: RayTracer [-threads N] [-adaptive] [-contrast T] " +
+            "[-samples N] [-progressive] [-preview FILE] " +
+            "[-checkpoint DIR] [-output FILE] [-exposure E] [-hdr FILE] " +
+            "[-gbuffer] [-bins] [-monitor] [-animate FILE] [-bands N] " +
+            "[-distribute PORT] [-depth N] [-cutoff C] [-luminance T] " +
+            "[-roulette P] [-deadline SECONDS] [SCENE]";
 
     /**
      * <code>main</code> method that starts the ray tracing. Output
-     * image is saved in output.bmp file. Command line arguments are
-     * ignored.
+     * image is saved in output.bmp file unless the <code>-output</code>
+     * option names another file. The scene is loaded from the
+     * scene file named by the only argument that is not an option. If
+     * no scene file is named, the scene defined in
+     * {@link Scene#sceneDefinition} is traced.
+     *
+     * <p>The following command line options are supported:</p>
+     * <dl>
+     * <dt><code>-threads N</code></dt>
+     * <dd>Trace the image in parallel tiles with N threads. If N is
+     *     0, one thread per available processor is used.</dd>
+     * <dt><code>-adaptive</code></dt>
+     * <dd>Sample pixels adaptively instead of 4 times each.</dd>
+     * <dt><code>-contrast T</code></dt>
+     * <dd>Refine the pixels whose corners differ by more than T in
+     *     adaptive mode.</dd>
+     * <dt><code>-samples N</code></dt>
+     * <dd>Take at most N samples per pixel in adaptive mode.</dd>
+     * <dt><code>-progressive</code></dt>
+     * <dd>Trace the image in coarse passes before the final pass.</dd>
+     * <dt><code>-preview FILE</code></dt>
+     * <dd>Trace the image progressively and save each pass in the BMP
+     *     file FILE.</dd>
+     * <dt><code>-checkpoint DIR</code></dt>
+     * <dd>Save the progress of the render in the directory DIR at
+     *     intervals and resume an interrupted render of the same scene
+     *     from it.</dd>
+     * <dt><code>-output FILE</code></dt>
+     * <dd>Save the image in FILE instead of output.bmp. If the name of
+     *     FILE ends with <code>.ppm</code>, the image is saved in PPM
+     *     format and traced in bands, which allows images of any
+     *     size.</dd>
+     * <dt><code>-exposure E</code></dt>
+     * <dd>Alter the colors of the image as per the exposure E. The
+     *     default is 1.</dd>
+     * <dt><code>-hdr FILE</code></dt>
+     * <dd>Trace the linear radiance of the image into a framebuffer,
+     *     tone map it into the output file and save it in the PFM file
+     *     FILE, which {@link ToneMapper} can tone map again with
+     *     another exposure.</dd>
+     * <dt><code>-gbuffer</code></dt>
+     * <dd>Keep the first sphere hit by every primary ray in a G-buffer
+     *     of the scene and shade the hits from it, see
+     *     {@link GBuffer}.</dd>
+     * <dt><code>-bins</code></dt>
+     * <dd>Test primary rays only against the spheres listed in the
+     *     screen space bin in which they start, see
+     *     {@link ScreenBins}.</dd>
+     * <dt><code>-monitor</code></dt>
+     * <dd>Register the render with the platform MBean server, so that
+     *     its progress can be followed and it can be cancelled with JMX
+     *     tools, see {@link RenderMonitor}.</dd>
+     * <dt><code>-animate FILE</code></dt>
+     * <dd>Trace an animation whose frames move the spheres as described
+     *     in the file FILE, see {@link SceneDelta}. The frames are saved
+     *     in files named after the output file, see
+     *     {@link Animation#frameFile}.</dd>
+     * <dt><code>-bands N</code></dt>
+     * <dd>Hold at most N bands of a PPM image in memory.</dd>
+     * <dt><code>-distribute PORT</code></dt>
+     * <dd>Hand out the tiles of the image to {@link RenderWorker}
+     *     processes that connect to the port PORT instead of tracing
+     *     them in this process.</dd>
+     * <dt><code>-depth N</code></dt>
+     * <dd>Follow the reflections of a ray until it has hit N surfaces
+     *     at most. The default is 10.</dd>
+     * <dt><code>-cutoff C</code></dt>
+     * <dd>Stop following the reflections of a ray when its reflection
+     *     coefficient falls to C or below.</dd>
+     * <dt><code>-luminance T</code></dt>
+     * <dd>Stop following the reflections of a ray when they cannot add
+     *     more than the luminance T to the color of its sample.</dd>
+     * <dt><code>-roulette P</code></dt>
+     * <dd>Follow reflections beyond the third surface with probability
+     *     P at most in Russian roulette.</dd>
+     * <dt><code>-deadline SECONDS</code></dt>
+     * <dd>Complete the image within SECONDS of the start of tracing
+     *     at the best quality that the time allows, see
+     *     {@link DeadlineRenderer}.</dd>
+     * </dl>
      *
      * @param args Command line arguments.
+     * @throws IllegalArgumentException If an argument is unknown or the
+     *                                  number of threads is negative.
      */
     public static void main(String[] args) throws IOException
     {
         String outputFile = "output.bmp";
+        RenderSettings settings = new RenderSettings();
+        RenderListener listener = null;
+        String sceneFile = null;
+        String animationFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                settings.threads = Integer.parseInt(args[++i]);
+                if (settings.threads < 0) {
+                    throw new IllegalArgumentException(USAGE);
+                } else if (settings.threads == 0) {
+                    settings.threads =
+                            Runtime.getRuntime().availableProcessors();
+                }
+            } else if (args[i].equals("-adaptive")) {
+                settings.adaptive = true;
+            } else if (args[i].equals("-contrast") && i + 1 < args.length) {
+                settings.contrastThreshold = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-samples") && i + 1 < args.length) {
+                settings.maxSamples = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-progressive")) {
+                settings.progressive = true;
+            } else if (args[i].equals("-preview") && i + 1 < args.length) {
+                settings.progressive = true;
+                listener = new PreviewWriter(args[++i]);
+            } else if (args[i].equals("-checkpoint") &&
+                       i + 1 < args.length) {
+                settings.checkpointDirectory = args[++i];
+            } else if (args[i].equals("-output") && i + 1 < args.length) {
+                outputFile = args[++i];
+            } else if (args[i].equals("-exposure") &&
+                       i + 1 < args.length) {
+                settings.exposure = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-hdr") && i + 1 < args.length) {
+                settings.radianceFile = args[++i];
+            } else if (args[i].equals("-gbuffer")) {
+                settings.gBuffer = true;
+            } else if (args[i].equals("-monitor")) {
+                settings.monitor = true;
+            } else if (args[i].equals("-bins")) {
+                settings.screenBins = true;
+            } else if (args[i].equals("-animate") &&
+                       i + 1 < args.length) {
+                animationFile = args[++i];
+            } else if (args[i].equals("-bands") && i + 1 < args.length) {
+                settings.maxBands = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-distribute") &&
+                       i + 1 < args.length) {
+                settings.workerPort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-depth") && i + 1 < args.length) {
+                settings.maxDepth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-cutoff") && i + 1 < args.length) {
+                settings.minCoefficient = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-luminance") &&
+                       i + 1 < args.length) {
+                settings.luminanceThreshold = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-roulette") &&
+                       i + 1 < args.length) {
+                settings.roulette = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-deadline") &&
+                       i + 1 < args.length) {
+                settings.deadline = Double.parseDouble(args[++i]);
+            } else if (!args[i].startsWith("-") && sceneFile == null) {
+                sceneFile = args[i];
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " +
+                                                   args[i] + "\n" + USAGE);
+            }
+        }
 
-        Scene scene = new Scene();
-        draw(outputFile, scene);
+        Scene scene;
+        if (sceneFile == null) {
+            scene = new Scene();
+        } else {
+            long start = System.nanoTime();
+            scene = Scene.load(sceneFile);
+            logger.log("Loaded " + scene.spheres.size() + " spheres from " +
+                       sceneFile + " in " +
+                       (System.nanoTime() - start) / 1000000 + " ms.");
+        }
+        try {
+            if (animationFile != null) {
+                animate(animationFile, outputFile, scene, settings);
+            } else {
+                draw(outputFile, scene, settings, listener);
+            }
+        } catch (CancellationException e) {
+            logger.log("Render cancelled. " + outputFile + " is " +
+                       "incomplete.");
+            System.exit(1);
+        }
     }
 
     /**
@@ -65,139 +251,400 @@ public class RayTracer
      * @param outputFile Name of the output BMP image file.
      * @param scene      Scene definition
      */
-    private static void draw(String outputFile, Scene scene) throws IOException
+    public static void draw(String outputFile, Scene scene)
+            throws IOException
     {
-        FileOutputStream f = new FileOutputStream(outputFile);
-        logger.log("Opened " + outputFile + " to write BMP output.");
-
-        // Padding required if the number of bytes to draw pixels of one
-        // row is not a multiple of 4. This padding is required by the
-        // BMP format specification.
-        int padding = (4 - scene.width * 3 % 4) % 4;
-
-        logger.log(scene.width * 3 + " bytes required for pixels in a row.");
-        logger.log("Padding of " + padding + " byte " +
-                   (padding == 1 ? "s" : "") + "will be used at the end " +
-                   "each row of pixels.");
-
-        // Number of bytes in the raw BMP data.
-        int rawBMPSize = (scene.width * 3 + padding) * scene.height;
-
-        logger.log("Size of raw BMP data: " + rawBMPSize + " byte" +
-                   (rawBMPSize == 1 ? "s" : ""));
-
-        // BMP headers occupy 54 bytes. So, the total size of the file
-        // is 54 + rawBMPSize.
-        int size = 54 + rawBMPSize;
-
-        logger.log("Total size of BMP image file: " + size + " byte" +
-                   (size > 1 ? "s" : ""));
-
-        // Write the BMP magic number \x42\x4D into the BMP header.
-        f.write(new byte[] {'B', 'M'});
-
-        // Write the BMP file size into the BMP header.
-        f.write(size & 0x000000FF);
-        f.write((size & 0x0000FF00) >>> 8);
-        f.write((size & 0x00FF0000) >>> 16);
-        f.write((size & 0xFF000000) >>> 24);
-
-        // Unused bytes in the header
-        f.write(new byte[] {0, 0, 0, 0});
-
-        // Write the offset of BMP data pixels into the BMP header.
-        f.write(new byte[] {0x36, 0, 0, 0});
-        f.write(new byte[] {0x28, 0, 0, 0});
-
-        // Write the width of the image (in pixels) into the BMP header.
-        f.write(scene.width & 0x000000FF);
-        f.write((scene.width & 0x0000FF00) >>> 8);
-        f.write((scene.width & 0x00FF0000) >>> 16);
-        f.write((scene.width & 0xFF000000) >>> 24);
-
-        // Write the height of the image (in pixels) into the BMP header.
-        f.write(scene.height & 0x000000FF);
-        f.write((scene.height & 0x0000FF00) >>> 8);
-        f.write((scene.height & 0x00FF0000) >>> 16);
-        f.write((scene.height & 0xFF000000) >>> 24);
-
-        // Write the color plane, color depth and compression related
-        // information in the BMP header.
-        f.write(new byte[] {1, 0});    // 1 color plane
-        f.write(new byte[] {0x18, 0}); // 24 bits per pixel
-        f.write(new byte[] {0, 0, 0, 0});  // No compression
-
-        // Write the size of the raw BMP data into the BMP header.
-        f.write(rawBMPSize & 0x000000FF);
-        f.write((rawBMPSize & 0x0000FF00) >>> 8);
-        f.write((rawBMPSize & 0x00FF0000) >>> 16);
-        f.write((rawBMPSize & 0xFF000000) >>> 24);
-
-        // Write the resolution information in the BMP header.
-        f.write(new byte[] {0x13, 0x0B, 00, 00}); // Horizontal resolution
-        f.write(new byte[] {0x13, 0x0B, 00, 00}); // Vertical resolution
-
-        // Write color palette information in the BMP header.
-        f.write(new byte[] {0, 0, 0, 0});  // Number of colors in the palette
-        f.write(new byte[] {0, 0, 0, 0});  // All colors are important
-
-        logger.log("Written 54 bytes of BMP header.");
-
-        logger.log("Tracing ...");
-
-        // Send a ray from each pixel of the camera and compute the
-        // color of this pixel.
-        for (int y = 0; y < scene.height; y++) {
-            for (int x = 0; x < scene.width; x++) {
-
-                // We start with a black pixel and add colors to this
-                // pixel as find rays that determine the color of this
-                // pixel.
-                Color outputColor = new Color(0, 0, 0);
-
-                // Antialiasing by 4x supersampling.
-                for (double fx = x; fx < x + 1; fx += 0.5) {
-                    for (double fy = y; fy < y + 1; fy += 0.5) {
-
-                        // Each sample contributes to 1/4th of the
-                        // color.
-                        double sampleRatio = 0.25;
-
-                        // Cast a ray from a point on the camera and
-                        // perpendicular to the plane of the camera,
-                        // i.e. XY plane.
-                        Ray viewRay = new Ray(new Point(fx, fy,
-                                                        CAMERA_POSITION),
-                                              new Vector(0, 0, 1));
-                        Color color = getColor(viewRay, scene);
-
-                        // Alter the pixel color depending on exposure.
-                        color.alterAsPerExposure(1.0);
-
-                        outputColor.add(Color.multiply(sampleRatio, color));
+        draw(outputFile, scene, new RenderSettings());
+    }
+
+    /**
+     * Performs ray tracing with the specified <code>settings</code> and
+     * computes each pixel of the image that is saved in BMP format in
+     * the output file.
+     *
+     * @param outputFile Name of the output BMP image file.
+     * @param scene      Scene definition
+     * @param settings   Render settings.
+     */
+    public static void draw(String outputFile, Scene scene,
+                            RenderSettings settings) throws IOException
+    {
+        draw(outputFile, scene, settings, null);
+    }
+
+    /**
+     * Performs ray tracing with the specified <code>settings</code> and
+     * computes each pixel of the image that is saved in BMP format in
+     * the output file. If more than one thread is requested, the image
+     * is traced in parallel tiles. The output is identical to that of
+     * the serial trace in either case. In adaptive mode, the image is
+     * traced in tiles with {@link AdaptiveSampler}. In progressive mode,
+     * the output file holds the latest pass while the image is traced
+     * and the <code>listener</code> is notified after each pass. If the
+     * settings ask for it, the progress of the render can be followed
+     * and the render can be cancelled through a {@link RenderMonitor}
+     * registered with the platform MBean server while the image is
+     * traced. If a checkpoint directory is set, the
+     * image is traced in tiles whose progress is saved in the directory,
+     * and a render interrupted earlier is resumed from it. If the name
+     * of the output file ends with <code>.ppm</code>, the image is saved
+     * in PPM format instead and traced in bands by a
+     * {@link StripeRenderer}, so that images larger than a BMP file can
+     * hold are traced in bounded memory. Such an image cannot be traced
+     * progressively or resumed from a checkpoint. If a radiance file is
+     * set, the image is traced into a {@link Framebuffer} of linear
+     * radiance that is tone mapped into the output file and saved in
+     * the radiance file. The exposure is then applied to each pixel
+     * rather than to each sample. If a deadline is set, the image is
+     * traced by a {@link DeadlineRenderer} at the best quality that can
+     * be reached by the deadline.
+     *
+     * @param outputFile Name of the output BMP or PPM image file.
+     * @param scene      Scene definition
+     * @param settings   Render settings.
+     * @param listener   Listener for the passes of a progressive
+     *                   render, or <code>null</code>.
+     * @return Statistics of the render.
+     * @throws IllegalArgumentException If a PPM image or the radiance
+     *                                  of an image is to be traced
+     *                                  progressively or with a
+     *                                  checkpoint, or the settings
+     *                                  cannot be combined with a
+     *                                  deadline.
+     * @throws java.util.concurrent.CancellationException If the render
+     *                                                    is cancelled.
+     */
+    public static RenderStatistics draw(String outputFile, Scene scene,
+                                        RenderSettings settings,
+                                        RenderListener listener)
+            throws IOException
+    {
+        RenderStatistics statistics = new RenderStatistics();
+        RenderStatistics.RenderEvent event =
+                new RenderStatistics.RenderEvent();
+        event.begin();
+
+        boolean ppm = outputFile.toLowerCase().endsWith(".ppm");
+        if (ppm && (settings.progressive ||
+                    settings.checkpointDirectory != null)) {
+            throw new IllegalArgumentException("PPM output cannot be " +
+                                               "traced progressively or " +
+                                               "resumed");
+        }
+        if (settings.radianceFile != null &&
+            (ppm || settings.progressive ||
+             settings.checkpointDirectory != null)) {
+            throw new IllegalArgumentException("Radiance cannot be " +
+                                               "saved for PPM output or " +
+                                               "a progressive or resumed " +
+                                               "render");
+        }
+        if (settings.workerPort > 0 &&
+            (ppm || settings.progressive ||
+             settings.checkpointDirectory != null ||
+             settings.radianceFile != null)) {
+            throw new IllegalArgumentException("A distributed render " +
+                                               "cannot write PPM output, " +
+                                               "be traced progressively " +
+                                               "or resumed or save " +
+                                               "radiance");
+        }
+        if (settings.deadline < 0) {
+            throw new IllegalArgumentException("Deadline must not be " +
+                                               "negative: " +
+                                               settings.deadline);
+        }
+        if (settings.deadline > 0 &&
+            (ppm || settings.progressive || settings.adaptive ||
+             settings.checkpointDirectory != null ||
+             settings.radianceFile != null || settings.workerPort > 0)) {
+            throw new IllegalArgumentException("A render with a " +
+                                               "deadline chooses its own " +
+                                               "samples and passes and " +
+                                               "cannot write PPM output " +
+                                               "or be adaptive, " +
+                                               "progressive, resumed, " +
+                                               "distributed or save " +
+                                               "radiance");
+        }
+
+        RenderMonitor monitor = new RenderMonitor(outputFile, statistics,
+                                                  settings.threads);
+        Checkpoint checkpoint = settings.checkpointDirectory == null ?
+                null : new Checkpoint(settings.checkpointDirectory,
+                                      outputFile, scene, settings);
+        BMPWriter writer = null;
+        PPMWriter stripes = null;
+        Closeable output;
+        if (ppm) {
+            output = stripes = new PPMWriter(outputFile, scene.width,
+                                             scene.height);
+        } else {
+            output = writer = new BMPWriter(outputFile, scene.width,
+                                            scene.height,
+                                            checkpoint != null &&
+                                            checkpoint.isResumed());
+        }
+        if (settings.monitor) {
+            monitor.register();
+        }
+        try {
+            if (settings.gBuffer) {
+                long start = System.nanoTime();
+                scene.getGBuffer(settings, CAMERA_POSITION, MAX_DISTANCE);
+                logger.log("G-buffer ready in " +
+                           (System.nanoTime() - start) / 1000000 +
+                           " ms.");
+            }
+            logger.log("Tracing ...");
+
+            if (stripes != null) {
+                // Only a few bands of the image are held in memory at a
+                // time, so an image of any size can be traced.
+                StripeRenderer renderer = new StripeRenderer(scene,
+                                                             settings,
+                                                             statistics,
+                                                             monitor);
+                logger.log("Using " + Math.max(1, settings.threads) +
+                           " thread(s) to trace " + renderer.bandHeight() +
+                           "-row bands in " + settings.tileSize + "x" +
+                           settings.tileSize + " tiles.");
+                renderer.render(stripes);
+            } else if (settings.deadline > 0) {
+                // Each pass writes its pixels directly into the mapped
+                // file over those of the previous pass.
+                new DeadlineRenderer(scene, settings, statistics,
+                                     monitor).render(writer);
+            } else if (settings.workerPort > 0) {
+                // The tiles are traced by other processes and their
+                // pixels are written into the mapped file here.
+                new TileCoordinator(scene, settings, statistics,
+                                    monitor).render(writer);
+            } else if (settings.threads > 1 || settings.adaptive ||
+                       settings.progressive || checkpoint != null ||
+                       settings.radianceFile != null) {
+                if (settings.threads > 1) {
+                    logger.log("Using " + settings.threads + " threads " +
+                               "to trace " + settings.tileSize + "x" +
+                               settings.tileSize + " tiles.");
+                }
+                if (settings.adaptive) {
+                    logger.log("Sampling adaptively with at most " +
+                               settings.maxSamples + " samples per " +
+                               "pixel.");
+                }
+
+                TileRenderer renderer = new TileRenderer(scene, settings,
+                                                         statistics,
+                                                         monitor,
+                                                         checkpoint);
+                if (settings.radianceFile != null) {
+                    // The tiles write linear radiance into a framebuffer
+                    // that is tone mapped into the file afterwards.
+                    Framebuffer framebuffer = new Framebuffer(scene.width,
+                                                              scene.height);
+                    renderer.render(framebuffer);
+                    long start = System.nanoTime();
+                    new ToneMapper(settings.exposure).map(framebuffer,
+                                                          writer,
+                                                          settings.threads);
+                    logger.log("Tone mapped the image in " +
+                               (System.nanoTime() - start) / 1000000 +
+                               " ms.");
+                    framebuffer.write(settings.radianceFile);
+                } else {
+                    // Each tile writes its pixels directly into the
+                    // mapped file.
+                    renderer.render(writer, listener);
+                }
+            } else {
+                TraceContext context = new TraceContext(scene, settings);
+
+                // Send a ray from each pixel of the camera and compute
+                // the color of this pixel. Each row counts as a tile for
+                // the monitor and the whole image as one tile for the
+                // statistics.
+                monitor.start(scene.height);
+                long imageStart = System.nanoTime();
+                for (int y = 0; y < scene.height; y++) {
+                    monitor.checkCancelled();
+                    long start = System.nanoTime();
+                    for (int x = 0; x < scene.width; x++) {
+                        tracePixel(x, y, context);
+                        writer.setPixel(x, y, context.red, context.green,
+                                        context.blue);
                     }
+                    statistics.add(context);
+                    statistics.addSamples(4L * scene.width);
+                    monitor.tileComplete(System.nanoTime() - start);
                 }
+                statistics.tileComplete(System.nanoTime() - imageStart);
+            }
+
+            logger.log("Trace complete.");
+            logStatistics(statistics, scene);
+        } finally {
+            monitor.unregister();
+            output.close();
+        }
+        logger.log("Closed " + outputFile + ".");
 
-                // Gamma correction
-                outputColor.srgbEncode();
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = scene.width;
+            event.height = scene.height;
+            event.threads = settings.threads;
+            event.set(statistics);
+            event.commit();
+        }
+        return statistics;
+    }
 
-                // Write the bytes for the pixel into the BMP file.
-                f.write(outputColor.toBytesForBMP());
+    /**
+     * Traces an animation. The first frame shows the scene as it is.
+     * Each following frame applies the next delta read from the
+     * animation file.
+     *
+     * @param animationFile Name of the file of scene deltas.
+     * @param outputFile    Name of the output file from which the names
+     *                      of the frames are made.
+     * @param scene         Scene definition
+     * @param settings      Render settings.
+     * @throws IOException If the deltas cannot be read or a frame
+     *                     cannot be saved.
+     */
+    private static void animate(String animationFile, String outputFile,
+                                Scene scene, RenderSettings settings)
+            throws IOException
+    {
+        List<SceneDelta> deltas = SceneDelta.read(animationFile);
+        try (Animation animation = new Animation(scene, settings)) {
+            animation.render(Animation.frameFile(outputFile, 0));
+            for (int i = 0; i < deltas.size(); i++) {
+                animation.render(Animation.frameFile(outputFile, i + 1),
+                                 deltas.get(i));
             }
+        }
+    }
 
-            // After the bytes for each row of pixels is written into
-            // the BMP file, pad it with null bytes so as to make the
-            // number of bytes per row a multiple of 4.
-            for (int i = 0; i < padding; i++) {
-                f.write(0);
+    /**
+     * Logs a summary of the statistics of a render.
+     *
+     * @param statistics Statistics of the render.
+     * @param scene      Scene that was traced.
+     */
+    private static void logStatistics(RenderStatistics statistics,
+                                      Scene scene)
+    {
+        long samples = statistics.getSamples();
+        long pixels = Math.max(1L, (long) scene.width * scene.height);
+        logger.log("Traced " + samples + " samples, " +
+                   String.format("%.2f", (double) samples / pixels) +
+                   " per pixel.");
+        logger.log("Cast " + statistics.getPrimaryRays() + " primary, " +
+                   statistics.getShadowRays() + " shadow and " +
+                   statistics.getReflectionRays() + " reflection rays " +
+                   "with " + statistics.getSphereTests() +
+                   " sphere tests.");
+        logger.log("Average bounce depth " +
+                   String.format("%.2f",
+                                 statistics.getAverageBounceDepth()) +
+                   ".");
+        if (statistics.getDimRays() > 0 ||
+            statistics.getRouletteRays() > 0) {
+            logger.log("Ended " + statistics.getDimRays() + " rays below " +
+                       "the luminance threshold and " +
+                       statistics.getRouletteRays() + " by Russian " +
+                       "roulette, skipping up to " +
+                       statistics.getSkippedBounces() + " bounces.");
+        }
+        if (statistics.getTiles() > 0) {
+            logger.log("Traced " + statistics.getTiles() + " tile(s) in " +
+                       String.format("%.2f",
+                                     statistics.getAverageTileTime() /
+                                     1e6) +
+                       " ms on average and " +
+                       String.format("%.2f",
+                                     statistics.getMaxTileTime() / 1e6) +
+                       " ms at most.");
+        }
+    }
+
+    /**
+     * Computes the final color of the pixel at (<code>x</code>,
+     * <code>y</code>) on the camera. The color is sRGB encoded and
+     * ready to be written into the image, or the average linear
+     * radiance of the samples if the context traces linear radiance.
+     * It is stored in the
+     * <code>red</code>, <code>green</code> and <code>blue</code> fields
+     * of the <code>context</code>.
+     *
+     * @param x       X coordinate of the pixel.
+     * @param y       Y coordinate of the pixel.
+     * @param context Tracing state of the current thread.
+     */
+    static void tracePixel(int x, int y, TraceContext context)
+    {
+        // We start with a black pixel and add colors to this pixel as
+        // find rays that determine the color of this pixel.
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+
+        // Antialiasing by 4x supersampling.
+        for (double fx = x; fx < x + 1; fx += 0.5) {
+            for (double fy = y; fy < y + 1; fy += 0.5) {
+
+                // Each sample contributes to 1/4th of the color.
+                double sampleRatio = 0.25;
+
+                traceSample(fx, fy, context);
+                red += sampleRatio * context.red;
+                green += sampleRatio * context.green;
+                blue += sampleRatio * context.blue;
             }
+        }
 
+        if (context.linear) {
+            context.red = red;
+            context.green = green;
+            context.blue = blue;
+            return;
         }
 
-        logger.log("Trace complete. " + rawBMPSize + " bytes of raw " +
-                   "BMP data written.");
-        f.close();
-        logger.log("Closed " + outputFile + ".");
+        // Gamma correction
+        context.red = Color.srgbEncode(red);
+        context.green = Color.srgbEncode(green);
+        context.blue = Color.srgbEncode(blue);
+    }
+
+    /**
+     * Computes the color of a single sample taken at the point
+     * (<code>fx</code>, <code>fy</code>) on the camera. The color is
+     * altered depending on exposure but it is not yet gamma corrected.
+     * If the context traces linear radiance, the color is not altered.
+     * It is stored in the <code>red</code>, <code>green</code> and
+     * <code>blue</code> fields of the <code>context</code>.
+     *
+     * @param fx      X coordinate of the sample.
+     * @param fy      Y coordinate of the sample.
+     * @param context Tracing state of the current thread.
+     */
+    static void traceSample(double fx, double fy, TraceContext context)
+    {
+        // Cast a ray from a point on the camera and perpendicular to
+        // the plane of the camera, i.e. XY plane.
+        trace(fx, fy, CAMERA_POSITION, 0, 0, 1, context, true);
+
+        if (context.linear) {
+            return;
+        }
+
+        // Alter the sample color depending on exposure.
+        double exposure = context.exposure;
+        context.red = 1.0 - Math.exp(-context.red * exposure);
+        context.green = 1.0 - Math.exp(-context.green * exposure);
+        context.blue = 1.0 - Math.exp(-context.blue * exposure);
     }
 
     /**
@@ -206,95 +653,204 @@ public class RayTracer
      *
      * @param ray   Ray originating from the camera.
      * @param scene Scene defintion object.
+     * @return Color computed for the ray.
      */
     public static Color getColor(Ray ray, Scene scene)
     {
-        Color outputColor = new Color(0, 0, 0);
+        TraceContext context = new TraceContext(scene);
+        trace(ray.origin.x, ray.origin.y, ray.origin.z,
+              ray.direction.x, ray.direction.y, ray.direction.z, context);
+        return new Color(context.red, context.green, context.blue);
+    }
 
-        double coef = 1;
-        int level = 0;
+    /**
+     * Computes the color for a ray. This method performs the same
+     * computation as {@link #getColor} but it does not allocate any
+     * objects. The ray is described by its coordinates and all
+     * intermediate points and vectors are held in local variables. The
+     * color is stored in the <code>red</code>, <code>green</code> and
+     * <code>blue</code> fields of the <code>context</code>.
+     *
+     * @param ox      X coordinate of the origin of the ray.
+     * @param oy      Y coordinate of the origin of the ray.
+     * @param oz      Z coordinate of the origin of the ray.
+     * @param dx      X component of the direction of the ray.
+     * @param dy      Y component of the direction of the ray.
+     * @param dz      Z component of the direction of the ray.
+     * @param context Tracing state of the current thread.
+     */
+    static void trace(double ox, double oy, double oz,
+                      double dx, double dy, double dz,
+                      TraceContext context)
+    {
+        trace(ox, oy, oz, dx, dy, dz, context, false);
+    }
 
-        do {
-            // This variable stores the first object that the ray hits.
-            Scene.Sphere sphere = null;
+    /**
+     * Computes the color for a ray. If <code>primary</code> is
+     * <code>true</code>, the ray must be a primary ray, i.e. it must
+     * start on the camera plane with direction (0, 0, 1). The first
+     * object hit by a primary ray is then read from the G-buffer of the
+     * context or found with its screen space bins, if any.
+     *
+     * @param ox      X coordinate of the origin of the ray.
+     * @param oy      Y coordinate of the origin of the ray.
+     * @param oz      Z coordinate of the origin of the ray.
+     * @param dx      X component of the direction of the ray.
+     * @param dy      Y component of the direction of the ray.
+     * @param dz      Z component of the direction of the ray.
+     * @param context Tracing state of the current thread.
+     * @param primary Whether the ray is a primary ray.
+     * @see #trace(double, double, double, double, double, double,
+     *             TraceContext)
+     */
+    static void trace(double ox, double oy, double oz,
+                      double dx, double dy, double dz,
+                      TraceContext context, boolean primary)
+    {
+        BoundingVolumeHierarchy hierarchy = context.hierarchy;
+        SphereStore store = context.store;
+        BoundingVolumeHierarchy.Hit hit = context.hit;
 
-            double distance = 2000.0f;
+        double red = 0;
+        double green = 0;
+        double blue = 0;
 
-            // Find the first object with which the ray intersects.
-            for (Scene.Sphere s : scene.spheres) {
-                HitResult h = hitSphere(ray, s, distance);
-                distance = h.distance;
-                if (h.hit) {
-                    sphere = s;
-                }
+        ScreenBins screenBins = primary ? context.screenBins : null;
+        int cell = primary && context.gBuffer != null ?
+                context.gBuffer.cell(ox, oy) : -1;
+        double[] rayBounds = context.rayBounds;
 
-            }
+        double coef = 1;
+        int level = 0;
+        context.primaryRays++;
 
-            // If the ray is not intersecting any object, stop processing
+        // Point on the camera from which Russian roulette draws its
+        // numbers, so that the image does not depend on the order in
+        // which the samples are traced.
+        double sx = ox;
+        double sy = oy;
+
+        do {
+            // Find the first object with which the ray intersects. If
+            // the ray is not intersecting any object, stop processing
             // this ray.
-            if (sphere == null) {
-               break;
+            boolean found;
+            if (level == 0 && cell >= 0) {
+                found = context.gBuffer.closestHit(cell, hit);
+            } else if (level == 0 && screenBins != null &&
+                       screenBins.covers(ox, oy)) {
+                found = screenBins.closestHit(ox, oy, oz, MAX_DISTANCE,
+                                              hit);
+            } else {
+                found = hierarchy.closestHit(ox, oy, oz, dx, dy, dz,
+                                             MAX_DISTANCE, hit,
+                                             context.stack);
             }
+            if (rayBounds != null) {
+                double t = found ? hit.distance : MAX_DISTANCE;
+                RayBounds.add(rayBounds, level == 0 ? RayBounds.PRIMARY :
+                                                      RayBounds.REFLECTION,
+                              ox, oy, oz, ox + t * dx, oy + t * dy,
+                              oz + t * dz);
+            }
+            if (!found) {
+                break;
+            }
+
+            int sphere = hit.index;
+            double distance = hit.distance;
 
             // Compute the point where the ray intersected the object.
-            Point hitPoint =
-                    Vector.add(ray.origin,
-                               Vector.multiply(distance, ray.direction));
+            double px = ox + distance * dx;
+            double py = oy + distance * dy;
+            double pz = oz + distance * dz;
 
             // Calculate a vector normal to the surface of the object at
             // the point of intersection of the ray and the object.
-            Vector normal = new Vector(sphere.center, hitPoint);
+            double nx = px - store.x(sphere);
+            double ny = py - store.y(sphere);
+            double nz = pz - store.z(sphere);
 
             // Normalize the normal vector.
-            try {
-                normal.normalize();
-            } catch (ArithmeticException e) {
+            double n = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (n == 0) {
                 break;
             }
+            nx /= n;
+            ny /= n;
+            nz /= n;
 
-            Scene.Material currentMaterial = sphere.material;
+            Scene.Material currentMaterial =
+                    store.getMaterials().get(store.material(sphere));
 
-            for (Scene.Light light : scene.lights) {
+            for (int i = 0; i < context.lightCount; i++) {
 
-                Ray lightRay = new Ray(hitPoint,
-                        new Vector(hitPoint, light.origin));
+                // Direction of the ray from the point of intersection
+                // to the light source.
+                double lx = context.lightX[i] - px;
+                double ly = context.lightY[i] - py;
+                double lz = context.lightZ[i] - pz;
 
-                double lightProjection =
-                        Vector.dotProduct(lightRay.direction, normal);
+                double lightProjection = lx * nx + ly * ny + lz * nz;
 
                 if (lightProjection <= 0.0)
                     continue;
 
-                double lightDistance = lightRay.direction.norm();
-                lightRay.direction.normalize();
+                double lightDistance = Math.sqrt(lx * lx + ly * ly +
+                                                 lz * lz);
+                context.shadowRays++;
+                if (rayBounds != null) {
+                    RayBounds.add(rayBounds, RayBounds.SHADOW + i,
+                                  px, py, pz, context.lightX[i],
+                                  context.lightY[i], context.lightZ[i]);
+                }
+                lx /= lightDistance;
+                ly /= lightDistance;
+                lz /= lightDistance;
                 lightProjection /= lightDistance;
 
+                // Neighbouring points are usually shadowed by the same
+                // sphere, so the sphere that last blocked this light is
+                // tested before the hierarchy is searched.
+                int occluder = context.lastOccluder[i];
                 boolean inShadow = false;
-                for (Scene.Sphere s : scene.spheres) {
-                    HitResult h = hitSphere(lightRay, s, lightDistance);
-                    if (h.hit) {
+                if (occluder >= 0) {
+                    hit.tests++;
+                    inShadow = hierarchy.occludes(occluder, px, py, pz,
+                                                  lx, ly, lz,
+                                                  lightDistance);
+                }
+                if (!inShadow) {
+                    occluder = hierarchy.occluder(px, py, pz, lx, ly, lz,
+                                                  lightDistance, hit,
+                                                  context.stack);
+                    if (occluder >= 0) {
+                        context.lastOccluder[i] = occluder;
                         inShadow = true;
-                        break;
                     }
                 }
 
                 if (!inShadow)
                 {
                     // Lambertian coeffecient
-                    double lambert = Vector.dotProduct(lightRay.direction,
-                                                         normal) * coef;
+                    double lambert = (lx * nx + ly * ny + lz * nz) * coef;
 
-                    outputColor.add(Color.multiply(lambert, Color.multiply(
-                        light.intensity, currentMaterial.diffusion)));
+                    red += lambert * (context.lightRed[i] *
+                           currentMaterial.diffusion.getRed());
+                    green += lambert * (context.lightGreen[i] *
+                             currentMaterial.diffusion.getGreen());
+                    blue += lambert * (context.lightBlue[i] *
+                            currentMaterial.diffusion.getBlue());
 
                     // Blinn-Phong specular term
-                    Vector v = Vector.subtract(lightRay.direction,
-                                                 ray.direction);
-                    double norm = v.norm();
+                    double vx = lx - dx;
+                    double vy = ly - dy;
+                    double vz = lz - dz;
+                    double norm = Math.sqrt(vx * vx + vy * vy + vz * vz);
                     if (norm != 0.0) {
 
-                        double viewProjection =
-                                Vector.dotProduct(ray.direction, normal);
+                        double viewProjection = dx * nx + dy * ny + dz * nz;
 
                         double blinnPhongTerm =
                                 Math.max(lightProjection - viewProjection, 0.0)
@@ -303,10 +859,16 @@ public class RayTracer
                         blinnPhongTerm =
                             coef * Math.pow(blinnPhongTerm,
                                             currentMaterial.power);
-                        Color c = Color.multiply(blinnPhongTerm,
-                                                 currentMaterial.specularity);
-                        c = Color.multiply(c, light.intensity);
-                        outputColor.add(c);
+
+                        red += blinnPhongTerm *
+                               currentMaterial.specularity.getRed() *
+                               context.lightRed[i];
+                        green += blinnPhongTerm *
+                                 currentMaterial.specularity.getGreen() *
+                                 context.lightGreen[i];
+                        blue += blinnPhongTerm *
+                                currentMaterial.specularity.getBlue() *
+                                context.lightBlue[i];
                     }
                 }
             }
@@ -316,86 +878,212 @@ public class RayTracer
             // If i is incident ray vector and n is the normal vector
             // (both normalized) then the reflected ray direction is
             // given by i - 2 * d.n * n
-            Vector projectionAlongNormal = Vector.multiply(
-                    Vector.dotProduct(ray.direction, normal), normal);
+            double projection = dx * nx + dy * ny + dz * nz;
 
             // Compute the reflected ray.
-            ray.origin = hitPoint;
-            ray.direction = Vector.subtract(ray.direction,
-                    Vector.multiply(2, projectionAlongNormal));
+            ox = px;
+            oy = py;
+            oz = pz;
+            dx = dx - 2 * (projection * nx);
+            dy = dy - 2 * (projection * ny);
+            dz = dz - 2 * (projection * nz);
             level++;
-        } while ((coef > 0) && (level < 10));
-        return outputColor;
+
+            if (coef > context.minCoefficient &&
+                level < context.maxDepth) {
+                if (context.luminanceThreshold > 0 &&
+                    isDim(coef, level, red, green, blue, context)) {
+                    context.dimRays++;
+                    context.skippedBounces += context.maxDepth - level;
+                    break;
+                }
+                if (context.roulette > 0 && level >= context.rouletteDepth) {
+                    double survival = Math.min(context.roulette, coef);
+                    if (random(sx, sy, level) >= survival) {
+                        context.rouletteRays++;
+                        context.skippedBounces += context.maxDepth - level;
+                        break;
+                    }
+                    coef /= survival;
+                }
+                context.reflectionRays++;
+            }
+        } while (coef > context.minCoefficient &&
+                 level < context.maxDepth);
+
+        context.bounces += level;
+        if (coef > 0 && (level >= context.maxDepth ||
+                         coef <= context.minCoefficient)) {
+            context.truncated++;
+        }
+
+        context.red = red;
+        context.green = green;
+        context.blue = blue;
     }
 
     /**
-     * Represents the result of a ray intersecting with an object.
+     * Returns whether the light that the remaining reflections of a ray
+     * can add to the color of its sample is too dim to matter. The
+     * light of each surface is bounded by {@link TraceContext#surfaceRed}
+     * and its siblings and the reflection coefficients of the surfaces
+     * that may still be hit by {@link TraceContext#reflectionTail}. The
+     * bound is scaled by the slope of the exposure curve at the color
+     * found so far, since light added to a bright color changes it
+     * less, and compared with the luminance threshold.
+     *
+     * @param coef    Reflection coefficient of the ray.
+     * @param level   Number of surfaces the ray has hit.
+     * @param red     Red component of the light found so far.
+     * @param green   Green component of the light found so far.
+     * @param blue    Blue component of the light found so far.
+     * @param context Tracing state of the current thread.
+     * @return <code>true</code> if the remaining reflections can add no
+     *         more than the luminance threshold.
      */
-    private static class HitResult
+    private static boolean isDim(double coef, int level, double red,
+                                 double green, double blue,
+                                 TraceContext context)
     {
-        /**
-         * Distance between the origin of the ray and the point of
-         * intersection. This contains meaningful data only if
-         * <code>hit</code> is <code>true</code>.
-         */
-        double distance;
-
-        /**
-         * Whether the ray intersects with the object or not.
-         */
-        boolean hit;
-
-        /**
-         * Creates an instance of this class.
-         *
-         * @param distance Distance between the origin of the ray and
-         *                 the point of intersection with an object.
-         * @param hit      Whether the ray intersects the object.
-         */
-        HitResult(double distance, boolean hit)
-        {
-            this.distance = distance;
-            this.hit = hit;
-        }
+        double e = context.exposure;
+        double bound = coef * context.reflectionTail[level] * e;
+        double luminance =
+                0.2126 * context.surfaceRed * Math.exp(-e * red) +
+                0.7152 * context.surfaceGreen * Math.exp(-e * green) +
+                0.0722 * context.surfaceBlue * Math.exp(-e * blue);
+        return bound * luminance <= context.luminanceThreshold;
     }
 
     /**
-     * Finds whether a ray intersects a sphere such that the distance
-     * between the intersection point and the origin of the ray is less
-     * than the specified <code>distance</code>.
+     * Returns a number that looks random in the range [0, 1) for a
+     * sample and the number of surfaces its ray has hit. The same
+     * arguments always return the same number.
      *
-     * @param ray      A ray.
-     * @param sphere   A sphere.
+     * @param x     X coordinate of the sample.
+     * @param y     Y coordinate of the sample.
+     * @param level Number of surfaces the ray has hit.
+     * @return Number in the range [0, 1).
+     */
+    static double random(double x, double y, int level)
+    {
+        // The finalizer of the SplitMix64 generator.
+        long z = Double.doubleToLongBits(x) * 0x9e3779b97f4a7c15L ^
+                 Double.doubleToLongBits(y) * 0xc2b2ae3d27d4eb4fL ^
+                 level * 0x165667b19e3779f9L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Finds the distance between the origin of a ray and the point
+     * where it intersects a sphere such that the distance is more than
+     * 0.1 and not more than the specified <code>distance</code>. If the
+     * ray intersects the sphere at two such points, the distance of the
+     * nearer point is returned.
+     *
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param cx       X coordinate of the center of the sphere.
+     * @param cy       Y coordinate of the center of the sphere.
+     * @param cz       Z coordinate of the center of the sphere.
+     * @param radius   Radius of the sphere.
      * @param distance Distance between the intersection point and the
-     *                 origin of the ray should be less than this
+     *                 origin of the ray should not be more than this
      *                 distance.
+     * @return Distance between the intersection point and the origin of
+     *         the ray, or <code>Double.POSITIVE_INFINITY</code> if there
+     *         is no such intersection point.
      */
-    private static HitResult hitSphere(Ray ray, Scene.Sphere sphere,
-                                       double distance)
+    static double hitSphere(double ox, double oy, double oz,
+                            double dx, double dy, double dz,
+                            double cx, double cy, double cz, double radius,
+                            double distance)
     {
-        Vector d = new Vector(ray.origin, sphere.center);
+        double vx = cx - ox;
+        double vy = cy - oy;
+        double vz = cz - oz;
 
-        double a = Vector.dotProduct(ray.direction, d);
+        double a = dx * vx + dy * vy + dz * vz;
 
-        double delta = a * a - Vector.dotProduct(d, d) +
-                       sphere.radius * sphere.radius;
+        double delta = a * a - (vx * vx + vy * vy + vz * vz) +
+                       radius * radius;
 
         if (delta < 0.0) {
-            return new HitResult(distance, false);
+            return Double.POSITIVE_INFINITY;
         }
 
         double root0 = a - Math.sqrt(delta);
         double root1 = a + Math.sqrt(delta);
 
-        if (root0 > 0.1 && root0 < distance) {
-            return new HitResult(root0, true);
+        if (root0 > 0.1 && root0 <= distance) {
+            return root0;
         }
 
-        if (root1 > 0.1 && root1 < distance) {
-            return new HitResult(root1, true);
+        if (root1 > 0.1 && root1 <= distance) {
+            return root1;
         }
 
-        return new HitResult(distance, false);
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Finds whether a sphere blocks a ray, i.e. whether the ray
+     * intersects the sphere at a point whose distance from the origin
+     * of the ray is more than 0.1 and less than <code>distance</code>.
+     * This is the same as testing whether {@link #hitSphere} returns a
+     * distance less than <code>distance</code>, but the farther
+     * intersection point is computed only if the nearer one lies behind
+     * the origin of the ray.
+     *
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param cx       X coordinate of the center of the sphere.
+     * @param cy       Y coordinate of the center of the sphere.
+     * @param cz       Z coordinate of the center of the sphere.
+     * @param radius   Radius of the sphere.
+     * @param distance Distance between the intersection point and the
+     *                 origin of the ray should be less than this
+     *                 distance.
+     * @return <code>true</code> if the sphere blocks the ray;
+     *         <code>false</code> otherwise.
+     */
+    static boolean occludes(double ox, double oy, double oz,
+                            double dx, double dy, double dz,
+                            double cx, double cy, double cz, double radius,
+                            double distance)
+    {
+        double vx = cx - ox;
+        double vy = cy - oy;
+        double vz = cz - oz;
+
+        double a = dx * vx + dy * vy + dz * vz;
+
+        double delta = a * a - (vx * vx + vy * vy + vz * vz) +
+                       radius * radius;
+
+        if (delta < 0.0) {
+            return false;
+        }
+
+        // If the nearer intersection point lies in front of the origin,
+        // the farther one cannot be nearer than it.
+        double root0 = a - Math.sqrt(delta);
+        if (root0 > 0.1) {
+            return root0 < distance;
+        }
+
+        double root1 = a + Math.sqrt(delta);
+        return root1 > 0.1 && root1 < distance;
     }
 
 }
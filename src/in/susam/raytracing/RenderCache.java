@@ -0,0 +1,161 @@
+/*
+ * Cache of rendered images.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the images of recent renders in memory. The images are
+ * addressed by their content: the key of an image is the SHA-256 hash
+ * of the scene file and of the settings that affect the pixels, so the
+ * same scene traced with the same settings always has the same key.
+ * When the images take more than the capacity of the cache, the least
+ * recently used images are evicted.
+ *
+ * <p>All methods of this class are thread safe.</p>
+ *
+ * @author Susam Pal
+ */
+final class RenderCache
+{
+    /**
+     * Maximum number of bytes of images held in the cache.
+     */
+    private final long capacity;
+
+    /**
+     * Images by key in the order from the least to the most recently
+     * used.
+     */
+    private final LinkedHashMap<String, byte[]> images =
+            new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+
+    /**
+     * Number of bytes of images held in the cache.
+     */
+    private long size;
+
+    /**
+     * Number of lookups that found an image.
+     */
+    private long hits;
+
+    /**
+     * Number of lookups that found no image.
+     */
+    private long misses;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity Maximum number of bytes of images held.
+     */
+    RenderCache(long capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Computes the key of the image of a scene.
+     *
+     * @param scene    Bytes of the scene file.
+     * @param settings Description of the settings that affect the
+     *                 pixels of the image.
+     * @return Hexadecimal SHA-256 hash of the scene and the settings.
+     */
+    static String key(byte[] scene, String settings)
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        digest.update(settings.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(scene);
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16));
+            key.append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the image with the specified key and marks it as the most
+     * recently used.
+     *
+     * @param key Key of the image.
+     * @return Bytes of the image, or <code>null</code> if the image is
+     *         not in the cache.
+     */
+    synchronized byte[] get(String key)
+    {
+        byte[] image = images.get(key);
+        if (image == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return image;
+    }
+
+    /**
+     * Adds an image to the cache and evicts the least recently used
+     * images until the images fit in the capacity. An image larger than
+     * the capacity is not added.
+     *
+     * @param key   Key of the image.
+     * @param image Bytes of the image.
+     */
+    synchronized void put(String key, byte[] image)
+    {
+        if (image.length > capacity) {
+            return;
+        }
+        byte[] old = images.put(key, image);
+        size += image.length - (old == null ? 0 : old.length);
+
+        Iterator<Map.Entry<String, byte[]>> i =
+                images.entrySet().iterator();
+        while (size > capacity) {
+            size -= i.next().getValue().length;
+            i.remove();
+        }
+    }
+
+    /**
+     * Describes the use of the cache.
+     *
+     * @return Number of images, bytes held, hits and misses.
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return images.size() + " images, " + size + " of " + capacity +
+               " bytes, " + hits + " hits, " + misses + " misses";
+    }
+}
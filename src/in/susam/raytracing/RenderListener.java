@@ -0,0 +1,48 @@
+/*
+ * Listener for progressive renders.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package in.susam.raytracing;
+
+import java.io.IOException;
+
+/**
+ * Receives the intermediate frames of a progressive render. A
+ * progressive render traces the image in several passes, from a coarse
+ * pass in which each sample covers a block of pixels to the final pass
+ * at full quality. After each pass, the frame is complete and can be
+ * shown or saved while the next pass is traced.
+ *
+ * @author Susam Pal
+ */
+public interface RenderListener
+{
+    /**
+     * Called on the rendering thread after a pass of a progressive
+     * render is complete. The next pass starts only after this method
+     * returns, so the <code>image</code> does not change while this
+     * method runs. The last pass is the final image.
+     *
+     * @param pass   Number of the pass that is complete, starting at 1.
+     * @param passes Total number of passes.
+     * @param image  Writer that holds the frame.
+     * @throws IOException If the frame cannot be saved.
+     */
+    void passComplete(int pass, int passes, BMPWriter image)
+            throws IOException;
+}
@@ -0,0 +1,313 @@
+/*
+ * Render monitor.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import in.susam.util.Logger;
+
+/**
+ * Reports the progress of a running render and lets it be cancelled.
+ * If {@link RenderSettings#monitor} is set, the monitor is registered
+ * with the platform MBean server while the render runs, under the name
+ * <code>in.susam.raytracing:type=Render,id=N</code>, where N counts the
+ * renders registered by the JVM, so the render can be watched and
+ * aborted with standard JMX tools.
+ *
+ * @author Susam Pal
+ */
+public class RenderMonitor implements RenderMonitorMBean
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Number of renders started so far.
+     */
+    private static final AtomicInteger renders = new AtomicInteger();
+
+    /**
+     * Name of the output file.
+     */
+    private final String outputFile;
+
+    /**
+     * Statistics of the render.
+     */
+    private final RenderStatistics statistics;
+
+    /**
+     * Number of threads that trace the image.
+     */
+    private final int threads;
+
+    /**
+     * Time at which the render started, as given by
+     * <code>System.nanoTime()</code>.
+     */
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Number of tiles the render traces in all.
+     */
+    private volatile long tilesTotal;
+
+    /**
+     * Number of tiles traced so far.
+     */
+    private final LongAdder tilesCompleted = new LongAdder();
+
+    /**
+     * Wall time spent by the threads tracing the tiles that are
+     * complete, in nanoseconds.
+     */
+    private final LongAdder busyTime = new LongAdder();
+
+    /**
+     * Whether the render has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Time at which the rays per second were last measured.
+     */
+    private long rateTime = startTime;
+
+    /**
+     * Number of rays when the rays per second were last measured.
+     */
+    private long rateRays;
+
+    /**
+     * Rays per second last measured.
+     */
+    private double rate;
+
+    /**
+     * Name under which this monitor is registered, or <code>null</code>
+     * if it is not registered.
+     */
+    private ObjectName name;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param outputFile Name of the output file.
+     * @param statistics Statistics of the render.
+     * @param threads    Number of threads that trace the image.
+     */
+    RenderMonitor(String outputFile, RenderStatistics statistics,
+                  int threads)
+    {
+        this.outputFile = outputFile;
+        this.statistics = statistics;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Starts the platform MBean server unless it is already running.
+     * The first start in a JVM takes a few hundred milliseconds, while
+     * registering a monitor with a running server takes a fraction of a
+     * millisecond, so a process that registers many renders starts the
+     * server once before the first render.
+     */
+    static void startServer()
+    {
+        ManagementFactory.getPlatformMBeanServer();
+    }
+
+    /**
+     * Registers this monitor with the platform MBean server. If the
+     * monitor cannot be registered, the render runs without it.
+     */
+    void register()
+    {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName n = new ObjectName("in.susam.raytracing:type=Render," +
+                                          "id=" + renders.incrementAndGet());
+            server.registerMBean(this, n);
+            name = n;
+        } catch (JMException e) {
+            logger.log("Cannot register render monitor: " + e);
+        }
+    }
+
+    /**
+     * Unregisters this monitor from the platform MBean server.
+     */
+    void unregister()
+    {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            logger.log("Cannot unregister render monitor: " + e);
+        }
+        name = null;
+    }
+
+    /**
+     * Sets the number of tiles the render traces in all.
+     *
+     * @param tiles Total number of tiles.
+     */
+    void start(long tiles)
+    {
+        tilesTotal = tiles;
+    }
+
+    /**
+     * Records that a tile has been traced.
+     *
+     * @param nanos Wall time spent tracing the tile in nanoseconds.
+     */
+    void tileComplete(long nanos)
+    {
+        tilesCompleted.increment();
+        busyTime.add(nanos);
+    }
+
+    /**
+     * Throws an exception if the render has been cancelled.
+     *
+     * @throws CancellationException If the render has been cancelled.
+     */
+    void checkCancelled()
+    {
+        if (cancelled) {
+            throw new CancellationException("Render of " + outputFile +
+                                            " cancelled");
+        }
+    }
+
+    @Override
+    public String getOutputFile()
+    {
+        return outputFile;
+    }
+
+    @Override
+    public long getTilesCompleted()
+    {
+        return tilesCompleted.sum();
+    }
+
+    @Override
+    public long getTilesTotal()
+    {
+        return tilesTotal;
+    }
+
+    @Override
+    public double getProgress()
+    {
+        long total = tilesTotal;
+        return total == 0 ? 0.0 : (double) getTilesCompleted() / total;
+    }
+
+    @Override
+    public double getElapsedSeconds()
+    {
+        return (System.nanoTime() - startTime) / 1e9;
+    }
+
+    @Override
+    public double getRemainingSeconds()
+    {
+        long done = getTilesCompleted();
+        if (done == 0) {
+            return -1;
+        }
+        return getElapsedSeconds() * (tilesTotal - done) / done;
+    }
+
+    @Override
+    public long getRays()
+    {
+        return statistics.getRays();
+    }
+
+    @Override
+    public synchronized double getRaysPerSecond()
+    {
+        long now = System.nanoTime();
+        long rays = statistics.getRays();
+        if (now - rateTime >= 1000000000L) {
+            rate = (rays - rateRays) * 1e9 / (now - rateTime);
+            rateTime = now;
+            rateRays = rays;
+        } else if (rateTime == startTime) {
+            rate = now == startTime ? 0.0 :
+                   rays * 1e9 / (now - startTime);
+        }
+        return rate;
+    }
+
+    @Override
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    @Override
+    public double getThreadUtilization()
+    {
+        long elapsed = System.nanoTime() - startTime;
+        if (elapsed == 0) {
+            return 0.0;
+        }
+        return Math.min(1.0, (double) busyTime.sum() / threads / elapsed);
+    }
+
+    @Override
+    public long getHeapUsed()
+    {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+                .getUsed();
+    }
+
+    @Override
+    public long getHeapMax()
+    {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+                .getMax();
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    @Override
+    public void cancel()
+    {
+        cancelled = true;
+    }
+}
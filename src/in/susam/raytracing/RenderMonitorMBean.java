@@ -0,0 +1,135 @@
+/*
+ * Management interface of a render.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+/**
+ * Management interface through which a running render is monitored and
+ * cancelled with JMX tools such as JConsole. See {@link RenderMonitor}.
+ *
+ * @author Susam Pal
+ */
+public interface RenderMonitorMBean
+{
+    /**
+     * Returns the name of the output file of the render.
+     *
+     * @return Name of the output file.
+     */
+    String getOutputFile();
+
+    /**
+     * Returns the number of tiles traced so far. Each pass of a
+     * progressive render traces every tile once. In a serial render,
+     * each row of pixels counts as a tile.
+     *
+     * @return Number of tiles traced.
+     */
+    long getTilesCompleted();
+
+    /**
+     * Returns the number of tiles the render traces in all.
+     *
+     * @return Total number of tiles.
+     */
+    long getTilesTotal();
+
+    /**
+     * Returns the fraction of the tiles traced so far.
+     *
+     * @return Progress between 0 and 1.
+     */
+    double getProgress();
+
+    /**
+     * Returns the wall time elapsed since the render started.
+     *
+     * @return Elapsed time in seconds.
+     */
+    double getElapsedSeconds();
+
+    /**
+     * Returns the estimated wall time until the render is complete. The
+     * estimate assumes that the remaining tiles take as long on average
+     * as the tiles traced so far.
+     *
+     * @return Estimated remaining time in seconds, or -1 if no tile has
+     *         been traced yet.
+     */
+    double getRemainingSeconds();
+
+    /**
+     * Returns the number of rays of all kinds cast so far.
+     *
+     * @return Number of rays.
+     */
+    long getRays();
+
+    /**
+     * Returns the number of rays cast per second, measured over the
+     * interval since this attribute was last read, or since the render
+     * started if the attribute was last read less than a second ago.
+     *
+     * @return Rays per second.
+     */
+    double getRaysPerSecond();
+
+    /**
+     * Returns the number of threads that trace the image.
+     *
+     * @return Number of threads.
+     */
+    int getThreads();
+
+    /**
+     * Returns the fraction of the time since the render started during
+     * which the threads were tracing tiles that are complete.
+     *
+     * @return Utilization between 0 and 1.
+     */
+    double getThreadUtilization();
+
+    /**
+     * Returns the amount of heap memory in use.
+     *
+     * @return Used heap memory in bytes.
+     */
+    long getHeapUsed();
+
+    /**
+     * Returns the maximum amount of heap memory that can be used.
+     *
+     * @return Maximum heap memory in bytes, or -1 if it is undefined.
+     */
+    long getHeapMax();
+
+    /**
+     * Returns whether the render has been cancelled.
+     *
+     * @return <code>true</code> if the render has been cancelled;
+     *         <code>false</code> otherwise.
+     */
+    boolean isCancelled();
+
+    /**
+     * Cancels the render. The tiles that are being traced are completed
+     * and no other tile is traced. The render then fails with a
+     * {@link java.util.concurrent.CancellationException}.
+     */
+    void cancel();
+}
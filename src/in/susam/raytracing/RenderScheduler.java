@@ -0,0 +1,431 @@
+/*
+ * Scheduler of concurrent renders.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Traces the tiles of several renders on a fixed number of threads. A
+ * tile is the unit of scheduling: whenever a thread completes a tile,
+ * it takes the next tile from the render that is most entitled to run,
+ * so a render that arrives while others are being traced starts as
+ * soon as any thread completes its current tile.
+ *
+ * <p>Each render, or job, has a priority and a weight. A job with a
+ * higher priority always runs before jobs with a lower priority. Jobs
+ * with the same priority share the threads in proportion to their
+ * weights: each job has a virtual time that advances by the time spent
+ * on each of its tiles divided by its weight, and the job with the
+ * least virtual time runs next. A new job starts at the least virtual
+ * time of the jobs with its priority, so that it neither waits for nor
+ * overtakes the jobs that were already running.</p>
+ *
+ * <p>The threads outlive the jobs, so each thread drops the tracing
+ * state it keeps for a job, see {@link TileRenderer#release}, once the
+ * job has finished or no tiles are queued. Otherwise the threads would
+ * keep the scenes of old renders reachable.</p>
+ *
+ * <p>All methods of this class are thread safe.</p>
+ *
+ * @author Susam Pal
+ */
+final class RenderScheduler implements Closeable
+{
+    /**
+     * Jobs that have tiles queued or being traced.
+     */
+    private final List<Job> jobs = new ArrayList<Job>();
+
+    /**
+     * Whether the scheduler is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a scheduler and starts its threads.
+     *
+     * @param threads Number of threads that trace the tiles.
+     */
+    RenderScheduler(int threads)
+    {
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            Thread thread = new Thread(this::run, "Render scheduler " + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues the tiles of a render.
+     *
+     * @param name     Name of the job that appears in its description.
+     * @param renderer Renderer of the scene.
+     * @param tiles    Tiles to be traced.
+     * @param writer   Writer for the pixels of the tiles.
+     * @param priority Priority of the job. Higher values run first.
+     * @param weight   Share of the threads relative to the other jobs
+     *                 with the same priority.
+     * @return Job that traces the tiles.
+     * @throws IllegalArgumentException If the weight is not positive.
+     * @throws IllegalStateException If the scheduler is closed.
+     */
+    synchronized Job submit(String name, TileRenderer renderer,
+                            List<Tile> tiles, PixelWriter writer,
+                            int priority, double weight)
+    {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight must be positive: " +
+                                               weight);
+        }
+        if (closed) {
+            throw new IllegalStateException("Scheduler is closed");
+        }
+
+        Job job = new Job(name, renderer, tiles, writer, priority, weight);
+        boolean first = true;
+        for (Job other : jobs) {
+            if (other.priority == priority &&
+                (first || other.virtualTime < job.virtualTime)) {
+                job.virtualTime = other.virtualTime;
+                first = false;
+            }
+        }
+        if (job.queue.isEmpty()) {
+            job.finished = true;
+        } else {
+            jobs.add(job);
+            notifyAll();
+        }
+        return job;
+    }
+
+    /**
+     * Cancels every job and stops the threads after the tiles that are
+     * being traced.
+     */
+    @Override
+    public void close()
+    {
+        List<Job> running;
+        synchronized (this) {
+            closed = true;
+            running = new ArrayList<Job>(jobs);
+            notifyAll();
+        }
+        for (Job job : running) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Returns the job whose next tile should be traced. This method must
+     * be called with the lock of this object held.
+     *
+     * @return Job with the highest priority and, among those, the least
+     *         virtual time that has queued tiles, or <code>null</code>.
+     */
+    private Job next()
+    {
+        Job next = null;
+        for (Job job : jobs) {
+            if (!job.queue.isEmpty() &&
+                (next == null || job.priority > next.priority ||
+                 (job.priority == next.priority &&
+                  job.virtualTime < next.virtualTime))) {
+                next = job;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Traces tiles until the scheduler is closed.
+     */
+    private void run()
+    {
+        // Jobs for which this thread holds tracing state.
+        List<Job> traced = new ArrayList<Job>();
+        while (true) {
+            Job job;
+            Tile tile;
+            synchronized (this) {
+                while ((job = next()) == null && !closed) {
+                    release(traced, false);
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                tile = job.queue.poll();
+                job.running++;
+                if (!traced.contains(job)) {
+                    traced.add(job);
+                }
+                if (job.started == 0) {
+                    job.started = System.nanoTime();
+                }
+            }
+
+            long start = System.nanoTime();
+            Throwable error = null;
+            try {
+                job.renderer.renderTiles(Collections.singletonList(tile),
+                                         job.writer, null);
+            } catch (RuntimeException | Error e) {
+                error = e;
+            }
+            long nanos = System.nanoTime() - start;
+
+            synchronized (this) {
+                job.running--;
+                job.virtualTime += nanos / job.weight;
+                if (error != null && job.error == null) {
+                    job.error = error;
+                    job.queue.clear();
+                }
+                if (job.queue.isEmpty() && job.running == 0) {
+                    job.finished = true;
+                    job.ended = System.nanoTime();
+                    jobs.remove(job);
+                    notifyAll();
+                }
+                release(traced, true);
+            }
+        }
+    }
+
+    /**
+     * Drops the tracing state that the calling thread holds for the
+     * specified jobs. This method must be called with the lock of this
+     * object held.
+     *
+     * @param traced   Jobs for which the thread holds tracing state. The
+     *                 jobs whose state is dropped are removed.
+     * @param finished Whether only the state of the finished jobs is
+     *                 dropped.
+     */
+    private static void release(List<Job> traced, boolean finished)
+    {
+        for (Iterator<Job> i = traced.iterator(); i.hasNext();) {
+            Job job = i.next();
+            if (!finished || job.finished) {
+                job.renderer.release();
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Render whose tiles are traced by the scheduler.
+     */
+    final class Job
+    {
+        /**
+         * Name of the job.
+         */
+        private final String name;
+
+        /**
+         * Renderer of the scene.
+         */
+        private final TileRenderer renderer;
+
+        /**
+         * Writer for the pixels of the tiles.
+         */
+        private final PixelWriter writer;
+
+        /**
+         * Priority of the job.
+         */
+        final int priority;
+
+        /**
+         * Share of the threads relative to the other jobs with the same
+         * priority.
+         */
+        final double weight;
+
+        /**
+         * Time in nanoseconds at which the job was submitted.
+         */
+        private final long submitted = System.nanoTime();
+
+        /**
+         * Tiles that have not been handed to a thread.
+         */
+        private final ArrayDeque<Tile> queue;
+
+        /**
+         * Time spent on the tiles of the job in nanoseconds divided by
+         * its weight, plus the virtual time at which the job started.
+         */
+        private double virtualTime;
+
+        /**
+         * Number of tiles being traced.
+         */
+        private int running;
+
+        /**
+         * Time in nanoseconds at which the first tile was started, or 0.
+         */
+        private long started;
+
+        /**
+         * Time in nanoseconds at which the last tile was complete, or 0.
+         */
+        private long ended;
+
+        /**
+         * Whether every tile is complete or the job was cancelled and
+         * no tile is being traced.
+         */
+        private boolean finished;
+
+        /**
+         * Whether the job was cancelled.
+         */
+        private boolean cancelled;
+
+        /**
+         * Exception thrown by a tile, or <code>null</code>.
+         */
+        private Throwable error;
+
+        /**
+         * Creates an instance of this class.
+         *
+         * @param name     Name of the job.
+         * @param renderer Renderer of the scene.
+         * @param tiles    Tiles to be traced.
+         * @param writer   Writer for the pixels of the tiles.
+         * @param priority Priority of the job.
+         * @param weight   Share of the threads.
+         */
+        private Job(String name, TileRenderer renderer, List<Tile> tiles,
+                    PixelWriter writer, int priority, double weight)
+        {
+            this.name = name;
+            this.renderer = renderer;
+            this.writer = writer;
+            this.priority = priority;
+            this.weight = weight;
+            queue = new ArrayDeque<Tile>(tiles);
+        }
+
+        /**
+         * Cancels the job. The tiles that are queued are not traced and
+         * the tiles that are being traced are completed.
+         */
+        void cancel()
+        {
+            synchronized (RenderScheduler.this) {
+                if (finished) {
+                    return;
+                }
+                cancelled = true;
+                queue.clear();
+                if (running == 0) {
+                    finished = true;
+                    ended = System.nanoTime();
+                    jobs.remove(this);
+                }
+                RenderScheduler.this.notifyAll();
+            }
+        }
+
+        /**
+         * Waits until every tile of the job is complete. If the waiting
+         * thread is interrupted, the job is cancelled.
+         *
+         * @throws CancellationException If the job was cancelled.
+         * @throws RuntimeException      If a tile threw it.
+         * @throws Error                 If a tile threw it.
+         */
+        void await()
+        {
+            synchronized (RenderScheduler.this) {
+                while (!finished) {
+                    try {
+                        RenderScheduler.this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancel();
+                        throw new CancellationException("Render " + name +
+                                                        " interrupted");
+                    }
+                }
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                } else if (error instanceof Error) {
+                    throw (Error) error;
+                } else if (cancelled) {
+                    throw new CancellationException("Render " + name +
+                                                    " cancelled");
+                }
+            }
+        }
+
+        /**
+         * Returns the time the job waited in the queue before its first
+         * tile was started.
+         *
+         * @return Time in nanoseconds, so far if no tile has started.
+         */
+        long queueWait()
+        {
+            synchronized (RenderScheduler.this) {
+                return (started == 0 ? System.nanoTime() : started) -
+                       submitted;
+            }
+        }
+
+        /**
+         * Describes the job.
+         *
+         * @return Name, priority, weight and the times spent waiting in
+         *         the queue and tracing.
+         */
+        @Override
+        public String toString()
+        {
+            synchronized (RenderScheduler.this) {
+                String s = name + " (priority " + priority + ", weight " +
+                           weight + ", waited " + queueWait() / 1000000 +
+                           " ms";
+                if (started != 0 && ended != 0) {
+                    s += ", traced in " + (ended - started) / 1000000 +
+                         " ms";
+                }
+                return s + ")";
+            }
+        }
+    }
+}
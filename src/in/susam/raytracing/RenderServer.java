@@ -0,0 +1,708 @@
+/*
+ * Render server.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import in.susam.util.Logger;
+
+/**
+ * Traces scenes submitted over HTTP on the local host. The server runs
+ * for a long time, so the scenes after the first are traced by code
+ * that the JIT compiler has already optimized and no render pays for
+ * the startup of the JVM. The server accepts the following requests:
+ *
+ * <dl>
+ * <dt><code>POST /render</code></dt>
+ * <dd>Traces the scene file, in either of the formats read by
+ *     {@link SceneReader}, sent as the body of the request and responds
+ *     with the image as a BMP file. The query may set the parameters
+ *     <code>adaptive</code>, <code>contrast</code>,
+ *     <code>samples</code>, <code>exposure</code>, <code>depth</code>,
+ *     <code>cutoff</code>, <code>luminance</code> and
+ *     <code>roulette</code>, which have the same meaning as the command
+ *     line options of {@link RayTracer},
+ *     <code>priority</code> and <code>weight</code>, which set
+ *     {@link RenderSettings#priority} and {@link RenderSettings#weight},
+ *     and <code>gbuffer</code>, which sets
+ *     {@link RenderSettings#gBuffer}.
+ *     The <code>X-Cache</code> header of the response is
+ *     <code>hit</code> if the image was found in the cache.</dd>
+ * <dt><code>GET /images/KEY</code></dt>
+ * <dd>Responds with the cached image whose key is KEY. The key of an
+ *     image is sent in the <code>ETag</code> header of the response to
+ *     the render.</dd>
+ * <dt><code>DELETE /images/KEY</code></dt>
+ * <dd>Cancels the render of the image whose key is KEY. The requests
+ *     waiting for the image receive the status 503.</dd>
+ * </dl>
+ *
+ * <p>Each request is handled on a virtual thread if the Java runtime
+ * supports virtual threads, and on a thread of a cached thread pool
+ * otherwise. The tiles of every render are traced by one
+ * {@link RenderScheduler} with a fixed number of threads, so
+ * concurrent requests share the processors instead of each starting
+ * its own threads, and a small render of a high priority is not held
+ * up by large renders that were submitted before it. Completed
+ * images are kept in a {@link RenderCache}, so a scene that is
+ * submitted again with the same settings is answered without tracing
+ * it. Concurrent requests for the same image wait for a single
+ * render.</p>
+ *
+ * <p>Every request loads its scene again, so the G-buffers of the
+ * renders with <code>gbuffer</code> are kept by the server instead of
+ * by the scenes. They are keyed by {@link GBuffer#key}, i.e. by the
+ * size of the image and the spheres but not by the materials and the
+ * light sources, so a scene that is submitted again with other
+ * materials or lights only shades the primary hits found by the
+ * earlier render.</p>
+ *
+ * <p>If the server is monitored, every render is registered with the
+ * platform MBean server while it is traced, see {@link RenderMonitor}.
+ * The MBean server is started once when the server is created, so the
+ * requests do not wait for it.</p>
+ *
+ * @author Susam Pal
+ */
+public class RenderServer implements Closeable
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Port on which the server listens by default.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Capacity of the image cache in bytes by default.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 256L << 20;
+
+    /**
+     * Maximum size of a scene file in bytes.
+     */
+    private static final int MAX_SCENE_SIZE = 64 << 20;
+
+    /**
+     * Maximum number of bytes of G-buffers kept between renders.
+     */
+    private static final long GBUFFER_CACHE_SIZE = 256L << 20;
+
+    /**
+     * Number of threads that trace the tiles.
+     */
+    private final int threads;
+
+    /**
+     * Whether the renders are registered with the platform MBean server.
+     */
+    private final boolean monitored;
+
+    /**
+     * HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor that handles the requests.
+     */
+    private final ExecutorService requests;
+
+    /**
+     * Scheduler that traces the tiles of every render.
+     */
+    private final RenderScheduler scheduler;
+
+    /**
+     * Images of recent renders.
+     */
+    private final RenderCache cache;
+
+    /**
+     * Images being traced by key.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>>
+            pending =
+            new ConcurrentHashMap<String, CompletableFuture<byte[]>>();
+
+    /**
+     * Jobs of the images being traced by key.
+     */
+    private final ConcurrentHashMap<String, RenderScheduler.Job> jobs =
+            new ConcurrentHashMap<String, RenderScheduler.Job>();
+
+    /**
+     * G-buffers of recent renders by key in the order of their last
+     * use. Access is synchronized on the map.
+     */
+    private final LinkedHashMap<String, GBuffer> gBuffers =
+            new LinkedHashMap<String, GBuffer>(16, 0.75f, true);
+
+    /**
+     * Number of bytes of the G-buffers in {@link #gBuffers}.
+     */
+    private long gBufferBytes;
+
+    /**
+     * Number of renders that used a G-buffer of an earlier render.
+     */
+    private int gBufferHits;
+
+    /**
+     * Creates a server that listens on the specified <code>port</code>
+     * of the loopback address. The server does not accept requests
+     * until it is started.
+     *
+     * @param port      Port, or 0 for any free port.
+     * @param threads   Number of threads that trace the tiles.
+     * @param cacheSize Capacity of the image cache in bytes.
+     * @throws IOException If the server cannot listen on the port.
+     */
+    public RenderServer(int port, int threads, long cacheSize)
+            throws IOException
+    {
+        this(port, threads, cacheSize, false);
+    }
+
+    /**
+     * Creates a server that listens on the specified <code>port</code>
+     * of the loopback address and optionally registers its renders with
+     * the platform MBean server. The server does not accept requests
+     * until it is started.
+     *
+     * @param port      Port, or 0 for any free port.
+     * @param threads   Number of threads that trace the tiles.
+     * @param cacheSize Capacity of the image cache in bytes.
+     * @param monitored Whether the renders are registered with the
+     *                  platform MBean server.
+     * @throws IOException If the server cannot listen on the port.
+     */
+    public RenderServer(int port, int threads, long cacheSize,
+                        boolean monitored) throws IOException
+    {
+        this.threads = Math.max(1, threads);
+        this.monitored = monitored;
+        if (monitored) {
+            RenderMonitor.startServer();
+        }
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/render", this::handleRender);
+        server.createContext("/images/", this::handleImage);
+
+        cache = new RenderCache(cacheSize);
+        scheduler = new RenderScheduler(this.threads);
+        requests = requestExecutor();
+        server.setExecutor(requests);
+    }
+
+    /**
+     * Returns the executor that handles the requests. A virtual thread
+     * is started for each request if the Java runtime supports virtual
+     * threads.
+     *
+     * @return Executor for the requests.
+     */
+    private static ExecutorService requestExecutor()
+    {
+        try {
+            // The executor is created reflectively so that this class
+            // compiles and runs on releases without virtual threads.
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.log("Virtual threads are not available. Handling " +
+                       "requests on a cached thread pool.");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start()
+    {
+        server.start();
+        logger.log("Listening on http://" +
+                   server.getAddress().getHostString() + ":" + getPort() +
+                   "/ with " + threads + " thread(s) to trace tiles.");
+    }
+
+    /**
+     * Returns the port on which the server listens.
+     *
+     * @return Port.
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and stops the threads of the server.
+     * Renders in progress are abandoned.
+     */
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        requests.shutdown();
+        scheduler.close();
+        logger.log("Server stopped. Cache: " + cache + ". G-buffers " +
+                   "reused: " + gBufferHits() + ".");
+    }
+
+    /**
+     * Returns the number of renders that used a G-buffer of an earlier
+     * render instead of tracing the primary rays.
+     *
+     * @return Number of renders.
+     */
+    int gBufferHits()
+    {
+        synchronized (gBuffers) {
+            return gBufferHits;
+        }
+    }
+
+    /**
+     * Handles a request to trace a scene.
+     *
+     * @param exchange Request and response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handleRender(HttpExchange exchange) throws IOException
+    {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, "Send a scene file with POST.");
+                return;
+            }
+
+            RenderSettings settings;
+            try {
+                settings = settings(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, e.getMessage());
+                return;
+            }
+
+            byte[] scene = exchange.getRequestBody().readNBytes(
+                    MAX_SCENE_SIZE + 1);
+            if (scene.length > MAX_SCENE_SIZE) {
+                send(exchange, 413, "Scene file is larger than " +
+                                    MAX_SCENE_SIZE + " bytes.");
+                return;
+            }
+
+            String key = RenderCache.key(scene, describe(settings));
+            byte[] image = cache.get(key);
+            boolean hit = image != null;
+            if (hit) {
+                logger.log("Found image " + key.substring(0, 12) +
+                           " in the cache. Cache: " + cache + ".");
+            } else {
+                try {
+                    image = render(key, scene, settings);
+                } catch (IOException | IllegalArgumentException e) {
+                    send(exchange, 400, "Cannot trace the scene: " +
+                                        e.getMessage());
+                    return;
+                } catch (CancellationException e) {
+                    send(exchange, 503, "The render was cancelled.");
+                    return;
+                }
+            }
+
+            exchange.getResponseHeaders().set("ETag", "\"" + key + "\"");
+            exchange.getResponseHeaders().set("Content-Location",
+                                              "/images/" + key);
+            exchange.getResponseHeaders().set("X-Cache",
+                                              hit ? "hit" : "miss");
+            send(exchange, 200, "image/bmp", image);
+        } catch (RuntimeException e) {
+            logger.log("Cannot handle " + exchange.getRequestURI() + ": " +
+                       e);
+            send(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Handles a request for a cached image.
+     *
+     * @param exchange Request and response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handleImage(HttpExchange exchange) throws IOException
+    {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String key = path.substring(path.lastIndexOf('/') + 1);
+            if (exchange.getRequestMethod().equals("DELETE")) {
+                RenderScheduler.Job job = jobs.get(key);
+                if (job == null) {
+                    send(exchange, 404, "No render of " + key +
+                                        " in progress.");
+                    return;
+                }
+                job.cancel();
+                logger.log("Cancelled render " + job + ".");
+                send(exchange, 200, "Render cancelled.");
+                return;
+            } else if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "Request an image with GET.");
+                return;
+            }
+            byte[] image = cache.get(key);
+            if (image == null) {
+                send(exchange, 404, "No image " + key + " in the cache.");
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", "\"" + key + "\"");
+            send(exchange, 200, "image/bmp", image);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the image of a scene. If the same image is already being
+     * traced for another request, this method waits for it. Otherwise,
+     * the scene is traced and the image is added to the cache.
+     *
+     * @param key      Key of the image.
+     * @param scene    Bytes of the scene file.
+     * @param settings Render settings.
+     * @return Bytes of the BMP file of the image.
+     * @throws IOException If the scene file is invalid.
+     */
+    private byte[] render(String key, byte[] scene, RenderSettings settings)
+            throws IOException
+    {
+        CompletableFuture<byte[]> future = new CompletableFuture<byte[]>();
+        CompletableFuture<byte[]> running = pending.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            byte[] image = trace(key, scene, settings);
+            cache.put(key, image);
+            future.complete(image);
+            return image;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Traces a scene with the shared scheduler.
+     *
+     * @param key      Key of the image.
+     * @param bytes    Bytes of the scene file.
+     * @param settings Render settings.
+     * @return Bytes of the BMP file of the image.
+     * @throws IOException If the scene file is invalid.
+     */
+    private byte[] trace(String key, byte[] bytes, RenderSettings settings)
+            throws IOException
+    {
+        long start = System.nanoTime();
+        Scene scene = Scene.load(bytes);
+        BMPBuffer image = new BMPBuffer(scene.width, scene.height);
+        RenderStatistics statistics = new RenderStatistics();
+        RenderMonitor monitor = new RenderMonitor("/images/" + key,
+                                                  statistics, threads);
+        if (settings.gBuffer) {
+            prepareGBuffer(scene, settings);
+        }
+        RenderScheduler.Job job;
+        if (settings.monitor) {
+            monitor.register();
+        }
+        try {
+            List<Tile> tiles = Tile.split(scene.width, scene.height,
+                                          settings.tileSize);
+            monitor.start(tiles.size());
+            TileRenderer renderer = new TileRenderer(scene, settings,
+                                                     statistics, monitor,
+                                                     null);
+            job = scheduler.submit(key.substring(0, 12), renderer, tiles,
+                                   image, settings.priority,
+                                   settings.weight);
+            jobs.put(key, job);
+            try {
+                job.await();
+            } finally {
+                jobs.remove(key);
+            }
+            monitor.checkCancelled();
+        } finally {
+            monitor.unregister();
+        }
+
+        logger.log("Traced " + scene.width + "x" + scene.height +
+                   " image " + job + " in " +
+                   (System.nanoTime() - start) / 1000000 + " ms.");
+        return image.bytes();
+    }
+
+    /**
+     * Gives a scene the G-buffer of an earlier render of the same
+     * geometry, or builds the G-buffer of the scene and keeps it for
+     * later renders. The least recently used buffers are dropped when
+     * the buffers take more than {@link #GBUFFER_CACHE_SIZE} bytes.
+     *
+     * @param scene    Scene about to be traced.
+     * @param settings Render settings.
+     */
+    private void prepareGBuffer(Scene scene, RenderSettings settings)
+    {
+        String key = GBuffer.key(scene, RayTracer.CAMERA_POSITION,
+                                 RayTracer.MAX_DISTANCE);
+        GBuffer b;
+        synchronized (gBuffers) {
+            b = gBuffers.get(key);
+            if (b != null) {
+                gBufferHits++;
+            }
+        }
+        if (b != null) {
+            scene.setGBuffer(b);
+            logger.log("Reusing G-buffer " + key.substring(0, 12) + ".");
+            return;
+        }
+
+        // Concurrent renders of the same geometry may both build the
+        // buffer; the one stored last is kept.
+        b = scene.getGBuffer(settings, RayTracer.CAMERA_POSITION,
+                             RayTracer.MAX_DISTANCE);
+        if (b.size() > GBUFFER_CACHE_SIZE) {
+            return;
+        }
+        synchronized (gBuffers) {
+            GBuffer old = gBuffers.put(key, b);
+            if (old != null) {
+                gBufferBytes -= old.size();
+            }
+            gBufferBytes += b.size();
+            Iterator<Map.Entry<String, GBuffer>> i =
+                    gBuffers.entrySet().iterator();
+            while (gBufferBytes > GBUFFER_CACHE_SIZE) {
+                gBufferBytes -= i.next().getValue().size();
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Creates the settings of a render from the query of a request.
+     *
+     * @param query Raw query, or <code>null</code>.
+     * @return Render settings.
+     * @throws IllegalArgumentException If a parameter is unknown or
+     *                                  invalid.
+     */
+    private RenderSettings settings(String query)
+    {
+        RenderSettings settings = new RenderSettings(threads);
+        settings.monitor = monitored;
+        if (query == null) {
+            return settings;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            int eq = parameter.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? parameter :
+                                            parameter.substring(0, eq),
+                                            StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" :
+                    URLDecoder.decode(parameter.substring(eq + 1),
+                                      StandardCharsets.UTF_8);
+            if (name.equals("adaptive")) {
+                settings.adaptive = value.isEmpty() ||
+                                    Boolean.parseBoolean(value);
+            } else if (name.equals("contrast")) {
+                settings.contrastThreshold = Double.parseDouble(value);
+            } else if (name.equals("samples")) {
+                settings.maxSamples = Integer.parseInt(value);
+            } else if (name.equals("exposure")) {
+                settings.exposure = Double.parseDouble(value);
+            } else if (name.equals("depth")) {
+                settings.maxDepth = Integer.parseInt(value);
+            } else if (name.equals("cutoff")) {
+                settings.minCoefficient = Double.parseDouble(value);
+            } else if (name.equals("luminance")) {
+                settings.luminanceThreshold = Double.parseDouble(value);
+            } else if (name.equals("roulette")) {
+                settings.roulette = Double.parseDouble(value);
+            } else if (name.equals("gbuffer")) {
+                settings.gBuffer = value.isEmpty() ||
+                                   Boolean.parseBoolean(value);
+            } else if (name.equals("priority")) {
+                settings.priority = Integer.parseInt(value);
+            } else if (name.equals("weight")) {
+                settings.weight = Double.parseDouble(value);
+                if (!(settings.weight > 0)) {
+                    throw new IllegalArgumentException("Weight must be " +
+                                                       "positive: " +
+                                                       value);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown parameter: " +
+                                                   name);
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Describes the settings that affect the pixels of an image. The
+     * threads, the tiles and the acceleration structures do not.
+     *
+     * @param settings Render settings.
+     * @return Description of the settings.
+     */
+    private static String describe(RenderSettings settings)
+    {
+        String s = "exposure=" + settings.exposure +
+                   ",depth=" + settings.maxDepth +
+                   ",cutoff=" + settings.minCoefficient +
+                   ",luminance=" + settings.luminanceThreshold +
+                   ",roulette=" + settings.roulette;
+        if (settings.adaptive) {
+            s += ",adaptive,contrast=" + settings.contrastThreshold +
+                 ",samples=" + settings.maxSamples;
+        }
+        return s;
+    }
+
+    /**
+     * Sends a plain text response.
+     *
+     * @param exchange Request and response.
+     * @param status   Status code.
+     * @param message  Text of the response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void send(HttpExchange exchange, int status,
+                             String message) throws IOException
+    {
+        send(exchange, status, "text/plain; charset=utf-8",
+             (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a response.
+     *
+     * @param exchange    Request and response.
+     * @param status      Status code.
+     * @param contentType Type of the body.
+     * @param body        Body of the response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void send(HttpExchange exchange, int status,
+                             String contentType, byte[] body)
+            throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        // A length of 0 would start a chunked response.
+        exchange.sendResponseHeaders(status, body.length > 0 ?
+                                             body.length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Starts a render server. The optional arguments are
+     * <code>-port N</code>, <code>-threads N</code>, where 0 means one
+     * thread per available processor, <code>-cache MB</code>, the
+     * capacity of the image cache in megabytes, and
+     * <code>-monitor</code>, which registers the renders with the
+     * platform MBean server.
+     *
+     * @param args Command line arguments.
+     * @throws IOException If the server cannot listen on the port.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long cacheSize = DEFAULT_CACHE_SIZE;
+        boolean monitored = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+                if (threads == 0) {
+                    threads = Runtime.getRuntime().availableProcessors();
+                }
+            } else if (args[i].equals("-cache") && i + 1 < args.length) {
+                cacheSize = Long.parseLong(args[++i]) << 20;
+            } else if (args[i].equals("-monitor")) {
+                monitored = true;
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " +
+                                                   args[i]);
+            }
+        }
+        new RenderServer(port, threads, cacheSize, monitored).start();
+    }
+}
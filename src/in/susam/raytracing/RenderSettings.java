@@ -0,0 +1,235 @@
+/*
+ * Render settings.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+/**
+ * Represents the settings that control how a scene is rendered. The
+ * default values reproduce the original single threaded renderer.
+ * A setting that changes the pixels of the image must also be part of
+ * the key of a {@link Checkpoint} and of the description of the
+ * settings by which a {@link RenderServer} caches images.
+ *
+ * @author Susam Pal
+ */
+public class RenderSettings
+{
+    /**
+     * Number of threads used to trace the image. A value of 1 traces
+     * the image serially on the calling thread.
+     */
+    public int threads = 1;
+
+    /**
+     * Width and height of a square tile (in pixels) that is traced as
+     * one unit of work by the parallel renderer.
+     */
+    public int tileSize = 32;
+
+    /**
+     * Whether primary rays are tested only against the spheres whose
+     * projections on the camera plane overlap the region of the image
+     * in which the rays start. The image is the same either way. The
+     * bins are off by default because on dense scenes they test more
+     * spheres than the hierarchy does.
+     */
+    public boolean screenBins = false;
+
+    /**
+     * Whether the first sphere hit by each primary ray is kept in a
+     * G-buffer of the scene. The first render builds the buffer. Later
+     * renders of the same scene read the primary hits from it, so that
+     * after an edit of the materials or the light sources only the
+     * shading is computed again. The image is the same either way. A
+     * material is edited by changing its fields; a material assigned to
+     * a sphere after the sphere store is built is not seen, see
+     * {@link Scene.Sphere#material}. See {@link GBuffer}.
+     */
+    public boolean gBuffer = false;
+
+    /**
+     * Whether the render is registered with the platform MBean server,
+     * so that it can be followed and cancelled with JMX tools. It is
+     * off by default because starting the MBean server, the first time
+     * a render is registered in the JVM, takes a few hundred
+     * milliseconds. See {@link RenderMonitor}.
+     */
+    public boolean monitor = false;
+
+    /**
+     * Whether pixels are sampled adaptively. If <code>false</code>,
+     * every pixel is sampled 4 times.
+     */
+    public boolean adaptive = false;
+
+    /**
+     * Largest difference between the gamma corrected color components
+     * of the corners of a pixel for which the pixel is not refined in
+     * adaptive mode. Components range from 0 to 1.
+     */
+    public double contrastThreshold = 0.1;
+
+    /**
+     * Maximum number of samples per pixel in adaptive mode. A refined
+     * pixel is sampled on a square grid with as many samples as fit in
+     * this number.
+     */
+    public int maxSamples = 16;
+
+    /**
+     * Whether the image is traced progressively, i.e. in coarse passes
+     * that are refined until the final pass at full quality.
+     */
+    public boolean progressive = false;
+
+    /**
+     * Width and height of the blocks of pixels covered by one sample in
+     * the first pass of a progressive render. The blocks are halved in
+     * every following coarse pass.
+     */
+    public int previewBlockSize = 8;
+
+    /**
+     * Directory in which the progress of the render is saved so that an
+     * interrupted render can be resumed, or <code>null</code> if the
+     * progress is not saved. See {@link Checkpoint}.
+     */
+    public String checkpointDirectory = null;
+
+    /**
+     * Minimum interval in seconds between two saves of the progress of
+     * the render.
+     */
+    public double checkpointInterval = 60;
+
+    /**
+     * Number of rows of pixels in a band of an image written by the
+     * {@link StripeRenderer}. It is rounded down to a multiple of the
+     * tile size.
+     */
+    public int bandHeight = 128;
+
+    /**
+     * Maximum number of bands of an image written by the
+     * {@link StripeRenderer} that are held in memory at the same time.
+     */
+    public int maxBands = 4;
+
+    /**
+     * Exposure as per which the colors of the image are altered.
+     */
+    public double exposure = 1.0;
+
+    /**
+     * Name of a PFM file in which the linear radiance of every pixel is
+     * saved, or <code>null</code>. If set, the image is traced into a
+     * {@link Framebuffer} that is tone mapped into the output file and
+     * saved in this file after the trace, so that the image can be tone
+     * mapped again with another exposure by {@link ToneMapper}.
+     */
+    public String radianceFile = null;
+
+    /**
+     * Maximum number of surfaces that a ray cast from the camera may
+     * hit, i.e. the number of reflections followed plus one.
+     */
+    public int maxDepth = 10;
+
+    /**
+     * Fraction of the light of a surface that reaches the camera,
+     * i.e. the product of the reflection coefficients of the surfaces
+     * hit before it, at or below which the reflections of a ray are
+     * not followed any further. With 0, the reflections are followed
+     * until they leave the scene, hit a surface that does not reflect
+     * or reach {@link #maxDepth}.
+     */
+    public double minCoefficient = 0;
+
+    /**
+     * Luminance at or below which the light that the remaining
+     * reflections of a sample can add to its color, after exposure, is
+     * neglected, or 0 to follow the reflections regardless. Components
+     * of colors range from 0 to 1.
+     */
+    public double luminanceThreshold = 0;
+
+    /**
+     * Largest probability with which the reflections of a sample are
+     * followed beyond {@link #rouletteDepth} surfaces in Russian
+     * roulette, or 0 to follow them always. A sample whose reflection
+     * coefficient has fallen below this probability survives with the
+     * probability of its coefficient. The light of a surviving sample
+     * is divided by its probability, so that the expected color of each
+     * sample does not change, but pixels become noisy.
+     */
+    public double roulette = 0;
+
+    /**
+     * Number of surfaces a sample hits before Russian roulette decides
+     * whether its reflections are followed.
+     */
+    public int rouletteDepth = 3;
+
+    /**
+     * Time in seconds from the start of tracing, after the scene and
+     * the output file are set up, by which the image must be complete,
+     * or 0 for no deadline. With a deadline, the render starts at a low
+     * quality and raises the quality as far as the measured speed of
+     * the render allows. See {@link DeadlineRenderer}.
+     */
+    public double deadline = 0;
+
+    /**
+     * Port on which the tiles of the image are handed out to
+     * {@link RenderWorker} processes, or 0 to trace the tiles in this
+     * process. See {@link TileCoordinator}.
+     */
+    public int workerPort = 0;
+
+    /**
+     * Priority of the render among the renders of a
+     * {@link RenderServer}. The tiles of a render with a higher priority
+     * are traced before those of renders with a lower priority. See
+     * {@link RenderScheduler}.
+     */
+    public int priority = 0;
+
+    /**
+     * Share of the threads of a {@link RenderServer} that the render
+     * receives relative to the other renders with the same priority.
+     */
+    public double weight = 1.0;
+
+    /**
+     * Creates an instance of this class with the default settings.
+     */
+    public RenderSettings()
+    {
+    }
+
+    /**
+     * Creates an instance of this class that traces the image with the
+     * specified number of <code>threads</code>.
+     *
+     * @param threads Number of threads.
+     */
+    public RenderSettings(int threads)
+    {
+        this.threads = threads;
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Render statistics.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Counts the work done by a render. While a thread traces rays, it
+ * counts them in plain fields of its {@link TraceContext}. The counts
+ * are added to the striped counters of this class after each tile, so
+ * the counting costs no more than an increment of a local field per
+ * ray and the statistics can stay enabled for every render. The
+ * statistics may be read while the render runs. They are then accurate
+ * up to the tiles that are being traced.
+ *
+ * <p>The render and each tile also emit JDK Flight Recorder events,
+ * {@link RenderEvent} and {@link TileEvent}, when a recording with
+ * these events enabled is running.</p>
+ *
+ * @author Susam Pal
+ */
+public class RenderStatistics
+{
+    /**
+     * Number of samples traced.
+     */
+    private final LongAdder samples = new LongAdder();
+
+    /**
+     * Number of rays cast from the camera.
+     */
+    private final LongAdder primaryRays = new LongAdder();
+
+    /**
+     * Number of rays cast towards the light sources.
+     */
+    private final LongAdder shadowRays = new LongAdder();
+
+    /**
+     * Number of rays cast in the direction of reflection.
+     */
+    private final LongAdder reflectionRays = new LongAdder();
+
+    /**
+     * Number of ray and sphere intersection tests.
+     */
+    private final LongAdder sphereTests = new LongAdder();
+
+    /**
+     * Total number of surfaces shaded for the rays cast from the
+     * camera.
+     */
+    private final LongAdder bounces = new LongAdder();
+
+    /**
+     * Number of rays cast from the camera whose reflections were cut
+     * short by the maximum depth or the minimum reflection coefficient.
+     */
+    private final LongAdder truncated = new LongAdder();
+
+    /**
+     * Number of rays cast from the camera whose reflections were ended
+     * since they could not add light above the luminance threshold.
+     */
+    private final LongAdder dimRays = new LongAdder();
+
+    /**
+     * Number of rays cast from the camera whose reflections were ended
+     * by Russian roulette.
+     */
+    private final LongAdder rouletteRays = new LongAdder();
+
+    /**
+     * Largest number of surfaces that the rays whose reflections were
+     * ended early would still have hit.
+     */
+    private final LongAdder skippedBounces = new LongAdder();
+
+    /**
+     * Number of tiles traced, counting each pass separately.
+     */
+    private final LongAdder tiles = new LongAdder();
+
+    /**
+     * Total wall time spent tracing tiles in nanoseconds.
+     */
+    private final LongAdder tileTime = new LongAdder();
+
+    /**
+     * Longest wall time spent tracing a tile in nanoseconds.
+     */
+    private final LongAccumulator maxTileTime =
+            new LongAccumulator(Math::max, 0);
+
+    /**
+     * Adds the counts of the <code>context</code> to these statistics
+     * and resets the counts of the context. This method must be called
+     * on the thread that uses the context.
+     *
+     * @param context Tracing state of the current thread.
+     */
+    void add(TraceContext context)
+    {
+        primaryRays.add(context.primaryRays);
+        shadowRays.add(context.shadowRays);
+        reflectionRays.add(context.reflectionRays);
+        sphereTests.add(context.hit.tests);
+        bounces.add(context.bounces);
+        truncated.add(context.truncated);
+        dimRays.add(context.dimRays);
+        rouletteRays.add(context.rouletteRays);
+        skippedBounces.add(context.skippedBounces);
+        context.primaryRays = 0;
+        context.shadowRays = 0;
+        context.reflectionRays = 0;
+        context.hit.tests = 0;
+        context.bounces = 0;
+        context.truncated = 0;
+        context.dimRays = 0;
+        context.rouletteRays = 0;
+        context.skippedBounces = 0;
+    }
+
+    /**
+     * Adds the number of samples traced.
+     *
+     * @param count Number of samples.
+     */
+    void addSamples(long count)
+    {
+        samples.add(count);
+    }
+
+    /**
+     * Returns the counts of samples, primary rays, shadow rays,
+     * reflection rays, sphere tests, bounces, truncated rays, dim rays,
+     * rays ended by Russian roulette and skipped bounces, in that order,
+     * so that they can be sent to another process.
+     *
+     * @return Counts.
+     */
+    long[] counts()
+    {
+        return new long[] {samples.sum(), primaryRays.sum(),
+                           shadowRays.sum(), reflectionRays.sum(),
+                           sphereTests.sum(), bounces.sum(),
+                           truncated.sum(), dimRays.sum(),
+                           rouletteRays.sum(), skippedBounces.sum()};
+    }
+
+    /**
+     * Adds counts in the order returned by {@link #counts} to these
+     * statistics.
+     *
+     * @param counts Counts.
+     */
+    void addCounts(long[] counts)
+    {
+        samples.add(counts[0]);
+        primaryRays.add(counts[1]);
+        shadowRays.add(counts[2]);
+        reflectionRays.add(counts[3]);
+        sphereTests.add(counts[4]);
+        bounces.add(counts[5]);
+        truncated.add(counts[6]);
+        dimRays.add(counts[7]);
+        rouletteRays.add(counts[8]);
+        skippedBounces.add(counts[9]);
+    }
+
+    /**
+     * Records that a tile has been traced.
+     *
+     * @param nanos Wall time spent tracing the tile in nanoseconds.
+     */
+    void tileComplete(long nanos)
+    {
+        tiles.increment();
+        tileTime.add(nanos);
+        maxTileTime.accumulate(nanos);
+    }
+
+    /**
+     * Returns the number of samples traced.
+     *
+     * @return Number of samples.
+     */
+    public long getSamples()
+    {
+        return samples.sum();
+    }
+
+    /**
+     * Returns the number of rays cast from the camera.
+     *
+     * @return Number of primary rays.
+     */
+    public long getPrimaryRays()
+    {
+        return primaryRays.sum();
+    }
+
+    /**
+     * Returns the number of rays cast from the points of intersection
+     * towards the light sources.
+     *
+     * @return Number of shadow rays.
+     */
+    public long getShadowRays()
+    {
+        return shadowRays.sum();
+    }
+
+    /**
+     * Returns the number of rays cast from the points of intersection
+     * in the direction of reflection.
+     *
+     * @return Number of reflection rays.
+     */
+    public long getReflectionRays()
+    {
+        return reflectionRays.sum();
+    }
+
+    /**
+     * Returns the total number of rays of all kinds.
+     *
+     * @return Number of rays.
+     */
+    public long getRays()
+    {
+        return getPrimaryRays() + getShadowRays() + getReflectionRays();
+    }
+
+    /**
+     * Returns the number of ray and sphere intersection tests.
+     *
+     * @return Number of intersection tests.
+     */
+    public long getSphereTests()
+    {
+        return sphereTests.sum();
+    }
+
+    /**
+     * Returns the average number of surfaces shaded for a ray cast from
+     * the camera, i.e. the average depth of reflection reached.
+     *
+     * @return Average bounce depth, or 0 if no ray has been cast.
+     */
+    public double getAverageBounceDepth()
+    {
+        long rays = getPrimaryRays();
+        return rays == 0 ? 0.0 : (double) bounces.sum() / rays;
+    }
+
+    /**
+     * Returns the number of rays cast from the camera whose reflections
+     * were still lit when they were cut short by the maximum depth or
+     * the minimum reflection coefficient of the render.
+     *
+     * @return Number of truncated rays.
+     */
+    public long getTruncatedRays()
+    {
+        return truncated.sum();
+    }
+
+    /**
+     * Returns the number of rays cast from the camera whose reflections
+     * were ended since they could not add light above the luminance
+     * threshold of the render.
+     *
+     * @return Number of dim rays.
+     */
+    public long getDimRays()
+    {
+        return dimRays.sum();
+    }
+
+    /**
+     * Returns the number of rays cast from the camera whose reflections
+     * were ended by Russian roulette.
+     *
+     * @return Number of rays ended by Russian roulette.
+     */
+    public long getRouletteRays()
+    {
+        return rouletteRays.sum();
+    }
+
+    /**
+     * Returns the largest number of surfaces that the rays whose
+     * reflections were ended early by the luminance threshold or by
+     * Russian roulette would still have hit. Each of these surfaces
+     * saves a reflection ray and the shadow rays cast from it.
+     *
+     * @return Number of bounces skipped at most.
+     */
+    public long getSkippedBounces()
+    {
+        return skippedBounces.sum();
+    }
+
+    /**
+     * Returns the number of tiles traced. Each pass of a progressive
+     * render traces every tile once. A serial render traces the whole
+     * image as one tile.
+     *
+     * @return Number of tiles.
+     */
+    public long getTiles()
+    {
+        return tiles.sum();
+    }
+
+    /**
+     * Returns the average wall time spent tracing a tile.
+     *
+     * @return Average tile time in nanoseconds, or 0 if no tile has
+     *         been traced.
+     */
+    public long getAverageTileTime()
+    {
+        long n = getTiles();
+        return n == 0 ? 0 : tileTime.sum() / n;
+    }
+
+    /**
+     * Returns the longest wall time spent tracing a tile.
+     *
+     * @return Longest tile time in nanoseconds.
+     */
+    public long getMaxTileTime()
+    {
+        return maxTileTime.get();
+    }
+
+    /**
+     * Flight Recorder event for a render.
+     */
+    @Name("in.susam.raytracing.Render")
+    @Label("Render")
+    @Category("Ray Tracer")
+    @Description("Ray tracing of a complete image")
+    static final class RenderEvent extends Event
+    {
+        /**
+         * Width of the image in pixels.
+         */
+        @Label("Width")
+        int width;
+
+        /**
+         * Height of the image in pixels.
+         */
+        @Label("Height")
+        int height;
+
+        /**
+         * Number of threads that traced the image.
+         */
+        @Label("Threads")
+        int threads;
+
+        /**
+         * Number of samples traced.
+         */
+        @Label("Samples")
+        long samples;
+
+        /**
+         * Number of rays cast from the camera.
+         */
+        @Label("Primary Rays")
+        long primaryRays;
+
+        /**
+         * Number of rays cast towards the light sources.
+         */
+        @Label("Shadow Rays")
+        long shadowRays;
+
+        /**
+         * Number of rays cast in the direction of reflection.
+         */
+        @Label("Reflection Rays")
+        long reflectionRays;
+
+        /**
+         * Number of ray and sphere intersection tests.
+         */
+        @Label("Sphere Tests")
+        long sphereTests;
+
+        /**
+         * Average number of surfaces shaded per ray cast from the camera.
+         */
+        @Label("Average Bounce Depth")
+        double averageBounceDepth;
+
+        /**
+         * Sets the fields of this event from the statistics of the
+         * render.
+         *
+         * @param statistics Statistics of the render.
+         */
+        void set(RenderStatistics statistics)
+        {
+            samples = statistics.getSamples();
+            primaryRays = statistics.getPrimaryRays();
+            shadowRays = statistics.getShadowRays();
+            reflectionRays = statistics.getReflectionRays();
+            sphereTests = statistics.getSphereTests();
+            averageBounceDepth = statistics.getAverageBounceDepth();
+        }
+    }
+
+    /**
+     * Flight Recorder event for a tile traced in a pass of a render.
+     * The duration of the event is the wall time spent tracing the
+     * tile.
+     */
+    @Name("in.susam.raytracing.Tile")
+    @Label("Tile")
+    @Category("Ray Tracer")
+    @Description("Ray tracing of a tile of an image")
+    static final class TileEvent extends Event
+    {
+        /**
+         * X coordinate of the left edge of the tile.
+         */
+        @Label("X")
+        int x;
+
+        /**
+         * Y coordinate of the top edge of the tile.
+         */
+        @Label("Y")
+        int y;
+
+        /**
+         * Width of the tile in pixels.
+         */
+        @Label("Width")
+        int width;
+
+        /**
+         * Height of the tile in pixels.
+         */
+        @Label("Height")
+        int height;
+
+        /**
+         * Block size of a coarse pass, or 0 for the final pass.
+         */
+        @Label("Block Size")
+        @Description("Block size of a coarse pass, or 0 for the final " +
+                     "pass")
+        int block;
+    }
+}
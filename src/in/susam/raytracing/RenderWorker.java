@@ -0,0 +1,296 @@
+/*
+ * Render worker.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import in.susam.util.Logger;
+
+/**
+ * Traces tiles handed out by a {@link TileCoordinator} in another
+ * process, possibly on another machine. A worker connects to the
+ * coordinator, receives the scene and the render settings once, and
+ * then traces every tile assigned to it with the same
+ * {@link TileRenderer} as a render in a single process, so the image
+ * is identical to one traced locally.
+ *
+ * <p>The coordinator and the worker talk over a TCP connection with
+ * big endian integers. The coordinator sends {@link #MAGIC}, the
+ * settings, the length and the bytes of the scene in the binary scene
+ * format. The worker answers with {@link #MAGIC} and its number of
+ * threads. Then the coordinator sends the index, X and Y coordinates,
+ * width and height of each tile it assigns, or {@link #END} when the
+ * render is complete. For each tile, the worker sends the index of the
+ * tile, the counts of {@link RenderStatistics#counts} added since its
+ * previous tile, and the red, green and blue bytes of the pixels of the
+ * tile, row by row from the bottom.</p>
+ *
+ * <p>A worker serves one render after another. When a render is
+ * complete or the coordinator cannot be reached, it connects again
+ * every second.</p>
+ *
+ * @author Susam Pal
+ */
+public class RenderWorker
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Number that starts the messages of the coordinator and of the
+     * worker when they connect.
+     */
+    static final int MAGIC = 0x52545744;
+
+    /**
+     * Tile index that ends a render.
+     */
+    static final int END = -1;
+
+    /**
+     * Name of the host of the coordinator.
+     */
+    private final String host;
+
+    /**
+     * Port of the coordinator.
+     */
+    private final int port;
+
+    /**
+     * Number of threads that trace tiles.
+     */
+    private final int threads;
+
+    /**
+     * Creates a worker for the coordinator at the specified
+     * <code>host</code> and <code>port</code>.
+     *
+     * @param host    Name of the host of the coordinator.
+     * @param port    Port of the coordinator.
+     * @param threads Number of threads that trace tiles.
+     */
+    public RenderWorker(String host, int port, int threads)
+    {
+        this.host = host;
+        this.port = port;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Connects to the coordinator and traces the tiles of one render.
+     *
+     * @throws IOException If the coordinator cannot be reached or the
+     *                     connection fails.
+     */
+    public void work() throws IOException
+    {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != MAGIC) {
+                throw new IOException(host + ":" + port + " is not a " +
+                                      "tile coordinator");
+            }
+
+            RenderSettings settings = new RenderSettings(threads);
+            settings.adaptive = in.readBoolean();
+            settings.contrastThreshold = in.readDouble();
+            settings.maxSamples = in.readInt();
+            settings.exposure = in.readDouble();
+            settings.screenBins = in.readBoolean();
+            settings.gBuffer = in.readBoolean();
+            settings.maxDepth = in.readInt();
+            settings.minCoefficient = in.readDouble();
+            settings.luminanceThreshold = in.readDouble();
+            settings.roulette = in.readDouble();
+            settings.rouletteDepth = in.readInt();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            Scene scene = Scene.load(bytes);
+            logger.log("Received a scene of " + scene.width + "x" +
+                       scene.height + " pixels with " +
+                       scene.spheres.size() + " spheres from " + host +
+                       ":" + port + ".");
+
+            out.writeInt(MAGIC);
+            out.writeInt(threads);
+            out.flush();
+
+            RenderStatistics statistics = new RenderStatistics();
+            RenderMonitor monitor = new RenderMonitor(host + ":" + port,
+                                                      statistics, threads);
+            TileRenderer renderer = new TileRenderer(scene, settings,
+                                                     statistics, monitor,
+                                                     null);
+            long[] sent = new long[statistics.counts().length];
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            int tiles = 0;
+            try {
+                int index;
+                while ((index = in.readInt()) != END) {
+                    Tile tile = new Tile(index, in.readInt(), in.readInt(),
+                                         in.readInt(), in.readInt());
+                    pool.execute(() -> trace(tile, renderer, statistics,
+                                             sent, out, socket));
+                    tiles++;
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            logger.log("Render complete after " + tiles + " tiles.");
+        }
+    }
+
+    /**
+     * Traces a tile and sends its pixels to the coordinator. If they
+     * cannot be sent, the connection is closed, which ends the render.
+     *
+     * @param tile       Tile to be traced.
+     * @param renderer   Renderer of the scene.
+     * @param statistics Statistics of the renderer.
+     * @param sent       Counts of the statistics sent so far.
+     * @param out        Stream to the coordinator.
+     * @param socket     Connection to the coordinator.
+     */
+    private static void trace(Tile tile, TileRenderer renderer,
+                              RenderStatistics statistics, long[] sent,
+                              DataOutputStream out, Socket socket)
+    {
+        TileBuffer buffer = new TileBuffer(tile);
+        renderer.renderTiles(Collections.singletonList(tile), buffer, null);
+        try {
+            synchronized (out) {
+                out.writeInt(tile.index);
+                long[] counts = statistics.counts();
+                for (int i = 0; i < counts.length; i++) {
+                    out.writeLong(counts[i] - sent[i]);
+                    sent[i] = counts[i];
+                }
+                out.write(buffer.pixels);
+                out.flush();
+            }
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException f) {
+                // The render ends anyway.
+            }
+        }
+    }
+
+    /**
+     * Pixels of a tile held in memory.
+     */
+    private static final class TileBuffer implements PixelWriter
+    {
+        /**
+         * Tile whose pixels are held.
+         */
+        private final Tile tile;
+
+        /**
+         * Red, green and blue bytes of the pixels, row by row from the
+         * bottom of the tile.
+         */
+        final byte[] pixels;
+
+        /**
+         * Creates a black tile.
+         *
+         * @param tile Tile whose pixels are held.
+         */
+        TileBuffer(Tile tile)
+        {
+            this.tile = tile;
+            pixels = new byte[3 * tile.width * tile.height];
+        }
+
+        @Override
+        public void setPixel(int x, int y, double red, double green,
+                             double blue)
+        {
+            int offset = 3 * ((y - tile.y) * tile.width + x - tile.x);
+            pixels[offset] = Color.toByte(red);
+            pixels[offset + 1] = Color.toByte(green);
+            pixels[offset + 2] = Color.toByte(blue);
+        }
+    }
+
+    /**
+     * Runs a worker. The arguments are the host and the port of the
+     * coordinator as <code>HOST:PORT</code>, optionally preceded by
+     * <code>-threads N</code>, where 0 means one thread per available
+     * processor, which is also the default.
+     *
+     * @param args Command line arguments.
+     * @throws InterruptedException If the worker is interrupted while
+     *                              waiting for the coordinator.
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        if (args.length == 3 && args[0].equals("-threads")) {
+            threads = Integer.parseInt(args[1]);
+            if (threads == 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            i = 2;
+        }
+        int colon = args.length == i + 1 ? args[i].lastIndexOf(':') : -1;
+        if (colon < 0) {
+            throw new IllegalArgumentException("Usage: RenderWorker " +
+                                               "[-threads N] HOST:PORT");
+        }
+
+        RenderWorker worker = new RenderWorker(
+                args[i].substring(0, colon),
+                Integer.parseInt(args[i].substring(colon + 1)), threads);
+        boolean waiting = false;
+        while (true) {
+            try {
+                worker.work();
+                waiting = false;
+            } catch (ConnectException e) {
+                if (!waiting) {
+                    logger.log("Waiting for a coordinator at " + args[i] +
+                               ".");
+                    waiting = true;
+                }
+            } catch (IOException e) {
+                logger.log("Render abandoned: " + e.getMessage());
+            }
+            Thread.sleep(1000);
+        }
+    }
+}
@@ -18,6 +18,10 @@
 
 package in.susam.raytracing;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.ArrayList;
 
@@ -29,7 +33,8 @@ import java.util.ArrayList;
 public class Scene
 {
     /**
-     * A collection of spheres used in the scene.
+     * A collection of spheres used in the scene. For a scene loaded from
+     * a scene file, this is a read-only view of a {@link SphereStore}.
      */
     public Collection<Sphere> spheres;
 
@@ -48,6 +53,30 @@ public class Scene
      */
     public int height;
 
+    /**
+     * Copy of the spheres in a sphere store. It is made when it is
+     * first needed unless the spheres are a view of a store.
+     */
+    private volatile SphereStore store;
+
+    /**
+     * Bounding volume hierarchy over the spheres. It is built when it
+     * is first needed.
+     */
+    private volatile BoundingVolumeHierarchy hierarchy;
+
+    /**
+     * Screen space bins of the spheres for primary rays. They are built
+     * when they are first needed.
+     */
+    private volatile ScreenBins screenBins;
+
+    /**
+     * First spheres hit by the primary rays. They are found when they
+     * are first needed by a render that uses a G-buffer.
+     */
+    private volatile GBuffer gBuffer;
+
     /**
      * Represents a material of an object in the scene.
      */
@@ -108,7 +137,14 @@ public class Scene
         public double radius;
 
         /**
-         * Material of the sphere.
+         * Material of the sphere. The sphere store of the scene keeps
+         * the number of the material in its table when the store is
+         * built, so another material assigned to this field afterwards
+         * is not seen by renders until {@link Scene#spheresChanged} is
+         * called. The fields of the material itself may be edited at
+         * any time. The spheres of a scene loaded from a binary scene
+         * file are copies read from the store, so assigning a material
+         * to them has no effect.
          */
         public Material material;
 
@@ -156,7 +192,8 @@ public class Scene
     }
 
     /**
-     * Creates an instance of this class.
+     * Creates an instance of this class with the scene defined in
+     * {@link #sceneDefinition}.
      */
     public Scene()
     {
@@ -166,6 +203,279 @@ public class Scene
         sceneDefinition();
     }
 
+    /**
+     * Creates an empty scene with the specified image size.
+     *
+     * @param width  Width of the image.
+     * @param height Height of the image.
+     */
+    public Scene(int width, int height)
+    {
+        spheres = new ArrayList<Sphere>();
+        lights = new ArrayList<Light>();
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Loads a scene from a scene file in either of the formats read by
+     * {@link SceneReader}.
+     *
+     * @param file Name of the scene file.
+     * @return The scene.
+     * @throws IOException If the file cannot be read or is invalid.
+     */
+    public static Scene load(String file) throws IOException
+    {
+        Scene scene = new Scene(0, 0);
+        Loader loader = scene.new Loader();
+        SceneReader.read(file, loader);
+        scene.spheres = loader.store.asList(scene);
+        return scene;
+    }
+
+    /**
+     * Loads a scene from the bytes of a scene file in either of the
+     * formats read by {@link SceneReader}, e.g. a scene received over
+     * the network. The bytes are written into a temporary file, since
+     * the reader reads files and maps the spheres of a binary scene
+     * file.
+     *
+     * @param bytes Bytes of the scene file.
+     * @return The scene.
+     * @throws IOException If the bytes are not a valid scene file.
+     */
+    static Scene load(byte[] bytes) throws IOException
+    {
+        Path file = Files.createTempFile("scene", null);
+        try {
+            Files.write(file, bytes);
+            return load(file.toString());
+        } catch (IOException e) {
+            // Hide the name of the temporary file from the messages.
+            throw new IOException(e.getMessage().replace(file.toString(),
+                                                         "scene"), e);
+        } finally {
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                // A mapped file cannot be deleted on some platforms.
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Returns the spheres of this scene in a sphere store. If the
+     * spheres are a view of a store, that store is returned. Otherwise,
+     * the spheres are copied into a store when this method is called
+     * for the first time and the copy is reused afterwards.
+     *
+     * @return Sphere store.
+     */
+    public SphereStore getSphereStore()
+    {
+        if (spheres instanceof SphereStore.SphereList) {
+            return ((SphereStore.SphereList) spheres).store();
+        }
+
+        SphereStore s = store;
+        if (s == null) {
+            synchronized (this) {
+                s = store;
+                if (s == null) {
+                    s = new SphereStore(spheres);
+                    store = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Returns the bounding volume hierarchy over the spheres of this
+     * scene. The hierarchy is built when this method is called for the
+     * first time and reused afterwards.
+     *
+     * @return Bounding volume hierarchy.
+     */
+    public BoundingVolumeHierarchy getHierarchy()
+    {
+        BoundingVolumeHierarchy h = hierarchy;
+        if (h == null) {
+            synchronized (this) {
+                h = hierarchy;
+                if (h == null) {
+                    h = new BoundingVolumeHierarchy(getSphereStore());
+                    hierarchy = h;
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Discards the copy of the spheres and the structures built over
+     * them. This method must be called after the spheres are modified
+     * so that they are rebuilt when they are needed next.
+     */
+    public synchronized void spheresChanged()
+    {
+        store = null;
+        hierarchy = null;
+        screenBins = null;
+        gBuffer = null;
+    }
+
+    /**
+     * Updates the structures built over the spheres after the spheres
+     * at the specified positions of the sphere store of this scene have
+     * been moved or resized in the store. The bounding volume hierarchy
+     * is refitted instead of built again, see
+     * {@link BoundingVolumeHierarchy#update}. The other structures are
+     * discarded as by {@link #spheresChanged}. If the spheres are not a
+     * view of a sphere store, the hierarchy is discarded as well.
+     *
+     * @param moved Positions of the spheres that changed.
+     */
+    public synchronized void spheresMoved(int... moved)
+    {
+        BoundingVolumeHierarchy h = hierarchy;
+        spheresChanged();
+        if (h != null && spheres instanceof SphereStore.SphereList &&
+            h.store == getSphereStore()) {
+            hierarchy = h.update(moved);
+        }
+    }
+
+    /**
+     * Returns the screen space bins of the spheres of this scene for
+     * primary rays. The bins are built when this method is called for
+     * the first time or after the size of the image has changed.
+     *
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance at which a primary ray may
+     *                       hit a sphere.
+     * @return Screen space bins.
+     */
+    ScreenBins getScreenBins(double cameraPosition, double distance)
+    {
+        ScreenBins b = screenBins;
+        if (b == null || b.width != width || b.height != height) {
+            synchronized (this) {
+                b = screenBins;
+                if (b == null || b.width != width || b.height != height) {
+                    b = new ScreenBins(this, cameraPosition, distance,
+                                       SphereKernel.getInstance());
+                    screenBins = b;
+                }
+            }
+        }
+        return b;
+    }
+
+    /**
+     * Returns the G-buffer of this scene, i.e. the first spheres hit by
+     * the primary rays. The buffer is built when this method is called
+     * for the first time or after the size of the image has changed.
+     * It is kept while the materials and the light sources change, so
+     * that later renders only shade the points of intersection.
+     *
+     * @param settings       Render settings.
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance at which a primary ray may
+     *                       hit a sphere.
+     * @return G-buffer.
+     */
+    GBuffer getGBuffer(RenderSettings settings, double cameraPosition,
+                       double distance)
+    {
+        GBuffer b = gBuffer;
+        if (b == null || b.width != width || b.height != height) {
+            synchronized (this) {
+                b = gBuffer;
+                if (b == null || b.width != width || b.height != height) {
+                    b = new GBuffer(this, settings, cameraPosition,
+                                    distance);
+                    gBuffer = b;
+                }
+            }
+        }
+        return b;
+    }
+
+    /**
+     * Makes a G-buffer built for another scene the G-buffer of this
+     * scene. The other scene must have the same {@link GBuffer#key} as
+     * this scene, i.e. the same image size and the same spheres in the
+     * same order. This lets the materials and the light sources of a
+     * scene loaded again be edited without tracing the primary rays
+     * again.
+     *
+     * @param b G-buffer.
+     */
+    synchronized void setGBuffer(GBuffer b)
+    {
+        gBuffer = b;
+    }
+
+    /**
+     * Adds the contents of a scene file to this scene. The spheres are
+     * added to a sphere store. The sphere records of a binary scene file
+     * are used where they are in the file.
+     */
+    private class Loader implements SceneHandler
+    {
+        /**
+         * Store that receives the spheres.
+         */
+        private SphereStore store = new SphereStore();
+
+        @Override
+        public void size(int width, int height)
+        {
+            Scene.this.width = width;
+            Scene.this.height = height;
+        }
+
+        @Override
+        public void material(double red, double green, double blue,
+                             double reflection, double specRed,
+                             double specGreen, double specBlue,
+                             double power)
+        {
+            store.addMaterial(new Material(new Color(red, green, blue),
+                                           reflection,
+                                           new Color(specRed, specGreen,
+                                                     specBlue),
+                                           power));
+        }
+
+        @Override
+        public void light(double x, double y, double z, double red,
+                          double green, double blue)
+        {
+            lights.add(new Light(new Point(x, y, z),
+                                 new Color(red, green, blue)));
+        }
+
+        @Override
+        public void sphere(double x, double y, double z, double radius,
+                           int material)
+        {
+            store.add(x, y, z, radius, material);
+        }
+
+        @Override
+        public boolean sphereRecords(FileChannel channel, long offset,
+                                     long count) throws IOException
+        {
+            store = SphereStore.map(channel, offset, count,
+                                    store.getMaterials());
+            return true;
+        }
+    }
+
     /**
      * Defines the scene.
      */
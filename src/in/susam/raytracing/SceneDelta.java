@@ -0,0 +1,170 @@
+/*
+ * Scene delta.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes how the spheres of a scene change from one frame of an
+ * animation to the next. Each change moves a sphere, identified by its
+ * position in the collection of spheres of the scene, to a new center
+ * and gives it a new radius.
+ *
+ * <p>A sequence of deltas can be read from a text file in which each
+ * line holds one element. Blank lines and everything after a
+ * <code>#</code> character are ignored, just as in a scene file. The
+ * elements are:</p>
+ * <pre>
+ * frame
+ * move SPHERE X Y Z RADIUS
+ * </pre>
+ * <p>Each <code>frame</code> line starts the delta of a new frame and
+ * the <code>move</code> lines that follow it belong to that delta.</p>
+ *
+ * @author Susam Pal
+ */
+public class SceneDelta
+{
+    /**
+     * Positions of the spheres that move.
+     */
+    private final List<Integer> spheres = new ArrayList<Integer>();
+
+    /**
+     * New centers and radii of the spheres that move. Four values are
+     * stored for each sphere: the X, Y and Z coordinates of the center
+     * followed by the radius.
+     */
+    private final List<double[]> moves = new ArrayList<double[]>();
+
+    /**
+     * Adds a change to this delta.
+     *
+     * @param sphere Position of the sphere in the collection of spheres
+     *               of the scene.
+     * @param x      X coordinate of the new center.
+     * @param y      Y coordinate of the new center.
+     * @param z      Z coordinate of the new center.
+     * @param radius New radius.
+     * @return This delta.
+     */
+    public SceneDelta move(int sphere, double x, double y, double z,
+                           double radius)
+    {
+        spheres.add(sphere);
+        moves.add(new double[] {x, y, z, radius});
+        return this;
+    }
+
+    /**
+     * Returns the number of changes in this delta.
+     *
+     * @return Number of changes.
+     */
+    public int size()
+    {
+        return spheres.size();
+    }
+
+    /**
+     * Returns the position of the sphere of a change.
+     *
+     * @param i Index of the change.
+     * @return Position of the sphere.
+     */
+    int sphere(int i)
+    {
+        return spheres.get(i);
+    }
+
+    /**
+     * Returns the new center and radius of the sphere of a change.
+     *
+     * @param i Index of the change.
+     * @return X, Y and Z coordinates of the center followed by the
+     *         radius.
+     */
+    double[] move(int i)
+    {
+        return moves.get(i);
+    }
+
+    /**
+     * Reads a sequence of deltas from a text file.
+     *
+     * @param file Name of the file.
+     * @return Deltas in the order of the frames.
+     * @throws IOException If the file cannot be read or is invalid.
+     */
+    public static List<SceneDelta> read(String file) throws IOException
+    {
+        List<SceneDelta> deltas = new ArrayList<SceneDelta>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file),
+                                      StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                String[] t = line.split("\\s+");
+                try {
+                    if (t[0].equals("frame") && t.length == 1) {
+                        deltas.add(new SceneDelta());
+                    } else if (t[0].equals("move") && t.length == 6) {
+                        if (deltas.isEmpty()) {
+                            throw new IllegalArgumentException("Element " +
+                                                               "move " +
+                                                               "before " +
+                                                               "frame");
+                        }
+                        deltas.get(deltas.size() - 1).move(
+                                Integer.parseInt(t[1]),
+                                Double.parseDouble(t[2]),
+                                Double.parseDouble(t[3]),
+                                Double.parseDouble(t[4]),
+                                Double.parseDouble(t[5]));
+                    } else {
+                        throw new IllegalArgumentException("Invalid " +
+                                                           "element " +
+                                                           t[0]);
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + number + ": " +
+                                          e.getMessage(), e);
+                }
+            }
+        }
+        return deltas;
+    }
+}
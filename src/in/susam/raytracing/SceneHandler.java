@@ -0,0 +1,111 @@
+/*
+ * Handler for the contents of a scene file.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package in.susam.raytracing;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Receives the contents of a scene file from a {@link SceneReader} one
+ * element at a time, so that a scene can be read without holding the
+ * file in memory. Materials are numbered from 0 in the order in which
+ * they are passed and a sphere refers to its material by this number.
+ * A material is always passed before the spheres that refer to it.
+ *
+ * @author Susam Pal
+ */
+public interface SceneHandler
+{
+    /**
+     * Receives the size of the image.
+     *
+     * @param width  Width of the image.
+     * @param height Height of the image.
+     * @throws IOException If the element cannot be handled.
+     */
+    void size(int width, int height) throws IOException;
+
+    /**
+     * Receives a material.
+     *
+     * @param red        Red component of the diffusion color.
+     * @param green      Green component of the diffusion color.
+     * @param blue       Blue component of the diffusion color.
+     * @param reflection Reflection coefficient.
+     * @param specRed    Red component of the specularity color.
+     * @param specGreen  Green component of the specularity color.
+     * @param specBlue   Blue component of the specularity color.
+     * @param power      Specular power.
+     * @throws IOException If the element cannot be handled.
+     */
+    void material(double red, double green, double blue,
+                  double reflection, double specRed, double specGreen,
+                  double specBlue, double power) throws IOException;
+
+    /**
+     * Receives a light source.
+     *
+     * @param x     X coordinate of the origin.
+     * @param y     Y coordinate of the origin.
+     * @param z     Z coordinate of the origin.
+     * @param red   Red component of the intensity.
+     * @param green Green component of the intensity.
+     * @param blue  Blue component of the intensity.
+     * @throws IOException If the element cannot be handled.
+     */
+    void light(double x, double y, double z, double red, double green,
+               double blue) throws IOException;
+
+    /**
+     * Receives a sphere.
+     *
+     * @param x        X coordinate of the center.
+     * @param y        Y coordinate of the center.
+     * @param z        Z coordinate of the center.
+     * @param radius   Radius.
+     * @param material Number of the material.
+     * @throws IOException If the element cannot be handled.
+     */
+    void sphere(double x, double y, double z, double radius, int material)
+            throws IOException;
+
+    /**
+     * Offers the sphere records of a binary scene file to the handler
+     * as a whole, before they are passed one at a time. A handler that
+     * can use the records where they are in the file, for example by
+     * memory mapping them, returns <code>true</code> and then does not
+     * receive the spheres one at a time. The records have the format
+     * described in {@link SceneReader}. The default implementation
+     * returns <code>false</code>.
+     *
+     * @param channel Channel of the file. It is closed after the file
+     *                has been read.
+     * @param offset  Offset of the first record in the file.
+     * @param count   Number of records.
+     * @return <code>true</code> if the handler has taken the records;
+     *         <code>false</code> otherwise.
+     * @throws IOException If the records cannot be used.
+     */
+    default boolean sphereRecords(FileChannel channel, long offset,
+                                  long count) throws IOException
+    {
+        return false;
+    }
+}
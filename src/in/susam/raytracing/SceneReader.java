@@ -0,0 +1,413 @@
+/*
+ * Scene file reader.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package in.susam.raytracing;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads scene files and passes their contents to a
+ * {@link SceneHandler}. Two formats are supported.
+ *
+ * <p>The text format is meant to be edited by hand. Each line holds one
+ * element. Blank lines and everything after a <code>#</code> character
+ * are ignored. The elements are:</p>
+ * <pre>
+ * size WIDTH HEIGHT
+ * material NAME RED GREEN BLUE REFLECTION SPECRED SPECGREEN SPECBLUE POWER
+ * light X Y Z RED GREEN BLUE
+ * sphere X Y Z RADIUS MATERIAL
+ * </pre>
+ * <p>A sphere refers to a material by its name, and the material must be
+ * defined on an earlier line.</p>
+ *
+ * <p>The binary format is meant for large scenes. All numbers are
+ * little-endian. The file starts with a header of 64 bytes:</p>
+ * <pre>
+ *  0  4 bytes  magic number "RTSC"
+ *  4  int      version, 1
+ *  8  int      width of the image
+ * 12  int      height of the image
+ * 16  long     number of spheres
+ * 24  long     offset of the first sphere
+ * 32  int      number of materials
+ * 36  int      number of light sources
+ * 40  long     offset of the first material
+ * 48  16 bytes reserved, 0
+ * </pre>
+ * <p>Each sphere is a record of 40 bytes that holds the coordinates of
+ * its center and its radius as doubles, followed by the number of its
+ * material as an int and 4 bytes of padding. Each material is a record
+ * of 8 doubles in the order of the arguments of
+ * {@link SceneHandler#material}. The light sources follow the materials
+ * and each is a record of 6 doubles in the order of the arguments of
+ * {@link SceneHandler#light}. The spheres are read directly from the
+ * memory mapped file, so even a very large scene is read without
+ * holding the file in memory. Binary files are written with
+ * {@link SceneWriter}.</p>
+ *
+ * @author Susam Pal
+ */
+public class SceneReader
+{
+    /**
+     * Magic number at the start of a binary scene file. It is the
+     * string "RTSC" read as a little-endian int.
+     */
+    static final int MAGIC = 0x43535452;
+
+    /**
+     * Version of the binary format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Number of bytes in the header of a binary scene file.
+     */
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * Number of bytes in a sphere record.
+     */
+    static final int SPHERE_SIZE = 40;
+
+    /**
+     * Number of bytes in a material record.
+     */
+    static final int MATERIAL_SIZE = 64;
+
+    /**
+     * Number of bytes in a light source record.
+     */
+    static final int LIGHT_SIZE = 48;
+
+    /**
+     * Maximum number of sphere records in one mapped region.
+     */
+    private static final int SPHERES_PER_REGION = (1 << 30) / SPHERE_SIZE;
+
+    /**
+     * Reads a scene file in either format and passes its contents to
+     * the <code>handler</code>. The format is recognized by the magic
+     * number of the binary format.
+     *
+     * @param file    Name of the scene file.
+     * @param handler Handler for the contents of the file.
+     * @throws IOException If the file cannot be read or is invalid.
+     */
+    public static void read(String file, SceneHandler handler)
+            throws IOException
+    {
+        if (isBinary(file)) {
+            readBinary(file, handler);
+        } else {
+            readText(file, handler);
+        }
+    }
+
+    /**
+     * Checks whether a file starts with the magic number of the binary
+     * format.
+     *
+     * @param file Name of the file.
+     * @return <code>true</code> if the file is a binary scene file;
+     *         <code>false</code> otherwise.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isBinary(String file) throws IOException
+    {
+        try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+            ByteBuffer b = ByteBuffer.allocate(4);
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            while (b.hasRemaining()) {
+                if (f.getChannel().read(b) < 0) {
+                    return false;
+                }
+            }
+            return b.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Reads a scene file in the text format.
+     *
+     * @param file    Name of the scene file.
+     * @param handler Handler for the contents of the file.
+     * @throws IOException If the file cannot be read or is invalid.
+     */
+    public static void readText(String file, SceneHandler handler)
+            throws IOException
+    {
+        Map<String, Integer> materials = new HashMap<String, Integer>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file),
+                                      StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                String[] t = line.split("\\s+");
+                try {
+                    readElement(t, materials, handler);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + number + ": " +
+                                          e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an element from the tokens of a line of the text format.
+     *
+     * @param t         Tokens of the line.
+     * @param materials Numbers of the materials defined so far, by name.
+     * @param handler   Handler for the element.
+     * @throws IOException If the handler fails.
+     * @throws IllegalArgumentException If the element is invalid.
+     */
+    private static void readElement(String[] t,
+                                    Map<String, Integer> materials,
+                                    SceneHandler handler)
+            throws IOException
+    {
+        if (t[0].equals("size")) {
+            expect(t, 3);
+            int width = Integer.parseInt(t[1]);
+            int height = Integer.parseInt(t[2]);
+            checkSize(width, height);
+            handler.size(width, height);
+        } else if (t[0].equals("material")) {
+            expect(t, 10);
+            if (materials.containsKey(t[1])) {
+                throw new IllegalArgumentException("Material " + t[1] +
+                                                   " is already defined");
+            }
+            handler.material(number(t[2]), number(t[3]), number(t[4]),
+                             number(t[5]), number(t[6]), number(t[7]),
+                             number(t[8]), number(t[9]));
+            materials.put(t[1], materials.size());
+        } else if (t[0].equals("light")) {
+            expect(t, 7);
+            handler.light(number(t[1]), number(t[2]), number(t[3]),
+                          number(t[4]), number(t[5]), number(t[6]));
+        } else if (t[0].equals("sphere")) {
+            expect(t, 6);
+            Integer material = materials.get(t[5]);
+            if (material == null) {
+                throw new IllegalArgumentException("Material " + t[5] +
+                                                   " is not defined");
+            }
+            handler.sphere(number(t[1]), number(t[2]), number(t[3]),
+                           number(t[4]), material);
+        } else {
+            throw new IllegalArgumentException("Unknown element " + t[0]);
+        }
+    }
+
+    /**
+     * Checks the number of tokens of an element.
+     *
+     * @param t     Tokens of the element.
+     * @param count Expected number of tokens.
+     * @throws IllegalArgumentException If the number is different.
+     */
+    private static void expect(String[] t, int count)
+    {
+        if (t.length != count) {
+            throw new IllegalArgumentException("Element " + t[0] +
+                                               " needs " + (count - 1) +
+                                               " values");
+        }
+    }
+
+    /**
+     * Checks the size of the image of a scene.
+     *
+     * @param width  Width of the image.
+     * @param height Height of the image.
+     * @throws IllegalArgumentException If the width or the height is not
+     *                                  positive.
+     */
+    private static void checkSize(int width, int height)
+    {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Width must be positive: " +
+                                               width);
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("Height must be " +
+                                               "positive: " + height);
+        }
+    }
+
+    /**
+     * Parses a number of an element.
+     *
+     * @param s Token that holds the number.
+     * @return The number.
+     * @throws IllegalArgumentException If the token is not a number.
+     */
+    private static double number(String s)
+    {
+        return Double.parseDouble(s);
+    }
+
+    /**
+     * Reads a scene file in the binary format.
+     *
+     * @param file    Name of the scene file.
+     * @param handler Handler for the contents of the file.
+     * @throws IOException If the file cannot be read or is invalid.
+     */
+    public static void readBinary(String file, SceneHandler handler)
+            throws IOException
+    {
+        try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+            FileChannel channel = f.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(file + ": Truncated header");
+            }
+
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(file + ": Not a binary scene file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(file + ": Unsupported version " +
+                                      header.getInt(4));
+            }
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            long sphereCount = header.getLong(16);
+            long sphereOffset = header.getLong(24);
+            int materialCount = header.getInt(32);
+            int lightCount = header.getInt(36);
+            long tableOffset = header.getLong(40);
+
+            long tableSize = (long) materialCount * MATERIAL_SIZE +
+                             (long) lightCount * LIGHT_SIZE;
+            if (sphereCount < 0 || materialCount < 0 || lightCount < 0 ||
+                sphereOffset < HEADER_SIZE || tableOffset < HEADER_SIZE ||
+                sphereCount > (size - sphereOffset) / SPHERE_SIZE ||
+                tableSize > size - tableOffset ||
+                tableSize > Integer.MAX_VALUE) {
+                throw new IOException(file + ": Truncated or invalid " +
+                                      "file");
+            }
+            try {
+                checkSize(width, height);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": " + e.getMessage(), e);
+            }
+
+            handler.size(width, height);
+
+            ByteBuffer table = map(channel, tableOffset, tableSize);
+            for (int i = 0; i < materialCount; i++) {
+                int p = i * MATERIAL_SIZE;
+                handler.material(table.getDouble(p),
+                                 table.getDouble(p + 8),
+                                 table.getDouble(p + 16),
+                                 table.getDouble(p + 24),
+                                 table.getDouble(p + 32),
+                                 table.getDouble(p + 40),
+                                 table.getDouble(p + 48),
+                                 table.getDouble(p + 56));
+            }
+            for (int i = 0; i < lightCount; i++) {
+                int p = materialCount * MATERIAL_SIZE + i * LIGHT_SIZE;
+                handler.light(table.getDouble(p),
+                              table.getDouble(p + 8),
+                              table.getDouble(p + 16),
+                              table.getDouble(p + 24),
+                              table.getDouble(p + 32),
+                              table.getDouble(p + 40));
+            }
+
+            if (handler.sphereRecords(channel, sphereOffset,
+                                      sphereCount)) {
+                return;
+            }
+
+            // The spheres are mapped in regions of whole records.
+            for (long first = 0; first < sphereCount;
+                 first += SPHERES_PER_REGION) {
+                int count = (int) Math.min(SPHERES_PER_REGION,
+                                           sphereCount - first);
+                ByteBuffer region = map(channel,
+                                        sphereOffset + first * SPHERE_SIZE,
+                                        (long) count * SPHERE_SIZE);
+                for (int i = 0; i < count; i++) {
+                    int p = i * SPHERE_SIZE;
+                    int material = region.getInt(p + 32);
+                    if (material < 0 || material >= materialCount) {
+                        throw new IOException(file + ": Sphere " +
+                                              (first + i) + " refers " +
+                                              "to undefined material " +
+                                              material);
+                    }
+                    handler.sphere(region.getDouble(p),
+                                   region.getDouble(p + 8),
+                                   region.getDouble(p + 16),
+                                   region.getDouble(p + 24), material);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps a region of a file for reading in little-endian order.
+     *
+     * @param channel  Channel of the file.
+     * @param position Offset of the region.
+     * @param size     Size of the region.
+     * @return Mapped region.
+     * @throws IOException If the region cannot be mapped.
+     */
+    private static ByteBuffer map(FileChannel channel, long position,
+                                  long size) throws IOException
+    {
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY,
+                                         position, size);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        return b;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Binary scene file writer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package in.susam.raytracing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import in.susam.util.Logger;
+
+/**
+ * Writes a scene file in the binary format described in
+ * {@link SceneReader}. The contents are passed to this writer through
+ * the methods of {@link SceneHandler}, so a scene file in the text
+ * format can be converted by reading it into a writer. The spheres are
+ * written to the file as they are received. The materials and the light
+ * sources are kept in memory and written after the spheres when the
+ * writer is closed.
+ *
+ * @author Susam Pal
+ */
+public class SceneWriter implements SceneHandler, Closeable
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * The file being written.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * Channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Sphere records waiting to be written.
+     */
+    private final ByteBuffer spheres;
+
+    /**
+     * Material records.
+     */
+    private final List<double[]> materials = new ArrayList<double[]>();
+
+    /**
+     * Light source records.
+     */
+    private final List<double[]> lights = new ArrayList<double[]>();
+
+    /**
+     * Width of the image.
+     */
+    private int width;
+
+    /**
+     * Height of the image.
+     */
+    private int height;
+
+    /**
+     * Number of spheres received.
+     */
+    private long sphereCount;
+
+    /**
+     * Creates the binary scene file <code>outputFile</code>.
+     *
+     * @param outputFile Name of the output scene file.
+     * @throws IOException If the file cannot be created.
+     */
+    public SceneWriter(String outputFile) throws IOException
+    {
+        file = new RandomAccessFile(outputFile, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        channel.position(SceneReader.HEADER_SIZE);
+        spheres = ByteBuffer.allocateDirect(4096 * SceneReader.SPHERE_SIZE);
+        spheres.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes a scene into a binary scene file.
+     *
+     * @param scene      Scene to be written.
+     * @param outputFile Name of the output scene file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Scene scene, String outputFile)
+            throws IOException
+    {
+        try (SceneWriter writer = new SceneWriter(outputFile)) {
+            writer.size(scene.width, scene.height);
+            for (Scene.Light l : scene.lights) {
+                writer.light(l.origin.x, l.origin.y, l.origin.z,
+                             l.intensity.getRed(), l.intensity.getGreen(),
+                             l.intensity.getBlue());
+            }
+
+            Map<Scene.Material, Integer> numbers =
+                    new IdentityHashMap<Scene.Material, Integer>();
+            for (Scene.Sphere s : scene.spheres) {
+                Integer n = numbers.get(s.material);
+                if (n == null) {
+                    Scene.Material m = s.material;
+                    n = numbers.size();
+                    numbers.put(m, n);
+                    writer.material(m.diffusion.getRed(),
+                                    m.diffusion.getGreen(),
+                                    m.diffusion.getBlue(), m.reflection,
+                                    m.specularity.getRed(),
+                                    m.specularity.getGreen(),
+                                    m.specularity.getBlue(), m.power);
+                }
+                writer.sphere(s.center.x, s.center.y, s.center.z,
+                              s.radius, n);
+            }
+        }
+    }
+
+    /**
+     * Converts a scene file into the binary format. The first argument
+     * is the name of the input scene file in either format and the
+     * second argument is the name of the output file.
+     *
+     * @param args Command line arguments.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SceneWriter " +
+                                               "INPUT OUTPUT");
+        }
+        try (SceneWriter writer = new SceneWriter(args[1])) {
+            SceneReader.read(args[0], writer);
+        }
+        logger.log("Converted " + args[0] + " to " + args[1] + ".");
+    }
+
+    @Override
+    public void size(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void material(double red, double green, double blue,
+                         double reflection, double specRed,
+                         double specGreen, double specBlue, double power)
+    {
+        materials.add(new double[] {
+            red, green, blue, reflection, specRed, specGreen, specBlue,
+            power
+        });
+    }
+
+    @Override
+    public void light(double x, double y, double z, double red,
+                      double green, double blue)
+    {
+        lights.add(new double[] {x, y, z, red, green, blue});
+    }
+
+    @Override
+    public void sphere(double x, double y, double z, double radius,
+                       int material) throws IOException
+    {
+        if (material < 0 || material >= materials.size()) {
+            throw new IOException("Sphere " + sphereCount + " refers to " +
+                                  "undefined material " + material);
+        }
+        if (!spheres.hasRemaining()) {
+            flush();
+        }
+        spheres.putDouble(x).putDouble(y).putDouble(z).putDouble(radius);
+        spheres.putInt(material).putInt(0);
+        sphereCount++;
+    }
+
+    /**
+     * Writes the materials, the light sources and the header and closes
+     * the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            flush();
+            long tableOffset = channel.position();
+            ByteBuffer table = ByteBuffer.allocate(
+                    materials.size() * SceneReader.MATERIAL_SIZE +
+                    lights.size() * SceneReader.LIGHT_SIZE);
+            table.order(ByteOrder.LITTLE_ENDIAN);
+            for (double[] record : materials) {
+                for (double d : record) {
+                    table.putDouble(d);
+                }
+            }
+            for (double[] record : lights) {
+                for (double d : record) {
+                    table.putDouble(d);
+                }
+            }
+            table.flip();
+            writeFully(table, tableOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(SceneReader.HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(SceneReader.MAGIC);
+            header.putInt(SceneReader.VERSION);
+            header.putInt(width);
+            header.putInt(height);
+            header.putLong(sphereCount);
+            header.putLong(SceneReader.HEADER_SIZE);
+            header.putInt(materials.size());
+            header.putInt(lights.size());
+            header.putLong(tableOffset);
+            header.position(SceneReader.HEADER_SIZE);
+            header.flip();
+            writeFully(header, 0);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Writes the sphere records waiting in the buffer at the end of the
+     * sphere records in the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    private void flush() throws IOException
+    {
+        spheres.flip();
+        while (spheres.hasRemaining()) {
+            channel.write(spheres);
+        }
+        spheres.clear();
+    }
+
+    /**
+     * Writes the whole content of a buffer at a position in the file.
+     *
+     * @param b        Buffer to be written.
+     * @param position Position in the file.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeFully(ByteBuffer b, long position) throws IOException
+    {
+        while (b.hasRemaining()) {
+            position += channel.write(b, position);
+        }
+    }
+}
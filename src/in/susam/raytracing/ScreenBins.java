@@ -0,0 +1,476 @@
+/*
+ * Screen space bins for primary rays.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Arrays;
+
+/**
+ * An index of the spheres that primary rays can hit in each region of
+ * the image. Every primary ray starts on the camera plane and travels
+ * along the Z axis, so a sphere can be hit only by the rays that start
+ * within the disc obtained by projecting the sphere on the camera
+ * plane. The image is divided into square bins and each bin lists the
+ * spheres whose discs overlap the bin. A primary ray is then tested only
+ * against the spheres listed in the bin in which it starts.
+ *
+ * <p>The spheres of each bin are sorted from front to back by the
+ * nearest distance from the camera plane at which they may be hit, so
+ * that a ray stops testing the spheres of its bin as soon as the
+ * remaining spheres lie beyond the nearest hit found. In a dense scene,
+ * a ray therefore tests only the spheres in front of the first sphere
+ * it hits, as with the hierarchy. The size of the bins is chosen from
+ * the number and the size of the spheres, so that a bin lists about
+ * {@link #TARGET_ENTRIES} spheres on average. A bin that would list
+ * more than {@link #MAX_BIN_ENTRIES} spheres is left empty instead and
+ * the rays that start in it are left to the hierarchy, see
+ * {@link #covers}.</p>
+ *
+ * <p>Each bin holds only the indices of its spheres in the
+ * {@link SphereStore} of the scene, and a {@link SphereKernel} reads the
+ * spheres from the store when it tests them. The bins must be rebuilt
+ * if the spheres of the scene or the size of the image change.</p>
+ *
+ * @author Susam Pal
+ */
+final class ScreenBins
+{
+    /**
+     * Smallest width and height of a bin in pixels.
+     */
+    static final int MIN_BIN_SIZE = 4;
+
+    /**
+     * Largest width and height of a bin in pixels.
+     */
+    static final int MAX_BIN_SIZE = 64;
+
+    /**
+     * Average number of spheres per bin below which the bins are not
+     * made any smaller.
+     */
+    static final int TARGET_ENTRIES = 16;
+
+    /**
+     * Largest number of spheres that a bin lists. The rays that start
+     * in a bin that would list more spheres are traced through the
+     * hierarchy.
+     */
+    static final int MAX_BIN_ENTRIES = 1024;
+
+    /**
+     * Width of the image for which the bins were built.
+     */
+    final int width;
+
+    /**
+     * Height of the image for which the bins were built.
+     */
+    final int height;
+
+    /**
+     * Width and height of a bin in pixels.
+     */
+    final int binSize;
+
+    /**
+     * Z coordinate of the camera plane for which the bins were built.
+     */
+    private final double cameraPosition;
+
+    /**
+     * Number of columns of bins.
+     */
+    private final int columns;
+
+    /**
+     * Number of rows of bins.
+     */
+    private final int rows;
+
+    /**
+     * Kernel that tests the spheres of a bin.
+     */
+    private final SphereKernel kernel;
+
+    /**
+     * Index of the first entry of each bin. The entries of bin
+     * <code>b</code> occupy indices <code>binStart[b]</code> to
+     * <code>binStart[b + 1] - 1</code>.
+     */
+    private final int[] binStart;
+
+    /**
+     * Whether each bin would list more than {@link #MAX_BIN_ENTRIES}
+     * spheres and is left to the hierarchy.
+     */
+    private final boolean[] overfull;
+
+    /**
+     * Store of the spheres of the scene.
+     */
+    private final SphereStore store;
+
+    /**
+     * Position of the sphere of each entry in the sphere store of the
+     * scene.
+     */
+    private final int[] sceneIndex;
+
+    /**
+     * Builds the bins for the spheres of the <code>scene</code>.
+     *
+     * @param scene          Scene.
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance at which a primary ray may
+     *                       hit a sphere.
+     * @param kernel         Kernel that tests the spheres of a bin.
+     */
+    ScreenBins(Scene scene, double cameraPosition, double distance,
+               SphereKernel kernel)
+    {
+        this.kernel = kernel;
+        this.cameraPosition = cameraPosition;
+        width = scene.width;
+        height = scene.height;
+
+        store = scene.getSphereStore();
+        int n = store.size();
+        binSize = binSize(store, cameraPosition, distance, width, height);
+        columns = Math.max(1, (width + binSize - 1) / binSize);
+        rows = Math.max(1, (height + binSize - 1) / binSize);
+
+        // Range of bins overlapped by the disc of each sphere. A sphere
+        // that lies entirely behind the camera or beyond the maximum
+        // distance is not listed in any bin.
+        int[] range = new int[4 * n];
+        long[] counts = new long[columns * rows];
+        for (int i = 0; i < n; i++) {
+            double x = store.x(i);
+            double y = store.y(i);
+            double z = store.z(i);
+            double r = Math.abs(store.radius(i));
+            double pad = 1e-9 * (Math.abs(x) + Math.abs(y) + r + 1.0);
+            if (!isVisible(x, y, z, r, cameraPosition, distance)) {
+                // An empty range of columns.
+                range[4 * i] = 1;
+                range[4 * i + 1] = 0;
+                continue;
+            }
+
+            int x0 = bin(x - r - pad, columns);
+            int x1 = bin(x + r + pad, columns);
+            int y0 = bin(y - r - pad, rows);
+            int y1 = bin(y + r + pad, rows);
+            range[4 * i] = x0;
+            range[4 * i + 1] = x1;
+            range[4 * i + 2] = y0;
+            range[4 * i + 3] = y1;
+
+            for (int by = y0; by <= y1; by++) {
+                for (int bx = x0; bx <= x1; bx++) {
+                    counts[by * columns + bx]++;
+                }
+            }
+        }
+
+        overfull = new boolean[columns * rows];
+        binStart = new int[columns * rows + 1];
+        for (int b = 0; b < columns * rows; b++) {
+            overfull[b] = counts[b] > MAX_BIN_ENTRIES;
+            binStart[b + 1] = binStart[b] + (overfull[b] ? 0 :
+                                             (int) counts[b]);
+        }
+
+        // Each entry is first stored as a key that sorts the entries of
+        // a bin by their nearest distance and then by their position in
+        // the scene.
+        int entries = binStart[columns * rows];
+        long[] keys = new long[entries];
+        int[] next = Arrays.copyOf(binStart, columns * rows);
+        for (int i = 0; i < n; i++) {
+            if (range[4 * i] > range[4 * i + 1]) {
+                continue;
+            }
+            long key = (long) sortable(near(store.z(i), store.radius(i)))
+                       << 32 | i;
+            for (int by = range[4 * i + 2]; by <= range[4 * i + 3]; by++) {
+                for (int bx = range[4 * i]; bx <= range[4 * i + 1]; bx++) {
+                    int b = by * columns + bx;
+                    if (!overfull[b]) {
+                        keys[next[b]++] = key;
+                    }
+                }
+            }
+        }
+
+        for (int b = 0; b < columns * rows; b++) {
+            Arrays.sort(keys, binStart[b], binStart[b + 1]);
+        }
+        sceneIndex = new int[entries];
+        for (int e = 0; e < entries; e++) {
+            sceneIndex[e] = (int) keys[e];
+        }
+    }
+
+    /**
+     * Returns the number of entries in all the bins together.
+     *
+     * @return Number of entries.
+     */
+    int entries()
+    {
+        return sceneIndex.length;
+    }
+
+    /**
+     * Returns the number of bins.
+     *
+     * @return Number of bins.
+     */
+    int bins()
+    {
+        return columns * rows;
+    }
+
+    /**
+     * Returns the number of bins that are left to the hierarchy.
+     *
+     * @return Number of overfull bins.
+     */
+    int overfullBins()
+    {
+        int count = 0;
+        for (boolean b : overfull) {
+            if (b) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the bins can find the hit of a primary ray that
+     * starts at the specified point. If not, the bin in which the ray
+     * starts is overfull and the ray must be traced through the
+     * hierarchy.
+     *
+     * @param fx X coordinate of the origin of the ray.
+     * @param fy Y coordinate of the origin of the ray.
+     * @return <code>true</code> if {@link #closestHit} may be used for
+     *         the ray; <code>false</code> otherwise.
+     */
+    boolean covers(double fx, double fy)
+    {
+        return !overfull[binAt(fx, fy)];
+    }
+
+    /**
+     * Finds the sphere that a primary ray hits first. The result is the
+     * same as that of {@link BoundingVolumeHierarchy#closestHit} for a
+     * ray with direction (0, 0, 1) if the ray starts in a bin that the
+     * bins cover, see {@link #covers}.
+     *
+     * @param fx       X coordinate of the origin of the ray.
+     * @param fy       Y coordinate of the origin of the ray.
+     * @param fz       Z coordinate of the origin of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @param hit      Object in which the result is stored. Its
+     *                 <code>distances</code> array must have room for
+     *                 a whole number of kernel vectors.
+     * @return <code>true</code> if the ray hits a sphere;
+     *         <code>false</code> otherwise.
+     */
+    boolean closestHit(double fx, double fy, double fz, double distance,
+                       BoundingVolumeHierarchy.Hit hit)
+    {
+        hit.distance = distance;
+        hit.index = -1;
+
+        int b = binAt(fx, fy);
+        boolean sorted = fz == cameraPosition;
+        double[] distances = hit.distances;
+        SphereKernel.Batch batch = hit.batch;
+        if (batch == null || batch.capacity() < distances.length) {
+            batch = new SphereKernel.Batch(distances.length, kernel.lanes());
+            hit.batch = batch;
+        }
+        int best = -1;
+        double bestDistance = distance;
+        for (int i = binStart[b]; i < binStart[b + 1];
+             i += distances.length) {
+            // The spheres are sorted by their nearest distance, so none
+            // of the remaining spheres is hit before the best hit found.
+            int s = sceneIndex[i];
+            if (sorted &&
+                near(store.z(s), store.radius(s)) > bestDistance) {
+                break;
+            }
+
+            int n = Math.min(distances.length, binStart[b + 1] - i);
+            hit.tests += n;
+            kernel.intersect(store, sceneIndex, i, n, fx, fy, fz, 0, 0, 1,
+                             bestDistance, distances, batch);
+
+            // Of several equally distant spheres, the one that appears
+            // first in the scene is hit, as in the hierarchy.
+            for (int k = 0; k < n; k++) {
+                double t = distances[k];
+                if (t < bestDistance ||
+                    (t == bestDistance && best >= 0 &&
+                     sceneIndex[i + k] < sceneIndex[best])) {
+                    bestDistance = t;
+                    best = i + k;
+                }
+            }
+        }
+
+        if (best < 0) {
+            return false;
+        }
+
+        hit.distance = bestDistance;
+        hit.index = sceneIndex[best];
+        return true;
+    }
+
+    /**
+     * Returns the bin in which a primary ray starts. Spheres outside the
+     * image are listed in the bins on the edges of the image, so a ray
+     * that starts outside the image starts in the bin on the nearest
+     * edge.
+     *
+     * @param fx X coordinate of the origin of the ray.
+     * @param fy Y coordinate of the origin of the ray.
+     * @return Index of the bin.
+     */
+    private int binAt(double fx, double fy)
+    {
+        return bin(fy, rows) * columns + bin(fx, columns);
+    }
+
+    /**
+     * Returns a lower bound of the distance from the camera plane at
+     * which a primary ray may hit a sphere. The bound is rounded down to
+     * a float, so that it also serves as the sort key of the sphere,
+     * and it is padded well beyond the rounding error of the distances
+     * computed by {@link RayTracer#hitSphere}.
+     *
+     * @param z Z coordinate of the center of the sphere.
+     * @param r Radius of the sphere.
+     * @return Lower bound of the distance of a hit.
+     */
+    private float near(double z, double r)
+    {
+        double d = z - cameraPosition;
+        r = Math.abs(r);
+        double near = d - r - 1e-6 * (Math.abs(d) + r + 1.0);
+        float f = (float) near;
+        return f > near ? Math.nextDown(f) : f;
+    }
+
+    /**
+     * Maps a float to an int such that the ints sort in the same order
+     * as the floats.
+     *
+     * @param f Float that is not NaN.
+     * @return Sortable int.
+     */
+    private static int sortable(float f)
+    {
+        int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * Finds whether a primary ray may hit a sphere, i.e. whether the
+     * sphere lies at least partly between the camera plane and the
+     * maximum distance.
+     *
+     * @param x              X coordinate of the center of the sphere.
+     * @param y              Y coordinate of the center of the sphere.
+     * @param z              Z coordinate of the center of the sphere.
+     * @param r              Absolute value of the radius of the sphere.
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance of a hit.
+     * @return <code>true</code> if a primary ray may hit the sphere;
+     *         <code>false</code> otherwise.
+     */
+    private static boolean isVisible(double x, double y, double z,
+                                     double r, double cameraPosition,
+                                     double distance)
+    {
+        return !Double.isNaN(x) && !Double.isNaN(y) &&
+               z + r >= cameraPosition &&
+               z - r <= cameraPosition + distance;
+    }
+
+    /**
+     * Chooses the size of the bins. Starting from
+     * {@link #MAX_BIN_SIZE}, the size is halved until a bin lists about
+     * {@link #TARGET_ENTRIES} spheres on average or the size reaches
+     * {@link #MIN_BIN_SIZE}. A sphere of radius <i>r</i> overlaps about
+     * (2<i>r</i>/<i>s</i> + 1)<sup>2</sup> bins of size <i>s</i>.
+     *
+     * @param store          Spheres of the scene.
+     * @param cameraPosition Z coordinate of the camera plane.
+     * @param distance       Maximum distance of a hit.
+     * @param width          Width of the image.
+     * @param height         Height of the image.
+     * @return Width and height of a bin in pixels.
+     */
+    private static int binSize(SphereStore store, double cameraPosition,
+                               double distance, int width, int height)
+    {
+        int size = MAX_BIN_SIZE;
+        while (size > MIN_BIN_SIZE) {
+            double entries = 0;
+            for (int i = 0; i < store.size(); i++) {
+                double r = Math.abs(store.radius(i));
+                if (isVisible(store.x(i), store.y(i), store.z(i), r,
+                              cameraPosition, distance)) {
+                    double side = 2 * r / size + 1;
+                    entries += side * side;
+                }
+            }
+            double bins = Math.ceil((double) width / size) *
+                          Math.ceil((double) height / size);
+            if (entries <= TARGET_ENTRIES * bins) {
+                break;
+            }
+            size /= 2;
+        }
+        return size;
+    }
+
+    /**
+     * Computes the bin that contains a coordinate, clamped to the bins
+     * of the image.
+     *
+     * @param c     X or Y coordinate.
+     * @param count Number of bins along the axis.
+     * @return Bin index along the axis.
+     */
+    private int bin(double c, int count)
+    {
+        if (!(c >= 0)) {
+            return 0;
+        }
+        return (int) Math.min(count - 1, Math.floor(c / binSize));
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Ray and sphere intersection kernel.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Arrays;
+import in.susam.util.Logger;
+
+/**
+ * Intersects a ray with a run of spheres stored in structure-of-arrays
+ * form, i.e. the X, Y and Z coordinates of the centers and the radii of
+ * the spheres are stored in separate arrays.
+ *
+ * <p>Two implementations are available. The scalar kernel tests one
+ * sphere at a time with {@link RayTracer#hitSphere}. The vector kernel
+ * in {@link VectorSphereKernel} tests several spheres at a time with
+ * the incubating Vector API. The scalar kernel is used by default,
+ * since gathering the spheres of a leaf for the vector kernel costs more
+ * than it saves on the small leaves of the hierarchy. The vector kernel
+ * is used when the system property <code>raytracer.kernel</code> is set
+ * to <code>vector</code> and the JVM is started with
+ * <code>--add-modules jdk.incubator.vector</code>. Both kernels produce
+ * identical results.</p>
+ *
+ * <p>The arrays passed to a kernel must extend at least
+ * {@link #lanes()} elements beyond the last sphere tested. The extra
+ * elements must either be real spheres or spheres whose centers are
+ * NaN, which no ray hits.</p>
+ *
+ * <p>The spheres of a scene are tested where they lie in its
+ * {@link SphereStore}, by their indices in the store. The vector kernel
+ * reads the records of the spheres it tests into a small {@link Batch}
+ * of arrays that belongs to the calling thread, and the scalar kernel
+ * reads the records one sphere at a time.</p>
+ *
+ * @author Susam Pal
+ */
+abstract class SphereKernel
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Kernel selected for this JVM.
+     */
+    private static final SphereKernel INSTANCE =
+            create(System.getProperty("raytracer.kernel", "scalar"));
+
+    /**
+     * Returns the kernel selected for this JVM.
+     *
+     * @return Kernel.
+     */
+    static SphereKernel getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a kernel. If the vector kernel is requested but the
+     * Vector API is not available, the scalar kernel is returned.
+     *
+     * @param name Either <code>vector</code> or <code>scalar</code>.
+     * @return Kernel.
+     */
+    static SphereKernel create(String name)
+    {
+        if (name.equals("vector")) {
+            try {
+                // The vector kernel is loaded reflectively so that this
+                // class neither needs the jdk.incubator.vector module to
+                // compile nor to run.
+                return (SphereKernel) Class.forName(
+                        "in.susam.raytracing.VectorSphereKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                logger.log("Vector API is not available. Using the " +
+                           "scalar sphere intersection kernel.");
+            }
+        }
+        return new Scalar();
+    }
+
+    /**
+     * Returns the number of spheres tested at a time.
+     *
+     * @return Number of spheres tested at a time.
+     */
+    abstract int lanes();
+
+    /**
+     * Computes, for each of <code>count</code> spheres starting at
+     * index <code>from</code>, the distance between the origin of the
+     * ray and the nearest intersection point that is farther than 0.1
+     * and not farther than <code>distance</code>. The distance is
+     * <code>Double.POSITIVE_INFINITY</code> for a sphere that has no
+     * such intersection point.
+     *
+     * @param cx       X coordinates of the centers of the spheres.
+     * @param cy       Y coordinates of the centers of the spheres.
+     * @param cz       Z coordinates of the centers of the spheres.
+     * @param r        Radii of the spheres.
+     * @param from     Index of the first sphere.
+     * @param count    Number of spheres.
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @param out      Array that receives the distances. Its length
+     *                 must be <code>count</code> rounded up to a
+     *                 multiple of {@link #lanes()}.
+     */
+    abstract void intersect(double[] cx, double[] cy, double[] cz,
+                            double[] r, int from, int count,
+                            double ox, double oy, double oz,
+                            double dx, double dy, double dz,
+                            double distance, double[] out);
+
+    /**
+     * Finds one of <code>count</code> spheres starting at index
+     * <code>from</code> that blocks the ray, i.e. that the ray hits
+     * such that the distance between the intersection point and the
+     * origin of the ray is more than 0.1 and less than
+     * <code>distance</code>. See {@link RayTracer#occludes}.
+     *
+     * @param cx       X coordinates of the centers of the spheres.
+     * @param cy       Y coordinates of the centers of the spheres.
+     * @param cz       Z coordinates of the centers of the spheres.
+     * @param r        Radii of the spheres.
+     * @param from     Index of the first sphere.
+     * @param count    Number of spheres.
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @return Index of a blocking sphere, or -1 if none of the spheres
+     *         blocks the ray. The index may lie beyond the last of the
+     *         <code>count</code> spheres if the arrays hold other
+     *         spheres there.
+     */
+    abstract int occluder(double[] cx, double[] cy, double[] cz,
+                          double[] r, int from, int count,
+                          double ox, double oy, double oz,
+                          double dx, double dy, double dz,
+                          double distance);
+
+    /**
+     * Computes, for each of <code>count</code> spheres of the
+     * <code>store</code> whose indices start at position
+     * <code>from</code> of <code>records</code>, the distance between
+     * the origin of the ray and the nearest intersection point that is
+     * farther than 0.1 and not farther than <code>distance</code>. See
+     * {@link #intersect(double[], double[], double[], double[], int, int,
+     * double, double, double, double, double, double, double, double[])
+     * intersect}.
+     *
+     * @param store    Store of the spheres.
+     * @param records  Indices of spheres in the store.
+     * @param from     Position of the index of the first sphere.
+     * @param count    Number of spheres.
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @param out      Array that receives the distances. Its length
+     *                 must be <code>count</code> rounded up to a
+     *                 multiple of {@link #lanes()}.
+     * @param batch    Arrays with room for <code>count</code> spheres.
+     */
+    void intersect(SphereStore store, int[] records, int from, int count,
+                   double ox, double oy, double oz,
+                   double dx, double dy, double dz,
+                   double distance, double[] out, Batch batch)
+    {
+        batch.load(store, records, from, count);
+        intersect(batch.x, batch.y, batch.z, batch.r, 0, count,
+                  ox, oy, oz, dx, dy, dz, distance, out);
+    }
+
+    /**
+     * Finds one of <code>count</code> spheres of the <code>store</code>
+     * whose indices start at position <code>from</code> of
+     * <code>records</code> that blocks the ray. See
+     * {@link #occluder(double[], double[], double[], double[], int, int,
+     * double, double, double, double, double, double, double) occluder}.
+     *
+     * @param store    Store of the spheres.
+     * @param records  Indices of spheres in the store.
+     * @param from     Position of the index of the first sphere.
+     * @param count    Number of spheres.
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @param batch    Arrays with room for <code>count</code> spheres.
+     * @return Position in <code>records</code> of the index of a
+     *         blocking sphere, or -1 if none of the spheres blocks the
+     *         ray.
+     */
+    int occluder(SphereStore store, int[] records, int from, int count,
+                 double ox, double oy, double oz,
+                 double dx, double dy, double dz,
+                 double distance, Batch batch)
+    {
+        batch.load(store, records, from, count);
+        int k = occluder(batch.x, batch.y, batch.z, batch.r, 0, count,
+                         ox, oy, oz, dx, dy, dz, distance);
+        return k < 0 ? -1 : from + k;
+    }
+
+    /**
+     * Arrays into which the centers and radii of a run of spheres are
+     * read from a sphere store so that a kernel can test them. A batch
+     * must be used by one thread at a time.
+     */
+    static final class Batch
+    {
+        /**
+         * X coordinates of the centers of the spheres.
+         */
+        final double[] x;
+
+        /**
+         * Y coordinates of the centers of the spheres.
+         */
+        final double[] y;
+
+        /**
+         * Z coordinates of the centers of the spheres.
+         */
+        final double[] z;
+
+        /**
+         * Radii of the spheres.
+         */
+        final double[] r;
+
+        /**
+         * Number of spheres tested at a time by the kernel.
+         */
+        private final int lanes;
+
+        /**
+         * Creates a batch with room for the specified number of spheres.
+         *
+         * @param capacity Largest number of spheres in the batch.
+         * @param lanes    Number of spheres tested at a time by the
+         *                 kernel.
+         */
+        Batch(int capacity, int lanes)
+        {
+            this.lanes = lanes;
+            x = new double[capacity + lanes];
+            y = new double[capacity + lanes];
+            z = new double[capacity + lanes];
+            r = new double[capacity + lanes];
+        }
+
+        /**
+         * Returns the largest number of spheres in the batch.
+         *
+         * @return Capacity of the batch.
+         */
+        int capacity()
+        {
+            return x.length - lanes;
+        }
+
+        /**
+         * Reads spheres from a store into the batch. The elements that
+         * follow the spheres up to the next multiple of the number of
+         * lanes are set to NaN, so that a kernel finds no hit there.
+         *
+         * @param store   Store of the spheres.
+         * @param records Indices of spheres in the store.
+         * @param from    Position of the index of the first sphere.
+         * @param count   Number of spheres.
+         */
+        void load(SphereStore store, int[] records, int from, int count)
+        {
+            store.gather(records, from, count, x, y, z, r);
+            int end = (count + lanes - 1) / lanes * lanes;
+            Arrays.fill(x, count, end, Double.NaN);
+            Arrays.fill(y, count, end, Double.NaN);
+            Arrays.fill(z, count, end, Double.NaN);
+            Arrays.fill(r, count, end, Double.NaN);
+        }
+    }
+
+    /**
+     * Kernel that tests one sphere at a time.
+     */
+    private static final class Scalar extends SphereKernel
+    {
+        @Override
+        int lanes()
+        {
+            return 1;
+        }
+
+        @Override
+        void intersect(double[] cx, double[] cy, double[] cz, double[] r,
+                       int from, int count,
+                       double ox, double oy, double oz,
+                       double dx, double dy, double dz,
+                       double distance, double[] out)
+        {
+            for (int k = 0; k < count; k++) {
+                int i = from + k;
+                out[k] = RayTracer.hitSphere(ox, oy, oz, dx, dy, dz,
+                                             cx[i], cy[i], cz[i], r[i],
+                                             distance);
+            }
+        }
+
+        @Override
+        int occluder(double[] cx, double[] cy, double[] cz, double[] r,
+                     int from, int count,
+                     double ox, double oy, double oz,
+                     double dx, double dy, double dz,
+                     double distance)
+        {
+            for (int i = from; i < from + count; i++) {
+                if (RayTracer.occludes(ox, oy, oz, dx, dy, dz,
+                                       cx[i], cy[i], cz[i], r[i],
+                                       distance)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        void intersect(SphereStore store, int[] records, int from,
+                       int count, double ox, double oy, double oz,
+                       double dx, double dy, double dz,
+                       double distance, double[] out, Batch batch)
+        {
+            for (int k = 0; k < count; k++) {
+                int s = records[from + k];
+                out[k] = RayTracer.hitSphere(ox, oy, oz, dx, dy, dz,
+                                             store.x(s), store.y(s),
+                                             store.z(s), store.radius(s),
+                                             distance);
+            }
+        }
+
+        @Override
+        int occluder(SphereStore store, int[] records, int from, int count,
+                     double ox, double oy, double oz,
+                     double dx, double dy, double dz,
+                     double distance, Batch batch)
+        {
+            for (int i = from; i < from + count; i++) {
+                int s = records[i];
+                if (RayTracer.occludes(ox, oy, oz, dx, dy, dz,
+                                       store.x(s), store.y(s), store.z(s),
+                                       store.radius(s), distance)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Off-heap sphere storage.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package in.susam.raytracing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the spheres of a scene outside the Java heap. Each sphere is a
+ * packed record of 40 bytes that holds the coordinates of its center
+ * and its radius as doubles, followed by the number of its material as
+ * an int and 4 bytes of padding, in little-endian order. This is the
+ * same record as in a binary scene file, so the spheres of such a file
+ * are used directly from the memory mapped file. Otherwise, they are
+ * kept in direct buffers. The materials are kept in a table that is
+ * shared by all the spheres.
+ *
+ * <p>The records are held in chunks of at most 2<sup>20</sup> records
+ * so that no buffer is larger than a buffer can be. A scene with 100
+ * million spheres occupies 4 GB outside the heap and no objects on the
+ * heap. The spheres are traced where they lie in the store, and the
+ * {@link BoundingVolumeHierarchy} over them adds about 28 bytes per
+ * sphere on the heap for its nodes in a scene with a million spheres,
+ * and about 75 bytes per sphere in a scene with fewer than
+ * 2<sup>18</sup> spheres, whose leaves are smaller.</p>
+ *
+ * @author Susam Pal
+ */
+public final class SphereStore
+{
+    /**
+     * Number of bytes in a sphere record.
+     */
+    static final int RECORD_SIZE = SceneReader.SPHERE_SIZE;
+
+    /**
+     * Base 2 logarithm of the number of records in a full chunk.
+     */
+    private static final int CHUNK_BITS = 20;
+
+    /**
+     * Number of records in a full chunk.
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * Mask that selects the position of a record in its chunk.
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Chunks of records. Every chunk except the last one is full.
+     */
+    private ByteBuffer[] chunks;
+
+    /**
+     * Number of spheres.
+     */
+    private int size;
+
+    /**
+     * Whether spheres may be added to or moved in this store.
+     */
+    private final boolean writable;
+
+    /**
+     * Table of materials.
+     */
+    private final List<Scene.Material> materials;
+
+    /**
+     * Creates an empty store to which spheres may be added.
+     */
+    public SphereStore()
+    {
+        chunks = new ByteBuffer[0];
+        writable = true;
+        materials = new ArrayList<Scene.Material>();
+    }
+
+    /**
+     * Creates a store with a copy of the specified <code>spheres</code>.
+     * The materials of the spheres are added to the table of materials
+     * in the order in which they are first used.
+     *
+     * @param spheres Spheres to be copied.
+     */
+    public SphereStore(Collection<Scene.Sphere> spheres)
+    {
+        this();
+        Map<Scene.Material, Integer> numbers =
+                new IdentityHashMap<Scene.Material, Integer>();
+        for (Scene.Sphere s : spheres) {
+            Integer n = numbers.get(s.material);
+            if (n == null) {
+                n = addMaterial(s.material);
+                numbers.put(s.material, n);
+            }
+            add(s.center.x, s.center.y, s.center.z, s.radius, n);
+        }
+    }
+
+    /**
+     * Creates a read-only store over chunks of records that already
+     * exist.
+     *
+     * @param chunks    Chunks of records.
+     * @param size      Number of spheres.
+     * @param materials Table of materials.
+     */
+    private SphereStore(ByteBuffer[] chunks, int size,
+                        List<Scene.Material> materials)
+    {
+        this.chunks = chunks;
+        this.size = size;
+        this.writable = false;
+        this.materials = materials;
+    }
+
+    /**
+     * Creates a read-only store over sphere records in a file. The
+     * records are memory mapped and are not copied.
+     *
+     * @param channel   Channel of the file.
+     * @param offset    Offset of the first record in the file.
+     * @param count     Number of records.
+     * @param materials Table of materials.
+     * @return Store over the records.
+     * @throws IOException If the records cannot be mapped or refer to a
+     *                     material that is not in the table.
+     */
+    static SphereStore map(FileChannel channel, long offset, long count,
+                           List<Scene.Material> materials)
+            throws IOException
+    {
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("Too many spheres: " + count);
+        }
+
+        int size = (int) count;
+        ByteBuffer[] chunks = new ByteBuffer[(size + CHUNK_MASK) >>>
+                                             CHUNK_BITS];
+        for (int c = 0; c < chunks.length; c++) {
+            int records = Math.min(CHUNK_SIZE, size - (c << CHUNK_BITS));
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                    offset + ((long) c << CHUNK_BITS) *
+                                             RECORD_SIZE,
+                                    (long) records * RECORD_SIZE);
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        SphereStore store = new SphereStore(chunks, size, materials);
+        for (int i = 0; i < size; i++) {
+            int material = store.material(i);
+            if (material < 0 || material >= materials.size()) {
+                throw new IOException("Sphere " + i + " refers to " +
+                                      "undefined material " + material);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Returns the number of spheres.
+     *
+     * @return Number of spheres.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the X coordinate of the center of a sphere.
+     *
+     * @param i Index of the sphere.
+     * @return X coordinate of the center.
+     */
+    public double x(int i)
+    {
+        return chunks[i >>> CHUNK_BITS].getDouble((i & CHUNK_MASK) *
+                                                  RECORD_SIZE);
+    }
+
+    /**
+     * Returns the Y coordinate of the center of a sphere.
+     *
+     * @param i Index of the sphere.
+     * @return Y coordinate of the center.
+     */
+    public double y(int i)
+    {
+        return chunks[i >>> CHUNK_BITS].getDouble((i & CHUNK_MASK) *
+                                                  RECORD_SIZE + 8);
+    }
+
+    /**
+     * Returns the Z coordinate of the center of a sphere.
+     *
+     * @param i Index of the sphere.
+     * @return Z coordinate of the center.
+     */
+    public double z(int i)
+    {
+        return chunks[i >>> CHUNK_BITS].getDouble((i & CHUNK_MASK) *
+                                                  RECORD_SIZE + 16);
+    }
+
+    /**
+     * Returns the radius of a sphere.
+     *
+     * @param i Index of the sphere.
+     * @return Radius.
+     */
+    public double radius(int i)
+    {
+        return chunks[i >>> CHUNK_BITS].getDouble((i & CHUNK_MASK) *
+                                                  RECORD_SIZE + 24);
+    }
+
+    /**
+     * Reads the centers and radii of several spheres into arrays. The
+     * sphere at position <code>from + k</code> of <code>records</code>
+     * is read into element <code>k</code> of each array.
+     *
+     * @param records Indices of spheres.
+     * @param from    Position of the first index in
+     *                <code>records</code>.
+     * @param count   Number of spheres.
+     * @param x       Array that receives the X coordinates.
+     * @param y       Array that receives the Y coordinates.
+     * @param z       Array that receives the Z coordinates.
+     * @param r       Array that receives the radii.
+     */
+    void gather(int[] records, int from, int count,
+                double[] x, double[] y, double[] z, double[] r)
+    {
+        for (int k = 0; k < count; k++) {
+            int i = records[from + k];
+            ByteBuffer chunk = chunks[i >>> CHUNK_BITS];
+            int offset = (i & CHUNK_MASK) * RECORD_SIZE;
+            x[k] = chunk.getDouble(offset);
+            y[k] = chunk.getDouble(offset + 8);
+            z[k] = chunk.getDouble(offset + 16);
+            r[k] = chunk.getDouble(offset + 24);
+        }
+    }
+
+    /**
+     * Returns the number of the material of a sphere in the table of
+     * materials.
+     *
+     * @param i Index of the sphere.
+     * @return Number of the material.
+     */
+    public int material(int i)
+    {
+        return chunks[i >>> CHUNK_BITS].getInt((i & CHUNK_MASK) *
+                                               RECORD_SIZE + 32);
+    }
+
+    /**
+     * Returns the table of materials. The table must not be modified
+     * except through {@link #addMaterial}.
+     *
+     * @return Table of materials.
+     */
+    public List<Scene.Material> getMaterials()
+    {
+        return materials;
+    }
+
+    /**
+     * Adds a material to the table of materials.
+     *
+     * @param material Material to be added.
+     * @return Number of the material.
+     */
+    public int addMaterial(Scene.Material material)
+    {
+        materials.add(material);
+        return materials.size() - 1;
+    }
+
+    /**
+     * Adds a sphere.
+     *
+     * @param x        X coordinate of the center.
+     * @param y        Y coordinate of the center.
+     * @param z        Z coordinate of the center.
+     * @param radius   Radius.
+     * @param material Number of the material.
+     * @throws IllegalStateException If the store is read-only.
+     * @throws IllegalArgumentException If the material is not in the
+     *                                  table.
+     */
+    public void add(double x, double y, double z, double radius,
+                    int material)
+    {
+        if (!writable) {
+            throw new IllegalStateException("Sphere store is read-only");
+        }
+        if (material < 0 || material >= materials.size()) {
+            throw new IllegalArgumentException("Undefined material " +
+                                               material);
+        }
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sphere store is full");
+        }
+
+        int c = size >>> CHUNK_BITS;
+        int p = (size & CHUNK_MASK) * RECORD_SIZE;
+        if (c == chunks.length) {
+            chunks = Arrays.copyOf(chunks, c + 1);
+            chunks[c] = allocate(64);
+        } else if (p == chunks[c].capacity()) {
+            // The last chunk grows by doubling until it is full size.
+            ByteBuffer b = allocate(2 * p / RECORD_SIZE);
+            b.put(chunks[c].duplicate().clear());
+            chunks[c] = b;
+        }
+
+        ByteBuffer chunk = chunks[c];
+        chunk.putDouble(p, x);
+        chunk.putDouble(p + 8, y);
+        chunk.putDouble(p + 16, z);
+        chunk.putDouble(p + 24, radius);
+        chunk.putInt(p + 32, material);
+        size++;
+    }
+
+    /**
+     * Moves a sphere and changes its radius. The structures built over
+     * the spheres must be rebuilt afterwards, e.g. with
+     * {@link Scene#spheresChanged}.
+     *
+     * @param i      Index of the sphere.
+     * @param x      X coordinate of the new center.
+     * @param y      Y coordinate of the new center.
+     * @param z      Z coordinate of the new center.
+     * @param radius New radius.
+     * @throws IllegalStateException If the store is read-only.
+     */
+    public void move(int i, double x, double y, double z, double radius)
+    {
+        if (!writable) {
+            throw new IllegalStateException("Sphere store is read-only");
+        }
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("No sphere " + i);
+        }
+
+        ByteBuffer chunk = chunks[i >>> CHUNK_BITS];
+        int p = (i & CHUNK_MASK) * RECORD_SIZE;
+        chunk.putDouble(p, x);
+        chunk.putDouble(p + 8, y);
+        chunk.putDouble(p + 16, z);
+        chunk.putDouble(p + 24, radius);
+    }
+
+    /**
+     * Returns whether spheres may be added to or moved in this store.
+     *
+     * @return <code>true</code> if the store is writable;
+     *         <code>false</code> if it is read-only.
+     */
+    public boolean isWritable()
+    {
+        return writable;
+    }
+
+    /**
+     * Copies the spheres and the materials of this store into a new
+     * writable store.
+     *
+     * @return Copy of this store.
+     */
+    public SphereStore copy()
+    {
+        SphereStore s = new SphereStore();
+        s.materials.addAll(materials);
+        for (int i = 0; i < size; i++) {
+            s.add(x(i), y(i), z(i), radius(i), material(i));
+        }
+        return s;
+    }
+
+    /**
+     * Returns a read-only view of the spheres of this store as objects.
+     * A new object is created each time a sphere is read from the view,
+     * so it should be used only by code that needs the spheres as
+     * objects, for example to list them.
+     *
+     * @param scene Scene to which the spheres belong.
+     * @return List of spheres.
+     */
+    public List<Scene.Sphere> asList(Scene scene)
+    {
+        return new SphereList(scene);
+    }
+
+    /**
+     * Allocates a direct buffer for the specified number of records.
+     *
+     * @param records Number of records.
+     * @return Buffer in little-endian order.
+     */
+    private static ByteBuffer allocate(int records)
+    {
+        ByteBuffer b = ByteBuffer.allocateDirect(records * RECORD_SIZE);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        return b;
+    }
+
+    /**
+     * Read-only view of the spheres of the store.
+     */
+    final class SphereList extends AbstractList<Scene.Sphere>
+    {
+        /**
+         * Scene to which the spheres belong.
+         */
+        private final Scene scene;
+
+        /**
+         * Creates an instance of this class.
+         *
+         * @param scene Scene to which the spheres belong.
+         */
+        SphereList(Scene scene)
+        {
+            this.scene = scene;
+        }
+
+        /**
+         * Returns the store of which this list is a view.
+         *
+         * @return Sphere store.
+         */
+        SphereStore store()
+        {
+            return SphereStore.this;
+        }
+
+        @Override
+        public Scene.Sphere get(int i)
+        {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("Index: " + i);
+            }
+            return scene.new Sphere(new Point(x(i), y(i), z(i)),
+                                    radius(i),
+                                    materials.get(material(i)));
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+}
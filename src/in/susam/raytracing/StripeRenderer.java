@@ -0,0 +1,271 @@
+/*
+ * Stripe renderer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Traces an image of any size in memory of bounded size. The image is
+ * divided into horizontal bands of rows. Each band is traced in tiles
+ * by a {@link TileRenderer} into a buffer and then written into a
+ * {@link PPMWriter}. The bands are written from the top of the image
+ * to the bottom, which is the order of the rows in a PPM file.
+ *
+ * <p>Up to {@link RenderSettings#maxBands} bands are traced at the same
+ * time, so threads that finish the tiles of one band go on with the
+ * next band while the slowest tiles of the first band are traced. A
+ * band is written as soon as it and all the bands above it are
+ * complete, and its buffer is then reused for the next band. Therefore,
+ * no more than <code>maxBands</code> buffers are ever held in memory,
+ * however large the image is.</p>
+ *
+ * @author Susam Pal
+ */
+final class StripeRenderer
+{
+    /**
+     * Scene to be traced.
+     */
+    private final Scene scene;
+
+    /**
+     * Settings for the render.
+     */
+    private final RenderSettings settings;
+
+    /**
+     * Monitor that follows the progress of the render.
+     */
+    private final RenderMonitor monitor;
+
+    /**
+     * Renderer that traces the tiles of the bands.
+     */
+    private final TileRenderer renderer;
+
+    /**
+     * Number of rows in a band.
+     */
+    private final int bandHeight;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param scene      Scene to be traced.
+     * @param settings   Settings for the render.
+     * @param statistics Statistics to which the work done by the render
+     *                   is added.
+     * @param monitor    Monitor that follows the progress of the render.
+     */
+    StripeRenderer(Scene scene, RenderSettings settings,
+                   RenderStatistics statistics, RenderMonitor monitor)
+    {
+        this.scene = scene;
+        this.settings = settings;
+        this.monitor = monitor;
+        renderer = new TileRenderer(scene, settings, statistics, monitor,
+                                    null);
+
+        // A band holds a whole number of tiles, and a single row of
+        // pixels must fit in one buffer.
+        int rows = Math.max(settings.tileSize, settings.bandHeight);
+        rows -= rows % settings.tileSize;
+        bandHeight = (int) Math.max(1, Math.min(rows, Integer.MAX_VALUE /
+                                                      (3L * Math.max(1,
+                                                      scene.width))));
+    }
+
+    /**
+     * Returns the number of rows in a band.
+     *
+     * @return Number of rows.
+     */
+    int bandHeight()
+    {
+        return bandHeight;
+    }
+
+    /**
+     * Traces every band of the image and writes it into the
+     * <code>writer</code>.
+     *
+     * @param writer Writer for the output image.
+     * @throws IOException If a band cannot be written.
+     * @throws java.util.concurrent.CancellationException If the render
+     *                                                    is cancelled.
+     */
+    void render(PPMWriter writer) throws IOException
+    {
+        int width = scene.width;
+        int height = scene.height;
+        int bands = (int) (((long) height + bandHeight - 1) / bandHeight);
+
+        long columns = ((long) width + settings.tileSize - 1) /
+                       settings.tileSize;
+        long tileRows = 0;
+        for (int b = 0; b < bands; b++) {
+            int rows = Math.min(bandHeight, height - b * bandHeight);
+            tileRows += (rows + settings.tileSize - 1) / settings.tileSize;
+        }
+        monitor.start(columns * tileRows);
+
+        ForkJoinPool pool = settings.threads > 1 ?
+                new ForkJoinPool(settings.threads) : null;
+        int limit = pool == null ? 1 : Math.max(1, settings.maxBands);
+        ArrayDeque<Band> pending = new ArrayDeque<Band>();
+        ArrayDeque<Band> free = new ArrayDeque<Band>();
+        try {
+            for (int b = 0; b < bands; b++) {
+                if (pending.size() == limit) {
+                    free.add(write(pending.poll(), writer));
+                }
+
+                Band band = free.isEmpty() ? new Band(width, bandHeight) :
+                                             free.poll();
+                int rows = Math.min(bandHeight, height - b * bandHeight);
+                band.start(height - b * bandHeight - rows, rows);
+
+                List<Tile> tiles = band.tiles(settings.tileSize);
+                if (pool == null) {
+                    renderer.renderTiles(tiles, band, null);
+                } else {
+                    band.task = pool.submit(() ->
+                            renderer.renderTiles(tiles, band, pool));
+                }
+                pending.add(band);
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), writer);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Waits until a band is traced and writes it.
+     *
+     * @param band   Band to be written.
+     * @param writer Writer for the output image.
+     * @return The band, whose buffer may be reused.
+     * @throws IOException If the band cannot be written.
+     */
+    private Band write(Band band, PPMWriter writer) throws IOException
+    {
+        if (band.task != null) {
+            band.task.join();
+            band.task = null;
+        }
+        monitor.checkCancelled();
+        writer.writeRows(band.pixels, 0, band.rows);
+        return band;
+    }
+
+    /**
+     * A band of rows of the image held in memory while it is traced.
+     * The rows are stored from the top of the band to the bottom in the
+     * form written by {@link PPMWriter#writeRows}.
+     */
+    private static final class Band implements PixelWriter
+    {
+        /**
+         * Width of the image.
+         */
+        private final int width;
+
+        /**
+         * Red, green and blue bytes of the pixels.
+         */
+        final byte[] pixels;
+
+        /**
+         * Y coordinate of the lowest row of the band.
+         */
+        int y;
+
+        /**
+         * Number of rows in the band.
+         */
+        int rows;
+
+        /**
+         * Task that traces the band, or <code>null</code> if the band is
+         * traced on the calling thread.
+         */
+        ForkJoinTask<?> task;
+
+        /**
+         * Creates an instance of this class.
+         *
+         * @param width  Width of the image.
+         * @param height Maximum number of rows in the band.
+         */
+        Band(int width, int height)
+        {
+            this.width = width;
+            pixels = new byte[3 * width * height];
+        }
+
+        /**
+         * Places the band on the specified rows of the image.
+         *
+         * @param y    Y coordinate of the lowest row.
+         * @param rows Number of rows.
+         */
+        void start(int y, int rows)
+        {
+            this.y = y;
+            this.rows = rows;
+        }
+
+        /**
+         * Splits the band into tiles.
+         *
+         * @param tileSize Width and height of a tile.
+         * @return Tiles covering the band.
+         */
+        List<Tile> tiles(int tileSize)
+        {
+            List<Tile> tiles = new ArrayList<Tile>();
+            for (Tile t : Tile.split(width, rows, tileSize)) {
+                tiles.add(new Tile(t.index, t.x, y + t.y, t.width,
+                                   t.height));
+            }
+            return tiles;
+        }
+
+        @Override
+        public void setPixel(int x, int y, double red, double green,
+                             double blue)
+        {
+            // Y coordinates increase towards the top of the image.
+            int offset = 3 * ((this.y + rows - 1 - y) * width + x);
+            pixels[offset] = Color.toByte(red);
+            pixels[offset + 1] = Color.toByte(green);
+            pixels[offset + 2] = Color.toByte(blue);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Tile of an image.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a rectangular region of the image that is traced as one
+ * unit of work.
+ *
+ * @author Susam Pal
+ */
+public class Tile
+{
+    /**
+     * Index of the tile in the list of tiles of the image.
+     */
+    public final int index;
+
+    /**
+     * X coordinate of the left column of pixels in the tile.
+     */
+    public final int x;
+
+    /**
+     * Y coordinate of the first row of pixels in the tile.
+     */
+    public final int y;
+
+    /**
+     * Width of the tile in pixels.
+     */
+    public final int width;
+
+    /**
+     * Height of the tile in pixels.
+     */
+    public final int height;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param index  Index of the tile.
+     * @param x      X coordinate of the left column of the tile.
+     * @param y      Y coordinate of the first row of the tile.
+     * @param width  Width of the tile.
+     * @param height Height of the tile.
+     */
+    public Tile(int index, int x, int y, int width, int height)
+    {
+        this.index = index;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Splits an image into square tiles of the specified size. Tiles on
+     * the right and top edges of the image are clipped to the image.
+     * The tiles are returned in row-major order.
+     *
+     * @param width    Width of the image.
+     * @param height   Height of the image.
+     * @param tileSize Width and height of a tile.
+     * @return List of tiles covering the image.
+     */
+    public static List<Tile> split(int width, int height, int tileSize)
+    {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be " +
+                                               "positive: " + tileSize);
+        }
+
+        List<Tile> tiles = new ArrayList<Tile>();
+        for (int y = 0; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize) {
+                tiles.add(new Tile(tiles.size(), x, y,
+                                   Math.min(tileSize, width - x),
+                                   Math.min(tileSize, height - y)));
+            }
+        }
+        return tiles;
+    }
+}
@@ -0,0 +1,582 @@
+/*
+ * Tile coordinator.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import in.susam.util.Logger;
+
+/**
+ * Hands out the tiles of an image to {@link RenderWorker} processes and
+ * assembles their pixels into the image. Workers may connect at any
+ * time during the render on the port given by
+ * {@link RenderSettings#workerPort}. Each worker receives the scene in
+ * the binary scene format once, and then up to
+ * {@link #TILES_PER_THREAD} tiles per thread at a time, so that it
+ * never waits for the next tile.
+ *
+ * <p>If the connection to a worker fails, the tiles assigned to it are
+ * put back at the front of the queue. When the queue is empty, a worker
+ * that has no work is given a copy of a tile that another worker has
+ * been tracing for more than {@link #SLOW_TILE_FACTOR} times the
+ * average time of a tile, so that a slow or hung worker does not hold
+ * up the render. The first copy of a tile to arrive is used and later
+ * copies are ignored.</p>
+ *
+ * @author Susam Pal
+ */
+final class TileCoordinator
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Number of tiles assigned to each thread of a worker at a time.
+     */
+    static final int TILES_PER_THREAD = 2;
+
+    /**
+     * Multiple of the average time of a tile after which a tile is
+     * given to another worker as well.
+     */
+    static final double SLOW_TILE_FACTOR = 4.0;
+
+    /**
+     * Interval in milliseconds at which idle workers and the render look
+     * for work and for the end of the render.
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    /**
+     * Scene to be traced.
+     */
+    private final Scene scene;
+
+    /**
+     * Settings for the render.
+     */
+    private final RenderSettings settings;
+
+    /**
+     * Statistics to which the work done by the workers is added.
+     */
+    private final RenderStatistics statistics;
+
+    /**
+     * Monitor that follows the progress of the render.
+     */
+    private final RenderMonitor monitor;
+
+    /**
+     * Tiles of the image.
+     */
+    private final List<Tile> tiles;
+
+    /**
+     * Tiles that are not assigned to any worker and not complete.
+     */
+    private final ArrayDeque<Tile> queue = new ArrayDeque<Tile>();
+
+    /**
+     * Whether each tile is complete.
+     */
+    private final boolean[] done;
+
+    /**
+     * Number of workers to which each tile is assigned.
+     */
+    private final int[] copies;
+
+    /**
+     * Time in nanoseconds at which each tile was first assigned to a
+     * worker that is still tracing it.
+     */
+    private final long[] assigned;
+
+    /**
+     * Connections to the workers.
+     */
+    private final List<Connection> connections = new ArrayList<Connection>();
+
+    /**
+     * Number of tiles that are not complete.
+     */
+    private int remaining;
+
+    /**
+     * Number of tiles whose time has been measured.
+     */
+    private long timedTiles;
+
+    /**
+     * Total time of the tiles whose time has been measured in
+     * nanoseconds.
+     */
+    private long tileTime;
+
+    /**
+     * Whether the render has ended.
+     */
+    private boolean finished;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param scene      Scene to be traced.
+     * @param settings   Settings for the render.
+     * @param statistics Statistics to which the work done by the
+     *                   workers is added.
+     * @param monitor    Monitor that follows the progress of the render.
+     */
+    TileCoordinator(Scene scene, RenderSettings settings,
+                    RenderStatistics statistics, RenderMonitor monitor)
+    {
+        this.scene = scene;
+        this.settings = settings;
+        this.statistics = statistics;
+        this.monitor = monitor;
+        tiles = Tile.split(scene.width, scene.height, settings.tileSize);
+        done = new boolean[tiles.size()];
+        copies = new int[tiles.size()];
+        assigned = new long[tiles.size()];
+    }
+
+    /**
+     * Traces every tile of the image on the workers and writes each
+     * pixel into the <code>writer</code>. This method returns when every
+     * tile is complete.
+     *
+     * @param writer Writer for the output image.
+     * @throws IOException If the port cannot be opened or the scene
+     *                     cannot be serialized.
+     * @throws CancellationException If the render is cancelled.
+     */
+    void render(PixelWriter writer) throws IOException
+    {
+        // The workers receive the scene in the binary format, which
+        // holds the spheres as compact records.
+        Path file = Files.createTempFile("scene", ".rtsc");
+        byte[] sceneBytes;
+        try {
+            SceneWriter.write(scene, file.toString());
+            sceneBytes = Files.readAllBytes(file);
+        } finally {
+            Files.delete(file);
+        }
+
+        synchronized (this) {
+            queue.addAll(tiles);
+            remaining = tiles.size();
+        }
+        monitor.start(tiles.size());
+
+        try (ServerSocket server = new ServerSocket(settings.workerPort)) {
+            logger.log("Waiting for workers on port " +
+                       server.getLocalPort() + " to trace " +
+                       tiles.size() + " tiles.");
+            Thread acceptor = new Thread(() -> accept(server, sceneBytes,
+                                                      writer),
+                                         "Tile coordinator");
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            synchronized (this) {
+                while (remaining > 0 && !monitor.isCancelled()) {
+                    wait(POLL_INTERVAL);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Render interrupted");
+        } finally {
+            finish();
+        }
+        monitor.checkCancelled();
+    }
+
+    /**
+     * Accepts the connections of workers until the render ends.
+     *
+     * @param server     Socket on which the workers connect.
+     * @param sceneBytes Scene in the binary scene format.
+     * @param writer     Writer for the output image.
+     */
+    private void accept(ServerSocket server, byte[] sceneBytes,
+                        PixelWriter writer)
+    {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                // The socket is closed when the render ends.
+                return;
+            }
+            Connection connection = new Connection(socket);
+            synchronized (this) {
+                if (finished) {
+                    connection.close();
+                    return;
+                }
+                connections.add(connection);
+            }
+            Thread thread = new Thread(() -> connection.serve(sceneBytes,
+                                                              writer),
+                                       "Worker " + connection.name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Ends the render and tells every worker that it has ended.
+     */
+    private void finish()
+    {
+        List<Connection> c;
+        synchronized (this) {
+            finished = true;
+            c = new ArrayList<Connection>(connections);
+            notifyAll();
+        }
+        for (Connection connection : c) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Assigns tiles to a worker until it has as many as it may hold.
+     * Tiles are taken from the queue, or copied from slow workers when
+     * the queue is empty. This method must be called with the lock of
+     * this object held.
+     *
+     * @param connection Connection to the worker.
+     * @return Tiles newly assigned to the worker.
+     */
+    private List<Tile> assign(Connection connection)
+    {
+        List<Tile> batch = new ArrayList<Tile>();
+        long now = System.nanoTime();
+        while (!finished &&
+               connection.outstanding.size() < connection.capacity) {
+            Tile tile = queue.pollFirst();
+            if (tile == null) {
+                tile = slowTile(connection, now);
+                if (tile == null) {
+                    break;
+                }
+            } else if (done[tile.index]) {
+                continue;
+            }
+            if (copies[tile.index]++ == 0) {
+                assigned[tile.index] = now;
+            }
+            connection.outstanding.put(tile.index, now);
+            batch.add(tile);
+        }
+        return batch;
+    }
+
+    /**
+     * Finds the tile that has been traced by a single worker for the
+     * longest time, if that time exceeds {@link #SLOW_TILE_FACTOR}
+     * times the average time of a tile. This method must be called with
+     * the lock of this object held.
+     *
+     * @param connection Connection to the worker that would trace a
+     *                   copy of the tile.
+     * @param now        Current time in nanoseconds.
+     * @return Tile, or <code>null</code> if no tile is slow.
+     */
+    private Tile slowTile(Connection connection, long now)
+    {
+        if (timedTiles == 0) {
+            return null;
+        }
+        double limit = SLOW_TILE_FACTOR * tileTime / timedTiles;
+        Tile slowest = null;
+        for (Tile tile : tiles) {
+            int i = tile.index;
+            if (!done[i] && copies[i] == 1 &&
+                !connection.outstanding.containsKey(i) &&
+                now - assigned[i] > limit &&
+                (slowest == null || assigned[i] < assigned[slowest.index])) {
+                slowest = tile;
+            }
+        }
+        return slowest;
+    }
+
+    /**
+     * Writes the pixels of a tile into the image unless another copy of
+     * the tile has already been written.
+     *
+     * @param connection Connection to the worker that traced the tile.
+     * @param tile       Tile.
+     * @param pixels     Red, green and blue bytes of the pixels of the
+     *                   tile, row by row from the bottom.
+     * @param writer     Writer for the output image.
+     */
+    private void complete(Connection connection, Tile tile, byte[] pixels,
+                          PixelWriter writer)
+    {
+        long nanos;
+        synchronized (this) {
+            nanos = System.nanoTime() -
+                    connection.outstanding.remove(tile.index);
+            copies[tile.index]--;
+            if (done[tile.index]) {
+                return;
+            }
+        }
+
+        for (int y = 0, i = 0; y < tile.height; y++) {
+            for (int x = 0; x < tile.width; x++, i += 3) {
+                // The middle of the interval of each byte survives the
+                // truncation in Color.toByte.
+                writer.setPixel(tile.x + x, tile.y + y,
+                                ((pixels[i] & 0xff) + 0.5) / 255,
+                                ((pixels[i + 1] & 0xff) + 0.5) / 255,
+                                ((pixels[i + 2] & 0xff) + 0.5) / 255);
+            }
+        }
+
+        synchronized (this) {
+            if (done[tile.index]) {
+                return;
+            }
+            done[tile.index] = true;
+            remaining--;
+            timedTiles++;
+            tileTime += nanos;
+            notifyAll();
+        }
+        statistics.tileComplete(nanos);
+        monitor.tileComplete(nanos);
+    }
+
+    /**
+     * Puts the tiles of a worker whose connection failed back into the
+     * queue, unless other workers are tracing them.
+     *
+     * @param connection Connection to the worker.
+     */
+    private synchronized void release(Connection connection)
+    {
+        connections.remove(connection);
+        for (int i : connection.outstanding.keySet()) {
+            if (--copies[i] == 0 && !done[i]) {
+                queue.addFirst(tiles.get(i));
+            }
+        }
+        connection.outstanding.clear();
+        notifyAll();
+    }
+
+    /**
+     * Connection to a worker.
+     */
+    private final class Connection
+    {
+        /**
+         * Socket connected to the worker.
+         */
+        private final Socket socket;
+
+        /**
+         * Address and port of the worker.
+         */
+        final String name;
+
+        /**
+         * Start time in nanoseconds of each tile assigned to the worker
+         * by index.
+         */
+        final Map<Integer, Long> outstanding = new HashMap<Integer, Long>();
+
+        /**
+         * Number of tiles that may be assigned to the worker at a time.
+         */
+        int capacity;
+
+        /**
+         * Stream to the worker.
+         */
+        private DataOutputStream out;
+
+        /**
+         * Creates an instance of this class.
+         *
+         * @param socket Socket connected to the worker.
+         */
+        Connection(Socket socket)
+        {
+            this.socket = socket;
+            name = socket.getRemoteSocketAddress().toString();
+        }
+
+        /**
+         * Sends the scene to the worker, hands out tiles and receives
+         * their pixels until the render ends or the connection fails.
+         *
+         * @param sceneBytes Scene in the binary scene format.
+         * @param writer     Writer for the output image.
+         */
+        void serve(byte[] sceneBytes, PixelWriter writer)
+        {
+            try {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(socket.getInputStream()));
+                synchronized (this) {
+                    out = new DataOutputStream(new BufferedOutputStream(
+                            socket.getOutputStream()));
+                    out.writeInt(RenderWorker.MAGIC);
+                    out.writeBoolean(settings.adaptive);
+                    out.writeDouble(settings.contrastThreshold);
+                    out.writeInt(settings.maxSamples);
+                    out.writeDouble(settings.exposure);
+                    out.writeBoolean(settings.screenBins);
+                    out.writeBoolean(settings.gBuffer);
+                    out.writeInt(settings.maxDepth);
+                    out.writeDouble(settings.minCoefficient);
+                    out.writeDouble(settings.luminanceThreshold);
+                    out.writeDouble(settings.roulette);
+                    out.writeInt(settings.rouletteDepth);
+                    out.writeInt(sceneBytes.length);
+                    out.write(sceneBytes);
+                    out.flush();
+                }
+                if (in.readInt() != RenderWorker.MAGIC) {
+                    throw new IOException("Not a render worker");
+                }
+                int threads = in.readInt();
+                logger.log("Worker " + name + " joined with " + threads +
+                           " thread(s).");
+
+                synchronized (TileCoordinator.this) {
+                    capacity = Math.max(1, threads) * TILES_PER_THREAD;
+                }
+                long[] counts = new long[statistics.counts().length];
+                while (true) {
+                    List<Tile> batch;
+                    synchronized (TileCoordinator.this) {
+                        batch = assign(this);
+                        while (outstanding.isEmpty() && !finished) {
+                            TileCoordinator.this.wait(POLL_INTERVAL);
+                            batch = assign(this);
+                        }
+                        if (finished) {
+                            return;
+                        }
+                    }
+                    send(batch);
+
+                    int index = in.readInt();
+                    Tile tile;
+                    synchronized (TileCoordinator.this) {
+                        if (!outstanding.containsKey(index)) {
+                            throw new IOException("Unexpected tile " +
+                                                  index);
+                        }
+                        tile = tiles.get(index);
+                    }
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] = in.readLong();
+                    }
+                    byte[] pixels = new byte[3 * tile.width * tile.height];
+                    in.readFully(pixels);
+                    statistics.addCounts(counts);
+                    complete(this, tile, pixels, writer);
+                }
+            } catch (IOException e) {
+                synchronized (TileCoordinator.this) {
+                    if (!finished) {
+                        logger.log("Lost worker " + name + ": " +
+                                   (e instanceof EOFException ?
+                                    "connection closed" : e.getMessage()));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                release(this);
+                close();
+            }
+        }
+
+        /**
+         * Sends tile assignments to the worker.
+         *
+         * @param batch Tiles assigned to the worker.
+         * @throws IOException If the tiles cannot be sent.
+         */
+        private synchronized void send(List<Tile> batch) throws IOException
+        {
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (Tile tile : batch) {
+                out.writeInt(tile.index);
+                out.writeInt(tile.x);
+                out.writeInt(tile.y);
+                out.writeInt(tile.width);
+                out.writeInt(tile.height);
+            }
+            out.flush();
+        }
+
+        /**
+         * Tells the worker that the render has ended, if it can be
+         * told, and closes the connection.
+         */
+        synchronized void close()
+        {
+            try {
+                if (out != null) {
+                    out.writeInt(RenderWorker.END);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // The worker is gone already.
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing more can be done with the connection.
+            }
+        }
+    }
+}
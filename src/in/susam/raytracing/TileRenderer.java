@@ -0,0 +1,567 @@
+/*
+ * Parallel tile renderer.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import in.susam.util.Logger;
+
+/**
+ * Traces an image in parallel. The image is split into tiles and the
+ * tiles are traced on a work-stealing {@link ForkJoinPool}. Since the
+ * color of a pixel depends only on the scene, the tiles can be traced
+ * independently of each other and in any order. With a single thread,
+ * the tiles are traced one after another on the calling thread.
+ *
+ * <p>In progressive mode, the image is traced in several passes. Each
+ * coarse pass takes one sample per block of pixels and fills the block
+ * with its color. The blocks are halved in every pass until they are 2
+ * by 2 pixels in size. The last pass traces the image at full quality.
+ * Each sample of a coarse pass is reused by the following coarse
+ * passes, so all the coarse passes together trace a quarter of a
+ * sample per pixel.</p>
+ *
+ * @author Susam Pal
+ */
+class TileRenderer
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Scene to be traced.
+     */
+    private final Scene scene;
+
+    /**
+     * Settings for the render.
+     */
+    private final RenderSettings settings;
+
+    /**
+     * Tracing state of each thread that traces tiles.
+     */
+    private final ThreadLocal<TraceContext> contexts;
+
+    /**
+     * Adaptive sampler of each thread, or <code>null</code> if every
+     * pixel is sampled 4 times.
+     */
+    private final ThreadLocal<AdaptiveSampler> samplers;
+
+    /**
+     * Statistics of the render.
+     */
+    private final RenderStatistics statistics;
+
+    /**
+     * Monitor that follows the progress of the render.
+     */
+    private final RenderMonitor monitor;
+
+    /**
+     * Checkpoint of the render, or <code>null</code> if the progress of
+     * the render is not saved.
+     */
+    private final Checkpoint checkpoint;
+
+    /**
+     * Bounds to which the rays of the tiles traced in the final pass
+     * are added, or <code>null</code> if the rays are not recorded.
+     */
+    private RayBounds rayBounds;
+
+    /**
+     * Whether the render stops at {@link #deadline}.
+     */
+    private boolean hasDeadline;
+
+    /**
+     * Value of {@link System#nanoTime} after which no more rows of
+     * pixels are traced.
+     */
+    private long deadline;
+
+    /**
+     * Creates an instance of this class.
+     *
+     * @param scene      Scene to be traced.
+     * @param settings   Settings for the render.
+     * @param statistics Statistics to which the work done by the render
+     *                   is added.
+     * @param monitor    Monitor that follows the progress of the render.
+     * @param checkpoint Checkpoint of the render, or <code>null</code>.
+     */
+    TileRenderer(Scene scene, RenderSettings settings,
+                 RenderStatistics statistics, RenderMonitor monitor,
+                 Checkpoint checkpoint)
+    {
+        this.scene = scene;
+        this.settings = settings;
+        this.statistics = statistics;
+        this.monitor = monitor;
+        this.checkpoint = checkpoint;
+        this.contexts = ThreadLocal.withInitial(() ->
+                new TraceContext(scene, settings));
+        this.samplers = settings.adaptive ?
+                ThreadLocal.withInitial(() ->
+                        new AdaptiveSampler(contexts.get(), settings)) :
+                null;
+    }
+
+    /**
+     * Traces every tile of the image and writes each pixel into the
+     * <code>writer</code>. In progressive mode, the
+     * <code>listener</code> is notified after each pass. If the render
+     * is cancelled through its monitor, the tiles that are not yet
+     * being traced are skipped. With a checkpoint, the render starts
+     * from the pass and skips the tiles that an earlier render
+     * completed, and the progress is saved when the render stops before
+     * it is complete.
+     *
+     * @param writer   Writer for the output image.
+     * @param listener Listener for the passes, or <code>null</code>.
+     * @throws IOException If the listener fails to save a frame.
+     * @throws java.util.concurrent.CancellationException If the render
+     *                                                    is cancelled.
+     */
+    void render(BMPWriter writer, RenderListener listener)
+            throws IOException
+    {
+        // Block sizes of the coarse passes followed by 0 for the final
+        // pass.
+        int coarse = 0;
+        if (settings.progressive) {
+            for (int b = settings.previewBlockSize; b >= 2; b /= 2) {
+                coarse++;
+            }
+        }
+        int[] blocks = new int[coarse + 1];
+        for (int i = 0, b = settings.previewBlockSize; i < coarse;
+             i++, b /= 2) {
+            blocks[i] = b;
+        }
+
+        List<Tile> tiles = Tile.split(scene.width, scene.height,
+                                      settings.tileSize);
+        int first = checkpoint == null ? 0 : checkpoint.pass();
+        long resumed = checkpoint == null ? 0 : checkpoint.resumedTiles();
+        monitor.start((long) tiles.size() * (blocks.length - first) -
+                      resumed);
+
+        ForkJoinPool pool = settings.threads > 1 ?
+                new ForkJoinPool(settings.threads) : null;
+        boolean complete = false;
+        try {
+            for (int i = first; i < blocks.length; i++) {
+                int previous = i > 0 ? blocks[i - 1] : 0;
+                if (checkpoint != null) {
+                    checkpoint.startPass(i, tiles.size(), writer);
+                }
+                renderPass(tiles, writer, blocks[i], previous, pool);
+                monitor.checkCancelled();
+                if (checkpoint != null) {
+                    checkpoint.passComplete(i);
+                }
+
+                if (blocks.length > 1) {
+                    logger.log("Pass " + (i + 1) + " of " +
+                               blocks.length + " complete" +
+                               (blocks[i] > 0 ? " with " + blocks[i] +
+                                "x" + blocks[i] + " blocks." : "."));
+                }
+                if (listener != null) {
+                    listener.passComplete(i + 1, blocks.length, writer);
+                }
+            }
+            complete = true;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            if (checkpoint != null) {
+                if (complete) {
+                    checkpoint.finish();
+                } else {
+                    checkpoint.save();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the tracing state of the calling thread. The state holds the
+     * scene, so a thread that outlives the render, such as a thread of
+     * a {@link RenderScheduler}, must call this method when it traces
+     * no more tiles of the render. If it traces another tile later, the
+     * state is created again.
+     */
+    void release()
+    {
+        contexts.remove();
+        if (samplers != null) {
+            samplers.remove();
+        }
+    }
+
+    /**
+     * Records the rays of the tiles traced in the final pass from now
+     * on. This method must be called before the tiles are traced.
+     *
+     * @param rayBounds Bounds to which the rays are added.
+     */
+    void recordRays(RayBounds rayBounds)
+    {
+        this.rayBounds = rayBounds;
+    }
+
+    /**
+     * Stops tracing at a deadline. After the deadline, the tiles that
+     * are not yet being traced are skipped and the tiles that are being
+     * traced stop after their current row of pixels or blocks, so the
+     * pixels that are not traced keep their previous colors. Tiles that
+     * are sampled adaptively stop only at the end of the tile.
+     *
+     * @param deadline Value of {@link System#nanoTime} after which no
+     *                 more rows are traced.
+     */
+    void stopAt(long deadline)
+    {
+        this.deadline = deadline;
+        hasDeadline = true;
+    }
+
+    /**
+     * Returns whether the deadline set by {@link #stopAt} has passed.
+     *
+     * @return <code>true</code> if the deadline has passed.
+     */
+    boolean isLate()
+    {
+        return hasDeadline && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Traces the specified <code>tiles</code> with one sample per block
+     * of pixels and fills each block with the color of its sample. The
+     * monitor is not started, so the caller must set the total number
+     * of tiles of the render.
+     *
+     * @param tiles  Tiles to be traced.
+     * @param writer Writer for the pixels of the tiles.
+     * @param block  Width and height of a block.
+     * @param pool   Pool on which the tiles are traced, or
+     *               <code>null</code> to trace them on the calling
+     *               thread.
+     */
+    void renderBlocks(List<Tile> tiles, PixelWriter writer, int block,
+                      ForkJoinPool pool)
+    {
+        renderPass(tiles, writer, block, 0, pool);
+    }
+
+    /**
+     * Traces every tile of the image at full quality in a single pass
+     * and writes each pixel into the <code>writer</code>.
+     *
+     * @param writer Writer for the pixels of the image.
+     * @throws java.util.concurrent.CancellationException If the render
+     *                                                    is cancelled.
+     */
+    void render(PixelWriter writer)
+    {
+        List<Tile> tiles = Tile.split(scene.width, scene.height,
+                                      settings.tileSize);
+        monitor.start(tiles.size());
+        ForkJoinPool pool = settings.threads > 1 ?
+                new ForkJoinPool(settings.threads) : null;
+        try {
+            renderTiles(tiles, writer, pool);
+            monitor.checkCancelled();
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Traces the specified <code>tiles</code> at full quality and writes
+     * their pixels into the <code>writer</code>. The monitor is not
+     * started, so the caller must set the total number of tiles of the
+     * render.
+     *
+     * @param tiles  Tiles to be traced.
+     * @param writer Writer for the pixels of the tiles.
+     * @param pool   Pool on which the tiles are traced, or
+     *               <code>null</code> to trace them on the calling
+     *               thread.
+     */
+    void renderTiles(List<Tile> tiles, PixelWriter writer,
+                     ForkJoinPool pool)
+    {
+        renderPass(tiles, writer, 0, 0, pool);
+    }
+
+    /**
+     * Traces the specified <code>tiles</code> in a pass.
+     *
+     * @param tiles    Tiles to be traced.
+     * @param writer   Writer for the pixels of the tiles.
+     * @param block    Block size of a coarse pass, or 0 for the final
+     *                 pass.
+     * @param previous Block size of the previous coarse pass, or 0.
+     * @param pool     Pool on which the tiles are traced, or
+     *                 <code>null</code> to trace them on the calling
+     *                 thread.
+     */
+    private void renderPass(List<Tile> tiles, PixelWriter writer,
+                            int block, int previous, ForkJoinPool pool)
+    {
+        if (pool == null) {
+            for (Tile tile : tiles) {
+                renderTile(tile, writer, block, previous);
+            }
+        } else {
+            pool.invoke(new TileTask(tiles, writer, block, previous, 0,
+                                     tiles.size()));
+        }
+    }
+
+    /**
+     * Traces a single tile in a pass and writes its pixels into the
+     * writer. The work done is added to the statistics of the render
+     * when the tile is complete or stopped by the deadline. Only a
+     * complete tile is counted as traced.
+     *
+     * @param tile     Tile to be traced.
+     * @param writer   Writer for the output image.
+     * @param block    Block size of a coarse pass, or 0 for the final
+     *                 pass.
+     * @param previous Block size of the previous coarse pass, or 0.
+     */
+    private void renderTile(Tile tile, PixelWriter writer, int block,
+                            int previous)
+    {
+        if (monitor.isCancelled() || isLate() ||
+            (checkpoint != null && checkpoint.isDone(tile.index))) {
+            return;
+        }
+
+        RenderStatistics.TileEvent event = new RenderStatistics.TileEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        boolean complete;
+        if (block > 0) {
+            complete = renderBlocks(tile, writer, block, previous);
+        } else if (rayBounds != null) {
+            TraceContext context = contexts.get();
+            context.rayBounds = rayBounds.reset(tile.index,
+                                                context.hierarchy.bounds);
+            complete = renderTile(tile, writer);
+            context.rayBounds = null;
+        } else {
+            complete = renderTile(tile, writer);
+        }
+
+        long nanos = System.nanoTime() - start;
+        statistics.add(contexts.get());
+        if (!complete) {
+            return;
+        }
+        statistics.tileComplete(nanos);
+        monitor.tileComplete(nanos);
+        if (checkpoint != null) {
+            checkpoint.tileComplete(tile.index);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.x = tile.x;
+            event.y = tile.y;
+            event.width = tile.width;
+            event.height = tile.height;
+            event.block = block;
+            event.commit();
+        }
+    }
+
+    /**
+     * Traces a tile in a coarse pass. The blocks are aligned to the top
+     * left corner of the tile. The blocks whose top left pixel was
+     * sampled in the previous pass already hold the color of that
+     * sample and are skipped.
+     *
+     * @param tile     Tile to be traced.
+     * @param writer   Writer for the output image.
+     * @param block    Width and height of a block.
+     * @param previous Block size of the previous pass, or 0.
+     * @return <code>true</code> if every block was traced, or
+     *         <code>false</code> if the deadline stopped the tile.
+     */
+    private boolean renderBlocks(Tile tile, PixelWriter writer, int block,
+                                 int previous)
+    {
+        TraceContext context = contexts.get();
+        long count = 0;
+        int dy;
+        for (dy = 0; dy < tile.height && !isLate(); dy += block) {
+            for (int dx = 0; dx < tile.width; dx += block) {
+                if (previous > 0 && dx % previous == 0 &&
+                    dy % previous == 0) {
+                    continue;
+                }
+
+                RayTracer.traceSample(tile.x + dx, tile.y + dy, context);
+                double red = Color.srgbEncode(context.red);
+                double green = Color.srgbEncode(context.green);
+                double blue = Color.srgbEncode(context.blue);
+                count++;
+
+                int height = Math.min(block, tile.height - dy);
+                int width = Math.min(block, tile.width - dx);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        writer.setPixel(tile.x + dx + x, tile.y + dy + y,
+                                        red, green, blue);
+                    }
+                }
+            }
+        }
+        statistics.addSamples(count);
+        return dy >= tile.height;
+    }
+
+    /**
+     * Traces a single tile and writes its pixels into the writer.
+     *
+     * @param tile   Tile to be traced.
+     * @param writer Writer for the output image.
+     * @return <code>true</code> if every row was traced, or
+     *         <code>false</code> if the deadline stopped the tile.
+     */
+    private boolean renderTile(Tile tile, PixelWriter writer)
+    {
+        if (samplers != null) {
+            statistics.addSamples(samplers.get().renderTile(tile,
+                                                            writer));
+            return true;
+        }
+
+        TraceContext context = contexts.get();
+        int y;
+        for (y = tile.y; y < tile.y + tile.height && !isLate(); y++) {
+            for (int x = tile.x; x < tile.x + tile.width; x++) {
+                RayTracer.tracePixel(x, y, context);
+                writer.setPixel(x, y, context.red, context.green,
+                                context.blue);
+            }
+        }
+        statistics.addSamples(4L * tile.width * (y - tile.y));
+        return y >= tile.y + tile.height;
+    }
+
+    /**
+     * Task that traces a range of tiles. The range is split in halves
+     * until a single tile remains so that idle threads can steal the
+     * remaining halves from busy threads.
+     */
+    private class TileTask extends RecursiveAction
+    {
+        /**
+         * Serial version UID of this class.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Tiles of the pass.
+         */
+        private final List<Tile> tiles;
+
+        /**
+         * Writer for the pixels of the tiles.
+         */
+        private final PixelWriter writer;
+
+        /**
+         * Block size of the coarse pass, or 0 for the final pass.
+         */
+        private final int block;
+
+        /**
+         * Block size of the previous coarse pass, or 0.
+         */
+        private final int previous;
+
+        /**
+         * Index of the first tile in the range.
+         */
+        private final int from;
+
+        /**
+         * Index after the last tile in the range.
+         */
+        private final int to;
+
+        /**
+         * Creates an instance of this class.
+         *
+         * @param tiles    Tiles of the pass.
+         * @param writer   Writer for the pixels of the tiles.
+         * @param block    Block size of the coarse pass, or 0 for the
+         *                 final pass.
+         * @param previous Block size of the previous coarse pass, or 0.
+         * @param from     Index of the first tile in the range.
+         * @param to       Index after the last tile in the range.
+         */
+        TileTask(List<Tile> tiles, PixelWriter writer, int block,
+                 int previous, int from, int to)
+        {
+            this.tiles = tiles;
+            this.writer = writer;
+            this.block = block;
+            this.previous = previous;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= 1) {
+                if (to > from) {
+                    renderTile(tiles.get(from), writer, block,
+                               previous);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileTask(tiles, writer, block, previous, from,
+                                   middle),
+                      new TileTask(tiles, writer, block, previous, middle,
+                                   to));
+        }
+    }
+}
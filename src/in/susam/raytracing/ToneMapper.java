@@ -0,0 +1,239 @@
+/*
+ * Tone mapper.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import in.susam.util.Logger;
+
+/**
+ * Converts the linear radiance of a {@link Framebuffer} into the bytes
+ * of an image. Each component is altered as per the exposure, gamma
+ * corrected and converted to a byte just like the pixels traced
+ * directly into an image file.
+ *
+ * <p>The conversion is monotonic, so a byte value is reached exactly
+ * when the radiance is not less than a threshold. The 255 thresholds
+ * for an exposure are found once by bisection and each component is
+ * then converted by a binary search over them, without
+ * <code>Math.exp</code> or <code>Math.pow</code>. A whole image is
+ * therefore tone mapped in a small fraction of the time needed to
+ * trace it.</p>
+ *
+ * @author Susam Pal
+ */
+public class ToneMapper
+{
+    /**
+     * {@link in.susam.util.Logger} object for this class.
+     */
+    private static Logger logger = new Logger();
+
+    /**
+     * Exposure.
+     */
+    private final double exposure;
+
+    /**
+     * For each byte value <code>k</code> from 1 to 255, the least
+     * radiance that is converted to a byte of at least <code>k</code>,
+     * at index <code>k - 1</code>.
+     */
+    private final double[] thresholds = new double[255];
+
+    /**
+     * Creates a tone mapper for the specified <code>exposure</code>.
+     *
+     * @param exposure Exposure.
+     */
+    public ToneMapper(double exposure)
+    {
+        if (!(exposure > 0)) {
+            throw new IllegalArgumentException("Exposure must be " +
+                                               "positive: " + exposure);
+        }
+        this.exposure = exposure;
+
+        // Bisect over the bits of the non-negative doubles, which are
+        // ordered like the doubles themselves, up to infinity.
+        long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        for (int k = 1; k <= thresholds.length; k++) {
+            long low = 0;
+            long high = infinity;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (convert(Double.longBitsToDouble(mid)) >= k) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            thresholds[k - 1] = Double.longBitsToDouble(low);
+        }
+    }
+
+    /**
+     * Returns the exposure.
+     *
+     * @return Exposure.
+     */
+    public double getExposure()
+    {
+        return exposure;
+    }
+
+    /**
+     * Converts a radiance to a byte value.
+     *
+     * @param radiance Radiance of a color component.
+     * @return Byte value from 0 to 255.
+     */
+    int toByte(double radiance)
+    {
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] <= radiance) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Tone maps every pixel of the <code>framebuffer</code> and writes
+     * it into the <code>writer</code>. The rows are converted in
+     * parallel with the specified number of threads.
+     *
+     * @param framebuffer Framebuffer to be tone mapped.
+     * @param writer      Writer for the output image.
+     * @param threads     Number of threads.
+     */
+    public void map(Framebuffer framebuffer, PixelWriter writer,
+                    int threads)
+    {
+        int width = framebuffer.getWidth();
+        float[] pixels = framebuffer.pixels();
+        IntStream rows = IntStream.range(0, framebuffer.getHeight());
+        if (threads <= 1) {
+            rows.forEach(y -> mapRow(pixels, width, y, writer));
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> rows.parallel().forEach(y ->
+                    mapRow(pixels, width, y, writer))).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tone maps a row of pixels.
+     *
+     * @param pixels Radiance of the pixels.
+     * @param width  Width of the image.
+     * @param y      Y coordinate of the row.
+     * @param writer Writer for the output image.
+     */
+    private void mapRow(float[] pixels, int width, int y,
+                        PixelWriter writer)
+    {
+        for (int x = 0, i = 3 * y * width; x < width; x++, i += 3) {
+            writer.setPixel(x, y, encoded(pixels[i]),
+                            encoded(pixels[i + 1]),
+                            encoded(pixels[i + 2]));
+        }
+    }
+
+    /**
+     * Converts a radiance to a gamma corrected value that the writers
+     * of image files convert to the same byte as {@link #toByte}.
+     *
+     * @param radiance Radiance of a color component.
+     * @return Gamma corrected value.
+     */
+    private double encoded(double radiance)
+    {
+        // The middle of the interval of the byte survives the
+        // truncation in Color.toByte.
+        return (toByte(radiance) + 0.5) / 255;
+    }
+
+    /**
+     * Converts a radiance to a byte value in the same way as the pixels
+     * traced directly into an image file.
+     *
+     * @param radiance Radiance of a color component.
+     * @return Byte value from 0 to 255.
+     */
+    private int convert(double radiance)
+    {
+        double c = 1.0 - Math.exp(-radiance * exposure);
+        return Color.toByte(Color.srgbEncode(c)) & 0xff;
+    }
+
+    /**
+     * Tone maps a PFM file saved by a render into a BMP image
+     * without tracing the scene again. The arguments are the input PFM
+     * file and the output image file, optionally preceded by
+     * <code>-exposure E</code> and <code>-threads N</code>.
+     *
+     * @param args Command line arguments.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        double exposure = 1.0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        for (; i + 1 < args.length && args[i].startsWith("-"); i++) {
+            if (args[i].equals("-exposure")) {
+                exposure = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " +
+                                                   args[i]);
+            }
+        }
+        if (args.length - i != 2) {
+            throw new IllegalArgumentException("Usage: ToneMapper " +
+                                               "[-exposure E] " +
+                                               "[-threads N] INPUT " +
+                                               "OUTPUT");
+        }
+
+        Framebuffer framebuffer = Framebuffer.read(args[i]);
+        long start = System.nanoTime();
+        try (BMPWriter writer = new BMPWriter(args[i + 1],
+                                              framebuffer.getWidth(),
+                                              framebuffer.getHeight())) {
+            new ToneMapper(exposure).map(framebuffer, writer, threads);
+        }
+        logger.log("Tone mapped " + args[i] + " into " + args[i + 1] +
+                   " with exposure " + exposure + " in " +
+                   (System.nanoTime() - start) / 1000000 + " ms.");
+    }
+}
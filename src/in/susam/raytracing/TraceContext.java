@@ -0,0 +1,311 @@
+/*
+ * Per-thread tracing state.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import java.util.Arrays;
+
+/**
+ * Holds the scratch state used by {@link RayTracer#trace} so that rays
+ * can be traced without allocating any objects. The light sources of
+ * the scene are copied into arrays of primitives when the context is
+ * created. An instance of this class must be used by one thread only.
+ *
+ * @author Susam Pal
+ */
+final class TraceContext
+{
+    /**
+     * Scene being traced.
+     */
+    final Scene scene;
+
+    /**
+     * Bounding volume hierarchy over the spheres of the scene.
+     */
+    final BoundingVolumeHierarchy hierarchy;
+
+    /**
+     * Store of the spheres over which the hierarchy is built. The
+     * centers and materials of the spheres hit by rays are read from
+     * it.
+     */
+    final SphereStore store;
+
+    /**
+     * Screen space bins for primary rays, or <code>null</code> if
+     * primary rays are traced with the hierarchy.
+     */
+    final ScreenBins screenBins;
+
+    /**
+     * First spheres hit by the primary rays, or <code>null</code> if
+     * primary rays are traced.
+     */
+    final GBuffer gBuffer;
+
+    /**
+     * Result of the last closest hit query.
+     */
+    final BoundingVolumeHierarchy.Hit hit =
+            new BoundingVolumeHierarchy.Hit();
+
+    /**
+     * Stack used to traverse the hierarchy.
+     */
+    final int[] stack;
+
+    /**
+     * Number of light sources.
+     */
+    final int lightCount;
+
+    /**
+     * Coordinates of the origins of the light sources.
+     */
+    final double[] lightX, lightY, lightZ;
+
+    /**
+     * Intensities of the light sources.
+     */
+    final double[] lightRed, lightGreen, lightBlue;
+
+    /**
+     * For each light source, the index in leaf order of the sphere that
+     * last blocked a ray towards the light, or -1.
+     */
+    final int[] lastOccluder;
+
+    /**
+     * Exposure as per which the color of each sample is altered.
+     */
+    final double exposure;
+
+    /**
+     * Whether samples and pixels are traced as linear radiance, i.e.
+     * neither altered as per exposure nor gamma corrected, for a
+     * {@link Framebuffer}.
+     */
+    final boolean linear;
+
+    /**
+     * Maximum number of surfaces hit by a ray cast from the camera.
+     */
+    final int maxDepth;
+
+    /**
+     * Reflection coefficient at or below which reflections are not
+     * followed.
+     */
+    final double minCoefficient;
+
+    /**
+     * Luminance at or below which the light that the remaining
+     * reflections of a ray can add is neglected, or 0.
+     */
+    final double luminanceThreshold;
+
+    /**
+     * Largest red, green and blue light that a surface hit by a ray
+     * whose reflection coefficient is 1 can send along the ray.
+     */
+    final double surfaceRed, surfaceGreen, surfaceBlue;
+
+    /**
+     * Largest sum of the reflection coefficients of the surfaces that a
+     * ray whose reflection coefficient is 1 may still hit, by the
+     * number of surfaces it has already hit.
+     */
+    final double[] reflectionTail;
+
+    /**
+     * Largest probability with which reflections survive Russian
+     * roulette, or 0 if there is no roulette.
+     */
+    final double roulette;
+
+    /**
+     * Number of surfaces hit before Russian roulette starts.
+     */
+    final int rouletteDepth;
+
+    /**
+     * Boxes of the tile being traced to which the rays are added, or
+     * <code>null</code> if the rays are not recorded. See
+     * {@link RayBounds}.
+     */
+    double[] rayBounds;
+
+    /**
+     * Number of rays cast from the camera since the counts were last
+     * added to the render statistics. The intersection tests are
+     * counted in {@link #hit}.
+     */
+    long primaryRays;
+
+    /**
+     * Number of rays cast towards the light sources.
+     */
+    long shadowRays;
+
+    /**
+     * Number of rays cast in the direction of reflection.
+     */
+    long reflectionRays;
+
+    /**
+     * Total number of surfaces shaded for the rays cast from the
+     * camera.
+     */
+    long bounces;
+
+    /**
+     * Number of rays cast from the camera whose reflections were still
+     * lit when they were cut short by the maximum depth or the minimum
+     * reflection coefficient.
+     */
+    long truncated;
+
+    /**
+     * Number of rays cast from the camera whose reflections were not
+     * followed since they could not add light above the luminance
+     * threshold.
+     */
+    long dimRays;
+
+    /**
+     * Number of rays cast from the camera whose reflections were ended
+     * by Russian roulette.
+     */
+    long rouletteRays;
+
+    /**
+     * Largest number of surfaces that the rays whose reflections were
+     * ended early would still have hit.
+     */
+    long skippedBounces;
+
+    /**
+     * Red component of the color computed by the last trace.
+     */
+    double red;
+
+    /**
+     * Green component of the color computed by the last trace.
+     */
+    double green;
+
+    /**
+     * Blue component of the color computed by the last trace.
+     */
+    double blue;
+
+    /**
+     * Creates an instance of this class for the specified
+     * <code>scene</code> with the default render settings.
+     *
+     * @param scene Scene to be traced.
+     */
+    TraceContext(Scene scene)
+    {
+        this(scene, new RenderSettings());
+    }
+
+    /**
+     * Creates an instance of this class for the specified
+     * <code>scene</code> and <code>settings</code>.
+     *
+     * @param scene    Scene to be traced.
+     * @param settings Render settings.
+     */
+    TraceContext(Scene scene, RenderSettings settings)
+    {
+        this.scene = scene;
+        hierarchy = scene.getHierarchy();
+        store = hierarchy.store;
+        stack = new int[hierarchy.depth + 1];
+        hit.distances = new double[hierarchy.leafSize];
+        screenBins = settings.screenBins ?
+                scene.getScreenBins(RayTracer.CAMERA_POSITION,
+                                    RayTracer.MAX_DISTANCE) : null;
+        gBuffer = settings.gBuffer ?
+                scene.getGBuffer(settings, RayTracer.CAMERA_POSITION,
+                                 RayTracer.MAX_DISTANCE) : null;
+
+        lightCount = scene.lights.size();
+        lightX = new double[lightCount];
+        lightY = new double[lightCount];
+        lightZ = new double[lightCount];
+        lightRed = new double[lightCount];
+        lightGreen = new double[lightCount];
+        lightBlue = new double[lightCount];
+        lastOccluder = new int[lightCount];
+        Arrays.fill(lastOccluder, -1);
+        exposure = settings.exposure;
+        linear = settings.radianceFile != null;
+        maxDepth = settings.maxDepth;
+        minCoefficient = settings.minCoefficient;
+        luminanceThreshold = settings.luminanceThreshold;
+        roulette = settings.roulette;
+        rouletteDepth = settings.rouletteDepth;
+
+        int i = 0;
+        for (Scene.Light light : scene.lights) {
+            lightX[i] = light.origin.x;
+            lightY[i] = light.origin.y;
+            lightZ[i] = light.origin.z;
+            lightRed[i] = light.intensity.getRed();
+            lightGreen[i] = light.intensity.getGreen();
+            lightBlue[i] = light.intensity.getBlue();
+            i++;
+        }
+
+        // A surface sends at most its diffusion and specularity times
+        // each light along the ray, since the Lambertian and the
+        // Blinn-Phong terms do not exceed 1.
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        double reflection = 0;
+        for (Scene.Material material : store.getMaterials()) {
+            double r = 0;
+            double g = 0;
+            double b = 0;
+            for (int j = 0; j < lightCount; j++) {
+                r += lightRed[j] * (material.diffusion.getRed() +
+                                    material.specularity.getRed());
+                g += lightGreen[j] * (material.diffusion.getGreen() +
+                                      material.specularity.getGreen());
+                b += lightBlue[j] * (material.diffusion.getBlue() +
+                                     material.specularity.getBlue());
+            }
+            red = Math.max(red, r);
+            green = Math.max(green, g);
+            blue = Math.max(blue, b);
+            reflection = Math.max(reflection, material.reflection);
+        }
+        surfaceRed = red;
+        surfaceGreen = green;
+        surfaceBlue = blue;
+        reflectionTail = new double[Math.max(0, maxDepth) + 1];
+        for (int level = maxDepth - 1; level >= 0; level--) {
+            reflectionTail[level] = 1 + reflection *
+                                        reflectionTail[level + 1];
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Vector API ray and sphere intersection kernel.
+ * Copyright (C) 2009 Susam Pal
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package in.susam.raytracing;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel that tests a ray against as many spheres at a time as there
+ * are double precision lanes in the preferred vector shape of the
+ * processor, e.g. 4 with AVX2 and 8 with AVX-512. The operations are
+ * performed in the same order as in {@link RayTracer#hitSphere} and
+ * none of them is fused, so the results are identical to those of the
+ * scalar kernel.
+ *
+ * <p>This class requires the <code>jdk.incubator.vector</code> module.
+ * It is loaded only by {@link SphereKernel#create}.</p>
+ *
+ * @author Susam Pal
+ */
+final class VectorSphereKernel extends SphereKernel
+{
+    /**
+     * Vector shape used by this kernel.
+     */
+    private static final VectorSpecies<Double> SPECIES =
+            DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Creates an instance of this class.
+     */
+    VectorSphereKernel()
+    {
+    }
+
+    @Override
+    int lanes()
+    {
+        return SPECIES.length();
+    }
+
+    @Override
+    void intersect(double[] cx, double[] cy, double[] cz, double[] r,
+                   int from, int count,
+                   double ox, double oy, double oz,
+                   double dx, double dy, double dz,
+                   double distance, double[] out)
+    {
+        for (int k = 0; k < count; k += SPECIES.length()) {
+            distances(cx, cy, cz, r, from + k, ox, oy, oz, dx, dy, dz,
+                      distance).intoArray(out, k);
+        }
+    }
+
+    @Override
+    int occluder(double[] cx, double[] cy, double[] cz, double[] r,
+                 int from, int count,
+                 double ox, double oy, double oz,
+                 double dx, double dy, double dz,
+                 double distance)
+    {
+        // Lanes beyond the last sphere hold either other spheres of
+        // the scene or spheres that no ray hits. Testing them does not
+        // change the answer since the query asks whether any sphere
+        // blocks the ray.
+        for (int k = 0; k < count; k += SPECIES.length()) {
+            int i = from + k;
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, cx, i).sub(ox);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, cy, i).sub(oy);
+            DoubleVector vz = DoubleVector.fromArray(SPECIES, cz, i).sub(oz);
+            DoubleVector radius = DoubleVector.fromArray(SPECIES, r, i);
+
+            DoubleVector a = vx.mul(dx).add(vy.mul(dy)).add(vz.mul(dz));
+            DoubleVector delta = a.mul(a)
+                    .sub(vx.mul(vx).add(vy.mul(vy)).add(vz.mul(vz)))
+                    .add(radius.mul(radius));
+            DoubleVector root = delta.lanewise(VectorOperators.SQRT);
+            DoubleVector root0 = a.sub(root);
+            DoubleVector root1 = a.add(root);
+
+            // A lane is blocked if either intersection point lies in
+            // the open interval (0.1, distance). The points need not
+            // be ordered.
+            VectorMask<Double> blocked =
+                    root0.compare(VectorOperators.GT, 0.1)
+                         .and(root0.compare(VectorOperators.LT, distance))
+                         .or(root1.compare(VectorOperators.GT, 0.1)
+                                  .and(root1.compare(VectorOperators.LT,
+                                                     distance)));
+            if (blocked.anyTrue()) {
+                return i + blocked.firstTrue();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the distances of the intersection points for one vector
+     * of spheres. See {@link RayTracer#hitSphere}.
+     *
+     * @param cx       X coordinates of the centers of the spheres.
+     * @param cy       Y coordinates of the centers of the spheres.
+     * @param cz       Z coordinates of the centers of the spheres.
+     * @param r        Radii of the spheres.
+     * @param i        Index of the first sphere.
+     * @param ox       X coordinate of the origin of the ray.
+     * @param oy       Y coordinate of the origin of the ray.
+     * @param oz       Z coordinate of the origin of the ray.
+     * @param dx       X component of the direction of the ray.
+     * @param dy       Y component of the direction of the ray.
+     * @param dz       Z component of the direction of the ray.
+     * @param distance Maximum distance of the intersection point.
+     * @return Distances of the intersection points.
+     */
+    private static DoubleVector distances(double[] cx, double[] cy,
+                                          double[] cz, double[] r, int i,
+                                          double ox, double oy, double oz,
+                                          double dx, double dy, double dz,
+                                          double distance)
+    {
+        DoubleVector vx = DoubleVector.fromArray(SPECIES, cx, i).sub(ox);
+        DoubleVector vy = DoubleVector.fromArray(SPECIES, cy, i).sub(oy);
+        DoubleVector vz = DoubleVector.fromArray(SPECIES, cz, i).sub(oz);
+        DoubleVector radius = DoubleVector.fromArray(SPECIES, r, i);
+
+        DoubleVector a = vx.mul(dx).add(vy.mul(dy)).add(vz.mul(dz));
+
+        DoubleVector delta = a.mul(a)
+                .sub(vx.mul(vx).add(vy.mul(vy)).add(vz.mul(vz)))
+                .add(radius.mul(radius));
+
+        // The square root of a negative delta is NaN. Every comparison
+        // with NaN is false, so such lanes report no intersection.
+        DoubleVector root = delta.lanewise(VectorOperators.SQRT);
+        DoubleVector root0 = a.sub(root);
+        DoubleVector root1 = a.add(root);
+
+        VectorMask<Double> hit0 =
+                root0.compare(VectorOperators.GT, 0.1)
+                     .and(root0.compare(VectorOperators.LE, distance));
+        VectorMask<Double> hit1 =
+                root1.compare(VectorOperators.GT, 0.1)
+                     .and(root1.compare(VectorOperators.LE, distance));
+
+        return DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY)
+                           .blend(root1, hit1)
+                           .blend(root0, hit0);
+    }
+}